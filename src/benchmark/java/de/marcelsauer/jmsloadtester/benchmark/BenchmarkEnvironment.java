@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.config.DefaultConfigImpl;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageContentStrategyFactoryImpl;
+import de.marcelsauer.jmsloadtester.message.Payload;
+import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTrackerImpl;
+import de.marcelsauer.jmsloadtester.tracker.TimeTrackerImpl;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.BrokerService;
+
+import javax.jms.ConnectionFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * everything the benchmarks need without a JNDI setup: an ActiveMQ broker inside the benchmark JVM that is reached via
+ * vm:// only, a config and the sample payloads. the broker neither persists messages nor opens a port, so the
+ * benchmarks run offline and only measure the client side and the in memory dispatch.
+ */
+public final class BenchmarkEnvironment {
+
+    public static final String BROKER_NAME = "jmsloadtester-benchmark";
+
+    private static BrokerService broker;
+
+    private BenchmarkEnvironment() {
+    }
+
+    public static synchronized ConnectionFactory getConnectionFactory() {
+        if (broker == null) {
+            silenceLogger();
+            try {
+                final BrokerService service = new BrokerService();
+                service.setBrokerName(BROKER_NAME);
+                service.setPersistent(false);
+                service.setUseJmx(false);
+                service.setAdvisorySupport(false);
+                // the connections close themselves on shutdown, they would fail if the broker was stopped first
+                service.setUseShutdownHook(false);
+                service.start();
+                broker = service;
+            } catch (Exception e) {
+                throw new JmsException("could not start the embedded broker", e);
+            }
+        }
+        return new ActiveMQConnectionFactory("vm://" + BROKER_NAME + "?create=false");
+    }
+
+    public static Config getConfig() {
+        silenceLogger();
+        final Properties properties = new Properties();
+        final InputStream in = getResource("benchmark.app.properties");
+        try {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new JmsException("could not load the benchmark config", e);
+        } finally {
+            close(in);
+        }
+        return new DefaultConfigImpl(properties, new MessageContentStrategyFactoryImpl());
+    }
+
+    /**
+     * @return a tracker that never completes, so it keeps counting for the whole benchmark
+     */
+    public static MessageTracker getMessageTracker() {
+        final MessageTracker tracker = new MessageTrackerImpl();
+        tracker.setSenderTimeTracker(new TimeTrackerImpl());
+        tracker.setListenerTimeTracker(new TimeTrackerImpl());
+        tracker.setTotalMessagesToBeSent(Integer.MAX_VALUE);
+        tracker.setTotalMessagesToBeReceived(Integer.MAX_VALUE);
+        return tracker;
+    }
+
+    /**
+     * @param name one of the sample files like 500K_buyStocks.xml
+     */
+    public static Payload getPayload(final String name) {
+        final InputStream in = getResource(name);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new Payload(out.toByteArray());
+        } catch (IOException e) {
+            throw new JmsException("could not read payload " + name, e);
+        } finally {
+            close(in);
+        }
+    }
+
+    private static void silenceLogger() {
+        Logger.setOut(OutputStrategyFactory.getOutputStrategy(OutputStrategyFactory.SILENT));
+    }
+
+    private static InputStream getResource(final String name) {
+        final InputStream in = BenchmarkEnvironment.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalArgumentException("resource not found on the classpath: " + name);
+        }
+        return in;
+    }
+
+    private static void close(final InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.client.Listener;
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.handler.MessageHandler;
+import de.marcelsauer.jmsloadtester.message.DefaultMessageParser;
+import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
+import de.marcelsauer.jmsloadtester.tracker.LatencyTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.SequenceTracker;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.MessageListener;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+
+/**
+ * what a listener does with every received message: the message tracker, the latency and the sequence tracking. the
+ * broker is left out, the message listener the Listener registers is called directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerBenchmark {
+
+    @Param( { SequenceTracker.SHARED, SequenceTracker.OFF })
+    public String sequenceTracking;
+
+    private MessageListener messageListener;
+    private ActiveMQTextMessage message;
+    private int sequence;
+
+    @Setup
+    public void setUp() throws Exception {
+        final MessageTracker messageTracker = BenchmarkEnvironment.getMessageTracker();
+        final SequenceTracker sequenceTracker = new SequenceTracker(sequenceTracking);
+        final Listener listener = new Listener();
+        listener.setMessageOutStrategy(OutputStrategyFactory.getOutputStrategy(OutputStrategyFactory.SILENT));
+        listener.setMessageParser(new DefaultMessageParser());
+        listener.addMessageNotifyable(new LatencyTracker());
+        listener.addMessageNotifyable(messageTracker);
+        if (sequenceTracker.isEnabled()) {
+            listener.addMessageNotifyable(sequenceTracker.getListenerNotifyable());
+        }
+        listener.setMessageHandler(createCapturingMessageHandler());
+        listener.run();
+
+        message = new ActiveMQTextMessage();
+        message.setText(BenchmarkEnvironment.getPayload("1K_buyStocks.xml").asString());
+        new Sender().intercept(message, null, messageTracker);
+    }
+
+    @Benchmark
+    public void onMessage() throws Exception {
+        // a new id and the next sequence number, otherwise the trackers would only see duplicates
+        sequence++;
+        message.setJMSMessageID("ID:benchmark-" + sequence);
+        message.setIntProperty(Sender.THREAD_MESSAGES_SENT, sequence);
+        messageListener.onMessage(message);
+    }
+
+    // the only call the listener makes is attachMessageListener, we keep the listener instead of attaching it
+    private MessageHandler createCapturingMessageHandler() {
+        final MessageHandler messageHandler = EasyMock.createNiceMock(MessageHandler.class);
+        messageHandler.attachMessageListener((String) anyObject(), (MessageListener) anyObject());
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                messageListener = (MessageListener) getCurrentArguments()[1];
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(messageHandler);
+        return messageHandler;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.message.MessageFactory;
+import de.marcelsauer.jmsloadtester.message.Payload;
+import de.marcelsauer.jmsloadtester.tools.JmsUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.Connection;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * turning a payload into a jms message of the embedded broker
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageFactoryBenchmark {
+
+    @Param( { "TextMessageFactory", "ByteMessageFactory" })
+    public String messageFactory;
+
+    @Param( { "1K_buyStocks.xml", "100K_buyStocks.xml", "500K_buyStocks.xml" })
+    public String payloadFile;
+
+    private MessageFactory factory;
+    private Payload payload;
+    private Connection connection;
+    private Session session;
+
+    @Setup
+    public void setUp() throws Exception {
+        factory = (MessageFactory) Class.forName("de.marcelsauer.jmsloadtester.message." + messageFactory).newInstance();
+        payload = BenchmarkEnvironment.getPayload(payloadFile);
+        connection = BenchmarkEnvironment.getConnectionFactory().createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JmsUtils.closeConnection(connection);
+    }
+
+    @Benchmark
+    public Message toMessage() {
+        return factory.toMessage(payload, session);
+    }
+}
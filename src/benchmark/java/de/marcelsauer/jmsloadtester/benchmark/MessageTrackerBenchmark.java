@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTrackerFactory;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * counting and message id tracking of sent and received messages, shared by several threads like in a load test.
+ * only the bounded message id strategies are measured, the exact one would fill the heap within the first iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MessageTrackerBenchmark {
+
+    private static final int MESSAGES = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Tracker {
+
+        @Param( { MessageIdTrackerFactory.NONE, MessageIdTrackerFactory.DEFAULT })
+        public String messageIdStrategy;
+
+        private MessageTracker messageTracker;
+
+        @Setup
+        public void setUp() {
+            messageTracker = BenchmarkEnvironment.getMessageTracker();
+            messageTracker.setSentMessageIdTracker(MessageIdTrackerFactory.getMessageIdTracker(messageIdStrategy));
+            messageTracker.setReceivedMessageIdTracker(MessageIdTrackerFactory.getMessageIdTracker(messageIdStrategy));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Messages {
+
+        private final Message[] messages = new Message[MESSAGES];
+        private int next;
+
+        @Setup
+        public void setUp() throws JMSException {
+            final String thread = Thread.currentThread().getName();
+            for (int i = 0; i < MESSAGES; i++) {
+                messages[i] = new ActiveMQTextMessage();
+                messages[i].setJMSMessageID("ID:" + thread + "-" + i);
+            }
+        }
+
+        private Message next() {
+            next = (next + 1) & (MESSAGES - 1);
+            return messages[next];
+        }
+    }
+
+    @Benchmark
+    public void messageSent(final Tracker tracker, final Messages messages) {
+        tracker.messageTracker.messageSent(messages.next());
+    }
+
+    @Benchmark
+    public void messageReceived(final Tracker tracker, final Messages messages) {
+        tracker.messageTracker.onMessage(messages.next());
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTrackerFactory;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTrackerImpl;
+import de.marcelsauer.jmsloadtester.tracker.TimeTracker;
+import de.marcelsauer.jmsloadtester.tracker.TimeTrackerImpl;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.Message;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the counting of received messages by as many threads as there are cores, compared with a tracker that synchronizes
+ * every call like the message tracker did before it was made lock free. the messages have no message id, so only the
+ * counting and the completion detection are measured. -t &lt;threads&gt; shows how both scale.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class MessageTrackerContentionBenchmark {
+
+    public static final String SYNCHRONIZED = "SYNCHRONIZED";
+    public static final String LOCK_FREE = "LOCK_FREE";
+
+    @State(Scope.Benchmark)
+    public static class Tracker {
+
+        @Param( { SYNCHRONIZED, LOCK_FREE })
+        public String counting;
+
+        private MessageTracker messageTracker;
+        private final Message message = new ActiveMQTextMessage();
+
+        @Setup
+        public void setUp() {
+            messageTracker = SYNCHRONIZED.equals(counting) ? new SynchronizedMessageTracker() : BenchmarkEnvironment.getMessageTracker();
+            messageTracker.setReceivedMessageIdTracker(MessageIdTrackerFactory.getMessageIdTracker(MessageIdTrackerFactory.NONE));
+        }
+    }
+
+    @Benchmark
+    public void messageReceived(final Tracker tracker) {
+        tracker.messageTracker.onMessage(tracker.message);
+    }
+
+    /**
+     * counts like MessageTrackerImpl did before it was made lock free
+     */
+    private static class SynchronizedMessageTracker extends MessageTrackerImpl {
+        private int received;
+        private boolean first;
+        private final TimeTracker timeTracker = new TimeTrackerImpl();
+
+        @Override
+        public synchronized void onMessage(final Message message) {
+            received++;
+            if (!first) {
+                timeTracker.start();
+                first = true;
+            }
+            if (received >= Integer.MAX_VALUE) {
+                timeTracker.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.message.Payload;
+import de.marcelsauer.jmsloadtester.message.filter.DateFilter;
+import de.marcelsauer.jmsloadtester.message.filter.FilterFactoryImpl;
+import de.marcelsauer.jmsloadtester.message.filter.MessageCounterFilter;
+import de.marcelsauer.jmsloadtester.message.filter.NanoFilter;
+import de.marcelsauer.jmsloadtester.message.filter.PlaceHolderContentFilter;
+import de.marcelsauer.jmsloadtester.message.filter.RandomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * placeholder replacement of a sample payload, with placeholders at the start and the end or without any
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaceHolderContentFilterBenchmark {
+
+    @Param( { "500B_buyStocks.xml", "10K_buyStocks.xml", "500K_buyStocks.xml" })
+    public String payloadFile;
+
+    @Param( { "true", "false" })
+    public boolean placeHolders;
+
+    private PlaceHolderContentFilter filter;
+    private Payload payload;
+
+    @Setup
+    public void setUp() {
+        final FilterFactoryImpl filterFactory = new FilterFactoryImpl();
+        filterFactory.setMessageCounterFilter(new MessageCounterFilter(BenchmarkEnvironment.getMessageTracker()));
+        filterFactory.setDateFilter(new DateFilter());
+        filterFactory.setNanoFilter(new NanoFilter());
+        filterFactory.setRandFilter(new RandomFilter());
+        filter = new PlaceHolderContentFilter(filterFactory);
+        final String content = BenchmarkEnvironment.getPayload(payloadFile).asString();
+        payload = new Payload(placeHolders ? "<!-- :messageCounter: :datetime: -->" + content + "<!-- :nanotime: :random: -->" : content);
+    }
+
+    @Benchmark
+    public Payload filter() {
+        return filter.filter(payload);
+    }
+}
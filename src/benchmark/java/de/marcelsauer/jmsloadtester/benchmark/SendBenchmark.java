@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.benchmark;
+
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.handler.ConnectionHandlerImpl;
+import de.marcelsauer.jmsloadtester.handler.DefaultSessionHandlerImpl;
+import de.marcelsauer.jmsloadtester.handler.DestinationHandler;
+import de.marcelsauer.jmsloadtester.handler.MessageHandlerImpl;
+import de.marcelsauer.jmsloadtester.message.MessageFactory;
+import de.marcelsauer.jmsloadtester.message.Payload;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.ReplyTracker;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+import org.apache.activemq.command.ActiveMQTopic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.Destination;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MessageHandlerImpl.sendMessage like a sender thread calls it: message factory, interceptors, producer and the
+ * message tracker. the topic has no subscribers, so the broker drops the messages right away and nothing piles up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SendBenchmark {
+
+    private static final String DESTINATION = "benchmark.send";
+
+    @Param( { "TextMessageFactory", "ByteMessageFactory" })
+    public String messageFactory;
+
+    @Param( { "1K_buyStocks.xml", "100K_buyStocks.xml" })
+    public String payloadFile;
+
+    private MessageHandlerImpl messageHandler;
+    private Payload payload;
+
+    @Setup
+    public void setUp() throws Exception {
+        final MessageTracker messageTracker = BenchmarkEnvironment.getMessageTracker();
+        messageHandler = new MessageHandlerImpl();
+        messageHandler.setConfig(BenchmarkEnvironment.getConfig());
+        messageHandler.setConnectionHandler(new ConnectionHandlerImpl(BenchmarkEnvironment.getConnectionFactory()));
+        messageHandler.setSessionHandler(new DefaultSessionHandlerImpl("AUTO_ACKNOWLEDGE"));
+        messageHandler.setDestinationHandler(new DestinationHandler() {
+            private final Destination topic = new ActiveMQTopic(DESTINATION);
+
+            public Destination getDestination(final String name) {
+                return topic;
+            }
+        });
+        messageHandler.setMessageFactory((MessageFactory) Class.forName("de.marcelsauer.jmsloadtester.message." + messageFactory).newInstance());
+        messageHandler.setMessageTracker(messageTracker);
+        messageHandler.setTransactionTracker(new TransactionTracker(BenchmarkEnvironment.getConfig()));
+        messageHandler.setReplyTracker(new ReplyTracker(BenchmarkEnvironment.getConfig()));
+        messageHandler.addMessageInterceptor(new Sender());
+        messageHandler.addMessageSentAware(messageTracker);
+        payload = BenchmarkEnvironment.getPayload(payloadFile);
+    }
+
+    @Benchmark
+    public void sendMessage() {
+        messageHandler.sendMessage(payload, DESTINATION);
+    }
+}
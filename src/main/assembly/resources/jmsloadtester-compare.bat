@@ -0,0 +1,34 @@
+@echo off
+REM **************************************************************************
+REM JMS Load Tester result comparison
+REM    compares the JSON results (app.output.result.json.strategy) of candidates
+REM    with a baseline, each line of a result file is one run
+REM
+REM    jmsloadtester-compare.bat [-threshold <percent>] [-alpha <significance level>]
+REM        [-higher <result key>]... [-lower <result key>]...
+REM        <baseline result file> <candidate result file>...
+REM
+REM    exits with 0 if nothing regressed, 1 on a regression and 2 on an error or
+REM    if a metric is missing or no number in the results
+REM **************************************************************************
+
+if not "%JAVA_HOME%" == "" goto withJavaHome
+echo the JAVA_HOME environment variable is not set!
+echo please set this as the JMS Load Tester needs it
+exit /b 2
+
+:withJavaHome
+
+if exist "%JAVA_HOME%\bin\java.exe" goto start
+echo the JAVA_HOME environment variable is not set!
+echo please set this as the JMS Load Tester needs it
+exit /b 2
+
+:start
+
+set LIBS=./lib/*
+set CLASS=de.marcelsauer.jmsloadtester.Compare
+set JAVA_EXE="%JAVA_HOME%\bin\java"
+
+%JAVA_EXE% -classpath "%LIBS%" %CLASS% %*
+exit /b %ERRORLEVEL%
@@ -0,0 +1,32 @@
+#!/bin/sh
+
+# *********************************************************************************
+# JMS Load Tester result comparison
+#    compares the JSON results (app.output.result.json.strategy) of candidates
+#    with a baseline, each line of a result file is one run
+#
+#    jmsloadtester-compare.sh [-threshold <percent>] [-alpha <significance level>]
+#        [-higher <result key>]... [-lower <result key>]...
+#        <baseline result file> <candidate result file>...
+#
+#    exits with 0 if nothing regressed, 1 on a regression and 2 on an error or
+#    if a metric is missing or no number in the results
+# *********************************************************************************
+
+if [ -z "$JAVA_HOME" ]; then
+	echo the JAVA_HOME environment variable is not set!
+	echo please set this as the JMS Load Tester needs it
+	exit 2
+fi
+
+if [ ! -r "$JAVA_HOME"/bin/java ]; then
+	echo the JAVA_HOME environment variable is not set!
+	echo please set this as the JMS Load Tester needs it
+	exit 2
+fi
+
+LIBS="./lib/*"
+CLASS=de.marcelsauer.jmsloadtester.Compare
+JAVA_EXE="$JAVA_HOME"/bin/java
+
+exec "$JAVA_EXE" -classpath "$LIBS" $CLASS "$@"
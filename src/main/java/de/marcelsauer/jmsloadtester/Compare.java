@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester;
+
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
+import de.marcelsauer.jmsloadtester.result.ResultComparison;
+import de.marcelsauer.jmsloadtester.result.ResultComparison.Metric;
+import de.marcelsauer.jmsloadtester.result.ResultComparison.MetricComparison;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * compares the JSON results (app.output.result.json.strategy) of one or more candidates with a baseline and exits with
+ * 1 if any metric regressed, e.g. to fail a build. a metric that is missing in the results exits with 2 as the gate can
+ * not tell whether it regressed.
+ */
+public class Compare {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_REGRESSION = 1;
+    public static final int EXIT_ERROR = 2;
+
+    private static final String USAGE = "usage: Compare [-threshold <percent>] [-alpha <significance level>] [-higher <result key>]... "
+            + "[-lower <result key>]... <baseline result file> <candidate result file>...";
+
+    private final OutputStrategy out;
+
+    public Compare(final OutputStrategy out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new Compare(OutputStrategyFactory.getOutputStrategy(OutputStrategyFactory.STDOUT)).run(args));
+    }
+
+    /**
+     * @return the exit code
+     */
+    public int run(final String[] args) {
+        double threshold = ResultComparison.DEFAULT_THRESHOLD_PERCENT;
+        double alpha = ResultComparison.DEFAULT_ALPHA;
+        final List<Metric> metrics = new ArrayList<Metric>();
+        final List<File> files = new ArrayList<File>();
+        final ResultComparison comparison;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                if (!arg.startsWith("-")) {
+                    files.add(new File(arg));
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("the option " + arg + " needs a value");
+                }
+                final String value = args[++i];
+                if ("-threshold".equals(arg)) {
+                    threshold = parseDouble(arg, value);
+                } else if ("-alpha".equals(arg)) {
+                    alpha = parseDouble(arg, value);
+                } else if ("-higher".equals(arg)) {
+                    metrics.add(new Metric(value, true));
+                } else if ("-lower".equals(arg)) {
+                    metrics.add(new Metric(value, false));
+                } else {
+                    throw new IllegalArgumentException("unknown option: " + arg);
+                }
+            }
+            if (files.size() < 2) {
+                throw new IllegalArgumentException("a baseline and at least one candidate result file are needed");
+            }
+            comparison = new ResultComparison(metrics.isEmpty() ? ResultComparison.DEFAULT_METRICS : metrics, threshold, alpha);
+        } catch (IllegalArgumentException e) {
+            out.output(e.getMessage());
+            out.output(USAGE);
+            return EXIT_ERROR;
+        }
+        try {
+            return compare(comparison, files);
+        } catch (IllegalArgumentException e) {
+            out.output(e.getMessage());
+            return EXIT_ERROR;
+        } catch (IOException e) {
+            out.output("could not read the results: " + e.getMessage());
+            return EXIT_ERROR;
+        }
+    }
+
+    private int compare(final ResultComparison comparison, final List<File> files) throws IOException {
+        final File baselineFile = files.get(0);
+        final List<Map<String, Object>> baseline = ResultComparison.readRuns(baselineFile);
+        out.output("comparing with " + comparison);
+        out.output("baseline: " + baselineFile + " (" + baseline.size() + " runs)");
+        boolean regression = false;
+        boolean missing = false;
+        for (File candidateFile : files.subList(1, files.size())) {
+            final List<Map<String, Object>> candidate = ResultComparison.readRuns(candidateFile);
+            out.output("candidate: " + candidateFile + " (" + candidate.size() + " runs)");
+            final List<MetricComparison> comparisons = comparison.compare(baseline, candidate);
+            for (MetricComparison metricComparison : comparisons) {
+                out.output("  " + metricComparison);
+            }
+            regression |= ResultComparison.hasRegression(comparisons);
+            missing |= ResultComparison.hasMissing(comparisons);
+        }
+        out.output(regression ? "REGRESSION" : "no regression");
+        if (missing) {
+            out.output("metrics are missing or no numbers in the results, the comparison is incomplete");
+            return EXIT_ERROR;
+        }
+        return regression ? EXIT_REGRESSION : EXIT_OK;
+    }
+
+    private static double parseDouble(final String option, final String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the option " + option + " needs a number, was: " + value, e);
+        }
+    }
+}
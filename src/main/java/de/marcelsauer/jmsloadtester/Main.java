@@ -15,26 +15,71 @@
  */
 package de.marcelsauer.jmsloadtester;
 
+import de.marcelsauer.jmsloadtester.client.Listener;
+import de.marcelsauer.jmsloadtester.client.ReconnectSchedule;
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
 import de.marcelsauer.jmsloadtester.config.Config;
 import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.handler.ConnectionPool;
+import de.marcelsauer.jmsloadtester.handler.DestinationHandler;
+import de.marcelsauer.jmsloadtester.output.CountingOutputStrategy;
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
 import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
 import de.marcelsauer.jmsloadtester.result.ResultContainer;
 import de.marcelsauer.jmsloadtester.spring.SpringFactory;
 import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
 import de.marcelsauer.jmsloadtester.tools.StringUtils;
+import de.marcelsauer.jmsloadtester.tracker.ConsumerTracker;
+import de.marcelsauer.jmsloadtester.tracker.DestinationTracker;
+import de.marcelsauer.jmsloadtester.tracker.LatencyTracker;
+import de.marcelsauer.jmsloadtester.tracker.ListenerDestinationTracker;
+import de.marcelsauer.jmsloadtester.tracker.LoadPhaseTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTracker;
 import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.ReplyTracker;
+import de.marcelsauer.jmsloadtester.tracker.SequenceTracker;
+import de.marcelsauer.jmsloadtester.tracker.RunTracker;
+import de.marcelsauer.jmsloadtester.tracker.SelectorTracker;
+import de.marcelsauer.jmsloadtester.tracker.SubscriptionTracker;
 import de.marcelsauer.jmsloadtester.tracker.ThreadTracker;
 import de.marcelsauer.jmsloadtester.tracker.TimeTracker;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+import de.marcelsauer.jmsloadtester.tracker.WindowTracker;
+
+import java.util.List;
+import java.util.Locale;
 
 public class Main {
 
+    // the progress line names only the destinations furthest behind
+    private static final int MAX_LAGGING_IN_PROGRESS = 3;
+    // how long the listener threads may take to end after their last receive call
+    private static final long LISTENER_END_MILLIS = 5000;
+
     private ResultContainer resultContainer;
     private MessageTracker messageTracker;
     private TimeTracker listenerTimeTracker;
     private TimeTracker senderTimeTracker;
     private ThreadTracker threadTracker;
+    private LoadPhaseTracker loadPhaseTracker;
+    private LatencyTracker latencyTracker;
+    private SequenceTracker sequenceTracker;
+    private TransactionTracker transactionTracker;
+    private ConsumerTracker consumerTracker;
+    private ReplyTracker replyTracker;
+    private DestinationTracker destinationTracker;
+    private ListenerDestinationTracker listenerDestinationTracker;
+    private SubscriptionTracker subscriptionTracker;
+    private SelectorTracker selectorTracker;
+    private RunTracker runTracker;
+    private WindowTracker windowTracker;
+    private ConnectionPool senderConnectionPool;
+    private ConnectionPool listenerConnectionPool;
     private Config config;
     private boolean exitGracefully;
+    private String runEnd = "not ended";
+    private long listenerMessagesFlushed;
 
     public Main(final boolean exitGracefully) {
         this.exitGracefully = exitGracefully;
@@ -60,15 +105,36 @@ public class Main {
         senderTimeTracker = SpringFactory.getBean("senderTimeTracker");
         messageTracker = SpringFactory.getBean("messageTracker");
         threadTracker = SpringFactory.getBean("threadTracker");
+        loadPhaseTracker = SpringFactory.getBean("loadPhaseTracker");
+        latencyTracker = SpringFactory.getBean("latencyTracker");
+        sequenceTracker = SpringFactory.getBean("sequenceTracker");
+        transactionTracker = SpringFactory.getBean("transactionTracker");
+        consumerTracker = SpringFactory.getBean("consumerTracker");
+        replyTracker = SpringFactory.getBean("replyTracker");
+        destinationTracker = SpringFactory.getBean("destinationTracker");
+        listenerDestinationTracker = SpringFactory.getBean("listenerDestinationTracker");
+        subscriptionTracker = SpringFactory.getBean("subscriptionTracker");
+        selectorTracker = SpringFactory.getBean("selectorTracker");
+        runTracker = SpringFactory.getBean("runTracker");
+        windowTracker = SpringFactory.getBean("windowTracker");
+        senderConnectionPool = SpringFactory.getBean("senderConnectionPool");
+        listenerConnectionPool = SpringFactory.getBean("listenerConnectionPool");
         resultContainer = SpringFactory.getBean("resultContainer");
 
-        messageTracker.setTotalMessagesToBeReceived(config.getSubscriberWaitForTotalMessages());
-        messageTracker.setTotalMessagesToBeSent(config.getExpectedMessageSentCount());
+        if (runTracker.isTimeBound()) {
+            // the time ends the run, not the counts
+            messageTracker.setTotalMessagesToBeReceived(Integer.MAX_VALUE);
+            messageTracker.setTotalMessagesToBeSent(Integer.MAX_VALUE);
+        } else {
+            messageTracker.setTotalMessagesToBeReceived(config.getSubscriberWaitForTotalMessages());
+            messageTracker.setTotalMessagesToBeSent(config.getExpectedMessageSentCount());
+        }
 
         Logger.info("using debug output strategy: " + config.getDebugOutputStrategy());
         Logger.info("using result output strategy: " + config.getResultOutputStrategy());
         Logger.info("using message output strategy: " + config.getMessageOutputStrategy());
         Logger.info("using message content strategy: " + config.getMessageContentStrategy());
+        Logger.info("using message id strategy: " + messageTracker.getReceivedMessageIdTracker());
 
         // init logger
         Logger.setOut(config.getDebugOutputStrategy());
@@ -96,6 +162,8 @@ public class Main {
             }
 
             // start of publishers
+            runTracker.start();
+            windowTracker.start();
             long senderRampupSleep = config.getSenderRampup();
             for (int i = 1, count = config.getSendersToStart(); i <= count; i++) {
                 threadTracker.createSenderThread("Sender Thread " + i);
@@ -104,14 +172,15 @@ public class Main {
                 }
             }
 
-            // loop until all is done
+            // wait until all is done
             long progressSleep = getSleepCount();
-            while (!(messageTracker.isAllReceived() && messageTracker.isAllSent())) {
-                printProgress();
-                if (progressSleep > 0) {
-                	Thread.sleep(progressSleep);
-                }
-                Thread.yield();
+            if (runTracker.isTimeBound()) {
+                awaitDuration(progressSleep);
+            } else {
+                awaitAllMessages(progressSleep);
+            }
+            if (replyTracker.isEnabled() && !replyTracker.awaitReplies(progressSleep)) {
+                Logger.info("gave up waiting for " + replyTracker.getOutstanding() + " replies");
             }
 
             Logger.info(Constants.EOL + "****************** MAIN DONE ******************");
@@ -119,6 +188,8 @@ public class Main {
         } catch (Exception e) {
             Logger.error("could not execute application", e);
         } finally {
+            closeListenerBatches();
+            windowTracker.stop();
             printProgress();
             outputResult();
             Logger.debug("exiting");
@@ -126,29 +197,145 @@ public class Main {
         }
     }
 
+    // a batch the listeners did not complete would be rolled back and redelivered to the next run. a session must not be
+    // used by two threads at once, so the pulling listeners complete their batches themselves and the consumers of the
+    // pushing ones are closed before their batches are completed
+    private void closeListenerBatches() {
+        // whatever ended the run, the listeners stop receiving
+        runTracker.end();
+        try {
+            final long receiveMillis = Math.max(0, Listener.getReceiveTimeoutMillis(config.getListenerConsumerMode()));
+            if (!threadTracker.awaitListeners(receiveMillis + LISTENER_END_MILLIS)) {
+                Logger.info("gave up waiting for the listener threads, their open batches are redelivered");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transactionTracker.closeListenerBatches();
+        listenerMessagesFlushed = transactionTracker.getListenerMessagesClosed();
+        if (listenerMessagesFlushed > 0) {
+            Logger.info("completed the open batches of the listeners with " + listenerMessagesFlushed + " messages");
+        }
+    }
+
+    private void awaitAllMessages(final long progressSleep) throws InterruptedException {
+        final boolean listening = config.getSubscriberWaitForTotalMessages() > 0;
+        while (!messageTracker.awaitAll(progressSleep)) {
+            printProgress();
+            if (listening && runTracker.isIdle()) {
+                runEnd = "idle timeout";
+                Logger.info("gave up, no message received for " + runTracker.getIdleMillis() / Constants.MILLIS_FACTOR + " seconds");
+                return;
+            }
+        }
+        runEnd = "all messages";
+    }
+
+    private void awaitDuration(final long progressSleep) throws InterruptedException {
+        while (!runTracker.awaitEnd(progressSleep)) {
+            printProgress();
+        }
+        runTracker.stop();
+        if (messageTracker.getTotalMessagesSent() > 0) {
+            senderTimeTracker.stop();
+        }
+        runEnd = "duration";
+        Logger.info("sent for " + runTracker.getDurationMillis() / Constants.MILLIS_FACTOR + " seconds, stopped the senders");
+        if (config.getSubscribersToStart() > 0) {
+            // the listeners receive what is still on its way
+            final long drainIdleMillis = runTracker.getIdleTimeoutMillis() > 0 ? runTracker.getIdleTimeoutMillis() : RunTracker.DEFAULT_DRAIN_IDLE_MILLIS;
+            while (!runTracker.awaitIdle(drainIdleMillis, progressSleep)) {
+                printProgress();
+            }
+            if (messageTracker.getTotalMessagesReceived() > 0) {
+                listenerTimeTracker.stop();
+            }
+        }
+    }
+
     private void printIntro() {
         // listener
-        Logger.info("creating " + config.getSubscribersToStart() + " listener threads. each waiting for " + config.getEachSubscriberWaitFor() + " messages.");
-        Logger.info("waiting for " + config.getSubscriberWaitForTotalMessages() + " messages in total");
+        if (runTracker.isTimeBound()) {
+            Logger.info("creating " + config.getSubscribersToStart() + " listener threads. receiving until the senders stopped and the listeners are idle");
+        } else {
+            Logger.info("creating " + config.getSubscribersToStart() + " listener threads. each waiting for " + config.getEachSubscriberWaitFor() + " messages.");
+            Logger.info("waiting for " + config.getSubscriberWaitForTotalMessages() + " messages in total");
+        }
         Logger.info("lister ramp up time: " + config.getListenerRampup() + " ms");
+        Logger.info("listener connections: " + listenerConnectionPool);
+        Logger.info("listener consumer mode: " + config.getListenerConsumerMode());
+        if (listenerDestinationTracker.isEnabled()) {
+            Logger.info("listener assignment: " + listenerDestinationTracker.getAssignment());
+        }
+        Logger.info("listener subscription: " + config.getListenerSubscription()
+                + (listenerConnectionPool.getClientIdPrefix() == null ? "" : ", client ids: " + listenerConnectionPool.getClientIdPrefix() + "-<connection>"));
+        if (!ReconnectSchedule.NONE.equals(config.getListenerReconnect())) {
+            Logger.info("listener reconnects: " + ReconnectSchedule.getReconnectSchedule(config.getListenerReconnect()));
+        }
+        if (selectorTracker.getSelector() != null) {
+            Logger.info("listener selector: " + selectorTracker.getSelector() + " on " + Math.min(config.getListenerSelectorListeners(), config.getSubscribersToStart()) + " of "
+                    + config.getSubscribersToStart() + " listeners");
+        }
+        if (selectorTracker.getGroups() != null) {
+            Logger.info("sender selector groups: " + selectorTracker.getGroups());
+        }
         Logger.info("printing progress every " + getSleepCount() / Constants.MILLIS_FACTOR + " seconds");
+        Logger.info("run: " + runTracker);
+        if (windowTracker.isEnabled()) {
+            Logger.info("printing windowed statistics every " + windowTracker.getWindowMillis() / Constants.MILLIS_FACTOR + " seconds");
+        }
+        if (windowTracker.isEnabled() && config.getOutputWindowStrategy().isEnabled()) {
+            Logger.info("exporting the windows as " + config.getOutputWindowFormat() + " to: " + config.getOutputWindowStrategy());
+        }
+        if (config.getResultJsonOutputStrategy().isEnabled()) {
+            Logger.info("writing the results as JSON to: " + config.getResultJsonOutputStrategy());
+        }
 
         // sender
-        Logger.info("creating " + config.getSendersToStart() + " sender threads. each sending " + config.getMessagesToSend() + " messages");
-        Logger.info("sending " + config.getExpectedMessageSentCount() + " messages in total");
+        if (runTracker.isTimeBound()) {
+            Logger.info("creating " + config.getSendersToStart() + " sender threads. each sending for " + runTracker.getDurationMillis() / Constants.MILLIS_FACTOR + " seconds");
+        } else {
+            Logger.info("creating " + config.getSendersToStart() + " sender threads. each sending " + config.getMessagesToSend() + " messages");
+            Logger.info("sending " + config.getExpectedMessageSentCount() + " messages in total");
+        }
         Logger.info("sender ramp up time: " + config.getSenderRampup() + " ms");
+        Logger.info("sender connections: " + senderConnectionPool);
+        Logger.info("transacted sender sessions: " + transactionTracker);
+        Logger.info("sender send mode: " + config.getSenderSendMode() + ", producers: " + config.getSenderProducerMode());
+        if (destinationTracker.isEnabled()) {
+            Logger.info("sender routing: " + destinationTracker.getRouter());
+        }
+        if (replyTracker.isEnabled()) {
+            Logger.info("sending requests, replies to: " + replyTracker.getReplyTo());
+        }
+        if (config.isListenerReply()) {
+            Logger.info("listeners reply to requests with payload " + config.getListenerReplyPayload() + " after a delay of " + config.getListenerReplyDelay()
+                    + (config.getListenerReplyWorkers() > 0 ? " using " + config.getListenerReplyWorkers() + " reply workers" : ""));
+        }
+        if (loadPhaseTracker.isEnabled()) {
+            Logger.info("sending with " + loadPhaseTracker.getTrafficCop() + " (open loop, ignoring pause between send and wait for response)");
+        }
     }
 
     private void outputResult() {
         // generic stuff
         resultContainer.addResultKeyValue("listeners started", threadTracker.getListenersStarted());
         resultContainer.addResultKeyValue("senders started", threadTracker.getSendersStarted());
-        resultContainer.addResultKeyValue("expected total message count", config.getSubscriberWaitForTotalMessages());
+        resultContainer.addResultKeyValue("listener connections", listenerConnectionPool.getConnectionCount());
+        resultContainer.addResultKeyValue("listener connection mode", listenerConnectionPool);
+        resultContainer.addResultKeyValue("sender connections", senderConnectionPool.getConnectionCount());
+        resultContainer.addResultKeyValue("sender connection mode", senderConnectionPool);
+        resultContainer.addResultKeyValue("expected total message count", runTracker.isTimeBound() ? "not known for a time bound run" : messageTracker.getTotalMessagesToBeReceived());
         resultContainer.addResultKeyValue("total messages received", messageTracker.getTotalMessagesReceived());
         resultContainer.addResultKeyValue("total messages sent", messageTracker.getTotalMessagesSent());
-        resultContainer.addResultKeyValue("number of missing messages", (config.getSubscriberWaitForTotalMessages() - messageTracker.getTotalMessagesReceived()));
-        resultContainer.addResultKeyValue("uniqe JMSMessageID count of all incoming messages", messageTracker.getMessagesReceived().size());
-        resultContainer.addResultKeyValue("uniqe JMSMessageID count of all sent messages", messageTracker.getMessagesSent().size());
+        resultContainer.addResultKeyValue("total send errors", messageTracker.getSendErrors());
+        resultContainer.addResultKeyValue("number of missing messages", runTracker.isTimeBound() ? "not known for a time bound run" : messageTracker.getTotalMessagesToBeReceived()
+                - messageTracker.getTotalMessagesReceived());
+        resultContainer.addResultKeyValue("Run", runTracker);
+        resultContainer.addResultKeyValue("Run ended by", runEnd);
+        resultContainer.addResultKeyValue("Run duration sec", runTracker.getElapsedMillis() / (double) Constants.MILLIS_FACTOR);
+        resultContainer.addResultKeyValue("uniqe JMSMessageID count of all incoming messages", getUniqueCount(messageTracker.getReceivedMessageIdTracker()));
+        resultContainer.addResultKeyValue("uniqe JMSMessageID count of all sent messages", getUniqueCount(messageTracker.getSentMessageIdTracker()));
 
         // sender stuff
         resultContainer.addResultKeyValue("Sender duration nanoseconds", senderTimeTracker.getDurationInNanoSeconds());
@@ -164,7 +351,260 @@ public class Main {
         resultContainer.addResultKeyValue("Listener messages / sec", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInSeconds());
         resultContainer.addResultKeyValue("Listener messages / milli sec", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInMilliSeconds());
 
+        // latency stuff, receive minus send
+        resultContainer.addResultKeyValue("Latency message count", latencyTracker.getHistogram().getTotalCount());
+        resultContainer.addResultKeyValue("Latency messages without send time", latencyTracker.getMessagesWithoutSendTime());
+        addLatencyResult("Latency", latencyTracker.getHistogram());
+
+        // windowed stuff, how much the windows of a long run differ
+        if (windowTracker.getCompleteWindowCount() > 0) {
+            resultContainer.addResultKeyValue("Windows", windowTracker.getWindowCount());
+            resultContainer.addResultKeyValue("Window sec", windowTracker.getWindowMillis() / (double) Constants.MILLIS_FACTOR);
+            resultContainer.addResultKeyValue("Window min listener messages / sec", String.format(Locale.US, "%.2f", windowTracker.getMinReceivedRate()));
+            resultContainer.addResultKeyValue("Window max listener messages / sec", String.format(Locale.US, "%.2f", windowTracker.getMaxReceivedRate()));
+            resultContainer.addResultKeyValue("Window max latency p99 milliseconds", toMillis(windowTracker.getMaxP99()));
+        }
+
+        // request reply stuff, matched by correlation id
+        if (replyTracker.isEnabled()) {
+            resultContainer.addResultKeyValue("Requests sent", replyTracker.getRequests());
+            resultContainer.addResultKeyValue("Requests reply to", replyTracker.getReplyTo());
+            resultContainer.addResultKeyValue("Replies matched", replyTracker.getMatched());
+            resultContainer.addResultKeyValue("Replies unmatched", replyTracker.getUnmatched());
+            resultContainer.addResultKeyValue("Requests without reply", replyTracker.getOutstanding());
+            resultContainer.addResultKeyValue("Requests evicted from in flight table", replyTracker.getEvicted());
+            addLatencyResult("Round trip", replyTracker.getRoundTripHistogram());
+        }
+        if (replyTracker.getRepliesSent() > 0 || replyTracker.getReplyFailures() > 0) {
+            resultContainer.addResultKeyValue("Replies sent by listeners", replyTracker.getRepliesSent());
+            resultContainer.addResultKeyValue("Reply failures", replyTracker.getReplyFailures());
+            // the part of the round trip spent in the responder, the rest is broker and network
+            addLatencyResult("Responder service time", replyTracker.getServiceTimeHistogram());
+        }
+
+        // multi destination stuff, per destination of the router
+        if (destinationTracker.isEnabled()) {
+            addDestinationResults();
+        }
+        if (listenerDestinationTracker.isEnabled()) {
+            addListenerDestinationResults();
+        }
+
+        // reconnect stuff, the backlogs the subscribers drained after subscribing again
+        if (!subscriptionTracker.getSubscribers().isEmpty()) {
+            addSubscriptionResults();
+        }
+
+        // selector stuff, what the listeners with a message selector pay compared to the plain ones
+        if (selectorTracker.isEnabled()) {
+            addSelectorResults();
+        }
+
+        // pull consumer stuff, the listener threads that receive themselves
+        if (consumerTracker.getConsumerCount() > 0) {
+            resultContainer.addResultKeyValue("Receive consumer threads", consumerTracker.getConsumerCount());
+            resultContainer.addResultKeyValue("Receive consumer mode", config.getListenerConsumerMode());
+            resultContainer.addResultKeyValue("Receive calls", consumerTracker.getReceiveCalls());
+            resultContainer.addResultKeyValue("Receive calls without message", consumerTracker.getEmptyReceives());
+            resultContainer.addResultKeyValue("Receive avg call microseconds", String.format(Locale.US, "%.2f", consumerTracker.getAverageReceiveMicros()));
+            resultContainer.addResultKeyValue("Receive min messages per thread", consumerTracker.getMinMessages());
+            resultContainer.addResultKeyValue("Receive max messages per thread", consumerTracker.getMaxMessages());
+        }
+
+        // send and commit stuff, a transacted send returns before the broker has the message
+        addLatencyResult("Send call", transactionTracker.getSendHistogram());
+        if (transactionTracker.getCompletionCount() > 0 || transactionTracker.getCompletionFailures() > 0) {
+            resultContainer.addResultKeyValue("Send completion failures", transactionTracker.getCompletionFailures());
+            addLatencyResult("Send completion", transactionTracker.getCompletionHistogram());
+        }
+        if (transactionTracker.getCommitCount() > 0) {
+            resultContainer.addResultKeyValue("Commit count", transactionTracker.getCommitCount());
+            resultContainer.addResultKeyValue("Commit messages committed", transactionTracker.getMessagesCommitted());
+            addLatencyResult("Commit", transactionTracker.getCommitHistogram());
+        }
+        if (transactionTracker.getAcknowledgeCount() > 0) {
+            resultContainer.addResultKeyValue("Listener acknowledge count", transactionTracker.getAcknowledgeCount());
+            resultContainer.addResultKeyValue("Listener messages acknowledged", transactionTracker.getMessagesAcknowledged());
+            resultContainer.addResultKeyValue("Listener messages acknowledged at run end", listenerMessagesFlushed);
+            addLatencyResult("Listener acknowledge", transactionTracker.getAcknowledgeHistogram());
+        }
+
+        // sequence stuff, per sender thread
+        if (sequenceTracker.isEnabled()) {
+            resultContainer.addResultKeyValue("Sequence tracking", sequenceTracker.getScope());
+            resultContainer.addResultKeyValue("Sequence sender streams", sequenceTracker.getStreamCount());
+            resultContainer.addResultKeyValue("Sequence lost messages", sequenceTracker.getLost());
+            resultContainer.addResultKeyValue("Sequence gaps", sequenceTracker.getGaps());
+            resultContainer.addResultKeyValue("Sequence duplicate messages", sequenceTracker.getDuplicates());
+            resultContainer.addResultKeyValue("Sequence out of order messages", sequenceTracker.getOutOfOrder());
+            resultContainer.addResultKeyValue("Sequence redelivered messages", sequenceTracker.getRedelivered());
+            resultContainer.addResultKeyValue("Sequence messages without sequence number", sequenceTracker.getMessagesWithoutSequence());
+        }
+
+        // rate profile phases
+        for (int i = 0, count = loadPhaseTracker.getPhaseCount(); i < count; i++) {
+            resultContainer.addResultKeyValue("Phase " + (i + 1), "[" + loadPhaseTracker.getPhaseDescription(i) + "] " + getPhaseResult(i));
+        }
+
+        // output stuff, lines that were dropped instead of slowing down the test
+        addOutputResult("Debug", config.getDebugOutputStrategy());
+        addOutputResult("Message", config.getMessageOutputStrategy());
+        addOutputResult("Window", config.getOutputWindowStrategy());
+        resultContainer.addResultKeyValue("Errors logged", Logger.getErrorCount());
+
         resultContainer.outputResult(config.getResultOutputStrategy());
+        if (config.getResultJsonOutputStrategy().isEnabled()) {
+            resultContainer.outputJson(config.getResultJsonOutputStrategy());
+        }
+    }
+
+    private void addLatencyResult(final String name, final LatencyHistogram latency) {
+        resultContainer.addResultKeyValue(name + " min milliseconds", toMillis(latency.getMin()));
+        resultContainer.addResultKeyValue(name + " mean milliseconds", toMillis(latency.getMean()));
+        resultContainer.addResultKeyValue(name + " p50 milliseconds", toMillis(latency.getValueAtPercentile(50)));
+        resultContainer.addResultKeyValue(name + " p90 milliseconds", toMillis(latency.getValueAtPercentile(90)));
+        resultContainer.addResultKeyValue(name + " p99 milliseconds", toMillis(latency.getValueAtPercentile(99)));
+        resultContainer.addResultKeyValue(name + " p99.9 milliseconds", toMillis(latency.getValueAtPercentile(99.9)));
+        resultContainer.addResultKeyValue(name + " max milliseconds", toMillis(latency.getMax()));
+    }
+
+    private void addOutputResult(final String name, final OutputStrategy outputStrategy) {
+        if (outputStrategy instanceof CountingOutputStrategy) {
+            final CountingOutputStrategy counting = (CountingOutputStrategy) outputStrategy;
+            resultContainer.addResultKeyValue(name + " output lines written", counting.getLinesWritten());
+            resultContainer.addResultKeyValue(name + " output lines dropped", counting.getLinesDropped());
+        }
+    }
+
+    private String getUniqueCount(final MessageIdTracker tracker) {
+        if (!tracker.isEnabled()) {
+            return "not tracked";
+        }
+        return tracker.getUniqueCount() + (tracker.isExact() ? "" : " (estimated)");
+    }
+
+    private void addDestinationResults() {
+        final double senderSeconds = senderTimeTracker.getDurationInSeconds();
+        final List<String> destinations = destinationTracker.getRouter().getDestinations();
+        resultContainer.addResultKeyValue("Destinations", destinations.size());
+        resultContainer.addResultKeyValue("Destination routing", destinationTracker.getRouter());
+        for (int i = 0; i < destinations.size(); i++) {
+            final String name = "Destination " + destinations.get(i);
+            resultContainer.addResultKeyValue(name + " messages sent", destinationTracker.getSent(i));
+            final double rate = senderSeconds > 0 ? destinationTracker.getSent(i) / senderSeconds : 0;
+            resultContainer.addResultKeyValue(name + " messages / sec", String.format(Locale.US, "%.2f", rate));
+            resultContainer.addResultKeyValue(name + " messages received", destinationTracker.getReceived(i));
+            final LatencyHistogram latency = destinationTracker.getLatencyHistogram(i);
+            if (latency != null) {
+                resultContainer.addResultKeyValue(name + " latency p50 milliseconds", toMillis(latency.getValueAtPercentile(50)));
+                resultContainer.addResultKeyValue(name + " latency p99 milliseconds", toMillis(latency.getValueAtPercentile(99)));
+                resultContainer.addResultKeyValue(name + " latency max milliseconds", toMillis(latency.getMax()));
+            }
+        }
+        resultContainer.addResultKeyValue("Destination unknown for messages sent", destinationTracker.getUnknownSent());
+        resultContainer.addResultKeyValue("Destination unknown for messages received", destinationTracker.getUnknownReceived());
+    }
+
+    private void addListenerDestinationResults() {
+        final List<String> destinations = listenerDestinationTracker.getAssignment().getDestinations();
+        resultContainer.addResultKeyValue("Listener destinations", destinations.size());
+        resultContainer.addResultKeyValue("Listener destination assignment", listenerDestinationTracker.getAssignment());
+        for (int i = 0; i < destinations.size(); i++) {
+            final String name = "Listener destination " + destinations.get(i);
+            resultContainer.addResultKeyValue(name + " messages received", listenerDestinationTracker.getReceived(i));
+            resultContainer.addResultKeyValue(name + " messages expected", listenerDestinationTracker.getExpected(i));
+            final double completed = listenerDestinationTracker.getCompletedAfterMillis(i);
+            resultContainer.addResultKeyValue(name + " completed after milliseconds", completed < 0 ? "not completed" : String.format(Locale.US, "%.3f", completed));
+            final LatencyHistogram latency = listenerDestinationTracker.getLatencyHistogram(i);
+            if (latency != null) {
+                resultContainer.addResultKeyValue(name + " latency p50 milliseconds", toMillis(latency.getValueAtPercentile(50)));
+                resultContainer.addResultKeyValue(name + " latency p99 milliseconds", toMillis(latency.getValueAtPercentile(99)));
+                resultContainer.addResultKeyValue(name + " latency max milliseconds", toMillis(latency.getMax()));
+            }
+        }
+        resultContainer.addResultKeyValue("Listener destinations lagging", getLagging(Integer.MAX_VALUE));
+    }
+
+    private void addSubscriptionResults() {
+        resultContainer.addResultKeyValue("Subscriber reconnects", subscriptionTracker.getReconnects());
+        resultContainer.addResultKeyValue("Subscriber backlog messages", subscriptionTracker.getBacklogMessages());
+        resultContainer.addResultKeyValue("Subscriber max backlog messages", subscriptionTracker.getMaxBacklog());
+        resultContainer.addResultKeyValue("Subscriber drain messages / sec", subscriptionTracker.getDrainRate());
+        for (SubscriptionTracker.Subscriber subscriber : subscriptionTracker.getSubscribers()) {
+            final String name = "Subscriber " + subscriber.getName();
+            resultContainer.addResultKeyValue(name + " reconnects", subscriber.getReconnects());
+            resultContainer.addResultKeyValue(name + " offline milliseconds", String.format(Locale.US, "%.3f", subscriber.getOfflineMillis()));
+            resultContainer.addResultKeyValue(name + " backlog messages", subscriber.getBacklogMessages());
+            resultContainer.addResultKeyValue(name + " drain milliseconds", String.format(Locale.US, "%.3f", subscriber.getDrainMillis()));
+        }
+    }
+
+    private void addSelectorResults() {
+        final SelectorGroups groups = selectorTracker.getGroups();
+        if (groups != null) {
+            resultContainer.addResultKeyValue("Selector groups", groups.getGroupCount());
+            resultContainer.addResultKeyValue("Selector group shares", groups);
+            for (int i = 0; i < groups.getGroupCount(); i++) {
+                resultContainer.addResultKeyValue("Selector group " + i + " messages sent", selectorTracker.getSent(i));
+            }
+            resultContainer.addResultKeyValue("Selector group unknown for messages sent", selectorTracker.getSentWithoutGroup());
+        }
+        resultContainer.addResultKeyValue("Selector listener selector", selectorTracker.getSelector());
+        addSelectorListenerResults("Selector listeners", selectorTracker.getListeners(true));
+        addSelectorListenerResults("Plain listeners", selectorTracker.getListeners(false));
+    }
+
+    private void addSelectorListenerResults(final String name, final SelectorTracker.Listeners listeners) {
+        resultContainer.addResultKeyValue(name, listeners.getListenerCount());
+        if (listeners.getListenerCount() == 0) {
+            return;
+        }
+        resultContainer.addResultKeyValue(name + " messages received", listeners.getReceived());
+        resultContainer.addResultKeyValue(name + " messages / sec", String.format(Locale.US, "%.2f", listeners.getMessagesPerSecond()));
+        final LatencyHistogram latency = listeners.getLatencyHistogram();
+        if (latency != null) {
+            resultContainer.addResultKeyValue(name + " latency p50 milliseconds", toMillis(latency.getValueAtPercentile(50)));
+            resultContainer.addResultKeyValue(name + " latency p99 milliseconds", toMillis(latency.getValueAtPercentile(99)));
+            resultContainer.addResultKeyValue(name + " latency max milliseconds", toMillis(latency.getMax()));
+        }
+    }
+
+    // the incomplete destinations furthest behind, e.g. "perf.q.3 (120 of 300)"
+    private String getLagging(final int max) {
+        final List<Integer> lagging = listenerDestinationTracker.getLagging();
+        if (lagging.isEmpty()) {
+            return "none";
+        }
+        final StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < lagging.size() && i < max; i++) {
+            final int index = lagging.get(i);
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(listenerDestinationTracker.getAssignment().getDestination(index));
+            sb.append(" (" + listenerDestinationTracker.getReceived(index) + " of " + listenerDestinationTracker.getExpected(index) + ")");
+        }
+        if (lagging.size() > max) {
+            sb.append(", ...");
+        }
+        return sb.toString();
+    }
+
+    // the latency is recorded in micro seconds
+    private String toMillis(final double micros) {
+        return String.format(Locale.US, "%.3f", micros / Constants.MILLIS_FACTOR);
+    }
+
+    private String getPhaseResult(final int phase) {
+        final StringBuffer sb = new StringBuffer();
+        sb.append(String.format(Locale.US, "%.3f sec, ", loadPhaseTracker.getPhaseDurationInSeconds(phase)));
+        sb.append("sent " + loadPhaseTracker.getMessagesSent(phase));
+        sb.append(String.format(Locale.US, " (%.2f msg/s), ", loadPhaseTracker.getSentMessagesPerSecond(phase)));
+        sb.append("received " + loadPhaseTracker.getMessagesReceived(phase));
+        sb.append(String.format(Locale.US, " (%.2f msg/s), ", loadPhaseTracker.getReceivedMessagesPerSecond(phase)));
+        sb.append(String.format(Locale.US, "latency avg %.2f ms, ", loadPhaseTracker.getAverageLatencyInMilliSeconds(phase)));
+        sb.append(String.format(Locale.US, "max %.2f ms", loadPhaseTracker.getMaxLatencyInMilliSeconds(phase)));
+        return sb.toString();
     }
 
     private void exitGracefully() {
@@ -178,11 +618,26 @@ public class Main {
             Logger.info("no listeners and senders are configured or message count is 0. please check your config");
             exitGracefully();
         }
+        try {
+            final DestinationHandler destinationHandler = SpringFactory.getBean("destinationHandler");
+            config.checkListenerDestinations(destinationHandler);
+        } catch (IllegalArgumentException e) {
+            Logger.error("the run would never end, please check your config", e);
+            exitGracefully();
+        }
     }
 
     private void printProgress() {
+        final String runProgress = getRunProgress();
+        final String rateProgress = getRateProgress();
         final String senderProgress = getSenderProgress();
         final String listenerProgess = getListenerProgress();
+        if (!StringUtils.isEmpty(runProgress)) {
+            Logger.info(runProgress);
+        }
+        if (!StringUtils.isEmpty(rateProgress)) {
+            Logger.info(rateProgress);
+        }
         if (!StringUtils.isEmpty(senderProgress)) {
             Logger.info(senderProgress);
         }
@@ -194,9 +649,28 @@ public class Main {
     private String getSenderProgress() {
         final StringBuffer sb = new StringBuffer();
         if (config.getExpectedMessageSentCount() > 0) {
-            sb.append("[SENDER] " + messageTracker.getTotalMessagesSent() + " of " + config.getExpectedMessageSentCount() + " messages sent so far to [" + config.getSendToDestination() + "] => ");
-            sb.append(String.format("%2.4f msg/s, ", messageTracker.getTotalMessagesSent() / senderTimeTracker.getDurationInSeconds()));
-            sb.append(String.format("%2.4f msg/ms ", messageTracker.getTotalMessagesSent() / senderTimeTracker.getDurationInMilliSeconds()));
+            sb.append("[SENDER] " + messageTracker.getTotalMessagesSent() + (runTracker.isTimeBound() ? "" : " of " + config.getExpectedMessageSentCount()) + " messages sent so far to [" + config.getSendToDestination() + "] => ");
+            sb.append(String.format(Locale.US, "%2.4f msg/s, ", messageTracker.getTotalMessagesSent() / senderTimeTracker.getDurationInSeconds()));
+            sb.append(String.format(Locale.US, "%2.4f msg/ms ", messageTracker.getTotalMessagesSent() / senderTimeTracker.getDurationInMilliSeconds()));
+        }
+        return sb.toString();
+    }
+
+    private String getRunProgress() {
+        final StringBuffer sb = new StringBuffer();
+        if (runTracker.isTimeBound()) {
+            sb.append("[RUN] " + runTracker.getElapsedMillis() / Constants.MILLIS_FACTOR + " of " + runTracker.getDurationMillis() / Constants.MILLIS_FACTOR + " seconds");
+            sb.append(runTracker.isStopped() ? ", senders stopped, listeners idle for " + runTracker.getIdleMillis() + " ms" : "");
+        }
+        return sb.toString();
+    }
+
+    private String getRateProgress() {
+        final StringBuffer sb = new StringBuffer();
+        if (loadPhaseTracker.isEnabled() && config.getExpectedMessageSentCount() > 0) {
+            final int phase = loadPhaseTracker.getCurrentPhase();
+            sb.append("[RATE] phase " + (phase + 1) + " of " + loadPhaseTracker.getPhaseCount() + " [" + loadPhaseTracker.getPhaseDescription(phase) + "] => ");
+            sb.append(String.format(Locale.US, "target %2.4f msg/s", loadPhaseTracker.getTrafficCop().getCurrentRate()));
         }
         return sb.toString();
     }
@@ -204,9 +678,12 @@ public class Main {
     private String getListenerProgress() {
         final StringBuffer sb = new StringBuffer();
         if (config.getSubscriberWaitForTotalMessages() > 0) {
-            sb.append("[LISTENER] received " + messageTracker.getTotalMessagesReceived() + " of " + config.getSubscriberWaitForTotalMessages() + " expected messages on [" + config.getListenToDestination() + "], ");
-            sb.append(String.format("%2.4f msg/s, ", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInSeconds()));
-            sb.append(String.format("%2.4f msg/ms ", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInMilliSeconds()));
+            sb.append("[LISTENER] received " + messageTracker.getTotalMessagesReceived() + (runTracker.isTimeBound() ? "" : " of " + messageTracker.getTotalMessagesToBeReceived() + " expected") + " messages on [" + config.getListenToDestination() + "], ");
+            sb.append(String.format(Locale.US, "%2.4f msg/s, ", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInSeconds()));
+            sb.append(String.format(Locale.US, "%2.4f msg/ms ", messageTracker.getTotalMessagesReceived() / listenerTimeTracker.getDurationInMilliSeconds()));
+            if (listenerDestinationTracker.isEnabled()) {
+                sb.append("lagging: " + getLagging(MAX_LAGGING_IN_PROGRESS));
+            }
         }
         return sb.toString();
     }
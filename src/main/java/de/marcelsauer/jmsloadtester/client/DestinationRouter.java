@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.tools.HashUtils;
+import de.marcelsauer.jmsloadtester.tools.RandomUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * spreads the messages of the senders over a set of destinations. the destinations are separated by "," and each may
+ * contain one range like "perf.in.{0..499}", a from value with a leading zero pads the numbers to its width, e.g.
+ * "{000..499}". the routing is one of
+ * <ul>
+ * <li>ROUND_ROBIN: each sender takes the destinations in turn, the senders start at different destinations</li>
+ * <li>WEIGHTED#w1#w2#...: each message picks a destination at random in proportion to its weight, destinations
+ * without a weight get the last one given</li>
+ * <li>HASH[#keys]: each message gets a random key out of keys (default 10000) and goes to the destination the hash
+ * of the key points to, so all messages of a key take the same destination like with partitioning by an entity id</li>
+ * </ul>
+ */
+public class DestinationRouter {
+
+    public static final String ROUND_ROBIN = "ROUND_ROBIN";
+    public static final String WEIGHTED = "WEIGHTED";
+    public static final String HASH = "HASH";
+
+    public static final long NO_KEY = -1;
+
+    private static final String DESTINATION_SPLITTER = ",";
+    private static final String SPLITTER = "#";
+    private static final String RANGE_START = "{";
+    private static final String RANGE_SEPARATOR = "..";
+    private static final String RANGE_END = "}";
+    private static final int DEFAULT_KEYS = 10000;
+
+    private final List<String> destinations;
+    private final String routing;
+    // the cumulative weights for WEIGHTED
+    private final double[] cumulative;
+    private final int keys;
+    private final AtomicInteger nextStart = new AtomicInteger();
+
+    public DestinationRouter(final String destinations, final String routing) {
+        this.destinations = Collections.unmodifiableList(getDestinations(destinations));
+        final String[] parts = getRoutingParts(routing);
+        this.routing = parts[0];
+        if (WEIGHTED.equals(this.routing)) {
+            final double[] weights = new double[this.destinations.size()];
+            getWeights(parts, weights.length, routing, weights);
+            cumulative = RandomUtils.getCumulativeWeights(weights);
+        } else {
+            cumulative = null;
+        }
+        keys = HASH.equals(this.routing) ? getKeys(parts, routing) : 0;
+    }
+
+    /**
+     * checks the destinations and the routing without expanding the ranges
+     *
+     * @throws IllegalArgumentException if the destinations or the routing are invalid
+     */
+    public static void validate(final String destinations, final String routing) {
+        int count = 0;
+        for (String destination : split(destinations)) {
+            count += expand(destination.trim(), null);
+        }
+        final String[] parts = getRoutingParts(routing);
+        if (WEIGHTED.equals(parts[0])) {
+            getWeights(parts, count, routing, null);
+        } else if (HASH.equals(parts[0])) {
+            getKeys(parts, routing);
+        }
+    }
+
+    /**
+     * @return the destinations of the definition with all ranges expanded
+     */
+    public static List<String> getDestinations(final String definition) {
+        final List<String> result = new ArrayList<String>();
+        for (String destination : split(definition)) {
+            expand(destination.trim(), result);
+        }
+        return result;
+    }
+
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    public String getDestination(final int index) {
+        return destinations.get(index);
+    }
+
+    public int getDestinationCount() {
+        return destinations.size();
+    }
+
+    /**
+     * @return the routing of one sender thread, not thread safe
+     */
+    public Cursor newCursor() {
+        return new Cursor(nextStart.getAndIncrement());
+    }
+
+    private static String[] split(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the destination was empty");
+        }
+        return definition.split(DESTINATION_SPLITTER);
+    }
+
+    /**
+     * @param result gets the expanded destinations, null to count them only
+     * @return the number of destinations
+     */
+    private static int expand(final String destination, final List<String> result) {
+        if (destination.length() == 0) {
+            throw new IllegalArgumentException("the destination list contains an empty name");
+        }
+        final int start = destination.indexOf(RANGE_START);
+        if (start < 0) {
+            if (result != null) {
+                result.add(destination);
+            }
+            return 1;
+        }
+        final int end = destination.indexOf(RANGE_END, start);
+        final int separator = destination.indexOf(RANGE_SEPARATOR, start);
+        if (end < 0 || separator < 0 || separator > end) {
+            throw new IllegalArgumentException("the destination range must look like {from..to}, was: " + destination);
+        }
+        final String fromValue = destination.substring(start + 1, separator).trim();
+        final int from;
+        final int to;
+        try {
+            from = Integer.parseInt(fromValue);
+            to = Integer.parseInt(destination.substring(separator + RANGE_SEPARATOR.length(), end).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the destination range contains an invalid number, was: " + destination, e);
+        }
+        if (to < from) {
+            throw new IllegalArgumentException("the destination range must not end before it starts, was: " + destination);
+        }
+        if (result != null) {
+            final String format = fromValue.length() > 1 && fromValue.startsWith("0") ? "%0" + fromValue.length() + "d" : "%d";
+            final String prefix = destination.substring(0, start);
+            final String suffix = destination.substring(end + 1);
+            for (int i = from; i <= to; i++) {
+                result.add(prefix + String.format(format, i) + suffix);
+            }
+        }
+        return to - from + 1;
+    }
+
+    // the routing name and its numbers
+    private static String[] getRoutingParts(final String routing) {
+        if (routing == null) {
+            throw new IllegalArgumentException("the routing was null");
+        }
+        final String[] parts = routing.trim().split(SPLITTER);
+        if ((ROUND_ROBIN.equals(parts[0]) && parts.length == 1) || (WEIGHTED.equals(parts[0]) && parts.length > 1) || (HASH.equals(parts[0]) && parts.length <= 2)) {
+            return parts;
+        }
+        throw new IllegalArgumentException("the routing does not exist, use " + ROUND_ROBIN + ", " + WEIGHTED + "#weight[#weight...] or " + HASH + "[#keys], was: "
+                + routing);
+    }
+
+    private static int getKeys(final String[] parts, final String routing) {
+        final int keys;
+        try {
+            keys = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : DEFAULT_KEYS;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the routing contains an invalid number, was: " + routing, e);
+        }
+        if (keys < 1) {
+            throw new IllegalArgumentException("the number of routing keys must be at least 1, was: " + routing);
+        }
+        return keys;
+    }
+
+    /**
+     * @param weights gets the weights of the destinations, null to check them only
+     */
+    private static void getWeights(final String[] parts, final int count, final String routing, final double[] weights) {
+        double total = 0;
+        double weight = 0;
+        for (int i = 0; i < count; i++) {
+            if (i + 1 < parts.length) {
+                try {
+                    weight = Double.parseDouble(parts[i + 1].trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("the routing contains an invalid number, was: " + routing, e);
+                }
+                if (weight < 0) {
+                    throw new IllegalArgumentException("a destination weight must not be negative, was: " + weight);
+                }
+            } else if (weights == null) {
+                // the destinations without a weight get the last one given
+                total += weight * (count - i);
+                break;
+            }
+            total += weight;
+            if (weights != null) {
+                weights[i] = weight;
+            }
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("at least one destination weight must be greater than zero");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return routing + " over " + destinations.size() + " destinations";
+    }
+
+    /**
+     * picks the destination of each message of one sender
+     */
+    public final class Cursor {
+
+        private long sequence;
+        private int index = -1;
+        private long key = NO_KEY;
+
+        private Cursor(final int start) {
+            this.sequence = start;
+        }
+
+        /**
+         * @return the destination of the next message
+         */
+        public String next() {
+            if (cumulative != null) {
+                index = RandomUtils.pickWeighted(cumulative);
+            } else if (keys > 0) {
+                key = RandomUtils.getRandom().nextInt(keys);
+                index = (int) ((HashUtils.mix64(key) & Long.MAX_VALUE) % destinations.size());
+            } else {
+                index = (int) (sequence++ % destinations.size());
+            }
+            return destinations.get(index);
+        }
+
+        /**
+         * @return the destination of the last message, null before the first one
+         */
+        public String getDestination() {
+            return index < 0 ? null : destinations.get(index);
+        }
+
+        /**
+         * @return the routing key of the last message or {@link DestinationRouter#NO_KEY}
+         */
+        public long getKey() {
+            return key;
+        }
+    }
+}
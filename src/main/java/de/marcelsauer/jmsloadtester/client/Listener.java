@@ -23,8 +23,11 @@ import de.marcelsauer.jmsloadtester.message.MessageParser;
 import de.marcelsauer.jmsloadtester.output.OutputStrategy;
 import de.marcelsauer.jmsloadtester.tools.Logger;
 import de.marcelsauer.jmsloadtester.tools.ThreadTools;
+import de.marcelsauer.jmsloadtester.tracker.ConsumerTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.RunTracker;
+import de.marcelsauer.jmsloadtester.tracker.SubscriptionTracker;
 
-import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import java.util.ArrayList;
@@ -32,35 +35,119 @@ import java.util.List;
 
 public class Listener extends JmsClient {
 
+    // the provider pushes the messages to a message listener on its own threads
+    public static final String LISTENER = "LISTENER";
+    // the listener thread pulls the messages, RECEIVE[#<timeoutMillis>]
+    public static final String RECEIVE = "RECEIVE";
+    public static final String RECEIVE_NO_WAIT = "RECEIVE_NO_WAIT";
+
+    private static final String SPLITTER = "#";
+    private static final long DEFAULT_RECEIVE_TIMEOUT_MILLIS = 1000;
+    private static final long PUSH = -1;
+    // how often a listener thread that waits to reconnect checks if all messages are received
+    private static final long RECONNECT_POLL_MILLIS = 100;
+
+    private long receiveTimeoutMillis = PUSH;
+    private MessageTracker messageTracker;
+    private RunTracker runTracker;
+    private ConsumerTracker consumerTracker;
+    private ReconnectSchedule reconnectSchedule;
+    private SubscriptionTracker.Subscriber subscriber;
     private String listenToDestination;
     private OutputStrategy messageOutStrategy;
     private MessageParser messageParser;
     private List<MessageNotifyable> messageNotifyables = new ArrayList<MessageNotifyable>();
-    private boolean explicitAckMessage;
 
     public void run() {
         try {
             MessageHandler messageHandler = getMessageHandler();
-            messageHandler.attachMessageListener(getListenToDestination(), new ThreadListener());
+            if (receiveTimeoutMillis == PUSH) {
+                messageHandler.attachMessageListener(getListenToDestination(), new ThreadListener());
+                if (reconnectSchedule != null) {
+                    // the thread stays to drop and renew the subscription
+                    reconnectUntilAllReceived(messageHandler);
+                }
+            } else {
+                receiveMessages(messageHandler);
+            }
         } catch (Exception e) {
             throw new JmsException("could not receive all messages", e);
         }
     }
 
+    // committed or acknowledged by the message handler, see app.listener.acknowledge.every.messages
     private class ThreadListener implements MessageListener {
         public void onMessage(Message message) {
-            printMessageDetails(message);
+            // first so the latency does not include printing the message
             messageReceived(message);
-            if (isExplicitAckMessage()) {
-                try {
-                    Logger.debug("trying to acknowledge message" + message.getJMSMessageID());
-                    message.acknowledge();
-                    Logger.debug("successfully acknowledged message" + message.getJMSMessageID());
-                } catch (JMSException e) {
-                    throw new JmsException("could not acknowledge message", e);
+            printMessageDetails(message);
+        }
+    }
+
+    // until all listeners together received all messages, a queue does not tell how many this thread gets
+    private void receiveMessages(final MessageHandler messageHandler) {
+        final ConsumerTracker.Counters counters = consumerTracker.newCounters();
+        final MessageListener listener = new ThreadListener();
+        final String destination = getListenToDestination();
+        long disconnectAt = getDisconnectTime();
+        while (!isDone()) {
+            if (System.currentTimeMillis() >= disconnectAt) {
+                // the next receive subscribes again
+                reconnect(messageHandler, false);
+                disconnectAt = getDisconnectTime();
+            }
+            final long start = System.nanoTime();
+            final boolean received = messageHandler.receiveMessage(destination, listener, receiveTimeoutMillis);
+            counters.received(received, System.nanoTime() - start);
+            if (!received && receiveTimeoutMillis == 0) {
+                Thread.yield();
+            }
+        }
+        // completes the open batch on the thread that uses the session
+        messageHandler.closeConsumer();
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("done receiving, got " + counters.getMessages() + " messages");
+        }
+    }
+
+    private void reconnectUntilAllReceived(final MessageHandler messageHandler) throws InterruptedException {
+        while (!isDone()) {
+            final long disconnectAt = getDisconnectTime();
+            while (System.currentTimeMillis() < disconnectAt) {
+                if (isDone()) {
+                    return;
                 }
+                Thread.sleep(Math.min(RECONNECT_POLL_MILLIS, Math.max(1, disconnectAt - System.currentTimeMillis())));
             }
+            reconnect(messageHandler, true);
+        }
+    }
+
+    private void reconnect(final MessageHandler messageHandler, final boolean attach) {
+        messageHandler.closeConsumer();
+        subscriber.disconnected();
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("disconnected from " + getListenToDestination() + " for " + reconnectSchedule.getOfflineMillis() + " ms");
+        }
+        try {
+            Thread.sleep(reconnectSchedule.getOfflineMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        // before the consumer exists, so no backlog message is missed
+        subscriber.reconnected();
+        if (attach && !isDone()) {
+            messageHandler.attachMessageListener(getListenToDestination(), new ThreadListener());
+        }
+    }
+
+    // a listener does not know when the run ends by itself unless it waits for all messages
+    private boolean isDone() {
+        return messageTracker.isAllReceived() || (runTracker != null && runTracker.isEnded()) || Thread.currentThread().isInterrupted();
+    }
+
+    private long getDisconnectTime() {
+        return reconnectSchedule == null ? Long.MAX_VALUE : System.currentTimeMillis() + reconnectSchedule.getOnlineMillis();
     }
 
     private String getMessageDetails(final Message message) {
@@ -100,12 +187,63 @@ public class Listener extends JmsClient {
         this.messageParser = messageParser;
     }
 
-    public void setExplicitAckMessage(boolean explicitAckMessage) {
-        this.explicitAckMessage = explicitAckMessage;
+    /**
+     * @param consumerMode {@link #LISTENER}, {@link #RECEIVE}[#timeoutMillis] or {@link #RECEIVE_NO_WAIT}
+     */
+    public void setConsumerMode(final String consumerMode) {
+        this.receiveTimeoutMillis = getReceiveTimeoutMillis(consumerMode);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the consumer mode does not exist
+     */
+    public static void validateConsumerMode(final String consumerMode) {
+        getReceiveTimeoutMillis(consumerMode);
+    }
+
+    public static long getReceiveTimeoutMillis(final String consumerMode) {
+        if (consumerMode == null) {
+            throw new IllegalArgumentException("the consumer mode was null");
+        }
+        final String[] parts = consumerMode.trim().split(SPLITTER);
+        if (LISTENER.equals(parts[0]) && parts.length == 1) {
+            return PUSH;
+        }
+        if (RECEIVE_NO_WAIT.equals(parts[0]) && parts.length == 1) {
+            return 0;
+        }
+        if (RECEIVE.equals(parts[0]) && parts.length <= 2) {
+            final long timeout = parts.length == 2 ? Long.parseLong(parts[1].trim()) : DEFAULT_RECEIVE_TIMEOUT_MILLIS;
+            if (timeout <= 0) {
+                throw new IllegalArgumentException("the receive timeout must be > 0, use " + RECEIVE_NO_WAIT + " instead, was: " + consumerMode);
+            }
+            return timeout;
+        }
+        throw new IllegalArgumentException("the consumer mode does not exist, was: " + consumerMode);
+    }
+
+    public void setMessageTracker(final MessageTracker messageTracker) {
+        this.messageTracker = messageTracker;
+    }
+
+    /**
+     * @param runTracker ends the receiving when the run is over, e.g. after the drain of a time bound run or an idle
+     *            timeout, null to receive until all messages are received
+     */
+    public void setRunTracker(final RunTracker runTracker) {
+        this.runTracker = runTracker;
+    }
+
+    public void setConsumerTracker(final ConsumerTracker consumerTracker) {
+        this.consumerTracker = consumerTracker;
     }
 
-    public boolean isExplicitAckMessage() {
-        return explicitAckMessage;
+    /**
+     * @param subscriber tracks the backlogs, must be a message notifyable of this listener as well
+     */
+    public void setReconnectSchedule(final ReconnectSchedule reconnectSchedule, final SubscriptionTracker.Subscriber subscriber) {
+        this.reconnectSchedule = reconnectSchedule;
+        this.subscriber = subscriber;
     }
 
     private OutputStrategy getMessageOutStrategy() {
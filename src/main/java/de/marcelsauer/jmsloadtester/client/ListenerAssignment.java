@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * assigns the listener threads to the destinations of a destination list, see {@link DestinationRouter} for the list
+ * and range syntax. the assignment is one of
+ * <ul>
+ * <li>SPREAD: the listeners are spread evenly, listener i takes destination i modulo the number of destinations</li>
+ * <li>PER_DESTINATION#n: n listeners for each destination, this replaces the configured number of listeners</li>
+ * </ul>
+ */
+public class ListenerAssignment {
+
+    public static final String SPREAD = "SPREAD";
+    public static final String PER_DESTINATION = "PER_DESTINATION";
+
+    private static final String SPLITTER = "#";
+
+    private final List<String> destinations;
+    private final int listenersPerDestination;
+    private final int listenerCount;
+
+    /**
+     * @param listeners the configured number of listeners, only used for {@link #SPREAD}
+     */
+    public ListenerAssignment(final String destinations, final String assignment, final int listeners) {
+        this.destinations = Collections.unmodifiableList(DestinationRouter.getDestinations(destinations));
+        if (assignment == null) {
+            throw new IllegalArgumentException("the listener assignment was null");
+        }
+        final String[] parts = assignment.trim().split(SPLITTER);
+        if (SPREAD.equals(parts[0]) && parts.length == 1) {
+            listenersPerDestination = 0;
+            listenerCount = listeners;
+        } else if (PER_DESTINATION.equals(parts[0]) && parts.length == 2) {
+            try {
+                listenersPerDestination = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("the listeners per destination are not a number, was: " + assignment, e);
+            }
+            if (listenersPerDestination < 1) {
+                throw new IllegalArgumentException("there must be at least 1 listener per destination, was: " + assignment);
+            }
+            listenerCount = listenersPerDestination * this.destinations.size();
+        } else {
+            throw new IllegalArgumentException("the listener assignment does not exist, use " + SPREAD + " or " + PER_DESTINATION + "#n, was: " + assignment);
+        }
+    }
+
+    public List<String> getDestinations() {
+        return destinations;
+    }
+
+    public String getDestination(final int index) {
+        return destinations.get(index);
+    }
+
+    public int getDestinationCount() {
+        return destinations.size();
+    }
+
+    /**
+     * @return the number of listener threads to start
+     */
+    public int getListenerCount() {
+        return listenerCount;
+    }
+
+    /**
+     * @param listener the number of the listener, starting with 0
+     * @return the index of the destination the listener subscribes to
+     */
+    public int getDestinationIndex(final int listener) {
+        if (listenersPerDestination > 0) {
+            return Math.min(listener / listenersPerDestination, destinations.size() - 1);
+        }
+        return listener % destinations.size();
+    }
+
+    /**
+     * @return the number of listeners subscribed to the destination
+     */
+    public int getListenerCount(final int index) {
+        if (listenersPerDestination > 0) {
+            return listenersPerDestination;
+        }
+        final int size = destinations.size();
+        return listenerCount / size + (index < listenerCount % size ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        if (listenersPerDestination > 0) {
+            return listenersPerDestination + " listeners on each of " + destinations.size() + " destinations";
+        }
+        return listenerCount + " listeners spread over " + destinations.size() + " destinations";
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PhasedRateProfile implements RateProfile {
+
+    private final RatePhase[] phases;
+    // start of each phase, the last entry is the end of the whole profile
+    private final long[] phaseStarts;
+
+    public PhasedRateProfile(final List<RatePhase> phases) {
+        if (phases == null || phases.isEmpty()) {
+            throw new IllegalArgumentException("a rate profile needs at least one phase");
+        }
+        this.phases = phases.toArray(new RatePhase[phases.size()]);
+        this.phaseStarts = new long[this.phases.length + 1];
+        for (int i = 0; i < this.phases.length; i++) {
+            phaseStarts[i + 1] = phaseStarts[i] + this.phases[i].getDurationNanos();
+        }
+        if (getLastPhase().getEndRate() <= 0) {
+            throw new IllegalArgumentException("the last phase of a rate profile must end with a rate greater than zero");
+        }
+    }
+
+    public PhasedRateProfile(final RatePhase phase) {
+        this(asList(phase));
+    }
+
+    @Override
+    public double getRate(final long elapsedNanos) {
+        final int phase = getPhase(elapsedNanos);
+        final long offset = Math.min(elapsedNanos - phaseStarts[phase], phases[phase].getDurationNanos());
+        return phases[phase].getRate(offset);
+    }
+
+    @Override
+    public int getPhase(final long elapsedNanos) {
+        // binary search for the last phase starting before elapsed
+        int low = 0;
+        int high = phases.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (phaseStarts[mid] <= elapsedNanos) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public int getPhaseCount() {
+        return phases.length;
+    }
+
+    @Override
+    public long getPhaseStartNanos(final int phase) {
+        return phaseStarts[phase];
+    }
+
+    @Override
+    public long getPhaseEndNanos(final int phase) {
+        return phase == phases.length - 1 ? Long.MAX_VALUE : phaseStarts[phase + 1];
+    }
+
+    @Override
+    public String getPhaseDescription(final int phase) {
+        return phases[phase].toString();
+    }
+
+    private RatePhase getLastPhase() {
+        return phases[phases.length - 1];
+    }
+
+    private static List<RatePhase> asList(final RatePhase phase) {
+        final List<RatePhase> list = new ArrayList<RatePhase>();
+        list.add(phase);
+        return list;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < phases.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(phases[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * open loop traffic cop: one instance is shared by all sender threads and hands out send slots at a global rate that
+ * follows a {@link RateProfile}. each slot is scheduled relative to the previous one and not relative to the time the
+ * last send returned, so a slow send does not lower the rate. senders that fall behind get their overdue slots
+ * immediately until they caught up.
+ */
+public class RateLimitingSenderTrafficCop implements SenderTrafficCop {
+
+    private static final double NANOS_PER_SECOND = 1000d * 1000d * 1000d;
+    // parkNanos is too coarse for short waits, so we yield for the last part
+    private static final long SPIN_THRESHOLD_NANOS = 50L * 1000L;
+    // the rate is integrated in steps of this size when it is low or changes between two slots
+    private static final long INTEGRATION_STEP_NANOS = 1000L * 1000L;
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final RateProfile rateProfile;
+    private final AtomicLong nextSendTime = new AtomicLong(NOT_STARTED);
+    private volatile long startTime = NOT_STARTED;
+
+    public RateLimitingSenderTrafficCop(final double messagesPerSecond) {
+        this(RateProfileFactory.getConstantRateProfile(messagesPerSecond));
+    }
+
+    public RateLimitingSenderTrafficCop(final RateProfile rateProfile) {
+        if (rateProfile == null) {
+            throw new IllegalArgumentException("the rate profile was null");
+        }
+        this.rateProfile = rateProfile;
+    }
+
+    @Override
+    public void waitUntilSendable() {
+        final long scheduled = claimNextSendTime();
+        long remaining;
+        while ((remaining = scheduled - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.yield();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean canSend() {
+        final long next = nextSendTime.get();
+        return next == NOT_STARTED || next - System.nanoTime() <= 0;
+    }
+
+    public RateProfile getRateProfile() {
+        return rateProfile;
+    }
+
+    /**
+     * @return the nanos since the first slot was handed out, 0 if nothing was sent yet
+     */
+    public long getElapsedNanos() {
+        final long start = startTime;
+        return start == NOT_STARTED ? 0 : System.nanoTime() - start;
+    }
+
+    public double getCurrentRate() {
+        return rateProfile.getRate(getElapsedNanos());
+    }
+
+    private long claimNextSendTime() {
+        if (startTime == NOT_STARTED) {
+            start();
+        }
+        while (true) {
+            final long next = nextSendTime.get();
+            if (nextSendTime.compareAndSet(next, getSlotAfter(next))) {
+                return next;
+            }
+        }
+    }
+
+    // the schedule starts with the first message, not when the senders are created
+    private synchronized void start() {
+        if (startTime == NOT_STARTED) {
+            final long now = System.nanoTime();
+            nextSendTime.set(getFirstSlot(now));
+            startTime = now;
+        }
+    }
+
+    // skips a pause the profile may start with
+    private long getFirstSlot(final long start) {
+        long time = start;
+        while (rateProfile.getRate(time - start) <= 0) {
+            time += INTEGRATION_STEP_NANOS;
+        }
+        return time;
+    }
+
+    /**
+     * the next slot is where the integral of the rate since the given slot reaches one message. for a rate that does
+     * not change between two slots this is simply the interval 1 / rate.
+     */
+    private long getSlotAfter(final long slot) {
+        final long start = startTime;
+        long time = slot;
+        double messages = 1d;
+        while (true) {
+            final double rate = rateProfile.getRate(time - start);
+            final double nanos = messages / rate * NANOS_PER_SECOND;
+            if (rate > 0 && nanos <= INTEGRATION_STEP_NANOS) {
+                return time + Math.max(1, Math.round(nanos));
+            }
+            messages -= rate * INTEGRATION_STEP_NANOS / NANOS_PER_SECOND;
+            time += INTEGRATION_STEP_NANOS;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "rate profile [" + rateProfile + "] shared by all senders";
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+/**
+ * one phase of a {@link PhasedRateProfile}, the offset is relative to the start of the phase.
+ */
+public abstract class RatePhase {
+
+    private static final long NANOS_PER_MILLI = 1000L * 1000L;
+
+    private final long durationNanos;
+
+    protected RatePhase(final long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("the duration of a phase must be greater than zero, was: " + durationMillis);
+        }
+        this.durationNanos = durationMillis * NANOS_PER_MILLI;
+    }
+
+    public abstract double getRate(long offsetNanos);
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public double getEndRate() {
+        return getRate(durationNanos);
+    }
+
+    public static RatePhase constant(final double rate, final long durationMillis) {
+        checkRate(rate);
+        return new RatePhase(durationMillis) {
+            @Override
+            public double getRate(final long offsetNanos) {
+                return rate;
+            }
+
+            @Override
+            public String toString() {
+                return "CONSTANT " + rate + " msg/s for " + durationMillis + " ms";
+            }
+        };
+    }
+
+    public static RatePhase linear(final double from, final double to, final long durationMillis) {
+        checkRate(from);
+        checkRate(to);
+        return new RatePhase(durationMillis) {
+            @Override
+            public double getRate(final long offsetNanos) {
+                final double progress = Math.min(1d, (double) offsetNanos / getDurationNanos());
+                return from + (to - from) * progress;
+            }
+
+            @Override
+            public String toString() {
+                return "LINEAR " + from + " -> " + to + " msg/s in " + durationMillis + " ms";
+            }
+        };
+    }
+
+    public static RatePhase sine(final double base, final double amplitude, final long periodMillis, final long durationMillis) {
+        checkRate(base);
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("the period must be greater than zero, was: " + periodMillis);
+        }
+        final double periodNanos = periodMillis * (double) NANOS_PER_MILLI;
+        return new RatePhase(durationMillis) {
+            @Override
+            public double getRate(final long offsetNanos) {
+                // never below 0, a negative rate is a pause
+                return Math.max(0d, base + amplitude * Math.sin(2 * Math.PI * offsetNanos / periodNanos));
+            }
+
+            @Override
+            public String toString() {
+                return "SINE " + base + " +/- " + amplitude + " msg/s, period " + periodMillis + " ms for " + durationMillis + " ms";
+            }
+        };
+    }
+
+    private static void checkRate(final double rate) {
+        if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("a rate must be a number >= 0, was: " + rate);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+/**
+ * the target send rate over time. the time is measured from the first message sent, a profile consists of one or more
+ * phases that follow each other. after the last phase the rate the last phase ended with is kept.
+ */
+public interface RateProfile {
+
+    /**
+     * @return the target messages per second at the given time, can be 0 for a pause
+     */
+    double getRate(long elapsedNanos);
+
+    /**
+     * @return the index of the phase that is active at the given time
+     */
+    int getPhase(long elapsedNanos);
+
+    int getPhaseCount();
+
+    long getPhaseStartNanos(int phase);
+
+    /**
+     * @return the end of the phase, the last phase never ends
+     */
+    long getPhaseEndNanos(int phase);
+
+    String getPhaseDescription(int phase);
+
+}
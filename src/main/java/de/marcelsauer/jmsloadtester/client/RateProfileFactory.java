@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * parses rate profiles like "LINEAR#1000#50000#600000,CONSTANT#50000#60000". phases are separated by ",", the values
+ * of a phase by "#", all durations are milliseconds and all rates messages per second:
+ * <ul>
+ * <li>CONSTANT#rate#duration</li>
+ * <li>LINEAR#fromRate#toRate#duration</li>
+ * <li>STEP#startRate#increment#stepDuration#steps</li>
+ * <li>SINE#baseRate#amplitude#period#duration</li>
+ * <li>SPIKE#baseRate#spikeRate#every#spikeDuration#duration</li>
+ * </ul>
+ * STEP and SPIKE are expanded into constant phases, so each step and each spike is reported on its own.
+ */
+public class RateProfileFactory {
+
+    public static final String CONSTANT = "CONSTANT";
+    public static final String LINEAR = "LINEAR";
+    public static final String STEP = "STEP";
+    public static final String SINE = "SINE";
+    public static final String SPIKE = "SPIKE";
+
+    private static final String PHASE_SPLITTER = ",";
+    private static final String HASH = "#";
+
+    public static RateProfile getRateProfile(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the rate profile was empty");
+        }
+        final List<RatePhase> phases = new ArrayList<RatePhase>();
+        for (String phase : definition.split(PHASE_SPLITTER)) {
+            addPhases(phases, phase.trim());
+        }
+        return new PhasedRateProfile(phases);
+    }
+
+    /**
+     * a profile that never changes its rate
+     */
+    public static RateProfile getConstantRateProfile(final double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("the rate must be greater than zero, was: " + rate);
+        }
+        return new PhasedRateProfile(RatePhase.constant(rate, Long.MAX_VALUE / (1000L * 1000L)));
+    }
+
+    private static void addPhases(final List<RatePhase> phases, final String phase) {
+        final String[] values = phase.split(HASH);
+        final String type = values[0].trim();
+        try {
+            if (CONSTANT.equals(type)) {
+                check(phase, values, 2);
+                phases.add(RatePhase.constant(getRate(values[1]), getMillis(values[2])));
+            } else if (LINEAR.equals(type)) {
+                check(phase, values, 3);
+                phases.add(RatePhase.linear(getRate(values[1]), getRate(values[2]), getMillis(values[3])));
+            } else if (STEP.equals(type)) {
+                check(phase, values, 4);
+                addSteps(phases, getRate(values[1]), getRate(values[2]), getMillis(values[3]), Integer.valueOf(values[4].trim()));
+            } else if (SINE.equals(type)) {
+                check(phase, values, 4);
+                phases.add(RatePhase.sine(getRate(values[1]), getRate(values[2]), getMillis(values[3]), getMillis(values[4])));
+            } else if (SPIKE.equals(type)) {
+                check(phase, values, 5);
+                addSpikes(phases, getRate(values[1]), getRate(values[2]), getMillis(values[3]), getMillis(values[4]), getMillis(values[5]));
+            } else {
+                throw new IllegalArgumentException("the rate profile phase does not exist, was: " + phase);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the rate profile phase contains an invalid number, was: " + phase, e);
+        }
+    }
+
+    private static void addSteps(final List<RatePhase> phases, final double start, final double increment, final long stepMillis, final int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("the number of steps must be greater than zero, was: " + steps);
+        }
+        for (int i = 0; i < steps; i++) {
+            phases.add(RatePhase.constant(start + i * increment, stepMillis));
+        }
+    }
+
+    private static void addSpikes(final List<RatePhase> phases, final double base, final double spike, final long everyMillis, final long spikeMillis, final long durationMillis) {
+        if (spikeMillis >= everyMillis) {
+            throw new IllegalArgumentException("a spike must be shorter than the time between two spikes, was: " + spikeMillis + " >= " + everyMillis);
+        }
+        long remaining = durationMillis;
+        while (remaining > 0) {
+            final long baseMillis = Math.min(everyMillis - spikeMillis, remaining);
+            phases.add(RatePhase.constant(base, baseMillis));
+            remaining -= baseMillis;
+            if (remaining > 0) {
+                final long millis = Math.min(spikeMillis, remaining);
+                phases.add(RatePhase.constant(spike, millis));
+                remaining -= millis;
+            }
+        }
+    }
+
+    private static void check(final String phase, final String[] values, final int expected) {
+        if (values.length != expected + 1) {
+            throw new IllegalArgumentException("the rate profile phase needs " + expected + " values, was: " + phase);
+        }
+    }
+
+    private static double getRate(final String value) {
+        return Double.valueOf(value.trim());
+    }
+
+    private static long getMillis(final String value) {
+        return Long.valueOf(value.trim());
+    }
+}
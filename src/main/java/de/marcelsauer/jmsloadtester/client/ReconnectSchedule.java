@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+/**
+ * when listeners drop their subscription and subscribe again to build up and drain a backlog. given like
+ * "onlineMillis#offlineMillis[#listeners]": a listener closes its consumer after it was subscribed for onlineMillis,
+ * stays away for offlineMillis and subscribes again, over and over until all messages are received. only the first
+ * listeners reconnect, all of them by default. NONE never reconnects.
+ */
+public final class ReconnectSchedule {
+
+    public static final String NONE = "NONE";
+
+    private static final String HASH = "#";
+
+    private final long onlineMillis;
+    private final long offlineMillis;
+    private final int listeners;
+
+    private ReconnectSchedule(final long onlineMillis, final long offlineMillis, final int listeners) {
+        this.onlineMillis = onlineMillis;
+        this.offlineMillis = offlineMillis;
+        this.listeners = listeners;
+    }
+
+    /**
+     * @return the schedule or null for {@link #NONE}
+     */
+    public static ReconnectSchedule getReconnectSchedule(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the reconnect schedule was empty");
+        }
+        if (NONE.equals(definition.trim())) {
+            return null;
+        }
+        final String[] values = definition.split(HASH);
+        if (values.length < 2 || values.length > 3) {
+            throw new IllegalArgumentException("the reconnect schedule must look like onlineMillis#offlineMillis[#listeners] or " + NONE + ", was: " + definition);
+        }
+        try {
+            final long online = Long.parseLong(values[0].trim());
+            final long offline = Long.parseLong(values[1].trim());
+            final int listeners = values.length == 3 ? Integer.parseInt(values[2].trim()) : Integer.MAX_VALUE;
+            if (online <= 0 || offline <= 0 || listeners <= 0) {
+                throw new IllegalArgumentException("the reconnect schedule needs values > 0, was: " + definition);
+            }
+            return new ReconnectSchedule(online, offline, listeners);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the reconnect schedule contains an invalid number, was: " + definition, e);
+        }
+    }
+
+    public long getOnlineMillis() {
+        return onlineMillis;
+    }
+
+    public long getOfflineMillis() {
+        return offlineMillis;
+    }
+
+    /**
+     * @param listener the number of the listener, starting with 0
+     */
+    public boolean isReconnecting(final int listener) {
+        return listener < listeners;
+    }
+
+    @Override
+    public String toString() {
+        return "online " + onlineMillis + " ms, offline " + offlineMillis + " ms, " + (listeners == Integer.MAX_VALUE ? "all listeners" : "the first " + listeners + " listeners");
+    }
+}
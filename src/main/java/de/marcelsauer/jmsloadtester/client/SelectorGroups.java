@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.tools.RandomUtils;
+
+import java.util.Locale;
+
+/**
+ * the groups the senders spread their messages over for listeners with a message selector. the {@link Sender}
+ * interceptor sets the group of each message as property {@link Sender#SELECTOR_GROUP}. given like
+ * <ul>
+ * <li>n: n groups with the same share of the messages, numbered from 0</li>
+ * <li>w0#w1#...: one group per weight, each gets a share of the messages in proportion to its weight</li>
+ * </ul>
+ * so "4" lets a listener that selects one group see 25 % of the messages and "1#9" 10 % or 90 %.
+ */
+public final class SelectorGroups {
+
+    public static final String NONE = "NONE";
+    // replaced in a selector template by the group of the listener
+    public static final String GROUP_PLACEHOLDER = "{group}";
+
+    private static final String SPLITTER = "#";
+
+    private final double[] cumulative;
+
+    private SelectorGroups(final double[] cumulative) {
+        this.cumulative = cumulative;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the groups are invalid
+     */
+    public static void validate(final String definition) {
+        getSelectorGroups(definition);
+    }
+
+    /**
+     * @return the groups or null for {@link #NONE}
+     */
+    public static SelectorGroups getSelectorGroups(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the selector groups were empty");
+        }
+        if (NONE.equals(definition.trim())) {
+            return null;
+        }
+        final String[] values = definition.split(SPLITTER);
+        try {
+            final double[] weights;
+            if (values.length == 1) {
+                final int groups = Integer.parseInt(values[0].trim());
+                if (groups < 1) {
+                    throw new IllegalArgumentException("there must be at least 1 selector group, was: " + definition);
+                }
+                weights = new double[groups];
+                for (int i = 0; i < groups; i++) {
+                    weights[i] = 1;
+                }
+            } else {
+                weights = new double[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    weights[i] = Double.parseDouble(values[i].trim());
+                    if (weights[i] < 0) {
+                        throw new IllegalArgumentException("the selector group weights must not be negative, was: " + definition);
+                    }
+                }
+            }
+            final double[] cumulative = RandomUtils.getCumulativeWeights(weights);
+            if (cumulative[cumulative.length - 1] <= 0) {
+                throw new IllegalArgumentException("the selector group weights must not all be 0, was: " + definition);
+            }
+            return new SelectorGroups(cumulative);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the selector groups contain an invalid number, was: " + definition, e);
+        }
+    }
+
+    /**
+     * @param template a message selector, {@link #GROUP_PLACEHOLDER} is replaced by the group of the listener
+     * @param listener the number of the listener, starting with 0
+     * @param groups the groups of the senders, the listeners take them in turn, may be null
+     */
+    public static String getSelector(final String template, final int listener, final SelectorGroups groups) {
+        final int group = groups == null ? listener : listener % groups.getGroupCount();
+        return template.replace(GROUP_PLACEHOLDER, String.valueOf(group));
+    }
+
+    public int getGroupCount() {
+        return cumulative.length;
+    }
+
+    /**
+     * @return the share of the messages the group gets, between 0 and 1
+     */
+    public double getShare(final int group) {
+        return (cumulative[group] - (group == 0 ? 0 : cumulative[group - 1])) / cumulative[cumulative.length - 1];
+    }
+
+    /**
+     * @return the group of the next message, at random in proportion to the weights
+     */
+    public int nextGroup() {
+        return RandomUtils.pickWeighted(cumulative);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < cumulative.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(i).append(String.format(Locale.US, ": %.1f %%", getShare(i) * 100));
+        }
+        return cumulative.length + " groups (" + sb + ")";
+    }
+}
@@ -15,6 +15,7 @@
  */
 package de.marcelsauer.jmsloadtester.client;
 
+import de.marcelsauer.jmsloadtester.core.Constants;
 import de.marcelsauer.jmsloadtester.core.JmsException;
 import de.marcelsauer.jmsloadtester.handler.MessageHandler;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategy;
@@ -24,6 +25,7 @@ import de.marcelsauer.jmsloadtester.message.Payload;
 import de.marcelsauer.jmsloadtester.tools.Logger;
 import de.marcelsauer.jmsloadtester.tools.ThreadTools;
 import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.RunTracker;
 import de.marcelsauer.jmsloadtester.tracker.ThreadTracker;
 
 import javax.jms.JMSException;
@@ -33,25 +35,62 @@ import java.util.List;
 
 public class Sender extends JmsClient implements MessageInterceptor {
 
+    public static final String SEND_NANO_TIME = "sendNanoTime";
+    public static final String SEND_MILLIS = "sendMillis";
+    public static final String SENDER_JVM_ID = "senderJvmId";
+    public static final String THREAD_NAME = "currentThreadName";
+    public static final String THREAD_MESSAGES_SENT = "threadMessagesSent";
+    public static final String DESTINATION = "sentToDestination";
+    public static final String ROUTING_KEY = "routingKey";
+    public static final String SELECTOR_GROUP = "selectorGroup";
+
+    // the interceptor is not the sender that sends the message, so the sequence has to be bound to the sending thread
+    private static final ThreadLocal<int[]> threadMessagesSent = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+    // the routing of the sending thread if it sends to more than one destination
+    private static final ThreadLocal<DestinationRouter.Cursor> route = new ThreadLocal<DestinationRouter.Cursor>();
+    // the selector groups of the sending thread if the listeners select
+    private static final ThreadLocal<SelectorGroups> groups = new ThreadLocal<SelectorGroups>();
+
     private int sleepMilliseconds;
     private int messagesSent;
     private String destination;
+    private DestinationRouter destinationRouter;
+    private SelectorGroups selectorGroups;
+    private RunTracker runTracker;
     private MessageContentStrategy messageContentStrategy;
     private List<MessageSentAware> messageSentAware = new ArrayList<MessageSentAware>();
     private List<MessageInterceptor> messageInterceptors = new ArrayList<MessageInterceptor>();
     private SenderTrafficCop trafficCop;
+    private boolean commitBeforeWait;
     
     public void run() {
         final MessageHandler messageHandler = getMessageHandler();
         messageHandler.addMessageInterceptors(getMessageInterceptors());
         messageHandler.addMessageSentAware(messageSentAware);
         long sleepMillis = getSleepMilliseconds();
+        final DestinationRouter.Cursor cursor = destinationRouter != null && destinationRouter.getDestinationCount() > 1 ? destinationRouter.newCursor() : null;
+        route.set(cursor);
+        groups.set(selectorGroups);
         try {
             MessageContentStrategy messages = getMessageContentStrategy();
             for (Payload message : messages) {
+                if (runTracker != null && runTracker.isStopped()) {
+                    break;
+                }
+                if (commitBeforeWait && !trafficCop.canSend()) {
+                    // uncommitted messages can not be received, so waiting for their response would never end
+                    messageHandler.flush();
+                }
             	trafficCop.waitUntilSendable();
-                Logger.debug("sending message: " + message);
-                messageHandler.sendMessage(message, getDestination());
+                if (Logger.isDebugEnabled()) {
+                    Logger.debug("sending message: " + message);
+                }
+                messageHandler.sendMessage(message, cursor != null ? cursor.next() : getDestination());
                 messagesSent++;
                 if (sleepMillis > 0) {
 	                try {
@@ -61,6 +100,7 @@ public class Sender extends JmsClient implements MessageInterceptor {
 	                }
                 }
             }
+            messageHandler.flush();
             Logger.debug("done sending");
         } catch (Exception e) {
             throw new JmsException("problems while sending message", e);
@@ -71,14 +111,48 @@ public class Sender extends JmsClient implements MessageInterceptor {
         this.destination = destination;
     }
 
+    /**
+     * @param destinationRouter spreads the messages over its destinations if it has more than one, replaces the
+     *            destination
+     */
+    public void setDestinationRouter(final DestinationRouter destinationRouter) {
+        this.destinationRouter = destinationRouter;
+    }
+
+    public void setSelectorGroups(final SelectorGroups selectorGroups) {
+        this.selectorGroups = selectorGroups;
+    }
+
+    /**
+     * @param runTracker stops the sender of a time bound run, null to send all messages
+     */
+    public void setRunTracker(final RunTracker runTracker) {
+        this.runTracker = runTracker;
+    }
+
     public void setSleepMilliseconds(final int sleepMilliseconds) {
         this.sleepMilliseconds = sleepMilliseconds;
     }
 
     public void intercept(final Message message, final ThreadTracker threadTracker, final MessageTracker messageTracker) throws JMSException {
-        message.setObjectProperty("currentThreadName", ThreadTools.getCurrentThreadName());
-        message.setObjectProperty("threadMessagesSent", messagesSent + 1);
+        message.setObjectProperty(THREAD_NAME, ThreadTools.getCurrentThreadName());
+        message.setObjectProperty(THREAD_MESSAGES_SENT, ++threadMessagesSent.get()[0]);
         message.setObjectProperty("totalMessagesSent", messageTracker.getTotalMessagesSent() + 1);
+        // used for the latency, nanos if received in this jvm, millis otherwise
+        message.setStringProperty(SENDER_JVM_ID, Constants.JVM_ID);
+        message.setLongProperty(SEND_MILLIS, System.currentTimeMillis());
+        message.setLongProperty(SEND_NANO_TIME, System.nanoTime());
+        final DestinationRouter.Cursor cursor = route.get();
+        if (cursor != null) {
+            message.setStringProperty(DESTINATION, cursor.getDestination());
+            if (cursor.getKey() != DestinationRouter.NO_KEY) {
+                message.setLongProperty(ROUTING_KEY, cursor.getKey());
+            }
+        }
+        final SelectorGroups selectorGroups = groups.get();
+        if (selectorGroups != null) {
+            message.setIntProperty(SELECTOR_GROUP, selectorGroups.nextGroup());
+        }
     }
 
     public void addMessageSentAware(final MessageSentAware messageSentAware) {
@@ -112,4 +186,11 @@ public class Sender extends JmsClient implements MessageInterceptor {
     public void setTrafficCop(SenderTrafficCop trafficCop) {
     	this.trafficCop = trafficCop;
     }
+
+    /**
+     * @param commitBeforeWait true if the traffic cop waits for responses to the messages sent so far
+     */
+    public void setCommitBeforeWait(boolean commitBeforeWait) {
+        this.commitBeforeWait = commitBeforeWait;
+    }
 }
@@ -15,9 +15,11 @@
  */
 package de.marcelsauer.jmsloadtester.config;
 
+import de.marcelsauer.jmsloadtester.handler.DestinationHandler;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategy;
 import de.marcelsauer.jmsloadtester.message.MessageInterceptor;
 import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTracker;
 
 import java.util.List;
 import java.util.Properties;
@@ -57,8 +59,14 @@ public interface Config {
 
     String getConnectionFactory();
 
+    /**
+     * @return one destination or a list of destinations with ranges, see {@link de.marcelsauer.jmsloadtester.client.DestinationRouter}
+     */
     String getListenToDestination();
 
+    /**
+     * @return one destination or a list of destinations with ranges, see {@link de.marcelsauer.jmsloadtester.client.DestinationRouter}
+     */
     String getSendToDestination();
 
     OutputStrategy getDebugOutputStrategy();
@@ -79,4 +87,173 @@ public interface Config {
     
     boolean isSenderWaitForResponse();
 
+    double getSenderRatePerSecond();
+
+    String getSenderRateProfile();
+
+    /**
+     * @return a new tracker for the configured message id strategy
+     */
+    MessageIdTracker getMessageIdTracker();
+
+    String getSequenceTrackingScope();
+
+    /**
+     * @return the connection pool type for the senders, see {@link de.marcelsauer.jmsloadtester.handler.ConnectionPool}
+     */
+    String getSenderConnectionPool();
+
+    String getListenerConnectionPool();
+
+    /**
+     * @return a sender with a transacted session commits after this many messages
+     */
+    int getSenderCommitEveryMessages();
+
+    /**
+     * @return a sender with a transacted session commits when its oldest uncommitted message is this old, 0 to
+     *         commit by message count only
+     */
+    long getSenderCommitEveryMillis();
+
+    /**
+     * @return a listener commits its transacted session or acknowledges (see {@link #isExplicitAcknowledgeMessage()})
+     *         after this many messages
+     */
+    int getListenerAcknowledgeEveryMessages();
+
+    /**
+     * @return a listener commits or acknowledges when its oldest pending message is this old, 0 to batch by message
+     *         count only
+     */
+    long getListenerAcknowledgeEveryMillis();
+
+    /**
+     * @return how the listeners get their messages, see {@link de.marcelsauer.jmsloadtester.client.Listener#setConsumerMode(String)}
+     */
+    String getListenerConsumerMode();
+
+    /**
+     * @return synchronous or asynchronous sends, see {@link de.marcelsauer.jmsloadtester.handler.AsyncSendWindow#getWindowSize(String)}
+     */
+    String getSenderSendMode();
+
+    /**
+     * @return {@link de.marcelsauer.jmsloadtester.tracker.ReplyTracker#TEMPORARY}, the destination the replies to the
+     *         requests go to or null if the senders do not wait for replies
+     */
+    String getSenderReplyTo();
+
+    /**
+     * @return true if the listeners echo every message with a JMSReplyTo
+     */
+    boolean isListenerReply();
+
+    /**
+     * @return the simulated processing time before a listener replies, see {@link de.marcelsauer.jmsloadtester.handler.ReplyDelay}
+     */
+    String getListenerReplyDelay();
+
+    /**
+     * @return the body of the replies, see {@link de.marcelsauer.jmsloadtester.handler.ReplyPayload}
+     */
+    String getListenerReplyPayload();
+
+    /**
+     * @return the number of threads replying for all listeners, 0 if each listener replies itself
+     */
+    int getListenerReplyWorkers();
+
+    /**
+     * @return one producer per destination or one anonymous producer for all, see {@link de.marcelsauer.jmsloadtester.handler.ProducerCache}
+     */
+    String getSenderProducerMode();
+
+    /**
+     * @return how the senders spread their messages over the destinations of {@link #getSendToDestination()}, see
+     *         {@link de.marcelsauer.jmsloadtester.client.DestinationRouter}
+     */
+    String getSenderRouting();
+
+    /**
+     * @return how the listeners are assigned to the destinations of {@link #getListenToDestination()}, see
+     *         {@link de.marcelsauer.jmsloadtester.client.ListenerAssignment}
+     */
+    String getListenerAssignment();
+
+    /**
+     * @return NONE, DURABLE, SHARED or SHARED_DURABLE, see {@link de.marcelsauer.jmsloadtester.handler.Subscription}
+     */
+    String getListenerSubscription();
+
+    /**
+     * @return the name the subscription names of the listeners start with
+     */
+    String getListenerSubscriptionName();
+
+    /**
+     * @return the prefix of the client ids of the listener connections, empty for none
+     */
+    String getListenerClientIdPrefix();
+
+    /**
+     * @return when the listeners drop their subscription and subscribe again, see
+     *         {@link de.marcelsauer.jmsloadtester.client.ReconnectSchedule}
+     */
+    String getListenerReconnect();
+
+    /**
+     * checks the settings that depend on the kind of the listener destinations, only the lookup tells a topic from a
+     * queue
+     *
+     * @throws IllegalArgumentException if the listeners can never receive all the messages they wait for
+     */
+    void checkListenerDestinations(DestinationHandler destinationHandler);
+
+    /**
+     * @return the groups the senders stamp on their messages for selecting listeners, see
+     *         {@link de.marcelsauer.jmsloadtester.client.SelectorGroups}
+     */
+    String getSenderSelectorGroups();
+
+    /**
+     * @return the message selector template of the listeners or null if they do not select
+     */
+    String getListenerSelector();
+
+    /**
+     * @return how many of the first listeners use the message selector, the others receive all messages
+     */
+    int getListenerSelectorListeners();
+
+    /**
+     * @return how many seconds the senders send before the run ends, 0 to send a number of messages
+     */
+    long getRunDurationSeconds();
+
+    /**
+     * @return after how many seconds without a received message the run ends, 0 to wait forever
+     */
+    long getListenerIdleTimeoutSeconds();
+
+    /**
+     * @return every how many seconds the statistics of the last window are printed, 0 for none
+     */
+    long getOutputWindowSeconds();
+
+    /**
+     * @return where each window is exported to, SILENT for nowhere
+     */
+    OutputStrategy getOutputWindowStrategy();
+
+    /**
+     * @return CSV or NDJSON, the format of the exported windows
+     */
+    String getOutputWindowFormat();
+
+    /**
+     * @return where the results are written to as one JSON object, SILENT for nowhere
+     */
+    OutputStrategy getResultJsonOutputStrategy();
+
 }
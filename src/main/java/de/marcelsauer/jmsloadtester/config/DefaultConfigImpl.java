@@ -15,8 +15,20 @@
  */
 package de.marcelsauer.jmsloadtester.config;
 
+import de.marcelsauer.jmsloadtester.client.DestinationRouter;
+import de.marcelsauer.jmsloadtester.client.Listener;
+import de.marcelsauer.jmsloadtester.client.ListenerAssignment;
+import de.marcelsauer.jmsloadtester.client.ReconnectSchedule;
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
 import de.marcelsauer.jmsloadtester.core.Constants;
 import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.handler.AsyncSendWindow;
+import de.marcelsauer.jmsloadtester.handler.ConnectionPool;
+import de.marcelsauer.jmsloadtester.handler.DestinationHandler;
+import de.marcelsauer.jmsloadtester.handler.ProducerCache;
+import de.marcelsauer.jmsloadtester.handler.ReplyDelay;
+import de.marcelsauer.jmsloadtester.handler.ReplyPayload;
+import de.marcelsauer.jmsloadtester.handler.Subscription;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategy;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategyFactory;
 import de.marcelsauer.jmsloadtester.message.MessageInterceptor;
@@ -25,7 +37,13 @@ import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
 import de.marcelsauer.jmsloadtester.tools.Logger;
 import de.marcelsauer.jmsloadtester.tools.PropertyUtils;
 import de.marcelsauer.jmsloadtester.tools.StringUtils;
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageIdTrackerFactory;
+import de.marcelsauer.jmsloadtester.tracker.RunTracker;
+import de.marcelsauer.jmsloadtester.tracker.SequenceTracker;
+import de.marcelsauer.jmsloadtester.tracker.WindowTracker;
 
+import javax.jms.Topic;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
@@ -52,9 +70,42 @@ public class DefaultConfigImpl implements Config {
     private static final String PAUSE_PROGRESS = APP_PREFIX + "output.pause.seconds.between.printing.progress";
     private static final String LISTENER_RAMPUP = APP_PREFIX + "listener.ramp.up.millis";
     private static final String SENDER_RAMPUP = APP_PREFIX + "sender.ramp.up.millis";
+    private static final String SENDER_RATE_PROFILE = APP_PREFIX + "sender.rate.profile";
     private static final String MESSAGE_INTERCEPTORS = APP_PREFIX + "message.interceptors";
     private static final String LISTENER_ACK_MESSAGE = APP_PREFIX + "listener.explicit.acknowledge.message";
     private static final String SENDER_WAIT_FOR_RESPONSE = APP_PREFIX + "sender.wait.for.response";
+    private static final String SENDER_RATE = APP_PREFIX + "sender.rate.per.second";
+    private static final String MESSAGE_ID_STRATEGY = APP_PREFIX + "tracker.message.id.strategy";
+    private static final String SEQUENCE_TRACKING = APP_PREFIX + "listener.sequence.tracking";
+    private static final String SENDER_CONNECTION_POOL = APP_PREFIX + "sender.connection.pool";
+    private static final String LISTENER_CONNECTION_POOL = APP_PREFIX + "listener.connection.pool";
+    private static final String SENDER_COMMIT_MESSAGES = APP_PREFIX + "sender.commit.every.messages";
+    private static final String SENDER_COMMIT_MILLIS = APP_PREFIX + "sender.commit.every.millis";
+    private static final String LISTENER_ACK_MESSAGES = APP_PREFIX + "listener.acknowledge.every.messages";
+    private static final String LISTENER_ACK_MILLIS = APP_PREFIX + "listener.acknowledge.every.millis";
+    private static final String LISTENER_CONSUMER_MODE = APP_PREFIX + "listener.consumer.mode";
+    private static final String SENDER_SEND_MODE = APP_PREFIX + "sender.send.mode";
+    private static final String SENDER_REPLY_TO = APP_PREFIX + "sender.reply.to.destination";
+    private static final String LISTENER_REPLY = APP_PREFIX + "listener.reply.to.requests";
+    private static final String LISTENER_REPLY_DELAY = APP_PREFIX + "listener.reply.delay";
+    private static final String LISTENER_REPLY_PAYLOAD = APP_PREFIX + "listener.reply.payload";
+    private static final String LISTENER_REPLY_WORKERS = APP_PREFIX + "listener.reply.workers";
+    private static final String SENDER_PRODUCER_MODE = APP_PREFIX + "sender.producer.mode";
+    private static final String SENDER_ROUTING = APP_PREFIX + "sender.routing";
+    private static final String LISTENER_ASSIGNMENT = APP_PREFIX + "listener.assignment";
+    private static final String LISTENER_SUBSCRIPTION = APP_PREFIX + "listener.subscription";
+    private static final String LISTENER_SUBSCRIPTION_NAME = APP_PREFIX + "listener.subscription.name";
+    private static final String LISTENER_CLIENT_ID_PREFIX = APP_PREFIX + "listener.client.id.prefix";
+    private static final String LISTENER_RECONNECT = APP_PREFIX + "listener.reconnect";
+    private static final String SENDER_SELECTOR_GROUPS = APP_PREFIX + "sender.selector.groups";
+    private static final String LISTENER_SELECTOR = APP_PREFIX + "listener.selector";
+    private static final String LISTENER_SELECTOR_LISTENERS = APP_PREFIX + "listener.selector.listeners";
+    private static final String RUN_DURATION = APP_PREFIX + "run.duration.seconds";
+    private static final String LISTENER_IDLE_TIMEOUT = APP_PREFIX + "listener.idle.timeout.seconds";
+    private static final String OUTPUT_WINDOW = APP_PREFIX + "output.window.seconds";
+    private static final String OUTPUT_WINDOW_STRATEGY = APP_PREFIX + "output.window.strategy";
+    private static final String OUTPUT_WINDOW_FORMAT = APP_PREFIX + "output.window.format";
+    private static final String RESULT_JSON_OUT_STRATEGY = APP_PREFIX + "output.result.json.strategy";
 
     // connection factory
     private static final String CONNECTION_FACTORY = "javax.jms.ConnectionFactory";
@@ -78,10 +129,36 @@ public class DefaultConfigImpl implements Config {
     private int expectedMessageSentCount;
     private int priority;
     private long timeToLive;
+    private double senderRate;
+    private int senderCommitEveryMessages;
+    private long senderCommitEveryMillis;
+    private int listenerAcknowledgeEveryMessages;
+    private long listenerAcknowledgeEveryMillis;
 
     private boolean createJndiDestinationIfNotFound;
     private boolean listenerExplicitAckMessage;
     private boolean isSenderWaitForResponse;
+    private boolean listenerReply;
+    private String listenerReplyDelay;
+    private String listenerReplyPayload;
+    private int listenerReplyWorkers;
+    private String senderProducerMode;
+    private String senderRouting;
+    private String listenerAssignment;
+    private String listenerSubscription;
+    private String listenerSubscriptionName;
+    private String listenerClientIdPrefix;
+    private String listenerReconnect;
+    private ReconnectSchedule listenerReconnectSchedule;
+    private String senderSelectorGroups;
+    private String listenerSelector;
+    private int listenerSelectorListeners;
+    private long runDurationSeconds;
+    private long listenerIdleTimeoutSeconds;
+    private long outputWindowSeconds;
+    private OutputStrategy outputWindowStrategy;
+    private String outputWindowFormat;
+    private OutputStrategy resultJsonOutputStrategy;
 
     private String connectionFactory;
     private String connectionFactoryUsername;
@@ -90,6 +167,14 @@ public class DefaultConfigImpl implements Config {
     private String sendToDestination;
     private String messageContentStrategy;
     private String deliveryMode;
+    private String senderRateProfile;
+    private String messageIdStrategy;
+    private String sequenceTrackingScope;
+    private String senderConnectionPool;
+    private String listenerConnectionPool;
+    private String listenerConsumerMode;
+    private String senderSendMode;
+    private String senderReplyTo;
 
     private OutputStrategy debugOutputStrategy;
     private OutputStrategy resultOutputStrategy;
@@ -155,6 +240,9 @@ public class DefaultConfigImpl implements Config {
             // more "logic" parts
             pauseBetweenPrintProgress = parseInt(PAUSE_PROGRESS) * Constants.MILLIS_FACTOR;
 
+            listenerAssignment = parseString(LISTENER_ASSIGNMENT, ListenerAssignment.SPREAD);
+            // PER_DESTINATION#n decides how many listeners there are
+            subscribersToStart = new ListenerAssignment(listenToDestination, listenerAssignment, subscribersToStart).getListenerCount();
             subscriberWaitFor = eachSubscriberWaitFor * subscribersToStart;
 
             setMessagesToSend(getMessageContentStrategy().getMessageCount());
@@ -164,7 +252,56 @@ public class DefaultConfigImpl implements Config {
             messageOutputStrategy = OutputStrategyFactory.getOutputStrategy(parseString(MESSAGE_OUT_STRATEGY));
 
             parseInterceptors(getStringValue(properties.get(MESSAGE_INTERCEPTORS)));
-            
+
+            // optional values
+            senderRate = parseDouble(SENDER_RATE, 0);
+            senderRateProfile = getStringValue(properties.get(SENDER_RATE_PROFILE));
+            messageIdStrategy = parseString(MESSAGE_ID_STRATEGY, MessageIdTrackerFactory.DEFAULT);
+            MessageIdTrackerFactory.validate(messageIdStrategy);
+            sequenceTrackingScope = parseString(SEQUENCE_TRACKING, SequenceTracker.SHARED);
+            senderConnectionPool = parseString(SENDER_CONNECTION_POOL, ConnectionPool.PER_CLIENT);
+            listenerConnectionPool = parseString(LISTENER_CONNECTION_POOL, ConnectionPool.PER_CLIENT);
+            senderCommitEveryMessages = parseInt(SENDER_COMMIT_MESSAGES, 1);
+            senderCommitEveryMillis = parseLong(SENDER_COMMIT_MILLIS, 0);
+            listenerAcknowledgeEveryMessages = parseInt(LISTENER_ACK_MESSAGES, 1);
+            listenerAcknowledgeEveryMillis = parseLong(LISTENER_ACK_MILLIS, 0);
+            listenerConsumerMode = parseString(LISTENER_CONSUMER_MODE, Listener.LISTENER);
+            Listener.validateConsumerMode(listenerConsumerMode);
+            senderSendMode = parseString(SENDER_SEND_MODE, AsyncSendWindow.SYNC);
+            AsyncSendWindow.validateSendMode(senderSendMode);
+            senderReplyTo = parseString(SENDER_REPLY_TO, null);
+            listenerReply = Boolean.valueOf(parseString(LISTENER_REPLY, "false"));
+            listenerReplyDelay = parseString(LISTENER_REPLY_DELAY, ReplyDelay.NONE);
+            ReplyDelay.validate(listenerReplyDelay);
+            listenerReplyPayload = parseString(LISTENER_REPLY_PAYLOAD, ReplyPayload.ECHO);
+            ReplyPayload.validate(listenerReplyPayload);
+            listenerReplyWorkers = parseInt(LISTENER_REPLY_WORKERS, 0);
+            senderProducerMode = parseString(SENDER_PRODUCER_MODE, ProducerCache.PER_DESTINATION);
+            ProducerCache.validateMode(senderProducerMode);
+            senderRouting = parseString(SENDER_ROUTING, DestinationRouter.ROUND_ROBIN);
+            DestinationRouter.validate(sendToDestination, senderRouting);
+            listenerSubscription = parseString(LISTENER_SUBSCRIPTION, Subscription.NONE);
+            listenerSubscriptionName = parseString(LISTENER_SUBSCRIPTION_NAME, Subscription.DEFAULT_NAME);
+            // only an unshared durable subscription needs client ids, different ones would split a shared one
+            final boolean clientIdNeeded = Subscription.getSubscription(listenerSubscription, listenerSubscriptionName, 0, 0).isClientIdNeeded();
+            listenerClientIdPrefix = parseString(LISTENER_CLIENT_ID_PREFIX, clientIdNeeded ? Subscription.DEFAULT_NAME : "");
+            listenerReconnect = parseString(LISTENER_RECONNECT, ReconnectSchedule.NONE);
+            // kept to check the destinations later
+            listenerReconnectSchedule = ReconnectSchedule.getReconnectSchedule(listenerReconnect);
+            senderSelectorGroups = parseString(SENDER_SELECTOR_GROUPS, SelectorGroups.NONE);
+            SelectorGroups.validate(senderSelectorGroups);
+            listenerSelector = parseString(LISTENER_SELECTOR, null);
+            listenerSelectorListeners = parseInt(LISTENER_SELECTOR_LISTENERS, subscribersToStart);
+            runDurationSeconds = parseLong(RUN_DURATION, 0);
+            listenerIdleTimeoutSeconds = parseLong(LISTENER_IDLE_TIMEOUT, 0);
+            RunTracker.validate(runDurationSeconds * Constants.MILLIS_FACTOR, listenerIdleTimeoutSeconds * Constants.MILLIS_FACTOR);
+            outputWindowStrategy = OutputStrategyFactory.getOutputStrategy(parseString(OUTPUT_WINDOW_STRATEGY, OutputStrategyFactory.SILENT));
+            outputWindowFormat = parseString(OUTPUT_WINDOW_FORMAT, WindowTracker.CSV);
+            // an exported time series needs windows, they default to the progress interval then
+            outputWindowSeconds = parseLong(OUTPUT_WINDOW, outputWindowStrategy.isEnabled() ? pauseBetweenPrintProgress / Constants.MILLIS_FACTOR : 0);
+            WindowTracker.validate(outputWindowSeconds * Constants.MILLIS_FACTOR, outputWindowFormat);
+            resultJsonOutputStrategy = OutputStrategyFactory.getOutputStrategy(parseString(RESULT_JSON_OUT_STRATEGY, OutputStrategyFactory.SILENT));
+
             isSenderWaitForResponse = parseBoolean(SENDER_WAIT_FOR_RESPONSE);
 
         } catch (IllegalStateException e) {
@@ -188,6 +325,26 @@ public class DefaultConfigImpl implements Config {
         return getMandatoryBooleanValue(properties.get(key));
     }
 
+    private String parseString(String key, String defaultValue) {
+        Object value = properties.get(key);
+        return StringUtils.isEmpty(value) ? defaultValue : ((String) value).trim();
+    }
+
+    private int parseInt(String key, int defaultValue) {
+        Object value = properties.get(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Integer.valueOf(((String) value).trim());
+    }
+
+    private long parseLong(String key, long defaultValue) {
+        Object value = properties.get(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Long.valueOf(((String) value).trim());
+    }
+
+    private double parseDouble(String key, double defaultValue) {
+        Object value = properties.get(key);
+        return StringUtils.isEmpty(value) ? defaultValue : Double.valueOf(((String) value).trim());
+    }
+
     private long getMandatoryLongValue(final Object value) {
         check(value);
         return Long.valueOf((String) value);
@@ -368,4 +525,187 @@ public class DefaultConfigImpl implements Config {
 	public boolean isSenderWaitForResponse() {
 		return isSenderWaitForResponse;
 	}
+
+    @Override
+    public double getSenderRatePerSecond() {
+        return senderRate;
+    }
+
+    @Override
+    public String getSenderRateProfile() {
+        return senderRateProfile;
+    }
+
+    // we always create a new one
+    @Override
+    public MessageIdTracker getMessageIdTracker() {
+        return MessageIdTrackerFactory.getMessageIdTracker(messageIdStrategy);
+    }
+
+    @Override
+    public String getSequenceTrackingScope() {
+        return sequenceTrackingScope;
+    }
+
+    @Override
+    public String getSenderConnectionPool() {
+        return senderConnectionPool;
+    }
+
+    @Override
+    public String getListenerConnectionPool() {
+        return listenerConnectionPool;
+    }
+
+    @Override
+    public int getSenderCommitEveryMessages() {
+        return senderCommitEveryMessages;
+    }
+
+    @Override
+    public long getSenderCommitEveryMillis() {
+        return senderCommitEveryMillis;
+    }
+
+    @Override
+    public int getListenerAcknowledgeEveryMessages() {
+        return listenerAcknowledgeEveryMessages;
+    }
+
+    @Override
+    public long getListenerAcknowledgeEveryMillis() {
+        return listenerAcknowledgeEveryMillis;
+    }
+
+    @Override
+    public String getListenerConsumerMode() {
+        return listenerConsumerMode;
+    }
+
+    @Override
+    public String getSenderSendMode() {
+        return senderSendMode;
+    }
+
+    @Override
+    public String getSenderReplyTo() {
+        return senderReplyTo;
+    }
+
+    @Override
+    public boolean isListenerReply() {
+        return listenerReply;
+    }
+
+    @Override
+    public String getListenerReplyDelay() {
+        return listenerReplyDelay;
+    }
+
+    @Override
+    public String getListenerReplyPayload() {
+        return listenerReplyPayload;
+    }
+
+    @Override
+    public int getListenerReplyWorkers() {
+        return listenerReplyWorkers;
+    }
+
+    @Override
+    public String getSenderProducerMode() {
+        return senderProducerMode;
+    }
+
+    @Override
+    public String getSenderRouting() {
+        return senderRouting;
+    }
+
+    @Override
+    public String getListenerAssignment() {
+        return listenerAssignment;
+    }
+
+    @Override
+    public String getListenerSubscription() {
+        return listenerSubscription;
+    }
+
+    @Override
+    public String getListenerSubscriptionName() {
+        return listenerSubscriptionName;
+    }
+
+    @Override
+    public String getListenerClientIdPrefix() {
+        return listenerClientIdPrefix;
+    }
+
+    @Override
+    public String getListenerReconnect() {
+        return listenerReconnect;
+    }
+
+    @Override
+    public void checkListenerDestinations(final DestinationHandler destinationHandler) {
+        // a topic drops the messages sent while a plain subscriber is away, a run waiting for all of them never ends
+        final boolean countBased = subscriberWaitFor > 0 && runDurationSeconds == 0 && listenerIdleTimeoutSeconds == 0;
+        if (!countBased || listenerReconnectSchedule == null || !Subscription.NONE.equals(listenerSubscription)) {
+            return;
+        }
+        final ListenerAssignment assignment = new ListenerAssignment(listenToDestination, listenerAssignment, subscribersToStart);
+        for (int listener = 0; listener < subscribersToStart; listener++) {
+            final String destination = assignment.getDestination(assignment.getDestinationIndex(listener));
+            if (listenerReconnectSchedule.isReconnecting(listener) && destinationHandler.getDestination(destination) instanceof Topic) {
+                throw new IllegalArgumentException("the listeners reconnect without a durable subscription to the topic " + destination + " and lose the messages sent meanwhile, set "
+                        + LISTENER_SUBSCRIPTION + ", " + RUN_DURATION + " or " + LISTENER_IDLE_TIMEOUT);
+            }
+        }
+    }
+
+    @Override
+    public String getSenderSelectorGroups() {
+        return senderSelectorGroups;
+    }
+
+    @Override
+    public String getListenerSelector() {
+        return listenerSelector;
+    }
+
+    @Override
+    public int getListenerSelectorListeners() {
+        return listenerSelectorListeners;
+    }
+
+    @Override
+    public long getRunDurationSeconds() {
+        return runDurationSeconds;
+    }
+
+    @Override
+    public long getListenerIdleTimeoutSeconds() {
+        return listenerIdleTimeoutSeconds;
+    }
+
+    @Override
+    public long getOutputWindowSeconds() {
+        return outputWindowSeconds;
+    }
+
+    @Override
+    public OutputStrategy getOutputWindowStrategy() {
+        return outputWindowStrategy;
+    }
+
+    @Override
+    public String getOutputWindowFormat() {
+        return outputWindowFormat;
+    }
+
+    @Override
+    public OutputStrategy getResultJsonOutputStrategy() {
+        return resultJsonOutputStrategy;
+    }
 }
@@ -15,8 +15,12 @@
  */
 package de.marcelsauer.jmsloadtester.core;
 
+import java.util.UUID;
+
 public final class Constants {
     public static final String EOL = System.getProperty("line.separator");
     public static final String SEP = System.getProperty("file.separator");
     public static final int MILLIS_FACTOR = 1000;
+    // identifies this process, System.nanoTime() values can only be compared within the same jvm
+    public static final String JVM_ID = UUID.randomUUID().toString();
 }
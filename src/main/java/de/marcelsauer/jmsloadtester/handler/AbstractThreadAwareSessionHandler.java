@@ -46,7 +46,9 @@ public abstract class AbstractThreadAwareSessionHandler implements SessionHandle
                 throw new JmsException("could not create session", e);
             }
         } else {
-            Logger.debug("returning cached session: [" + sess.get() + "] for this thread");
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("returning cached session: [" + sess.get() + "] for this thread");
+            }
         }
         return sess.get();
     }
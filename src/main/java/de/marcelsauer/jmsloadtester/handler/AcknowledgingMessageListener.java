@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+/**
+ * commits the transacted session of a consumer or acknowledges its messages in batches. a batch is complete after a
+ * number of messages, when its oldest message is old enough or with the last message the listener waits for.
+ * acknowledging a message acknowledges all messages the session consumed so far. a batch that is not complete when the
+ * consumer is closed or the run ends is flushed, so its messages are not redelivered to the next run.
+ * <p/>
+ * a session must not be used by two threads at once, so only the thread that consumes checks the age of a batch: the
+ * provider thread that delivers a message to a pushing consumer or the thread that pulls, which calls
+ * {@link #flushIfDue()} after a receive without a message as well. the batch of a pushing consumer is completed by
+ * another thread with {@link #close()} only, after the consumer is closed and no message can be delivered anymore.
+ */
+class AcknowledgingMessageListener implements MessageListener, TransactionTracker.ListenerBatch {
+
+    private static final long NANOS_PER_MILLI = 1000L * 1000L;
+
+    private final MessageListener target;
+    private final Session session;
+    private final MessageConsumer consumer;
+    private final boolean transacted;
+    private final int everyMessages;
+    private final long everyNanos;
+    private final int lastMessage;
+    private final TransactionTracker transactionTracker;
+
+    // the session delivers one message at a time
+    private int received;
+    private int pending;
+    private long firstPendingNanos;
+    private Message lastPending;
+
+    /**
+     * @param consumer the consumer of the session the listener gets its messages from, closed by {@link #close()}
+     */
+    AcknowledgingMessageListener(final MessageListener target, final Session session, final MessageConsumer consumer, final boolean transacted,
+            final int everyMessages, final long everyMillis, final int lastMessage, final TransactionTracker transactionTracker) {
+        if (everyMessages < 1) {
+            throw new IllegalArgumentException("a batch needs at least one message, was: " + everyMessages);
+        }
+        this.target = target;
+        this.session = session;
+        this.consumer = consumer;
+        this.transacted = transacted;
+        this.everyMessages = everyMessages;
+        this.everyNanos = everyMillis * NANOS_PER_MILLI;
+        this.lastMessage = lastMessage;
+        this.transactionTracker = transactionTracker;
+    }
+
+    @Override
+    public synchronized void onMessage(final Message message) {
+        target.onMessage(message);
+        final long now = System.nanoTime();
+        received++;
+        lastPending = message;
+        if (pending++ == 0) {
+            firstPendingNanos = now;
+        }
+        if (pending >= everyMessages || received == lastMessage || (everyNanos > 0 && now - firstPendingNanos >= everyNanos)) {
+            acknowledge();
+        }
+    }
+
+    /**
+     * completes the batch if its oldest message is old enough
+     */
+    synchronized void flushIfDue() {
+        if (pending > 0 && everyNanos > 0 && System.nanoTime() - firstPendingNanos >= everyNanos) {
+            acknowledge();
+        }
+    }
+
+    /**
+     * completes the batch whatever its size and age
+     *
+     * @return the number of messages committed or acknowledged
+     */
+    synchronized int flush() {
+        final int messages = pending;
+        if (messages > 0) {
+            acknowledge();
+        }
+        return messages;
+    }
+
+    /**
+     * closes the consumer, which waits for a message that is being delivered, and completes the batch. the consumer
+     * must not be used by another thread at the same time, e.g. one that pulls from it
+     *
+     * @return the number of messages committed or acknowledged
+     */
+    @Override
+    public int close() {
+        // not under the lock, a delivery in progress needs it to end
+        try {
+            consumer.close();
+        } catch (JMSException e) {
+            throw new JmsException("could not close message consumer " + consumer, e);
+        }
+        return flush();
+    }
+
+    private void acknowledge() {
+        final long start = System.nanoTime();
+        try {
+            if (transacted) {
+                session.commit();
+            } else {
+                if (Logger.isDebugEnabled()) {
+                    Logger.debug("trying to acknowledge " + pending + " messages up to " + lastPending.getJMSMessageID());
+                }
+                lastPending.acknowledge();
+            }
+        } catch (JMSException e) {
+            throw new JmsException("could not " + (transacted ? "commit " : "acknowledge ") + pending + " received messages", e);
+        }
+        transactionTracker.acknowledgeDone(System.nanoTime() - start, pending);
+        pending = 0;
+        lastPending = null;
+    }
+}
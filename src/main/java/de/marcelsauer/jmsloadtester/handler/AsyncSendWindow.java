@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+
+import javax.jms.Destination;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Semaphore;
+
+/**
+ * sends with the JMS 2.0 send(Message, CompletionListener) of a producer and keeps at most a window of sends in
+ * flight. a message counts as sent when the provider calls back, the time from send to callback is recorded. we
+ * compile against JMS 1.1, so the send is looked up by reflection and the completion listener is a proxy.
+ */
+public final class AsyncSendWindow {
+
+    public static final String SYNC = "SYNC";
+    // ASYNC[#<window>]
+    public static final String ASYNC = "ASYNC";
+
+    static final String COMPLETION_LISTENER = "javax.jms.CompletionListener";
+
+    private static final String SPLITTER = "#";
+    private static final int DEFAULT_WINDOW = 100;
+
+    private final MessageProducer producer;
+    private final Method send;
+    private final Constructor<?> listenerConstructor;
+    private final int size;
+    private final Semaphore window;
+    private final MessageSentAware sentAware;
+    private final MessageTracker messageTracker;
+    private final TransactionTracker transactionTracker;
+
+    AsyncSendWindow(final MessageProducer producer, final Method send, final int size, final MessageSentAware sentAware, final MessageTracker messageTracker,
+            final TransactionTracker transactionTracker) {
+        if (size < 1) {
+            throw new IllegalArgumentException("the send window must be at least 1, was: " + size);
+        }
+        this.producer = producer;
+        this.send = send;
+        final Class<?>[] parameters = send.getParameterTypes();
+        this.listenerConstructor = getListenerConstructor(parameters[parameters.length - 1]);
+        this.size = size;
+        this.window = new Semaphore(size);
+        this.sentAware = sentAware;
+        this.messageTracker = messageTracker;
+        this.transactionTracker = transactionTracker;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the send mode does not exist
+     */
+    public static void validateSendMode(final String sendMode) {
+        getWindowSize(sendMode);
+    }
+
+    /**
+     * @param sendMode {@link #SYNC} or {@link #ASYNC}[#window]
+     * @return the number of sends in flight per producer, 0 for synchronous sends
+     */
+    public static int getWindowSize(final String sendMode) {
+        if (sendMode == null) {
+            throw new IllegalArgumentException("the send mode was null");
+        }
+        final String[] parts = sendMode.trim().split(SPLITTER);
+        if (SYNC.equals(parts[0]) && parts.length == 1) {
+            return 0;
+        }
+        if (ASYNC.equals(parts[0]) && parts.length <= 2) {
+            final int size = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : DEFAULT_WINDOW;
+            if (size < 1) {
+                throw new IllegalArgumentException("the send window must be at least 1, was: " + sendMode);
+            }
+            return size;
+        }
+        throw new IllegalArgumentException("the send mode does not exist, was: " + sendMode);
+    }
+
+    /**
+     * @return the asynchronous send of the producer or null if the provider does not implement JMS 2.0
+     */
+    static Method getAsyncSend(final MessageProducer producer, final String completionListener) {
+        return getAsyncSend(producer, completionListener, false);
+    }
+
+    /**
+     * @param anonymous true for the send(Destination, Message, CompletionListener) of a producer without destination
+     */
+    static Method getAsyncSend(final MessageProducer producer, final String completionListener, final boolean anonymous) {
+        try {
+            final Class<?> type = Class.forName(completionListener, false, producer.getClass().getClassLoader());
+            if (anonymous) {
+                return producer.getClass().getMethod("send", Destination.class, Message.class, type);
+            }
+            return producer.getClass().getMethod("send", Message.class, type);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * waits for a free slot in the window and hands the message to the provider
+     */
+    public void send(final Message message) {
+        send(null, message);
+    }
+
+    /**
+     * @param destination where an anonymous producer sends the message to, null for a producer with destination
+     */
+    public void send(final Destination destination, final Message message) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JmsException("interrupted while waiting for the send window", e);
+        }
+        try {
+            final Object listener = listenerConstructor.newInstance(new Completion(System.nanoTime()));
+            if (destination == null) {
+                send.invoke(producer, message, listener);
+            } else {
+                send.invoke(producer, destination, message, listener);
+            }
+        } catch (InvocationTargetException e) {
+            window.release();
+            throw new JmsException("could not send message", e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (Exception e) {
+            window.release();
+            throw new JmsException("could not send message asynchronously", e);
+        }
+    }
+
+    /**
+     * waits until all sends of the window are completed
+     */
+    public void awaitCompletion() {
+        try {
+            window.acquire(size);
+            window.release(size);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JmsException("interrupted while waiting for the completion of " + getInFlight() + " sends", e);
+        }
+    }
+
+    public int getInFlight() {
+        return size - window.availablePermits();
+    }
+
+    private static Constructor<?> getListenerConstructor(final Class<?> type) {
+        try {
+            return Proxy.getProxyClass(type.getClassLoader(), type).getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new JmsException("could not create a " + type.getName(), e);
+        }
+    }
+
+    // called by the provider, usually from one of its own threads
+    private class Completion implements InvocationHandler {
+
+        private final long start;
+
+        Completion(final long start) {
+            this.start = start;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final String name = method.getName();
+            if ("onCompletion".equals(name)) {
+                completed((Message) args[0]);
+            } else if ("onException".equals(name)) {
+                failed((Exception) args[1]);
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("toString".equals(name)) {
+                return "completion of send started at " + start;
+            }
+            return null;
+        }
+
+        // the slot is freed last, so whoever waits for the completion sees it counted
+        private void completed(final Message message) {
+            transactionTracker.completionDone(System.nanoTime() - start);
+            sentAware.messageSent(message);
+            window.release();
+        }
+
+        // a failed send is done as well, otherwise a run waiting for all messages would never end
+        private void failed(final Exception e) {
+            transactionTracker.completionFailed();
+            messageTracker.messageSendFailed();
+            Logger.error("asynchronous send failed", e);
+            window.release();
+        }
+    }
+}
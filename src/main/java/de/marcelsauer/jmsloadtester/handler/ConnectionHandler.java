@@ -21,4 +21,9 @@ public interface ConnectionHandler {
     Connection getConnection(String username, String password);
 
     Connection getConnection();
+
+    /**
+     * @param client the number of the client, a numbered client always gets the same connection and client id
+     */
+    Connection getConnection(int client, String username, String password);
 }
@@ -31,13 +31,17 @@ public class ConnectionHandlerImpl implements ConnectionHandler, ShutdownAware {
 
     private Connection con;
     private ConnectionFactory connectionFactory;
+    private String clientId;
 
-    private ConnectionHandlerImpl() {
-        Runtime.getRuntime().addShutdownHook(new ShutdownHandler(this));
+    public ConnectionHandlerImpl(ConnectionFactory connectionFactory) {
+        this(connectionFactory, true);
     }
 
-    public ConnectionHandlerImpl(ConnectionFactory connectionFactory) {
-        this();
+    // a pool closes its connections itself and does not need a shutdown hook for each of them
+    ConnectionHandlerImpl(final ConnectionFactory connectionFactory, final boolean closeOnShutdown) {
+        if (closeOnShutdown) {
+            Runtime.getRuntime().addShutdownHook(new ShutdownHandler(this));
+        }
         this.connectionFactory = connectionFactory;
     }
 
@@ -50,13 +54,19 @@ public class ConnectionHandlerImpl implements ConnectionHandler, ShutdownAware {
                 } else {
                     con = getConnectionFactory().createConnection();
                 }
+                // must be set before the connection is used
+                if (clientId != null) {
+                    con.setClientID(clientId);
+                }
                 con.start();
                 Logger.debug("returning newly created Connection: [" + getSummary(con) + "]");
             } catch (JMSException e) {
                 throw new JmsException("could not create connection", e);
             }
         } else {
-            Logger.debug("returning cached Connection: [" + getSummary(con) + "]");
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("returning cached Connection: [" + getSummary(con) + "]");
+            }
         }
         return con;
     }
@@ -66,6 +76,16 @@ public class ConnectionHandlerImpl implements ConnectionHandler, ShutdownAware {
         return getConnection(null, null);
     }
 
+    // there is just the one connection
+    @Override
+    public Connection getConnection(final int client, final String username, final String password) {
+        return getConnection(username, password);
+    }
+
+    synchronized boolean isConnected() {
+        return con != null;
+    }
+
     private synchronized String getSummary(final Connection con) {
         StringBuffer sb = new StringBuffer();
         try {
@@ -85,6 +105,14 @@ public class ConnectionHandlerImpl implements ConnectionHandler, ShutdownAware {
 
     }
 
+    /**
+     * @param clientId the client id of the connection, needed for durable subscriptions. only used when the connection
+     *        is created.
+     */
+    public synchronized void setClientId(final String clientId) {
+        this.clientId = clientId;
+    }
+
     public synchronized void setConnectionFactory(final ConnectionFactory connectionFactory) {
         this.connectionFactory = connectionFactory;
     }
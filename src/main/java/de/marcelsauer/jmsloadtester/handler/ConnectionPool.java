@@ -0,0 +1,235 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.core.ShutdownAware;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tools.StringUtils;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * hands out the connections of one client role (senders or listeners). every client thread creates exactly one
+ * session, so the connection a thread gets first is kept for that thread and counts as one session on it.
+ * <ul>
+ * <li>PER_CLIENT: a new connection for every client, like without a pool</li>
+ * <li>ROUND_ROBIN#connections[#sessionsPerConnection]: the clients are spread over the connections in turn</li>
+ * <li>AFFINITY#connections[#sessionsPerConnection]: a connection is filled up before the next one is used, by default
+ * with an equal share of the clients</li>
+ * </ul>
+ * sessionsPerConnection limits the clients of a connection, a client that finds all connections full fails. with a
+ * client id prefix the connections get the client ids "prefix-0", "prefix-1" and so on. a numbered client gets its
+ * connection from its number instead of the order the threads come in, so it has the same client id in every run.
+ */
+public class ConnectionPool implements ConnectionHandler, ShutdownAware {
+
+    public static final String PER_CLIENT = "PER_CLIENT";
+    public static final String ROUND_ROBIN = "ROUND_ROBIN";
+    public static final String AFFINITY = "AFFINITY";
+
+    private static final String SEPARATOR = "#";
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final ConnectionFactory connectionFactory;
+    private final String strategy;
+    private final int size;
+    private final int sessionsPerConnection;
+    private final List<ConnectionHandlerImpl> connections = new ArrayList<ConnectionHandlerImpl>();
+    private final List<Integer> sessions = new ArrayList<Integer>();
+    private final ThreadLocal<Connection> clientConnection = new ThreadLocal<Connection>();
+    private int clients;
+    private String clientIdPrefix;
+
+    /**
+     * @param clients the number of clients that will use the pool, used for the default share of AFFINITY
+     */
+    public ConnectionPool(final ConnectionFactory connectionFactory, final String type, final int clients) {
+        if (type == null) {
+            throw new IllegalArgumentException("the connection pool type must not be null");
+        }
+        final String[] parts = type.split(SEPARATOR);
+        this.connectionFactory = connectionFactory;
+        this.strategy = parts[0];
+        if (PER_CLIENT.equals(strategy) && parts.length == 1) {
+            this.size = 0;
+            this.sessionsPerConnection = 1;
+        } else if ((ROUND_ROBIN.equals(strategy) || AFFINITY.equals(strategy)) && (parts.length == 2 || parts.length == 3)) {
+            this.size = parsePositive(parts[1], type);
+            if (parts.length == 3) {
+                this.sessionsPerConnection = parsePositive(parts[2], type);
+            } else if (AFFINITY.equals(strategy)) {
+                this.sessionsPerConnection = Math.max(1, (clients + size - 1) / size);
+            } else {
+                this.sessionsPerConnection = UNLIMITED;
+            }
+        } else {
+            throw new IllegalArgumentException("the connection pool type does not exist, use " + PER_CLIENT + ", " + ROUND_ROBIN + "#connections[#sessionsPerConnection] or " + AFFINITY
+                    + "#connections[#sessionsPerConnection], was: " + type);
+        }
+        for (int i = 0; i < size; i++) {
+            addSlot();
+        }
+        Runtime.getRuntime().addShutdownHook(new ShutdownHandler(this));
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) {
+        return getConnection(-1, username, password);
+    }
+
+    /**
+     * @param client the number of the client starting with 0, -1 to take the next connection
+     */
+    @Override
+    public Connection getConnection(final int client, final String username, final String password) {
+        Connection connection = clientConnection.get();
+        if (connection == null) {
+            connection = getSlot(client).getConnection(username, password);
+            clientConnection.set(connection);
+        }
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return getConnection(null, null);
+    }
+
+    /**
+     * @return the connections opened so far
+     */
+    public synchronized int getConnectionCount() {
+        int opened = 0;
+        for (ConnectionHandlerImpl connection : connections) {
+            if (connection.isConnected()) {
+                opened++;
+            }
+        }
+        return opened;
+    }
+
+    public synchronized int getClientCount() {
+        return clients;
+    }
+
+    /**
+     * @param clientIdPrefix the prefix of the client ids, none if empty
+     */
+    public synchronized void setClientIdPrefix(final String clientIdPrefix) {
+        this.clientIdPrefix = StringUtils.isEmpty(clientIdPrefix) ? null : clientIdPrefix;
+        for (int i = 0; i < connections.size(); i++) {
+            connections.get(i).setClientId(getClientId(i));
+        }
+    }
+
+    public synchronized String getClientIdPrefix() {
+        return clientIdPrefix;
+    }
+
+    public synchronized void shutdown() {
+        for (ConnectionHandlerImpl connection : connections) {
+            try {
+                connection.shutdown();
+            } catch (JmsException e) {
+                Logger.error("could not close a connection of the pool " + this, e);
+            }
+        }
+    }
+
+    public String getName() {
+        return toString();
+    }
+
+    private synchronized ConnectionHandlerImpl getSlot(final int client) {
+        final int slot = client < 0 ? findSlot() : findSlot(client);
+        if (slot < 0 && client >= 0) {
+            throw new JmsException("the connection of client " + client + " already has " + sessionsPerConnection + " sessions, pool: " + this);
+        }
+        if (slot < 0) {
+            throw new JmsException("all " + size + " connections of the pool already have " + sessionsPerConnection + " sessions, pool: " + this);
+        }
+        sessions.set(slot, sessions.get(slot) + 1);
+        clients++;
+        return connections.get(slot);
+    }
+
+    private int findSlot() {
+        if (size == 0) {
+            addSlot();
+            return connections.size() - 1;
+        }
+        // round robin starts where the last client left off, affinity always fills the first free connection
+        final int start = ROUND_ROBIN.equals(strategy) ? clients % size : 0;
+        for (int i = 0; i < size; i++) {
+            final int slot = (start + i) % size;
+            if (sessions.get(slot) < sessionsPerConnection) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // the same slots as clients coming in in the order of their numbers would get
+    private int findSlot(final int client) {
+        final int slot;
+        if (size == 0) {
+            while (connections.size() <= client) {
+                addSlot();
+            }
+            slot = client;
+        } else if (ROUND_ROBIN.equals(strategy)) {
+            slot = client % size;
+        } else {
+            slot = client / sessionsPerConnection;
+        }
+        return slot < connections.size() && sessions.get(slot) < sessionsPerConnection ? slot : -1;
+    }
+
+    private void addSlot() {
+        final ConnectionHandlerImpl connection = new ConnectionHandlerImpl(connectionFactory, false);
+        connection.setClientId(getClientId(connections.size()));
+        connections.add(connection);
+        sessions.add(0);
+    }
+
+    private String getClientId(final int slot) {
+        return clientIdPrefix == null ? null : clientIdPrefix + "-" + slot;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return PER_CLIENT + " (one connection for every client)";
+        }
+        return strategy + " (" + size + " connections, " + (sessionsPerConnection == UNLIMITED ? "unlimited" : String.valueOf(sessionsPerConnection)) + " sessions per connection)";
+    }
+
+    private static int parsePositive(final String value, final String type) {
+        try {
+            final int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // handled below
+        }
+        throw new IllegalArgumentException("the connection pool needs a number > 0, was: " + type);
+    }
+}
@@ -37,7 +37,9 @@ public class DestinationHandlerImpl implements DestinationHandler {
     public synchronized Destination getDestination(final String name) {
         Destination dest = getCached(name);
         if (dest != null) {
-            Logger.debug("returning cached destination: " + dest + " " + dest.hashCode());
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("returning cached destination: " + dest + " " + dest.hashCode());
+            }
         } else {
             try {
                 dest = (Destination) jndiTemplate.lookup(name);
@@ -30,8 +30,44 @@ public interface MessageHandler {
 
     void sendMessage(Payload message, String destination);
 
+    /**
+     * waits until the asynchronous sends of the current thread are completed and commits what it sent since its last
+     * commit if its session is transacted
+     */
+    void flush();
+
     void attachMessageListener(String destination, MessageListener listener);
 
+    /**
+     * receives the next message from the consumer of the current thread and passes it to the listener. the message is
+     * committed or acknowledged just like with an attached listener.
+     *
+     * @param timeoutMillis how long to wait for a message, 0 to return immediately
+     * @return false if there was no message
+     */
+    boolean receiveMessage(String destination, MessageListener listener, long timeoutMillis);
+
+    /**
+     * closes the consumer of the current thread, the next attach or receive subscribes again
+     */
+    void closeConsumer();
+
+    /**
+     * @param subscription how the consumers subscribe, {@link Subscription#NONE} by default
+     */
+    void setSubscription(Subscription subscription);
+
+    /**
+     * @param client the number of the client, it picks the connection of a pool and so the client id. -1 by default, the
+     *        connection the thread gets next
+     */
+    void setClient(int client);
+
+    /**
+     * @param selector the message selector of the consumers, null for all messages
+     */
+    void setMessageSelector(String selector);
+
     void addMessageInterceptor(MessageInterceptor interceptor);
 
     void addMessageInterceptors(Collection<MessageInterceptor> interceptors);
@@ -15,54 +15,225 @@
  */
 package de.marcelsauer.jmsloadtester.handler;
 
+import de.marcelsauer.jmsloadtester.client.ReconnectSchedule;
 import de.marcelsauer.jmsloadtester.config.Config;
 import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.core.ShutdownAware;
 import de.marcelsauer.jmsloadtester.message.*;
+import de.marcelsauer.jmsloadtester.tools.JmsUtils;
 import de.marcelsauer.jmsloadtester.tools.Logger;
 import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.ReplyTracker;
 import de.marcelsauer.jmsloadtester.tracker.ThreadTracker;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
 
 import javax.jms.*;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class MessageHandlerImpl implements MessageHandler {
+public class MessageHandlerImpl implements MessageHandler, ShutdownAware {
 
     private SessionHandler sessionHandler;
     private DestinationHandler destinationHandler;
     private MessageFactory messageProducer;
     private List<MessageInterceptor> interceptors = new ArrayList<MessageInterceptor>();
     private List<MessageSentAware> sentAwares = new ArrayList<MessageSentAware>();
-    // one producer per Thread
-    private ThreadLocal<MessageProducer> producer = new ThreadLocal<MessageProducer>();
+    // the session and the producers of each sending Thread
+    private ThreadLocal<ProducerCache> producers = new ThreadLocal<ProducerCache>();
+    private static volatile boolean asyncSendUnsupportedLogged;
+    private static volatile boolean replyCommitLogged;
+    private static volatile boolean reconnectCommitLogged;
+    // where the replies to the requests of the thread go
+    private ThreadLocal<Destination> replyTo = new ThreadLocal<Destination>();
+    // the replies arrive until the run ends, so their consumers and sessions are closed on shutdown
+    private final List<MessageConsumer> replyConsumers = new ArrayList<MessageConsumer>();
+    private final List<Session> replySessions = new ArrayList<Session>();
+    private boolean shutdownHookAdded;
+    // one consumer per Thread that receives
+    private ThreadLocal<Receiver> receiver = new ThreadLocal<Receiver>();
+    // the consumer a Thread attached its listener to
+    private ThreadLocal<MessageConsumer> attached = new ThreadLocal<MessageConsumer>();
+    // the batch of the consumer of a Thread, null if the messages are not committed or acknowledged in batches
+    private ThreadLocal<AcknowledgingMessageListener> batch = new ThreadLocal<AcknowledgingMessageListener>();
+    private Subscription subscription = Subscription.getSubscription(Subscription.NONE);
+    private String messageSelector;
+    private int client = -1;
+    // shared by all listeners, null until the first listener replies with workers
+    private ReplyWorkers replyWorkers;
     private MessageTracker messageTracker;
     private ThreadTracker threadTracker;
+    private TransactionTracker transactionTracker;
+    private ReplyTracker replyTracker;
     private ConnectionHandler connectionHandler;
     private Config config;
 
     @Override
     public void sendMessage(final JmsMessage message) {
-        Message msg = getMessageFactory().toMessage(message.getMessage(), getSession());
+        ProducerCache cache = getProducerCache();
+        Session session = cache.getSession();
+        Message msg = getMessageFactory().toMessage(message.getMessage(), session);
         callMessageInterceptors(msg);
-        MessageProducer producer = getProducer(message.getDestination());
+        long request = -1;
         try {
-            producer.send(msg);
+            ProducerCache.Target target = cache.getTarget(message.getDestination());
+            if (getReplyTracker().isEnabled()) {
+                request = getReplyTracker().nextRequest();
+                msg.setJMSReplyTo(getReplyTo());
+                msg.setJMSCorrelationID(getReplyTracker().getCorrelationId(request));
+                getReplyTracker().requestSent(request);
+            }
+            final long start = System.nanoTime();
+            boolean sent = false;
+            try {
+                target.send(msg);
+                sent = true;
+            } finally {
+                if (!sent && request >= 0) {
+                    // registered before the send, a reply may arrive before the send returns
+                    getReplyTracker().requestFailed(request);
+                }
+            }
+            getTransactionTracker().sendDone(System.nanoTime() - start);
+            if (!target.isAsync()) {
+                // otherwise when the send is completed
+                informMessageSentAware(msg);
+            }
         } catch (JMSException e) {
             throw new JmsException("could not send message", e);
         }
-        informMessageSentAware(msg);
+        if (cache.isTransacted()) {
+            getTransactionTracker().messageSent(session);
+        }
+    }
+
+    @Override
+    public void flush() {
+        ProducerCache cache = getProducerCache();
+        cache.awaitCompletion();
+        if (cache.isTransacted()) {
+            getTransactionTracker().commit(cache.getSession());
+        }
     }
 
     @Override
     public void attachMessageListener(final String destination, final MessageListener listener) {
         try {
-            getConsumer(destination).setMessageListener(listener);
+            Session session = getSession();
+            MessageConsumer consumer = getConsumer(destination);
+            // no thread of ours sees the messages, the batch is completed on the provider thread or at the end of the run
+            consumer.setMessageListener(wrapListener(listener, session, consumer));
+            attached.set(consumer);
+            if (batch.get() != null) {
+                getTransactionTracker().addListenerBatch(batch.get());
+            }
         } catch (JMSException e) {
             throw new JmsException("could not attach message listener to destination " + destination, e);
         }
     }
 
+    @Override
+    public boolean receiveMessage(final String destination, final MessageListener listener, final long timeoutMillis) {
+        Receiver current = getReceiver(destination, listener);
+        Message message;
+        try {
+            message = timeoutMillis > 0 ? current.consumer.receive(timeoutMillis) : current.consumer.receiveNoWait();
+        } catch (JMSException e) {
+            throw new JmsException("could not receive message from destination " + destination, e);
+        }
+        if (message == null) {
+            // the age of a batch is checked by each message and each receive that ends without one
+            final AcknowledgingMessageListener currentBatch = batch.get();
+            if (currentBatch != null) {
+                currentBatch.flushIfDue();
+            }
+            return false;
+        }
+        current.listener.onMessage(message);
+        return true;
+    }
+
+    @Override
+    public void closeConsumer() {
+        MessageConsumer consumer = attached.get();
+        if (consumer == null && receiver.get() != null) {
+            consumer = receiver.get().consumer;
+        }
+        final AcknowledgingMessageListener currentBatch = batch.get();
+        attached.remove();
+        receiver.remove();
+        batch.remove();
+        int messages = 0;
+        if (currentBatch != null) {
+            // otherwise the messages are redelivered to the next consumer
+            messages = currentBatch.flush();
+        }
+        if (consumer != null) {
+            try {
+                // waits for a message listener that is running
+                consumer.close();
+            } catch (JMSException e) {
+                throw new JmsException("could not close message consumer " + consumer, e);
+            }
+        }
+        if (currentBatch != null) {
+            // a message delivered while closing
+            messages += currentBatch.flush();
+            getTransactionTracker().removeListenerBatch(currentBatch);
+            getTransactionTracker().listenerBatchClosed(messages);
+        }
+    }
+
+    @Override
+    public void setSubscription(final Subscription subscription) {
+        this.subscription = subscription;
+    }
+
+    @Override
+    public void setClient(final int client) {
+        this.client = client;
+    }
+
+    @Override
+    public void setMessageSelector(final String selector) {
+        this.messageSelector = selector;
+    }
+
+    /**
+     * closes the consumers and sessions of the replies
+     */
+    @Override
+    public void shutdown() {
+        final List<MessageConsumer> consumers;
+        final List<Session> sessions;
+        synchronized (this) {
+            consumers = new ArrayList<MessageConsumer>(replyConsumers);
+            sessions = new ArrayList<Session>(replySessions);
+            replyConsumers.clear();
+            replySessions.clear();
+        }
+        for (MessageConsumer consumer : consumers) {
+            try {
+                JmsUtils.closeConsumer(consumer);
+            } catch (JmsException e) {
+                Logger.error("could not close the consumer of the replies", e);
+            }
+        }
+        for (Session session : sessions) {
+            try {
+                JmsUtils.closeSession(session);
+            } catch (JmsException e) {
+                Logger.error("could not close the session of the replies", e);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return this.toString();
+    }
+
     @Override
     public JmsMessage getMessage(final Payload message, final String destination) {
         return new JmsMessage(message, destination);
@@ -121,6 +292,22 @@ public class MessageHandlerImpl implements MessageHandler {
         this.config = config;
     }
 
+    public void setTransactionTracker(TransactionTracker transactionTracker) {
+        this.transactionTracker = transactionTracker;
+    }
+
+    public void setReplyTracker(ReplyTracker replyTracker) {
+        this.replyTracker = replyTracker;
+    }
+
+    public ReplyWorkers getReplyWorkers() {
+        return replyWorkers;
+    }
+
+    public void setReplyWorkers(ReplyWorkers replyWorkers) {
+        this.replyWorkers = replyWorkers;
+    }
+
     private ConnectionHandler getConnectionHandler() {
         return connectionHandler;
     }
@@ -129,35 +316,191 @@ public class MessageHandlerImpl implements MessageHandler {
         return threadTracker;
     }
 
+    private TransactionTracker getTransactionTracker() {
+        return transactionTracker;
+    }
+
+    private ReplyTracker getReplyTracker() {
+        return replyTracker;
+    }
+
     private DestinationHandler getDestinationHandler() {
         return destinationHandler;
     }
 
-    private MessageProducer getProducer(final String destination) {
-        MessageProducer messageProducer = producer.get();
-        if (messageProducer == null) {
+    // resolves session and connection once, the send path only needs the thread local
+    private ProducerCache getProducerCache() {
+        ProducerCache cache = producers.get();
+        if (cache == null) {
             try {
-                messageProducer = getSession().createProducer(getDestinationHandler().getDestination(destination));
-                messageProducer.setDeliveryMode(DELIVERY_MODE.valueOf(config.getDeliveryMode()).getMode());
-                messageProducer.setPriority(config.getPriority());
-                // millis
-                messageProducer.setTimeToLive(config.getTimeToLive());
-                producer.set(messageProducer);
-                Logger.debug("returning newly created MessageProducer: [" + messageProducer + "]");
+                cache = new ProducerCache(getSession(), getConfig().getSenderProducerMode()) {
+                    @Override
+                    protected Destination lookup(final String destination) {
+                        return getDestinationHandler().getDestination(destination);
+                    }
+
+                    @Override
+                    protected MessageProducer createProducer(final Destination destination) throws JMSException {
+                        return MessageHandlerImpl.this.createProducer(getSession(), destination);
+                    }
+
+                    @Override
+                    protected AsyncSendWindow createAsyncSendWindow(final MessageProducer producer, final boolean anonymous) {
+                        return MessageHandlerImpl.this.createAsyncSendWindow(producer, anonymous);
+                    }
+                };
             } catch (JMSException e) {
-                throw new JmsException("could not create message producer", e);
+                throw new JmsException("could not get the transaction mode of the session", e);
             }
-        } else {
-            Logger.debug("returning cached MessageProducer: [" + producer.get() + "]");
+            producers.set(cache);
+        }
+        return cache;
+    }
+
+    private MessageProducer createProducer(final Session session, final Destination destination) {
+        try {
+            MessageProducer messageProducer = session.createProducer(destination);
+            messageProducer.setDeliveryMode(DELIVERY_MODE.valueOf(config.getDeliveryMode()).getMode());
+            messageProducer.setPriority(config.getPriority());
+            // millis
+            messageProducer.setTimeToLive(config.getTimeToLive());
+            Logger.debug("returning newly created MessageProducer: [" + messageProducer + "] for destination [" + destination + "]");
+            return messageProducer;
+        } catch (JMSException e) {
+            throw new JmsException("could not create message producer", e);
         }
-        return producer.get();
+    }
+
+    private AsyncSendWindow createAsyncSendWindow(final MessageProducer messageProducer, final boolean anonymous) {
+        int size = AsyncSendWindow.getWindowSize(getConfig().getSenderSendMode());
+        if (size == 0) {
+            return null;
+        }
+        Method send = AsyncSendWindow.getAsyncSend(messageProducer, AsyncSendWindow.COMPLETION_LISTENER, anonymous);
+        if (send == null) {
+            if (!asyncSendUnsupportedLogged) {
+                asyncSendUnsupportedLogged = true;
+                Logger.info("the provider does not support asynchronous sends (JMS 2.0), sending synchronously");
+            }
+            return null;
+        }
+        MessageSentAware completed = new MessageSentAware() {
+            @Override
+            public void messageSent(final Message message) {
+                informMessageSentAware(message);
+            }
+        };
+        return new AsyncSendWindow(messageProducer, send, size, completed, getMessageTracker(), getTransactionTracker());
+    }
+
+    private Receiver getReceiver(final String destination, final MessageListener listener) {
+        Receiver current = receiver.get();
+        if (current == null) {
+            Session session = getSession();
+            MessageConsumer consumer = getConsumer(destination);
+            current = new Receiver(consumer, wrapListener(listener, session, consumer));
+            receiver.set(current);
+            Logger.debug("returning newly created MessageConsumer: [" + current.consumer + "]");
+        }
+        return current;
     }
 
     private Session getSession() {
+        return getSessionHandler().getSession(getConnection(), getConfig());
+    }
+
+    private Connection getConnection() {
         String username = getConfig().getConnectionUsername();
         String password = getConfig().getConnectionPassword();
-        Connection connection = getConnectionHandler().getConnection(username, password);
-        return getSessionHandler().getSession(connection, getConfig());
+        return getConnectionHandler().getConnection(client, username, password);
+    }
+
+    private Destination getReplyTo() throws JMSException {
+        Destination destination = replyTo.get();
+        if (destination == null) {
+            // a session of its own, the replies arrive on a provider thread while this thread sends
+            Session session = getConnection().createSession(false, Session.AUTO_ACKNOWLEDGE);
+            String name = getReplyTracker().getReplyTo();
+            destination = ReplyTracker.TEMPORARY.equals(name) ? session.createTemporaryQueue() : getDestinationHandler().getDestination(name);
+            MessageConsumer consumer = session.createConsumer(destination);
+            consumer.setMessageListener(new MessageListener() {
+                @Override
+                public void onMessage(final Message reply) {
+                    getReplyTracker().onMessage(reply);
+                }
+            });
+            addReplyConsumer(consumer, session);
+            replyTo.set(destination);
+            Logger.debug("receiving replies on: [" + destination + "]");
+        }
+        return destination;
+    }
+
+    private synchronized void addReplyConsumer(final MessageConsumer consumer, final Session session) {
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new ShutdownHandler(this));
+            shutdownHookAdded = true;
+        }
+        replyConsumers.add(consumer);
+        replySessions.add(session);
+    }
+
+    private MessageListener wrapListener(final MessageListener listener, final Session session, final MessageConsumer consumer) {
+        MessageListener target = listener;
+        if (getConfig().isListenerReply()) {
+            target = new ReplyingMessageListener(listener, session, getDeliveryMode(), getReplyTracker(), ReplyDelay.getReplyDelay(getConfig()
+                    .getListenerReplyDelay()), ReplyPayload.getReplyPayload(getConfig().getListenerReplyPayload()), getListenerReplyWorkers());
+        }
+        // a received message is only gone from the destination when it is committed or acknowledged
+        final boolean transacted = isTransacted(session);
+        if (!transacted && !getConfig().isExplicitAcknowledgeMessage()) {
+            return target;
+        }
+        int everyMessages = getConfig().getListenerAcknowledgeEveryMessages();
+        long everyMillis = getConfig().getListenerAcknowledgeEveryMillis();
+        // a reply sent in a transaction only leaves with the commit, a waiting requester would never get it
+        if (transacted && getConfig().isListenerReply() && getConfig().getListenerReplyWorkers() == 0 && everyMessages > 1) {
+            if (!replyCommitLogged) {
+                replyCommitLogged = true;
+                Logger.info("listeners reply in a transaction, committing each request instead of every " + everyMessages);
+            }
+            everyMessages = 1;
+            everyMillis = 0;
+        }
+        // the provider keeps a consumer that is closed with pending messages until they are committed or acknowledged
+        if (!ReconnectSchedule.NONE.equals(getConfig().getListenerReconnect()) && everyMessages > 1) {
+            if (!reconnectCommitLogged) {
+                reconnectCommitLogged = true;
+                Logger.info("listeners reconnect, " + (transacted ? "committing" : "acknowledging") + " each message instead of every " + everyMessages);
+            }
+            everyMessages = 1;
+            everyMillis = 0;
+        }
+        final AcknowledgingMessageListener acknowledging = new AcknowledgingMessageListener(target, session, consumer, transacted, everyMessages, everyMillis,
+                getConfig().getEachSubscriberWaitFor(), getTransactionTracker());
+        batch.set(acknowledging);
+        return acknowledging;
+    }
+
+    // null if the listener replies itself
+    private ReplyWorkers getListenerReplyWorkers() {
+        if (replyWorkers == null || !replyWorkers.isEnabled()) {
+            return null;
+        }
+        replyWorkers.setConnectionIfAbsent(getConnection());
+        return replyWorkers;
+    }
+
+    private int getDeliveryMode() {
+        return DELIVERY_MODE.valueOf(getConfig().getDeliveryMode()).getMode();
+    }
+
+    private boolean isTransacted(final Session session) {
+        try {
+            return session.getTransacted();
+        } catch (JMSException e) {
+            throw new JmsException("could not get the transaction mode of session " + session, e);
+        }
     }
 
     private void informMessageSentAware(final Message message) {
@@ -169,7 +512,9 @@ public class MessageHandlerImpl implements MessageHandler {
     private void callMessageInterceptors(final Message message) {
         for (MessageInterceptor interceptor : interceptors) {
             try {
-                Logger.debug("calling interceptor [" + interceptor + "] on message");
+                if (Logger.isDebugEnabled()) {
+                    Logger.debug("calling interceptor [" + interceptor + "] on message");
+                }
                 interceptor.intercept(message, getThreadTracker(), getMessageTracker());
             } catch (JMSException e) {
                 throw new JmsException("could not intercept message with interceptor " + interceptor);
@@ -188,9 +533,9 @@ public class MessageHandlerImpl implements MessageHandler {
     private MessageConsumer getConsumer(final String destination) {
         MessageConsumer consumer;
         try {
-            consumer = getSession().createConsumer(getDestinationHandler().getDestination(destination));
+            consumer = subscription.createConsumer(getSession(), getDestinationHandler().getDestination(destination), messageSelector);
         } catch (JMSException e) {
-            throw new JmsException("could not create message consumer on destination " + destination, e);
+            throw new JmsException("could not create message consumer on destination " + destination + (messageSelector == null ? "" : " with selector " + messageSelector), e);
         }
         return consumer;
     }
@@ -202,4 +547,15 @@ public class MessageHandlerImpl implements MessageHandler {
     private Config getConfig() {
         return config;
     }
+
+    private static class Receiver {
+
+        private final MessageConsumer consumer;
+        private final MessageListener listener;
+
+        Receiver(final MessageConsumer consumer, final MessageListener listener) {
+            this.consumer = consumer;
+            this.listener = listener;
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the session and the producers of one sender thread. it is only used by its thread, so nothing is synchronized and
+ * after the first message to a destination a send needs no lookup but the map. the producers are either
+ * <ul>
+ * <li>PER_DESTINATION: one producer for each destination (default)</li>
+ * <li>ANONYMOUS: one producer without destination for all destinations, the destination is given with each send</li>
+ * </ul>
+ * asynchronous sends get a window for each producer.
+ */
+public abstract class ProducerCache {
+
+    public static final String PER_DESTINATION = "PER_DESTINATION";
+    public static final String ANONYMOUS = "ANONYMOUS";
+
+    private final Session session;
+    private final boolean transacted;
+    private final boolean anonymous;
+    private final Map<String, Target> targets = new HashMap<String, Target>();
+    private final List<AsyncSendWindow> windows = new ArrayList<AsyncSendWindow>();
+    private MessageProducer anonymousProducer;
+    private AsyncSendWindow anonymousWindow;
+
+    ProducerCache(final Session session, final String mode) throws JMSException {
+        this.session = session;
+        this.transacted = session.getTransacted();
+        this.anonymous = isAnonymous(mode);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the producer mode does not exist
+     */
+    public static void validateMode(final String mode) {
+        isAnonymous(mode);
+    }
+
+    /**
+     * @param mode {@link #PER_DESTINATION} or {@link #ANONYMOUS}
+     */
+    public static boolean isAnonymous(final String mode) {
+        if (PER_DESTINATION.equals(mode)) {
+            return false;
+        }
+        if (ANONYMOUS.equals(mode)) {
+            return true;
+        }
+        throw new IllegalArgumentException("the producer mode does not exist, use " + PER_DESTINATION + " or " + ANONYMOUS + ", was: " + mode);
+    }
+
+    Session getSession() {
+        return session;
+    }
+
+    boolean isTransacted() {
+        return transacted;
+    }
+
+    /**
+     * @return the producer for the destination, created on the first send to it
+     */
+    Target getTarget(final String destination) throws JMSException {
+        Target target = targets.get(destination);
+        if (target == null) {
+            target = createTarget(lookup(destination));
+            targets.put(destination, target);
+        }
+        return target;
+    }
+
+    /**
+     * waits until the asynchronous sends of all producers are completed
+     */
+    void awaitCompletion() {
+        for (AsyncSendWindow window : windows) {
+            window.awaitCompletion();
+        }
+    }
+
+    int getProducerCount() {
+        return anonymous ? (anonymousProducer == null ? 0 : 1) : targets.size();
+    }
+
+    private Target createTarget(final Destination destination) throws JMSException {
+        if (!anonymous) {
+            final MessageProducer producer = createProducer(destination);
+            return new Target(producer, null, addWindow(createAsyncSendWindow(producer, false)));
+        }
+        if (anonymousProducer == null) {
+            anonymousProducer = createProducer(null);
+            anonymousWindow = addWindow(createAsyncSendWindow(anonymousProducer, true));
+        }
+        return new Target(anonymousProducer, destination, anonymousWindow);
+    }
+
+    private AsyncSendWindow addWindow(final AsyncSendWindow window) {
+        if (window != null) {
+            windows.add(window);
+        }
+        return window;
+    }
+
+    protected abstract Destination lookup(String destination);
+
+    /**
+     * @param destination null for an anonymous producer
+     */
+    protected abstract MessageProducer createProducer(Destination destination) throws JMSException;
+
+    /**
+     * @return null to send synchronously
+     */
+    protected abstract AsyncSendWindow createAsyncSendWindow(MessageProducer producer, boolean anonymous);
+
+    /**
+     * a destination and the producer that sends to it
+     */
+    static final class Target {
+
+        private final MessageProducer producer;
+        // null if the producer has a destination of its own
+        private final Destination destination;
+        // null for synchronous sends
+        private final AsyncSendWindow window;
+
+        private Target(final MessageProducer producer, final Destination destination, final AsyncSendWindow window) {
+            this.producer = producer;
+            this.destination = destination;
+            this.window = window;
+        }
+
+        boolean isAsync() {
+            return window != null;
+        }
+
+        void send(final Message message) throws JMSException {
+            if (window != null) {
+                window.send(destination, message);
+            } else if (destination == null) {
+                producer.send(message);
+            } else {
+                producer.send(destination, message);
+            }
+        }
+    }
+}
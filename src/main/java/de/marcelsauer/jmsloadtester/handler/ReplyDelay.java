@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.tools.RandomUtils;
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * the simulated processing time of a listener before it replies to a request. the delay is drawn from a distribution
+ * given like "EXPONENTIAL#5", all values are milliseconds and may have a fraction:
+ * <ul>
+ * <li>NONE: replies right away</li>
+ * <li>CONSTANT#millis</li>
+ * <li>UNIFORM#minMillis#maxMillis</li>
+ * <li>EXPONENTIAL#meanMillis</li>
+ * <li>NORMAL#meanMillis#stdDevMillis, negative samples are cut off at 0</li>
+ * </ul>
+ */
+public final class ReplyDelay {
+
+    public static final String NONE = "NONE";
+    public static final String CONSTANT = "CONSTANT";
+    public static final String UNIFORM = "UNIFORM";
+    public static final String EXPONENTIAL = "EXPONENTIAL";
+    public static final String NORMAL = "NORMAL";
+
+    private static final double NANOS_PER_MILLI = 1000d * 1000d;
+    private static final String HASH = "#";
+
+    private final String type;
+    private final double first;
+    private final double second;
+
+    private ReplyDelay(final String type, final double first, final double second) {
+        this.type = type;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the delay does not exist
+     */
+    public static void validate(final String definition) {
+        getReplyDelay(definition);
+    }
+
+    public static ReplyDelay getReplyDelay(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the reply delay was empty");
+        }
+        final String[] values = definition.split(HASH);
+        final String type = values[0].trim();
+        try {
+            if (NONE.equals(type)) {
+                check(definition, values, 0);
+                return new ReplyDelay(type, 0, 0);
+            } else if (CONSTANT.equals(type) || EXPONENTIAL.equals(type)) {
+                check(definition, values, 1);
+                return new ReplyDelay(type, getMillis(values[1]), 0);
+            } else if (UNIFORM.equals(type)) {
+                check(definition, values, 2);
+                final double min = getMillis(values[1]);
+                final double max = getMillis(values[2]);
+                if (max < min) {
+                    throw new IllegalArgumentException("the maximum reply delay must not be lower than the minimum, was: " + definition);
+                }
+                return new ReplyDelay(type, min, max);
+            } else if (NORMAL.equals(type)) {
+                check(definition, values, 2);
+                return new ReplyDelay(type, getMillis(values[1]), getMillis(values[2]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the reply delay contains an invalid number, was: " + definition, e);
+        }
+        throw new IllegalArgumentException("the reply delay does not exist, was: " + definition);
+    }
+
+    public boolean isNone() {
+        return NONE.equals(type);
+    }
+
+    /**
+     * draws the next delay
+     */
+    public long nextDelayNanos(final Random random) {
+        final double millis;
+        if (CONSTANT.equals(type)) {
+            millis = first;
+        } else if (UNIFORM.equals(type)) {
+            millis = first + random.nextDouble() * (second - first);
+        } else if (EXPONENTIAL.equals(type)) {
+            millis = -first * Math.log(1d - random.nextDouble());
+        } else if (NORMAL.equals(type)) {
+            millis = Math.max(0d, first + random.nextGaussian() * second);
+        } else {
+            millis = 0;
+        }
+        return Math.round(millis * NANOS_PER_MILLI);
+    }
+
+    /**
+     * blocks the calling thread for the next delay
+     */
+    public void await() {
+        if (isNone()) {
+            return;
+        }
+        final long until = System.nanoTime() + nextDelayNanos(RandomUtils.getRandom());
+        long remaining;
+        while ((remaining = until - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private static void check(final String definition, final String[] values, final int expected) {
+        if (values.length != expected + 1) {
+            throw new IllegalArgumentException("the reply delay needs " + expected + " values, was: " + definition);
+        }
+    }
+
+    private static double getMillis(final String value) {
+        final double millis = Double.valueOf(value.trim());
+        if (millis < 0) {
+            throw new IllegalArgumentException("a reply delay must not be negative, was: " + value);
+        }
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        if (isNone()) {
+            return NONE;
+        }
+        return type + HASH + first + (UNIFORM.equals(type) || NORMAL.equals(type) ? HASH + second : "");
+    }
+}
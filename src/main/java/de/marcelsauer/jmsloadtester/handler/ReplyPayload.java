@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.Arrays;
+
+/**
+ * the body of a reply, the reply has the message type of its request:
+ * <ul>
+ * <li>ECHO: the body of the request</li>
+ * <li>SIZE#bytes: a body of the given size</li>
+ * <li>STATIC#text: the given text</li>
+ * </ul>
+ */
+public final class ReplyPayload {
+
+    public static final String ECHO = "ECHO";
+    public static final String SIZE = "SIZE";
+    public static final String STATIC = "STATIC";
+
+    private static final String HASH = "#";
+
+    private final String definition;
+    // null to echo the request
+    private final byte[] body;
+
+    private ReplyPayload(final String definition, final byte[] body) {
+        this.definition = definition;
+        this.body = body;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload does not exist
+     */
+    public static void validate(final String definition) {
+        getReplyPayload(definition);
+    }
+
+    public static ReplyPayload getReplyPayload(final String definition) {
+        if (definition == null || definition.trim().length() == 0) {
+            throw new IllegalArgumentException("the reply payload was empty");
+        }
+        final String type = definition.trim();
+        if (ECHO.equals(type)) {
+            return new ReplyPayload(type, null);
+        }
+        if (type.startsWith(SIZE + HASH)) {
+            try {
+                final int size = Integer.valueOf(type.substring(SIZE.length() + 1).trim());
+                if (size < 0) {
+                    throw new IllegalArgumentException("the reply payload size must not be negative, was: " + definition);
+                }
+                final byte[] body = new byte[size];
+                Arrays.fill(body, (byte) 'x');
+                return new ReplyPayload(type, body);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("the reply payload size is not a number, was: " + definition, e);
+            }
+        }
+        if (type.startsWith(STATIC + HASH)) {
+            // the text may contain #
+            return new ReplyPayload(type, definition.substring(definition.indexOf(HASH) + 1).getBytes());
+        }
+        throw new IllegalArgumentException("the reply payload does not exist, was: " + definition);
+    }
+
+    public Message createReply(final Session session, final Message request) throws JMSException {
+        if (request instanceof TextMessage) {
+            return session.createTextMessage(body == null ? ((TextMessage) request).getText() : new String(body));
+        }
+        if (request instanceof BytesMessage) {
+            final BytesMessage reply = session.createBytesMessage();
+            reply.writeBytes(body == null ? readBody((BytesMessage) request) : body);
+            return reply;
+        }
+        return session.createMessage();
+    }
+
+    private static byte[] readBody(final BytesMessage request) throws JMSException {
+        final byte[] body = new byte[(int) request.getBodyLength()];
+        request.reset();
+        request.readBytes(body);
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return definition;
+    }
+}
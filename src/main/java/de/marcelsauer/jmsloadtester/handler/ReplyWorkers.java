@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * a fixed number of threads that reply to requests for all listeners, one instance is shared by the message handlers of
+ * all listeners. a session must not be used by two threads, so each worker replies with a session and an anonymous
+ * producer of its own. at most one request per worker waits for a free worker, a listener handing over more requests
+ * blocks until one is taken.
+ */
+public class ReplyWorkers {
+
+    // null without workers
+    private final ThreadPoolExecutor executor;
+    private final int deliveryMode;
+    private final ThreadLocal<MessageProducer> producer = new ThreadLocal<MessageProducer>();
+    private final ThreadLocal<Session> session = new ThreadLocal<Session>();
+    private Connection connection;
+
+    public ReplyWorkers(final Config config) {
+        this(config.getListenerReplyWorkers(), MessageHandler.DELIVERY_MODE.valueOf(config.getDeliveryMode()).getMode());
+    }
+
+    /**
+     * @param workers 0 if each listener replies itself
+     */
+    public ReplyWorkers(final int workers, final int deliveryMode) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("the number of reply workers must not be negative, was: " + workers);
+        }
+        this.deliveryMode = deliveryMode;
+        if (workers == 0) {
+            executor = null;
+            return;
+        }
+        final AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(workers), new ThreadFactory() {
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Reply Worker " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new RejectedExecutionHandler() {
+            public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+                try {
+                    executor.getQueue().put(runnable);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("interrupted while waiting for a reply worker", e);
+                }
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    /**
+     * the workers are no clients of the pool, they share the connection of the first listener that hands over a request
+     */
+    synchronized void setConnectionIfAbsent(final Connection connection) {
+        if (this.connection == null) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * blocks while all workers are busy and a request is already waiting
+     */
+    void execute(final Runnable reply) {
+        executor.execute(reply);
+    }
+
+    /**
+     * @return the session of the calling worker
+     */
+    Session getSession() {
+        Session current = session.get();
+        if (current == null) {
+            try {
+                current = createSession();
+            } catch (JMSException e) {
+                throw new JmsException("could not create the session of a reply worker", e);
+            }
+            session.set(current);
+            Logger.debug("reply worker [" + Thread.currentThread().getName() + "] created session: [" + current + "]");
+        }
+        return current;
+    }
+
+    /**
+     * @return the anonymous producer of the calling worker
+     */
+    MessageProducer getProducer() throws JMSException {
+        MessageProducer current = producer.get();
+        if (current == null) {
+            current = getSession().createProducer(null);
+            current.setDeliveryMode(deliveryMode);
+            producer.set(current);
+        }
+        return current;
+    }
+
+    int getWorkers() {
+        return executor == null ? 0 : executor.getCorePoolSize();
+    }
+
+    /**
+     * called once in each worker thread
+     */
+    protected Session createSession() throws JMSException {
+        final Connection current;
+        synchronized (this) {
+            current = connection;
+        }
+        if (current == null) {
+            throw new JmsException("the reply workers have no connection yet");
+        }
+        return current.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @Override
+    public String toString() {
+        return getWorkers() + " reply workers shared by all listeners";
+    }
+}
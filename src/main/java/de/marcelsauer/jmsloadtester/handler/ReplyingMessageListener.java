@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tracker.ReplyTracker;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+/**
+ * replies to every request with a JMSReplyTo after the simulated processing delay. the reply carries the
+ * JMSCorrelationID of the request or its JMSMessageID if it has none. without workers it is sent with the session of
+ * the consumer, so a transacted session commits the reply together with the request. with workers the request is
+ * acknowledged by the consumer and replied to by a worker with a session of its own. the service time is the time
+ * from receiving the request until its reply is sent. a reply that can not be sent is counted as reply failure, a
+ * worker logs it as nobody else would see it.
+ */
+class ReplyingMessageListener implements MessageListener {
+
+    private final MessageListener target;
+    private final Session session;
+    private final int deliveryMode;
+    private final ReplyTracker replyTracker;
+    private final ReplyDelay delay;
+    private final ReplyPayload payload;
+    // null to reply in the thread of the consumer
+    private final ReplyWorkers workers;
+    private MessageProducer producer;
+
+    ReplyingMessageListener(final MessageListener target, final Session session, final int deliveryMode, final ReplyTracker replyTracker,
+            final ReplyDelay delay, final ReplyPayload payload, final ReplyWorkers workers) {
+        this.target = target;
+        this.session = session;
+        this.deliveryMode = deliveryMode;
+        this.replyTracker = replyTracker;
+        this.delay = delay;
+        this.payload = payload;
+        this.workers = workers;
+    }
+
+    @Override
+    public void onMessage(final Message request) {
+        final long received = System.nanoTime();
+        target.onMessage(request);
+        try {
+            if (request.getJMSReplyTo() == null) {
+                return;
+            }
+            if (workers == null) {
+                reply(session, getProducer(), request, received);
+            } else {
+                workers.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            reply(workers.getSession(), workers.getProducer(), request, received);
+                        } catch (Exception e) {
+                            replyTracker.replyFailed();
+                            Logger.error("could not reply to message", e);
+                        }
+                    }
+                });
+            }
+        } catch (JMSException e) {
+            replyTracker.replyFailed();
+            throw new JmsException("could not reply to message", e);
+        }
+    }
+
+    private void reply(final Session session, final MessageProducer producer, final Message request, final long received) throws JMSException {
+        delay.await();
+        final Message reply = payload.createReply(session, request);
+        final String correlationId = request.getJMSCorrelationID();
+        reply.setJMSCorrelationID(correlationId != null ? correlationId : request.getJMSMessageID());
+        producer.send(request.getJMSReplyTo(), reply);
+        replyTracker.replySent(System.nanoTime() - received);
+    }
+
+    // an anonymous producer, each request names its own reply destination
+    private MessageProducer getProducer() throws JMSException {
+        if (producer == null) {
+            producer = session.createProducer(null);
+            producer.setDeliveryMode(deliveryMode);
+        }
+        return producer;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.core.JmsException;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.Topic;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * how a listener subscribes to its destination:
+ * <ul>
+ * <li>NONE: a plain consumer, a non durable subscription on a topic</li>
+ * <li>DURABLE: a durable subscription named "name-listener" for every listener, the connection needs a client id</li>
+ * <li>SHARED: a JMS 2.0 shared subscription named "name-destination", the listeners of a topic share its messages</li>
+ * <li>SHARED_DURABLE: the same as SHARED but durable</li>
+ * </ul>
+ * we compile against JMS 1.1, so the shared consumers are created by reflection and fail with providers that do not
+ * implement JMS 2.0. durable subscriptions stay on the broker after the run.
+ */
+public final class Subscription {
+
+    public static final String NONE = "NONE";
+    public static final String DURABLE = "DURABLE";
+    public static final String SHARED = "SHARED";
+    public static final String SHARED_DURABLE = "SHARED_DURABLE";
+
+    public static final String DEFAULT_NAME = "jmsloadtester";
+
+    private static final String SEPARATOR = "-";
+
+    private final String type;
+    private final String name;
+
+    private Subscription(final String type, final String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    /**
+     * @param listener the number of the listener, starting with 0
+     * @param destination the index of the destination the listener subscribes to
+     */
+    public static Subscription getSubscription(final String type, final String name, final int listener, final int destination) {
+        if (type == null) {
+            throw new IllegalArgumentException("the subscription was null");
+        }
+        final String trimmed = type.trim();
+        if (NONE.equals(trimmed)) {
+            return new Subscription(trimmed, null);
+        }
+        if (name == null || name.trim().length() == 0) {
+            throw new IllegalArgumentException("the subscription name was empty");
+        }
+        if (DURABLE.equals(trimmed)) {
+            return new Subscription(trimmed, name.trim() + SEPARATOR + listener);
+        }
+        if (SHARED.equals(trimmed) || SHARED_DURABLE.equals(trimmed)) {
+            return new Subscription(trimmed, name.trim() + SEPARATOR + destination);
+        }
+        throw new IllegalArgumentException("the subscription does not exist, use " + NONE + ", " + DURABLE + ", " + SHARED + " or " + SHARED_DURABLE + ", was: " + type);
+    }
+
+    public static Subscription getSubscription(final String type) {
+        return getSubscription(type, DEFAULT_NAME, 0, 0);
+    }
+
+    /**
+     * @return true if the connections need a client id, only an unshared durable subscription is bound to one
+     */
+    public boolean isClientIdNeeded() {
+        return DURABLE.equals(type);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the name of the subscription or null for {@link #NONE}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param selector the message selector, null for all messages
+     */
+    public MessageConsumer createConsumer(final Session session, final Destination destination, final String selector) throws JMSException {
+        if (NONE.equals(type)) {
+            return session.createConsumer(destination, selector);
+        }
+        if (!(destination instanceof Topic)) {
+            throw new JmsException("a " + type + " subscription needs a topic, was: " + destination);
+        }
+        final Topic topic = (Topic) destination;
+        if (DURABLE.equals(type)) {
+            return session.createDurableSubscriber(topic, name, selector, false);
+        }
+        return createSharedConsumer(session, SHARED.equals(type) ? "createSharedConsumer" : "createSharedDurableConsumer", topic, selector);
+    }
+
+    private MessageConsumer createSharedConsumer(final Session session, final String method, final Topic topic, final String selector) throws JMSException {
+        final Method create;
+        try {
+            create = session.getClass().getMethod(method, Topic.class, String.class, String.class);
+        } catch (NoSuchMethodException e) {
+            throw new JmsException("the JMS provider does not support " + type + " subscriptions, they need JMS 2.0", e);
+        }
+        try {
+            return (MessageConsumer) create.invoke(session, topic, name, selector);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof JMSException) {
+                throw (JMSException) e.getCause();
+            }
+            if (e.getCause() instanceof AbstractMethodError) {
+                // a JMS 2.0 api jar with a JMS 1.1 provider
+                throw new JmsException("the JMS provider does not support " + type + " subscriptions, they need JMS 2.0", e);
+            }
+            throw new JmsException("could not create the " + type + " subscription " + name, e);
+        } catch (IllegalAccessException e) {
+            throw new JmsException("could not create the " + type + " subscription " + name, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? type : type + " (" + name + ")";
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+/**
+ * creates transacted sessions, the acknowledge mode is ignored by the provider. senders commit in batches, see
+ * {@link Config#getSenderCommitEveryMessages()}, and so do listeners, see
+ * {@link Config#getListenerAcknowledgeEveryMessages()}.
+ */
+public class TransactedSessionHandlerImpl extends AbstractThreadAwareSessionHandler {
+
+    public TransactedSessionHandlerImpl(final String ackMode) {
+        super(ackMode);
+    }
+
+    @Override
+    protected final Session getThreadSession(final Connection connection, final Config config) throws JMSException {
+        return connection.createSession(true, Session.SESSION_TRANSACTED);
+    }
+}
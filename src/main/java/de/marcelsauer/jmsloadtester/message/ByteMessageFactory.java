@@ -26,15 +26,21 @@ public class ByteMessageFactory implements MessageFactory {
     @Override
     public Message toMessage(final Payload payload, final Session session) {
         try {
-            return createMessage(payload.asBytes(), session);
+            return createMessage(payload, session);
         } catch (JMSException e) {
             throw new JmsException(e);
         }
     }
 
-    private BytesMessage createMessage(final byte[] bytes, final Session session) throws JMSException {
+    private BytesMessage createMessage(final Payload payload, final Session session) throws JMSException {
         BytesMessage message = session.createBytesMessage();
-        message.writeBytes(bytes);
+        final byte[] bytes = payload.getBuffer();
+        // a rendered payload only uses a part of its buffer, write it without copying
+        if (payload.length() == bytes.length) {
+            message.writeBytes(bytes);
+        } else {
+            message.writeBytes(bytes, 0, payload.length());
+        }
         return message;
     }
 
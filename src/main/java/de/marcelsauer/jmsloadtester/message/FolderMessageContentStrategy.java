@@ -51,7 +51,9 @@ public class FolderMessageContentStrategy implements MessageContentStrategy {
     public Payload next() {
         Payload nextMessage = getCached(files[counter].getName());
         if (!StringUtils.isEmpty(nextMessage)) {
-            Logger.debug("returning cached file: " + cache);
+            if (Logger.isDebugEnabled()) {
+                Logger.debug("returning cached file: " + cache);
+            }
             increaseCounter();
         } else {
             nextMessage = new Payload(FileUtils.getBytesFromFile(files[counter]));
@@ -15,26 +15,52 @@
  */
 package de.marcelsauer.jmsloadtester.message;
 
+import java.util.Arrays;
+
 public final class Payload {
 
     final private byte[] payload;
+    final private int length;
 
     public Payload(final byte[] payload) {
+        this(payload, payload.length);
+    }
+
+    /**
+     * wraps the first length bytes of the given array without copying them, used for payloads rendered into a reused
+     * buffer
+     */
+    public Payload(final byte[] payload, final int length) {
         this.payload = payload;
+        this.length = length;
     }
 
     public Payload(final String payload) {
-        this.payload = payload.getBytes();
+        this(payload.getBytes());
     }
 
     public String asString() {
-        return new String(payload);
+        return new String(payload, 0, length);
     }
 
+    /**
+     * @return the payload bytes, a copy if the payload only uses a part of its buffer
+     */
     public byte[] asBytes() {
+        return length == payload.length ? payload : Arrays.copyOf(payload, length);
+    }
+
+    /**
+     * @return the backing array without copying it, only the first {@link #length()} bytes belong to the payload
+     */
+    public byte[] getBuffer() {
         return payload;
     }
 
+    public int length() {
+        return length;
+    }
+
     @Override
     public String toString() {
         return asString();
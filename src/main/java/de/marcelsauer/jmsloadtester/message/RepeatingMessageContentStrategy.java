@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.message;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * sends the content of a strategy over and over, for runs that send until their time is over. the payloads of the
+ * first round are kept and sent again in every further round, so the strategy is built and its content read only once.
+ */
+public class RepeatingMessageContentStrategy implements MessageContentStrategy {
+
+    private final MessageContentStrategy first;
+    private final List<Payload> payloads = new ArrayList<Payload>();
+    private int rounds = 1;
+    private int next;
+
+    public RepeatingMessageContentStrategy(final MessageContentStrategy first) {
+        this.first = first;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (rounds == 1 && first.hasNext()) {
+            return true;
+        }
+        // an empty content would repeat forever without sending anything
+        if (payloads.isEmpty()) {
+            return false;
+        }
+        if (rounds == 1 || next == payloads.size()) {
+            next = 0;
+            rounds++;
+        }
+        return true;
+    }
+
+    @Override
+    public Payload next() {
+        if (rounds == 1) {
+            final Payload payload = first.next();
+            payloads.add(payload);
+            return payload;
+        }
+        return payloads.get(next++);
+    }
+
+    /**
+     * @return the messages of one round
+     */
+    @Override
+    public int getMessageCount() {
+        return first.getMessageCount();
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    @Override
+    public String getDescription() {
+        return "repeating [" + first.getDescription() + "]";
+    }
+
+    @Override
+    public String toString() {
+        return getDescription();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("not supported");
+    }
+
+    @Override
+    public Iterator<Payload> iterator() {
+        return this;
+    }
+}
@@ -18,6 +18,7 @@ package de.marcelsauer.jmsloadtester.message.filter;
 import de.marcelsauer.jmsloadtester.message.ContentFilter;
 import de.marcelsauer.jmsloadtester.message.Payload;
 import de.marcelsauer.jmsloadtester.tools.ArrayUtils;
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
 
 public abstract class AbstractFilter implements ContentFilter {
 
@@ -36,4 +37,12 @@ public abstract class AbstractFilter implements ContentFilter {
     protected abstract String getPlaceHolder();
 
     protected abstract String getReplacement();
+
+    /**
+     * used by {@link PlaceHolderTemplate} to render the replacement straight into the message buffer, override it if
+     * the replacement can be written without creating a string
+     */
+    protected void appendReplacement(final ByteArrayBuilder out) {
+        out.append(getReplacement());
+    }
 }
@@ -15,9 +15,15 @@
  */
 package de.marcelsauer.jmsloadtester.message.filter;
 
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
+
 import java.util.Date;
 
 public class DateFilter extends AbstractFilter {
+
+    // Date.toString() only shows seconds, so the bytes can be reused within a second
+    private volatile CachedDate cachedDate = new CachedDate(-1, null);
+
     @Override
     protected String getPlaceHolder() {
         return FilterConstants.DATE;
@@ -27,4 +33,25 @@ public class DateFilter extends AbstractFilter {
     protected String getReplacement() {
         return new Date().toString();
     }
+
+    @Override
+    protected void appendReplacement(final ByteArrayBuilder out) {
+        final long second = System.currentTimeMillis() / 1000;
+        CachedDate date = cachedDate;
+        if (date.second != second) {
+            date = new CachedDate(second, new Date(second * 1000).toString().getBytes());
+            cachedDate = date;
+        }
+        out.append(date.bytes);
+    }
+
+    private static final class CachedDate {
+        private final long second;
+        private final byte[] bytes;
+
+        private CachedDate(final long second, final byte[] bytes) {
+            this.second = second;
+            this.bytes = bytes;
+        }
+    }
 }
\ No newline at end of file
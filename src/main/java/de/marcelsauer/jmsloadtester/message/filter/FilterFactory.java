@@ -16,9 +16,12 @@
 package de.marcelsauer.jmsloadtester.message.filter;
 
 import de.marcelsauer.jmsloadtester.message.ContentFilter;
+import de.marcelsauer.jmsloadtester.message.Payload;
 
 import java.util.List;
 
 public interface FilterFactory {
     List<ContentFilter> getFilters(String input);
+
+    PlaceHolderTemplate compile(Payload payload);
 }
@@ -16,6 +16,7 @@
 package de.marcelsauer.jmsloadtester.message.filter;
 
 import de.marcelsauer.jmsloadtester.message.ContentFilter;
+import de.marcelsauer.jmsloadtester.message.Payload;
 import de.marcelsauer.jmsloadtester.tools.StringUtils;
 
 import java.util.ArrayList;
@@ -23,10 +24,10 @@ import java.util.List;
 
 public class FilterFactoryImpl implements FilterFactory {
 
-    private ContentFilter messageCounterFilter;
-    private ContentFilter dateFilter;
-    private ContentFilter nanoFilter;
-    private ContentFilter randFilter;
+    private AbstractFilter messageCounterFilter;
+    private AbstractFilter dateFilter;
+    private AbstractFilter nanoFilter;
+    private AbstractFilter randFilter;
 
     public List<ContentFilter> getFilters(final String input) {
         final List<ContentFilter> filters = new ArrayList<ContentFilter>();
@@ -53,6 +54,19 @@ public class FilterFactoryImpl implements FilterFactory {
         return filters;
     }
 
+    public PlaceHolderTemplate compile(final Payload payload) {
+        final List<byte[]> placeHolders = new ArrayList<byte[]>();
+        final List<AbstractFilter> filters = new ArrayList<AbstractFilter>();
+        for (AbstractFilter filter : new AbstractFilter[] { messageCounterFilter, dateFilter, nanoFilter, randFilter }) {
+            if (filter != null) {
+                placeHolders.add(getFullPlaceHolder(filter.getPlaceHolder()).getBytes());
+                filters.add(filter);
+            }
+        }
+        return new PlaceHolderTemplate(payload, placeHolders.toArray(new byte[placeHolders.size()][]), filters
+                .toArray(new AbstractFilter[filters.size()]));
+    }
+
     private boolean isPresent(final String input, final String placeholder) {
         return StringUtils.contains(input, getFullPlaceHolder(placeholder));
     }
@@ -61,19 +75,19 @@ public class FilterFactoryImpl implements FilterFactory {
         return FilterConstants.START + what + FilterConstants.END;
     }
 
-    public void setMessageCounterFilter(final ContentFilter messageCounterFilter) {
+    public void setMessageCounterFilter(final AbstractFilter messageCounterFilter) {
         this.messageCounterFilter = messageCounterFilter;
     }
 
-    public void setDateFilter(final ContentFilter dateFilter) {
+    public void setDateFilter(final AbstractFilter dateFilter) {
         this.dateFilter = dateFilter;
     }
 
-    public void setNanoFilter(final ContentFilter nanoFilter) {
+    public void setNanoFilter(final AbstractFilter nanoFilter) {
         this.nanoFilter = nanoFilter;
     }
 
-    public void setRandFilter(final ContentFilter randFilter) {
+    public void setRandFilter(final AbstractFilter randFilter) {
         this.randFilter = randFilter;
     }
 }
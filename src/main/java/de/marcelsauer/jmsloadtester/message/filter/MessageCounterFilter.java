@@ -15,6 +15,7 @@
  */
 package de.marcelsauer.jmsloadtester.message.filter;
 
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
 import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
 
 public class MessageCounterFilter extends AbstractFilter {
@@ -34,4 +35,9 @@ public class MessageCounterFilter extends AbstractFilter {
     protected String getReplacement() {
         return String.valueOf(messageTracker.getTotalMessagesSent());
     }
+
+    @Override
+    protected void appendReplacement(final ByteArrayBuilder out) {
+        out.append(messageTracker.getTotalMessagesSent());
+    }
 }
\ No newline at end of file
@@ -15,6 +15,8 @@
  */
 package de.marcelsauer.jmsloadtester.message.filter;
 
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
+
 public class NanoFilter extends AbstractFilter {
     @Override
     protected String getPlaceHolder() {
@@ -25,4 +27,9 @@ public class NanoFilter extends AbstractFilter {
     protected String getReplacement() {
         return String.valueOf(System.nanoTime());
     }
+
+    @Override
+    protected void appendReplacement(final ByteArrayBuilder out) {
+        out.append(System.nanoTime());
+    }
 }
\ No newline at end of file
@@ -17,10 +17,39 @@ package de.marcelsauer.jmsloadtester.message.filter;
 
 import de.marcelsauer.jmsloadtester.message.ContentFilter;
 import de.marcelsauer.jmsloadtester.message.Payload;
-import de.marcelsauer.jmsloadtester.tools.ArrayUtils;
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * replaces the placeholders of a payload. the content strategies hand out the same payload instances over and over,
+ * so each payload is compiled into a {@link PlaceHolderTemplate} once per sending thread and every message is rendered
+ * from it into a buffer of that thread. the returned payload is backed by that buffer and only valid until the thread filters
+ * the next one, which is fine because a sender sends each message before it asks for the next.
+ */
 public class PlaceHolderContentFilter implements ContentFilter {
 
+    // per thread, the least recently used template is dropped first. a payload is found by identity
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+
+    private final ThreadLocal<Map<Payload, PlaceHolderTemplate>> templates = new ThreadLocal<Map<Payload, PlaceHolderTemplate>>() {
+        @Override
+        protected Map<Payload, PlaceHolderTemplate> initialValue() {
+            return new LinkedHashMap<Payload, PlaceHolderTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Payload, PlaceHolderTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            };
+        }
+    };
+    private final ThreadLocal<ByteArrayBuilder> buffers = new ThreadLocal<ByteArrayBuilder>() {
+        @Override
+        protected ByteArrayBuilder initialValue() {
+            return new ByteArrayBuilder();
+        }
+    };
     private FilterFactory filterFactory;
 
     public PlaceHolderContentFilter(final FilterFactory filterFactory) {
@@ -28,14 +57,26 @@ public class PlaceHolderContentFilter implements ContentFilter {
     }
 
     public Payload filter(final Payload input) {
+        final PlaceHolderTemplate template = getTemplate(input);
         // no need to replace
-        if (!ArrayUtils.contains(input.asBytes(), FilterConstants.START.getBytes()[0])) {
+        if (!template.hasPlaceHolders()) {
             return input;
         }
-        Payload message = input;
-        for (ContentFilter filter : filterFactory.getFilters(input.asString())) {
-            message = filter.filter(message);
+        return template.render(buffers.get());
+    }
+
+    // package private for testcase, the templates of the calling thread
+    int getCachedTemplateCount() {
+        return templates.get().size();
+    }
+
+    private PlaceHolderTemplate getTemplate(final Payload payload) {
+        final Map<Payload, PlaceHolderTemplate> cached = templates.get();
+        PlaceHolderTemplate template = cached.get(payload);
+        if (template == null) {
+            template = filterFactory.compile(payload);
+            cached.put(payload, template);
         }
-        return message;
+        return template;
     }
 }
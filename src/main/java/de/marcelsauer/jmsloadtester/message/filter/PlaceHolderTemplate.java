@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.message.filter;
+
+import de.marcelsauer.jmsloadtester.message.Payload;
+import de.marcelsauer.jmsloadtester.tools.ArrayUtils;
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a payload with the positions of its placeholders, found once when the template is compiled. rendering copies the
+ * text between the placeholders and lets the filters append their replacements in a single pass.
+ */
+public final class PlaceHolderTemplate {
+
+    private static final byte START = FilterConstants.START.getBytes()[0];
+
+    private final Payload source;
+    private final int[] starts;
+    private final int[] ends;
+    private final AbstractFilter[] filters;
+
+    /**
+     * @param placeHolders the full placeholders, e.g. ":datetime:"
+     * @param placeHolderFilters the filter for the placeholder at the same index
+     */
+    PlaceHolderTemplate(final Payload source, final byte[][] placeHolders, final AbstractFilter[] placeHolderFilters) {
+        this.source = source;
+        final List<int[]> found = new ArrayList<int[]>();
+        final byte[] bytes = source.getBuffer();
+        final int length = source.length();
+        int i = ArrayUtils.indexOf(bytes, 0, length, START);
+        while (i >= 0) {
+            int next = i + 1;
+            for (int p = 0; p < placeHolders.length; p++) {
+                final byte[] placeHolder = placeHolders[p];
+                if (i + placeHolder.length <= length && ArrayUtils.areaMatches(bytes, i, placeHolder)) {
+                    found.add(new int[] { i, i + placeHolder.length, p });
+                    next = i + placeHolder.length;
+                    break;
+                }
+            }
+            i = ArrayUtils.indexOf(bytes, next, length, START);
+        }
+        this.starts = new int[found.size()];
+        this.ends = new int[found.size()];
+        this.filters = new AbstractFilter[found.size()];
+        for (int f = 0; f < found.size(); f++) {
+            final int[] placeHolder = found.get(f);
+            starts[f] = placeHolder[0];
+            ends[f] = placeHolder[1];
+            filters[f] = placeHolderFilters[placeHolder[2]];
+        }
+    }
+
+    public boolean hasPlaceHolders() {
+        return starts.length > 0;
+    }
+
+    public int getPlaceHolderCount() {
+        return starts.length;
+    }
+
+    /**
+     * renders the template into the given buffer, the returned payload is backed by the buffer and only valid until
+     * it is reused
+     */
+    public Payload render(final ByteArrayBuilder out) {
+        final byte[] bytes = source.getBuffer();
+        out.reset().ensureCapacity(source.length());
+        int offset = 0;
+        for (int i = 0; i < starts.length; i++) {
+            out.append(bytes, offset, starts[i] - offset);
+            filters[i].appendReplacement(out);
+            offset = ends[i];
+        }
+        out.append(bytes, offset, source.length() - offset);
+        return new Payload(out.getBuffer(), out.size());
+    }
+}
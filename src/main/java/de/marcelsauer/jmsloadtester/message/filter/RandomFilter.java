@@ -15,6 +15,8 @@
  */
 package de.marcelsauer.jmsloadtester.message.filter;
 
+import de.marcelsauer.jmsloadtester.tools.ByteArrayBuilder;
+
 import java.util.Random;
 
 public class RandomFilter extends AbstractFilter {
@@ -29,4 +31,9 @@ public class RandomFilter extends AbstractFilter {
     protected String getReplacement() {
         return String.valueOf(generator.nextLong());
     }
+
+    @Override
+    protected void appendReplacement(final ByteArrayBuilder out) {
+        out.append(generator.nextLong());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.output;
+
+import de.marcelsauer.jmsloadtester.core.ShutdownAware;
+import de.marcelsauer.jmsloadtester.handler.ShutdownHandler;
+import de.marcelsauer.jmsloadtester.tools.BoundedRingBuffer;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * the calling threads only append the line to a bounded ring buffer, a single writer thread drains it. when the buffer
+ * is full the line is dropped and counted, so a slow output never slows down senders or listeners. the buffer is
+ * drained on shutdown.
+ */
+public abstract class AbstractAsyncOutputStrategy implements CountingOutputStrategy, ShutdownAware {
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+
+    private final BoundedRingBuffer<String> buffer;
+    private final AtomicLong linesDropped = new AtomicLong();
+    private final AtomicLong linesWritten = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    protected AbstractAsyncOutputStrategy(final int capacity) {
+        buffer = new BoundedRingBuffer<String>(capacity);
+        writer = new Thread(new Runnable() {
+            public void run() {
+                drainUntilStopped();
+            }
+        });
+        writer.setDaemon(true);
+    }
+
+    /**
+     * starts the writer thread, to be called at the end of the constructor of the subclass so the writer sees all of
+     * its fields
+     */
+    protected void start() {
+        writer.setName(getName() + " writer");
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new ShutdownHandler(this));
+    }
+
+    @Override
+    public void output(final String line) {
+        if (!buffer.offer(line)) {
+            linesDropped.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getLinesWritten() {
+        return linesWritten.get();
+    }
+
+    @Override
+    public long getLinesDropped() {
+        return linesDropped.get();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(SHUTDOWN_WAIT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * writes one line, only called by the writer thread
+     */
+    protected abstract void write(String line) throws Exception;
+
+    /**
+     * called by the writer thread after each look at the buffer, also when it was empty, so subclasses can flush on a
+     * time policy
+     */
+    protected abstract void flush() throws Exception;
+
+    /**
+     * called by the writer thread once it is stopped and the buffer is drained
+     */
+    protected abstract void close() throws Exception;
+
+    private void drainUntilStopped() {
+        try {
+            while (running) {
+                if (drain() == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            drain();
+            close();
+        } catch (Exception e) {
+            Logger.error("could not write output of " + getName(), e);
+        }
+    }
+
+    private int drain() throws Exception {
+        int count = 0;
+        String line;
+        while ((line = buffer.poll()) != null) {
+            write(line);
+            count++;
+        }
+        if (count > 0) {
+            linesWritten.addAndGet(count);
+        }
+        flush();
+        return count;
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.output;
+
+/**
+ * hands each line to another output strategy in a background thread, e.g. ASYNC#STDOUT
+ */
+public class AsyncOutputStrategy extends AbstractAsyncOutputStrategy {
+
+    private final OutputStrategy target;
+
+    public AsyncOutputStrategy(final OutputStrategy target) {
+        this(target, DEFAULT_CAPACITY);
+    }
+
+    public AsyncOutputStrategy(final OutputStrategy target, final int capacity) {
+        super(capacity);
+        this.target = target;
+        start();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return target.isEnabled();
+    }
+
+    @Override
+    protected void write(final String line) {
+        target.output(line);
+    }
+
+    @Override
+    protected void flush() {
+        // the target takes care of that
+    }
+
+    @Override
+    protected void close() {
+        if (getLinesDropped() > 0) {
+            target.output("async output dropped " + getLinesDropped() + " lines because the buffer was full");
+        }
+    }
+
+    public String getName() {
+        return "AsyncOutput";
+    }
+
+    @Override
+    public String toString() {
+        return "Asynchronous output to: " + target;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.output;
+
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * appends the lines to a file in a background thread. the lines are collected in a large direct buffer that is written
+ * to the file channel when it is full or when the flush interval passed, and on shutdown. e.g.
+ * BUFFERED_FILE#/tmp/messages.log#1000#256 flushes at least every second with a buffer of 256 KB.
+ */
+public class BufferedFileOutputStrategy extends AbstractAsyncOutputStrategy {
+
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+    public static final int DEFAULT_BUFFER_KB = 256;
+
+    private static final byte[] EOL = Constants.EOL.getBytes();
+
+    private final String filename;
+    private final long flushNanos;
+    private final Charset charset = Charset.defaultCharset();
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long lastFlush = System.nanoTime();
+
+    public BufferedFileOutputStrategy(final String filename) {
+        this(filename, DEFAULT_FLUSH_MILLIS, DEFAULT_BUFFER_KB);
+    }
+
+    public BufferedFileOutputStrategy(final String filename, final long flushMillis, final int bufferKB) {
+        super(DEFAULT_CAPACITY);
+        if (flushMillis <= 0 || bufferKB <= 0) {
+            throw new IllegalArgumentException("flush millis and buffer size must be greater than zero, were: " + flushMillis + ", " + bufferKB);
+        }
+        this.filename = filename;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.buffer = ByteBuffer.allocateDirect(bufferKB * 1024);
+        try {
+            channel = new FileOutputStream(filename, true).getChannel();
+        } catch (IOException e) {
+            throw new JmsException("could not open file for output", e);
+        }
+        start();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    protected void write(final String line) throws IOException {
+        final byte[] bytes = line.getBytes(charset);
+        if (bytes.length + EOL.length > buffer.remaining()) {
+            writeBuffer();
+        }
+        if (bytes.length + EOL.length > buffer.remaining()) {
+            // larger than the whole buffer
+            writeFully(ByteBuffer.wrap(bytes));
+            writeFully(ByteBuffer.wrap(EOL));
+        } else {
+            buffer.put(bytes);
+            buffer.put(EOL);
+        }
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        if (System.nanoTime() - lastFlush >= flushNanos) {
+            writeBuffer();
+        }
+    }
+
+    @Override
+    protected void close() throws IOException {
+        writeBuffer();
+        channel.force(false);
+        channel.close();
+    }
+
+    private void writeBuffer() throws IOException {
+        lastFlush = System.nanoTime();
+        if (buffer.position() > 0) {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+    }
+
+    private void writeFully(final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    public String getName() {
+        return "BufferedFileWriter";
+    }
+
+    @Override
+    public String toString() {
+        return "Buffered file output to: " + filename + " (flushing every " + TimeUnit.NANOSECONDS.toMillis(flushNanos) + " ms, " + buffer.capacity() / 1024 + " KB buffer)";
+    }
+}
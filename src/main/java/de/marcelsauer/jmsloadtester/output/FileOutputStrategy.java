@@ -43,6 +43,10 @@ public class FileOutputStrategy implements OutputStrategy, ShutdownAware {
     }
 
     public synchronized void output(final String line) {
+        if (writer == null) {
+            // closed on shutdown
+            return;
+        }
         try {
             writer.write(line);
             writer.write(Constants.EOL);
@@ -65,14 +69,15 @@ public class FileOutputStrategy implements OutputStrategy, ShutdownAware {
         closeWriter();
     }
 
-    // @todo close the file?
     private synchronized void closeWriter() {
         if (writer != null) {
-            // try {
-            // //writer.close();
-            // } catch (IOException e) {
-            // throw new JmsException("could not close file for output", e);
-            // }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new JmsException("could not close file for output", e);
+            } finally {
+                writer = null;
+            }
         }
     }
 
@@ -21,15 +21,24 @@ public class OutputStrategyFactory {
     public static final String STDERR = "STDERR";
     public static final String FILE = "FILE";
     public static final String SILENT = "SILENT";
+    public static final String ASYNC = "ASYNC";
+    public static final String BUFFERED_FILE = "BUFFERED_FILE";
+
+    private static final String HASH = "#";
 
     public static OutputStrategy getOutputStrategy(final String type) {
         OutputStrategy strategy = null;
-        if (STDOUT.equals(type)) {
+        if (type.startsWith(ASYNC + HASH)) {
+            // e.g. ASYNC#STDOUT or ASYNC#FILE#/tmp/debug.log
+            strategy = new AsyncOutputStrategy(getOutputStrategy(type.substring(ASYNC.length() + HASH.length())));
+        } else if (STDOUT.equals(type)) {
             strategy = new StdoutOutputStrategy();
         } else if (STDERR.equals(type)) {
             strategy = new StderrOutputStrategy();
         } else if (SILENT.equals(type)) {
             strategy = new SilentOutputStrategy();
+        } else if (type.startsWith(BUFFERED_FILE)) {
+            strategy = getBufferedFileOutputStrategy(type);
         } else if (type.indexOf(FILE) > -1) {
             strategy = new FileOutputStrategy(type.replaceAll("FILE#", ""));
         } else {
@@ -37,4 +46,20 @@ public class OutputStrategyFactory {
         }
         return strategy;
     }
+
+    // BUFFERED_FILE#filename[#flushMillis#bufferKB]
+    private static OutputStrategy getBufferedFileOutputStrategy(final String type) {
+        final String[] values = type.split(HASH);
+        if (values.length == 2) {
+            return new BufferedFileOutputStrategy(values[1]);
+        }
+        if (values.length == 4) {
+            try {
+                return new BufferedFileOutputStrategy(values[1], Long.valueOf(values[2]), Integer.valueOf(values[3]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("the buffered file output strategy contains an invalid number, was: " + type, e);
+            }
+        }
+        throw new IllegalArgumentException("the buffered file output strategy needs a file name and optionally flush millis and buffer KB, was: " + type);
+    }
 }
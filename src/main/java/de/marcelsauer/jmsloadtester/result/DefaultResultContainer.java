@@ -17,6 +17,7 @@ package de.marcelsauer.jmsloadtester.result;
 
 import de.marcelsauer.jmsloadtester.core.Constants;
 import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import de.marcelsauer.jmsloadtester.tools.Json;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +42,16 @@ public class DefaultResultContainer implements ResultContainer {
         outputStrategy.output(sb.toString());
     }
 
+    @Override
+    public void outputJson(final OutputStrategy outputStrategy) {
+        StringBuffer sb = new StringBuffer("{");
+        for (Pair pair : resultPairs) {
+            sb.append(sb.length() == 1 ? "" : ", ");
+            sb.append(Json.quote(pair.key) + ": " + Json.value(pair.value));
+        }
+        outputStrategy.output(sb.append("}").toString());
+    }
+
     private static class Pair {
         String key;
         Object value;
@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.result;
+
+import de.marcelsauer.jmsloadtester.tools.Json;
+import de.marcelsauer.jmsloadtester.tools.Statistics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * compares the JSON results of a baseline with the ones of a candidate. every line of a result file is one run, so
+ * repeated runs appended to the same file are compared by their means. a metric regresses if the candidate is worse by
+ * more than the threshold and, with at least two runs on each side, welch's t-test says the difference is significant.
+ * with a single run on a side only the threshold decides. a metric that is missing or no number in any run can not be
+ * judged and fails the comparison.
+ */
+public class ResultComparison {
+
+    public static final double DEFAULT_THRESHOLD_PERCENT = 5;
+    public static final double DEFAULT_ALPHA = 0.05;
+
+    public static final List<Metric> DEFAULT_METRICS = Collections.unmodifiableList(Arrays.asList(new Metric("Sender messages / sec", true), new Metric(
+            "Listener messages / sec", true), new Metric("Latency p50 milliseconds", false), new Metric("Latency p90 milliseconds", false), new Metric(
+            "Latency p99 milliseconds", false)));
+
+    private final List<Metric> metrics;
+    private final double thresholdPercent;
+    private final double alpha;
+
+    public ResultComparison() {
+        this(DEFAULT_METRICS, DEFAULT_THRESHOLD_PERCENT, DEFAULT_ALPHA);
+    }
+
+    public ResultComparison(final List<Metric> metrics, final double thresholdPercent, final double alpha) {
+        if (metrics == null || metrics.isEmpty()) {
+            throw new IllegalArgumentException("at least one metric has to be compared");
+        }
+        if (thresholdPercent < 0 || Double.isNaN(thresholdPercent)) {
+            throw new IllegalArgumentException("the regression threshold must not be negative, was: " + thresholdPercent);
+        }
+        if (!(alpha > 0 && alpha < 1)) {
+            throw new IllegalArgumentException("the significance level has to be between 0 and 1, was: " + alpha);
+        }
+        this.metrics = new ArrayList<Metric>(metrics);
+        this.thresholdPercent = thresholdPercent;
+        this.alpha = alpha;
+    }
+
+    /**
+     * @return one comparison per metric in the order of the metrics
+     */
+    public List<MetricComparison> compare(final List<Map<String, Object>> baseline, final List<Map<String, Object>> candidate) {
+        final List<MetricComparison> comparisons = new ArrayList<MetricComparison>();
+        for (Metric metric : metrics) {
+            comparisons.add(new MetricComparison(metric, getValues(baseline, metric.getName()), baseline.size(), getValues(candidate, metric.getName()),
+                    candidate.size(), thresholdPercent, alpha));
+        }
+        return comparisons;
+    }
+
+    public static boolean hasRegression(final List<MetricComparison> comparisons) {
+        for (MetricComparison comparison : comparisons) {
+            if (comparison.isRegression()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a metric could not be compared, e.g. a mistyped key or a value that is no number
+     */
+    public static boolean hasMissing(final List<MetricComparison> comparisons) {
+        for (MetricComparison comparison : comparisons) {
+            if (comparison.isMissing()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the runs of a result file, one JSON object per line
+     */
+    public static List<Map<String, Object>> readRuns(final File file) throws IOException {
+        final List<Map<String, Object>> runs = new ArrayList<Map<String, Object>>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().length() == 0) {
+                    continue;
+                }
+                try {
+                    runs.add(Json.parseObject(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("line " + lineNumber + " of " + file + " is no JSON result: " + e.getMessage(), e);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (runs.isEmpty()) {
+            throw new IllegalArgumentException("the result file contains no runs: " + file);
+        }
+        return runs;
+    }
+
+    // runs without a numeric value are left out and make the comparison missing
+    private static double[] getValues(final List<Map<String, Object>> runs, final String name) {
+        final List<Double> values = new ArrayList<Double>();
+        for (Map<String, Object> run : runs) {
+            final Object value = run.get(name);
+            if (value instanceof Double) {
+                values.add((Double) value);
+            }
+        }
+        final double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "threshold " + thresholdPercent + " %, significance level " + alpha + ", metrics " + metrics;
+    }
+
+    public static final class Metric {
+
+        private final String name;
+        private final boolean higherIsBetter;
+
+        public Metric(final String name, final boolean higherIsBetter) {
+            if (name == null || name.trim().length() == 0) {
+                throw new IllegalArgumentException("the metric needs a name");
+            }
+            this.name = name;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isHigherBetter() {
+            return higherIsBetter;
+        }
+
+        @Override
+        public String toString() {
+            return name + (higherIsBetter ? " (higher is better)" : " (lower is better)");
+        }
+    }
+
+    public static final class MetricComparison {
+
+        public static final String REGRESSION = "REGRESSION";
+        public static final String IMPROVED = "improved";
+        public static final String UNCHANGED = "unchanged";
+        public static final String NOT_SIGNIFICANT = "not significant";
+        public static final String MISSING = "missing";
+
+        private final Metric metric;
+        private final double[] baseline;
+        private final int baselineRuns;
+        private final double[] candidate;
+        private final int candidateRuns;
+        private final double worsePercent;
+        private final double pValue;
+        private final String verdict;
+
+        MetricComparison(final Metric metric, final double[] baseline, final int baselineRuns, final double[] candidate, final int candidateRuns,
+                final double thresholdPercent, final double alpha) {
+            this.metric = metric;
+            this.baseline = baseline;
+            this.baselineRuns = baselineRuns;
+            this.candidate = candidate;
+            this.candidateRuns = candidateRuns;
+            if (baseline.length == 0 || baseline.length < baselineRuns || candidate.length == 0 || candidate.length < candidateRuns) {
+                worsePercent = Double.NaN;
+                pValue = Double.NaN;
+                verdict = MISSING;
+                return;
+            }
+            worsePercent = getWorsePercent(Statistics.mean(baseline), Statistics.mean(candidate), metric.isHigherBetter());
+            pValue = Statistics.welchTTest(baseline, candidate);
+            final boolean significant = Double.isNaN(pValue) || pValue < alpha;
+            if (Math.abs(worsePercent) <= thresholdPercent) {
+                verdict = UNCHANGED;
+            } else if (!significant) {
+                verdict = NOT_SIGNIFICANT;
+            } else {
+                verdict = worsePercent > 0 ? REGRESSION : IMPROVED;
+            }
+        }
+
+        private static double getWorsePercent(final double baseline, final double candidate, final boolean higherIsBetter) {
+            final double worse = higherIsBetter ? baseline - candidate : candidate - baseline;
+            if (worse == 0) {
+                return 0;
+            }
+            if (baseline == 0) {
+                return worse > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+            }
+            return worse / Math.abs(baseline) * 100;
+        }
+
+        public Metric getMetric() {
+            return metric;
+        }
+
+        public double getBaselineMean() {
+            return baseline.length == 0 ? Double.NaN : Statistics.mean(baseline);
+        }
+
+        public double getCandidateMean() {
+            return candidate.length == 0 ? Double.NaN : Statistics.mean(candidate);
+        }
+
+        /**
+         * @return how much worse the candidate is in percent of the baseline, negative if it is better
+         */
+        public double getWorsePercent() {
+            return worsePercent;
+        }
+
+        /**
+         * @return the p-value of welch's t-test, NaN with less than two runs on a side
+         */
+        public double getPValue() {
+            return pValue;
+        }
+
+        public String getVerdict() {
+            return verdict;
+        }
+
+        public boolean isRegression() {
+            return REGRESSION.equals(verdict);
+        }
+
+        public boolean isMissing() {
+            return MISSING.equals(verdict);
+        }
+
+        @Override
+        public String toString() {
+            if (MISSING.equals(verdict)) {
+                return metric.getName() + ": " + verdict + ", a number in " + baseline.length + " of " + baselineRuns + " baseline and "
+                        + candidate.length + " of " + candidateRuns + " candidate runs";
+            }
+            return String.format(Locale.US, "%s: %s -> %s, %+.2f %% worse, %s: %s", metric.getName(), describe(baseline), describe(candidate),
+                    worsePercent, Double.isNaN(pValue) ? "p n/a" : String.format(Locale.US, "p %.4f", pValue), verdict);
+        }
+
+        private static String describe(final double[] values) {
+            return String.format(Locale.US, "%.3f +- %.3f (%d runs)", Statistics.mean(values), Statistics.standardDeviation(values), values.length);
+        }
+    }
+}
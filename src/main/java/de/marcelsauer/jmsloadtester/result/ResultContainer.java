@@ -21,4 +21,9 @@ public interface ResultContainer {
     void addResultKeyValue(String key, Object value);
 
     void outputResult(OutputStrategy outputStrategy);
+
+    /**
+     * outputs the results as one JSON object on a single line, the keys are the same as in the text output
+     */
+    void outputJson(OutputStrategy outputStrategy);
 }
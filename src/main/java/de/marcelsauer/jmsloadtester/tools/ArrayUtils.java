@@ -16,7 +16,6 @@
 package de.marcelsauer.jmsloadtester.tools;
 
 import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
 
 public class ArrayUtils {
 
@@ -89,9 +88,15 @@ public class ArrayUtils {
     }
 
     public static boolean contains(byte[] array, byte toSearch) {
-        byte[] copy = new byte[array.length];
-        System.arraycopy(array, 0, copy, 0, array.length);
-        Arrays.sort(copy);
-        return Arrays.binarySearch(copy, toSearch) >= 0;
+        return indexOf(array, 0, array.length, toSearch) >= 0;
+    }
+
+    public static int indexOf(byte[] array, int offset, int limit, byte toSearch) {
+        for (int i = offset; i < limit; i++) {
+            if (array[i] == toSearch) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import java.util.Arrays;
+
+/**
+ * a growable byte array that is meant to be reused: {@link #reset()} keeps the array, so once it is big enough
+ * appending does not allocate anymore. not thread safe.
+ */
+public class ByteArrayBuilder {
+
+    private static final byte[] LONG_MIN_VALUE = String.valueOf(Long.MIN_VALUE).getBytes();
+
+    private byte[] buffer;
+    private int size;
+
+    public ByteArrayBuilder() {
+        this(1024);
+    }
+
+    public ByteArrayBuilder(final int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public ByteArrayBuilder reset() {
+        size = 0;
+        return this;
+    }
+
+    public ByteArrayBuilder append(final byte[] bytes) {
+        return append(bytes, 0, bytes.length);
+    }
+
+    public ByteArrayBuilder append(final byte[] bytes, final int offset, final int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * writes the decimal digits without creating a string
+     */
+    public ByteArrayBuilder append(final long value) {
+        if (value == Long.MIN_VALUE) {
+            return append(LONG_MIN_VALUE);
+        }
+        long rest = Math.abs(value);
+        int digits = 1;
+        for (long i = rest; i >= 10; i /= 10) {
+            digits++;
+        }
+        final int length = value < 0 ? digits + 1 : digits;
+        ensureCapacity(size + length);
+        int pos = size + length;
+        do {
+            buffer[--pos] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest > 0);
+        if (value < 0) {
+            buffer[--pos] = '-';
+        }
+        size += length;
+        return this;
+    }
+
+    /**
+     * ascii strings are copied char by char, anything else is encoded with the platform charset like
+     * {@link String#getBytes()}
+     */
+    public ByteArrayBuilder append(final String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) > 0x7f) {
+                return append(value.getBytes());
+            }
+        }
+        ensureCapacity(size + length);
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    public void ensureCapacity(final int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+
+    /**
+     * @return the backing array, only the first {@link #size()} bytes are valid and it is overwritten after the next
+     *         {@link #reset()}
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
@@ -19,6 +19,7 @@ import de.marcelsauer.jmsloadtester.core.JmsException;
 
 import javax.jms.Connection;
 import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
 import javax.jms.Session;
 
 public class JmsUtils {
@@ -36,6 +37,17 @@ public class JmsUtils {
         }
     }
 
+    public static void closeConsumer(MessageConsumer consumer) {
+        if (consumer != null) {
+            try {
+                Logger.debug("closing consumer: " + consumer);
+                consumer.close();
+            } catch (JMSException e) {
+                throw new JmsException("could not close consumer", e);
+            }
+        }
+    }
+
     public static void closeSession(Session sess) {
         if (sess != null) {
             try {
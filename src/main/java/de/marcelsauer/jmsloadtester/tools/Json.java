@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * the little JSON the results need, without a library. numbers and strings that are numbers are written as numbers so
+ * they can be compared, everything that is not finite becomes null. only flat objects are read back.
+ */
+public final class Json {
+
+    private static final String NUMBER = "-?(0|[1-9]\\d*)(\\.\\d+)?([eE][-+]?\\d+)?";
+
+    private Json() {
+    }
+
+    /**
+     * @return the string as JSON string including the quotes
+     */
+    public static String quote(final String value) {
+        final StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * @return the value as JSON number, boolean, null or string
+     */
+    public static String value(final Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Number) {
+            return number(((Number) value).doubleValue(), value.toString());
+        }
+        final String text = value.toString().trim();
+        try {
+            // e.g. the formatted milli seconds of the results
+            return number(Double.parseDouble(text), text);
+        } catch (NumberFormatException e) {
+            return quote(value.toString());
+        }
+    }
+
+    /**
+     * parses a flat JSON object as written for the results
+     *
+     * @return the values in the order of the keys: String, Double, Boolean or null
+     * @throws IllegalArgumentException
+     *             if the text is no flat JSON object
+     */
+    public static Map<String, Object> parseObject(final String text) {
+        return new Parser(text).parseObject();
+    }
+
+    private static String number(final double value, final String text) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        // parseDouble takes "1d" or "0x1p3", JSON does not
+        if (!text.matches(NUMBER)) {
+            return String.valueOf(value);
+        }
+        return text;
+    }
+
+    private static final class Parser {
+
+        private final String text;
+        private int pos;
+
+        private Parser(final String text) {
+            if (text == null) {
+                throw new IllegalArgumentException("no JSON given");
+            }
+            this.text = text;
+        }
+
+        private Map<String, Object> parseObject() {
+            final Map<String, Object> values = new LinkedHashMap<String, Object>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    final String key = parseString();
+                    expect(':');
+                    values.put(key, parseValue());
+                    if (peek() == ',') {
+                        pos++;
+                    } else {
+                        expect('}');
+                        break;
+                    }
+                }
+            }
+            if (peek() != 0) {
+                throw error("trailing characters");
+            }
+            return values;
+        }
+
+        private Object parseValue() {
+            final char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (text.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            }
+            if (text.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            }
+            if (text.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            final int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            final String number = text.substring(start, pos);
+            if (!number.matches(NUMBER)) {
+                pos = start;
+                throw error("unsupported value");
+            }
+            return Double.valueOf(number);
+        }
+
+        private String parseString() {
+            expect('"');
+            final StringBuilder sb = new StringBuilder();
+            while (pos < text.length()) {
+                final char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    break;
+                }
+                final char escaped = text.charAt(pos++);
+                switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("incomplete escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+                }
+            }
+            throw error("unterminated string");
+        }
+
+        // skips the white space, 0 at the end of the text
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private void expect(final char c) {
+            if (peek() != c) {
+                throw error("expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " of JSON [" + text + "]");
+        }
+    }
+}
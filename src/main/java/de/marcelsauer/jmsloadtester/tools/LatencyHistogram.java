@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * lock free histogram with fixed memory in the style of HdrHistogram. values below 256 are counted exactly, above that
+ * each power of two is split into 128 linear buckets, so every value is recorded with a relative error below 1%.
+ * values above the highest trackable value are counted in the last bucket, the max is always exact.
+ */
+public class LatencyHistogram {
+
+    // one hour
+    public static final long HIGHEST_TRACKABLE_MICROS = 60L * 60L * 1000L * 1000L;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF_COUNT << 1;
+    private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(0);
+
+    public LatencyHistogram(final long highestTrackableValue) {
+        if (highestTrackableValue < SUB_BUCKET_COUNT) {
+            throw new IllegalArgumentException("the highest trackable value must be at least " + SUB_BUCKET_COUNT + ", was: " + highestTrackableValue);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(getIndex(highestTrackableValue) + 1);
+    }
+
+    /**
+     * @return a histogram for latencies in microseconds up to {@link #HIGHEST_TRACKABLE_MICROS}
+     */
+    public static LatencyHistogram create() {
+        return new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+    }
+
+    /**
+     * @return the histogram at the index, created by the first caller that finds none
+     */
+    public static LatencyHistogram getOrCreate(final AtomicReferenceArray<LatencyHistogram> histograms, final int index) {
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, create());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param value a value >= 0, negative values (e.g. because of clock skew between two hosts) are recorded as 0
+     */
+    public void recordValue(final long value) {
+        final long v = Math.max(0, value);
+        counts.incrementAndGet(getIndex(Math.min(v, highestTrackableValue)));
+        sum.addAndGet(v);
+        long current;
+        while ((current = max.get()) < v && !max.compareAndSet(current, v)) {
+            // retry
+        }
+        while ((current = min.get()) > v && !min.compareAndSet(current, v)) {
+            // retry
+        }
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (int i = 0, length = counts.length(); i < length; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMin() {
+        final long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    public double getMean() {
+        final long total = getTotalCount();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return the highest value that is equivalent to the value at the percentile, never more than the max
+     */
+    public long getValueAtPercentile(final double percentile) {
+        final long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final double p = Math.min(100d, Math.max(0d, percentile));
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(p / 100d * total));
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            count += snapshot[i];
+            if (count >= countAtPercentile) {
+                return Math.min(getHighestEquivalentValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    // package private for testcase
+    static int getIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+        return SUB_BUCKET_COUNT + (exponent - FIRST_EXPONENT) * SUB_BUCKET_HALF_COUNT + subBucket - SUB_BUCKET_HALF_COUNT;
+    }
+
+    // package private for testcase
+    static long getHighestEquivalentValue(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF_COUNT + FIRST_EXPONENT;
+        final long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -17,10 +17,13 @@ package de.marcelsauer.jmsloadtester.tools;
 
 import de.marcelsauer.jmsloadtester.output.OutputStrategy;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Logger {
 
-    private static OutputStrategy out;
+    private static volatile OutputStrategy out;
     private static final String DELIMITER = ">>>>>>>";
+    private static final AtomicLong errors = new AtomicLong();
 
     public static void info(final String text) {
         synchronized (out) {
@@ -28,9 +31,20 @@ public class Logger {
         }
     }
 
+    /**
+     * lets callers skip building debug messages nobody will see
+     */
+    public static boolean isDebugEnabled() {
+        return out.isEnabled();
+    }
+
+    /**
+     * the output strategy takes care of concurrent calls, nothing is built if debug is disabled
+     */
     public static void debug(final String text) {
-        synchronized (out) {
-            out.output("debug [" + ThreadTools.getCurrentThreadName() + "] " + text);
+        final OutputStrategy target = out;
+        if (target.isEnabled()) {
+            target.output("debug [" + ThreadTools.getCurrentThreadName() + "] " + text);
         }
     }
 
@@ -42,11 +56,19 @@ public class Logger {
     }
 
     public static void error(final String text) {
+        errors.incrementAndGet();
         synchronized (out) {
             System.err.println(DELIMITER + " " + text);
         }
     }
 
+    /**
+     * @return how many errors were logged so far
+     */
+    public static long getErrorCount() {
+        return errors.get();
+    }
+
     public static void error(final Exception e) {
         synchronized (out) {
             error(null, e);
@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import java.util.Random;
+
+/**
+ * random numbers for the sender and listener threads and picks at random in proportion to weights, e.g. of the
+ * destinations or the selector groups of the messages.
+ */
+public final class RandomUtils {
+
+    // java.util.Random is thread safe but contended when shared
+    private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    private RandomUtils() {
+    }
+
+    /**
+     * @return the Random of the calling thread
+     */
+    public static Random getRandom() {
+        return random.get();
+    }
+
+    /**
+     * @param weights not negative and not all 0
+     * @return the running sums of the weights, a pick is a binary search over them
+     */
+    public static double[] getCumulativeWeights(final double[] weights) {
+        final double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @param cumulative see {@link #getCumulativeWeights(double[])}
+     * @return an index at random in proportion to its weight, an index with the weight 0 is never picked
+     */
+    public static int pickWeighted(final double[] cumulative) {
+        final double value = getRandom().nextDouble() * cumulative[cumulative.length - 1];
+        // the first index whose cumulative weight is above the value
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (cumulative[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
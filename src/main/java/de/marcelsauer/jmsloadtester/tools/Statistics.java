@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+/**
+ * the statistics to compare the results of repeated runs: mean, standard deviation and welch's t-test, which does not
+ * assume that both kinds of runs vary the same. the student t distribution is computed with the regularized
+ * incomplete beta function (continued fraction and lanczos log gamma, see numerical recipes).
+ */
+public final class Statistics {
+
+    private static final int MAX_ITERATIONS = 200;
+    private static final double EPSILON = 3.0e-12;
+    private static final double FPMIN = 1.0e-300;
+    private static final double[] LANCZOS = { 76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155, 0.1208650973866179e-2,
+            -0.5395239384953e-5 };
+
+    private Statistics() {
+    }
+
+    public static double mean(final double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("no values");
+        }
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    /**
+     * @return the sample variance, 0 for a single value
+     */
+    public static double variance(final double[] values) {
+        if (values.length < 2) {
+            return 0;
+        }
+        final double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return sum / (values.length - 1);
+    }
+
+    public static double standardDeviation(final double[] values) {
+        return Math.sqrt(variance(values));
+    }
+
+    /**
+     * welch's t-test whether the means of two samples differ
+     *
+     * @return the two sided p-value, NaN if a sample has less than two values
+     */
+    public static double welchTTest(final double[] a, final double[] b) {
+        if (a.length < 2 || b.length < 2) {
+            return Double.NaN;
+        }
+        final double va = variance(a) / a.length;
+        final double vb = variance(b) / b.length;
+        final double difference = mean(a) - mean(b);
+        if (va + vb == 0) {
+            // no variation at all, the means are either equal or certainly different
+            return difference == 0 ? 1 : 0;
+        }
+        final double t = difference / Math.sqrt(va + vb);
+        // welch-satterthwaite
+        final double df = (va + vb) * (va + vb) / (va * va / (a.length - 1) + vb * vb / (b.length - 1));
+        return studentTTwoSided(t, df);
+    }
+
+    /**
+     * @return the probability of a t value at least as far from 0 as the given one
+     */
+    public static double studentTTwoSided(final double t, final double df) {
+        return regularizedIncompleteBeta(df / (df + t * t), df / 2, 0.5);
+    }
+
+    static double regularizedIncompleteBeta(final double x, final double a, final double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        final double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x));
+        // the continued fraction converges quickly only below this point, above it the symmetry is used
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * betaContinuedFraction(x, a, b) / a;
+        }
+        return 1 - front * betaContinuedFraction(1 - x, b, a) / b;
+    }
+
+    private static double betaContinuedFraction(final double x, final double a, final double b) {
+        final double qab = a + b;
+        final double qap = a + 1;
+        final double qam = a - 1;
+        double c = 1;
+        double d = 1 - qab * x / qap;
+        if (Math.abs(d) < FPMIN) {
+            d = FPMIN;
+        }
+        d = 1 / d;
+        double h = d;
+        for (int m = 1; m <= MAX_ITERATIONS; m++) {
+            final int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((qam + m2) * (a + m2));
+            d = 1 + aa * d;
+            if (Math.abs(d) < FPMIN) {
+                d = FPMIN;
+            }
+            c = 1 + aa / c;
+            if (Math.abs(c) < FPMIN) {
+                c = FPMIN;
+            }
+            d = 1 / d;
+            h *= d * c;
+            aa = -(a + m) * (qab + m) * x / ((a + m2) * (qap + m2));
+            d = 1 + aa * d;
+            if (Math.abs(d) < FPMIN) {
+                d = FPMIN;
+            }
+            c = 1 + aa / c;
+            if (Math.abs(c) < FPMIN) {
+                c = FPMIN;
+            }
+            d = 1 / d;
+            final double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < EPSILON) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    static double logGamma(final double x) {
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : LANCZOS) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a counter in the style of java 8's LongAdder: each thread increments one of several cells, so threads do not fight
+ * over the same cache line. reading the value sums all cells and is more expensive than an increment, the sum is
+ * only exact when no increments happen at the same time.
+ */
+public class StripedCounter {
+
+    // 128 bytes between two cells, so neither they nor the adjacent cache line prefetched with them are shared
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedCounter(final int stripes) {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.cells = new AtomicLongArray(size * PADDING);
+    }
+
+    /**
+     * @return the new value of the cell of the current thread, not the sum
+     */
+    public long increment() {
+        return add(1);
+    }
+
+    /**
+     * @return the new value of the cell of the current thread, not the sum
+     */
+    public long add(final long delta) {
+        return cells.addAndGet(getCell(), delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0, length = cells.length(); i < length; i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+
+    public int getStripes() {
+        return mask + 1;
+    }
+
+    private int getCell() {
+        // thread ids are sequential, fibonacci hashing spreads them over the cells
+        final long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (h >>> 40) & mask) * PADDING;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(sum());
+    }
+}
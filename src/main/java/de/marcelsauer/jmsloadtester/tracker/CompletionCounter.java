@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.tools.StripedCounter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * counts towards an expected total without a lock. summing the stripes on every increment would cost more than the
+ * increment itself, so each thread only sums when its own stripe passed another {@link #CHECK_INTERVAL} messages. once
+ * the total is within reach of the unchecked increments every increment sums, so the completing message is detected
+ * exactly.
+ */
+class CompletionCounter {
+
+    private static final int CHECK_INTERVAL = 256;
+
+    private final StripedCounter counter = new StripedCounter();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private final AtomicBoolean done = new AtomicBoolean();
+    // the sum is read while others increment, so leave room for twice the increments that are not checked
+    private final long margin = 2L * counter.getStripes() * CHECK_INTERVAL;
+    private volatile long total;
+    private volatile boolean nearlyDone = true;
+
+    /**
+     * @return true only for the increment that reached the total
+     */
+    public boolean increment() {
+        final long stripeValue = counter.increment();
+        if (!nearlyDone && stripeValue % CHECK_INTERVAL != 0) {
+            return false;
+        }
+        final long sum = counter.sum();
+        if (!nearlyDone && total - sum <= margin) {
+            nearlyDone = true;
+        }
+        return sum >= total && complete();
+    }
+
+    /**
+     * @return true only if the new total completed the counter, e.g. a lower one that was already reached
+     */
+    public boolean setTotal(final long total) {
+        this.total = total;
+        final long sum = counter.sum();
+        nearlyDone = total - sum <= margin;
+        return sum >= total && complete();
+    }
+
+    public long getCount() {
+        return counter.sum();
+    }
+
+    public boolean isDone() {
+        return done.get() || counter.sum() >= total;
+    }
+
+    /**
+     * @return true if the total was reached within the given time
+     */
+    public boolean await(final long millis) throws InterruptedException {
+        return completed.await(millis, TimeUnit.MILLISECONDS) || isDone();
+    }
+
+    private boolean complete() {
+        if (done.compareAndSet(false, true)) {
+            completed.countDown();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * collects the counters of the listener threads that pull their messages with receive. each thread only writes its
+ * own {@link Counters}, so counting needs no synchronization, they are only added up for the result.
+ */
+public class ConsumerTracker {
+
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final List<Counters> consumers = new CopyOnWriteArrayList<Counters>();
+
+    public Counters newCounters() {
+        final Counters counters = new Counters();
+        consumers.add(counters);
+        return counters;
+    }
+
+    public int getConsumerCount() {
+        return consumers.size();
+    }
+
+    public long getReceiveCalls() {
+        long calls = 0;
+        for (Counters counters : consumers) {
+            calls += counters.receiveCalls;
+        }
+        return calls;
+    }
+
+    public long getEmptyReceives() {
+        long empty = 0;
+        for (Counters counters : consumers) {
+            empty += counters.receiveCalls - counters.messages;
+        }
+        return empty;
+    }
+
+    public long getMinMessages() {
+        long min = Long.MAX_VALUE;
+        for (Counters counters : consumers) {
+            min = Math.min(min, counters.messages);
+        }
+        return consumers.isEmpty() ? 0 : min;
+    }
+
+    public long getMaxMessages() {
+        long max = 0;
+        for (Counters counters : consumers) {
+            max = Math.max(max, counters.messages);
+        }
+        return max;
+    }
+
+    /**
+     * @return the average time a receive call took including the wait for a message, empty ones as well
+     */
+    public double getAverageReceiveMicros() {
+        long calls = 0;
+        long nanos = 0;
+        for (Counters counters : consumers) {
+            calls += counters.receiveCalls;
+            nanos += counters.receiveNanos;
+        }
+        return calls == 0 ? 0 : (double) nanos / calls / NANOS_PER_MICRO;
+    }
+
+    public static final class Counters {
+
+        // single writer, volatile only for the reader
+        private volatile long receiveCalls;
+        private volatile long messages;
+        private volatile long receiveNanos;
+
+        public void received(final boolean message, final long nanos) {
+            receiveCalls++;
+            receiveNanos += nanos;
+            if (message) {
+                messages++;
+            }
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+    }
+}
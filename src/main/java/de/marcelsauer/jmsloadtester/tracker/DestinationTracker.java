@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.DestinationRouter;
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * counts the messages sent to and received from each destination of the {@link DestinationRouter} and records the end
+ * to end latency per destination in microseconds. the destination is read from the property the {@link Sender}
+ * interceptor sets, so messages without it are only counted as unknown. a histogram is only created for a destination
+ * when its first message is received.
+ */
+public class DestinationTracker implements MessageSentAware, MessageNotifyable {
+
+    private final DestinationRouter router;
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private final AtomicLongArray sent;
+    private final AtomicReferenceArray<LatencyHistogram> latencies;
+    private final AtomicLong unknownSent = new AtomicLong();
+    private final AtomicLong unknownReceived = new AtomicLong();
+
+    public DestinationTracker(final Config config) {
+        this(new DestinationRouter(config.getSendToDestination(), config.getSenderRouting()));
+    }
+
+    public DestinationTracker(final DestinationRouter router) {
+        this.router = router;
+        final List<String> destinations = router.getDestinations();
+        for (int i = 0; i < destinations.size(); i++) {
+            indexes.put(destinations.get(i), i);
+        }
+        this.sent = new AtomicLongArray(destinations.size());
+        this.latencies = new AtomicReferenceArray<LatencyHistogram>(destinations.size());
+    }
+
+    /**
+     * @return true if the senders spread their messages over more than one destination
+     */
+    public boolean isEnabled() {
+        return router.getDestinationCount() > 1;
+    }
+
+    public DestinationRouter getRouter() {
+        return router;
+    }
+
+    @Override
+    public void messageSent(final Message message) {
+        final int index = getIndex(message);
+        if (index < 0) {
+            unknownSent.incrementAndGet();
+        } else {
+            sent.incrementAndGet(index);
+        }
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        final long latency = LatencyTracker.getLatencyInMicroSeconds(message, System.nanoTime(), System.currentTimeMillis());
+        final int index = getIndex(message);
+        if (index < 0 || latency == LatencyTracker.UNKNOWN) {
+            unknownReceived.incrementAndGet();
+        } else {
+            LatencyHistogram.getOrCreate(latencies, index).recordValue(latency);
+        }
+    }
+
+    public long getSent(final int index) {
+        return sent.get(index);
+    }
+
+    /**
+     * @return the received messages of the destination with a send time
+     */
+    public long getReceived(final int index) {
+        final LatencyHistogram latency = latencies.get(index);
+        return latency == null ? 0 : latency.getTotalCount();
+    }
+
+    /**
+     * @return the latency of the destination or null if nothing was received from it
+     */
+    public LatencyHistogram getLatencyHistogram(final int index) {
+        return latencies.get(index);
+    }
+
+    public long getUnknownSent() {
+        return unknownSent.get();
+    }
+
+    public long getUnknownReceived() {
+        return unknownReceived.get();
+    }
+
+    // the map is filled in the constructor and only read afterwards
+    private int getIndex(final Message message) {
+        try {
+            final Integer index = indexes.get(message.getStringProperty(Sender.DESTINATION));
+            return index == null ? -1 : index;
+        } catch (JMSException e) {
+            throw new JmsException("could not read the destination of message", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.tools.HashUtils;
+
+/**
+ * keeps a 64 bit fingerprint per id in primitive open addressing tables instead of the id strings, about 12 bytes per
+ * message instead of more than 100. two different ids only count once if their fingerprints collide, which is unlikely
+ * enough to call the count exact. the tables are split into segments with a lock each, so threads rarely wait.
+ */
+public class FingerprintMessageIdTracker implements MessageIdTracker {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    public FingerprintMessageIdTracker() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public void add(final String messageId) {
+        long fingerprint = HashUtils.hash64(messageId);
+        if (fingerprint == EMPTY) {
+            fingerprint = 1;
+        }
+        // the high bits pick the segment, the low bits the slot
+        segments[(int) (fingerprint >>> (64 - SEGMENT_BITS))].add(fingerprint);
+    }
+
+    @Override
+    public long getUniqueCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.size();
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "FINGERPRINT, keeping a 64 bit hash of each message id";
+    }
+
+    private static class Segment {
+        private long[] table = new long[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized void add(final long fingerprint) {
+            if (insert(table, fingerprint)) {
+                size++;
+                // resize at 75% load, linear probing gets slow above that
+                if (size * 4L > table.length * 3L) {
+                    final long[] bigger = new long[table.length * 2];
+                    for (long value : table) {
+                        if (value != EMPTY) {
+                            insert(bigger, value);
+                        }
+                    }
+                    table = bigger;
+                }
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private static boolean insert(final long[] table, final long fingerprint) {
+            final int mask = table.length - 1;
+            int index = (int) fingerprint & mask;
+            while (table[index] != EMPTY) {
+                if (table[index] == fingerprint) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = fingerprint;
+            return true;
+        }
+    }
+}
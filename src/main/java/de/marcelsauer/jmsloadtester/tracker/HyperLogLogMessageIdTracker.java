@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.tools.HashUtils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * estimates the unique count with a HyperLogLog: memory is fixed no matter how many messages are tracked, the standard
+ * error is 1.04 / sqrt(registers), e.g. 0.8% for 16384 registers. one register is one byte, four of them are packed
+ * into an int and updated with compare and set.
+ */
+public class HyperLogLogMessageIdTracker implements MessageIdTracker {
+
+    private static final int MIN_REGISTERS = 16;
+
+    private final int bits;
+    private final int registerCount;
+    private final AtomicIntegerArray registers;
+
+    /**
+     * @param maxBytes the memory to use, rounded down to a power of two and at least 16
+     */
+    public HyperLogLogMessageIdTracker(final int maxBytes) {
+        int count = MIN_REGISTERS;
+        while (count * 2L <= maxBytes) {
+            count *= 2;
+        }
+        this.registerCount = count;
+        this.bits = Integer.numberOfTrailingZeros(count);
+        this.registers = new AtomicIntegerArray(count / 4);
+    }
+
+    @Override
+    public void add(final String messageId) {
+        final long hash = HashUtils.hash64(messageId);
+        final int register = (int) (hash >>> (64 - bits));
+        // position of the first 1 bit in the rest of the hash
+        final int rank = Math.min(Long.numberOfLeadingZeros(hash << bits), 64 - bits) + 1;
+        final int index = register >>> 2;
+        final int shift = (register & 3) * 8;
+        int word;
+        while (rank > ((word = registers.get(index)) >>> shift & 0xff)) {
+            if (registers.compareAndSet(index, word, (word & ~(0xff << shift)) | (rank << shift))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public long getUniqueCount() {
+        double sum = 0;
+        int zeros = 0;
+        for (int i = 0; i < registerCount; i++) {
+            final int value = registers.get(i >>> 2) >>> ((i & 3) * 8) & 0xff;
+            sum += 1d / (1L << value);
+            if (value == 0) {
+                zeros++;
+            }
+        }
+        final double estimate = getAlpha() * registerCount * registerCount / sum;
+        if (estimate <= 2.5 * registerCount && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            return Math.round(registerCount * Math.log((double) registerCount / zeros));
+        }
+        return Math.round(estimate);
+    }
+
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registerCount);
+    }
+
+    @Override
+    public boolean isExact() {
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    private double getAlpha() {
+        switch (registerCount) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / registerCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HLL, estimating with %d bytes (standard error %.2f%%)", registerCount, getStandardError() * 100);
+    }
+}
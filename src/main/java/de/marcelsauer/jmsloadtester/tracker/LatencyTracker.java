@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * records the end to end latency (receive minus send) of each received message in microseconds. the send time is set
+ * by the {@link Sender} interceptor: messages sent from this jvm are measured with System.nanoTime(), messages from
+ * other jvms with the wall clock, which is only as good as the clock synchronisation of the hosts.
+ */
+public class LatencyTracker implements MessageNotifyable {
+
+    public static final long UNKNOWN = -1;
+
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long MICROS_PER_MILLI = 1000L;
+
+    private final LatencyHistogram histogram = LatencyHistogram.create();
+    private final AtomicLong messagesWithoutSendTime = new AtomicLong();
+
+    @Override
+    public void onMessage(final Message message) {
+        final long latency = getLatencyInMicroSeconds(message, System.nanoTime(), System.currentTimeMillis());
+        if (latency == UNKNOWN) {
+            messagesWithoutSendTime.incrementAndGet();
+        } else {
+            histogram.recordValue(latency);
+        }
+    }
+
+    /**
+     * @return the latency or {@link #UNKNOWN} if the message has no send time
+     */
+    public static long getLatencyInMicroSeconds(final Message message, final long receiveNanos, final long receiveMillis) {
+        try {
+            if (message.propertyExists(Sender.SEND_NANO_TIME) && Constants.JVM_ID.equals(message.getStringProperty(Sender.SENDER_JVM_ID))) {
+                return (receiveNanos - message.getLongProperty(Sender.SEND_NANO_TIME)) / NANOS_PER_MICRO;
+            }
+            if (message.propertyExists(Sender.SEND_MILLIS)) {
+                return (receiveMillis - message.getLongProperty(Sender.SEND_MILLIS)) * MICROS_PER_MILLI;
+            }
+            // set by the provider, usually before the send call returns
+            final long timestamp = message.getJMSTimestamp();
+            return timestamp > 0 ? (receiveMillis - timestamp) * MICROS_PER_MILLI : UNKNOWN;
+        } catch (JMSException e) {
+            throw new JmsException("could not read the send time of message", e);
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    public long getMessagesWithoutSendTime() {
+        return messagesWithoutSendTime.get();
+    }
+
+}
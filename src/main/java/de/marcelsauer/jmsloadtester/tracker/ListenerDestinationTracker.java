@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.ListenerAssignment;
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * counts the messages the listeners received from each destination of the {@link ListenerAssignment} and records the
+ * end to end latency per destination in microseconds. unlike the {@link DestinationTracker} the destination is the one
+ * the listener subscribed to, so no message property is needed. a destination is complete when all its listeners
+ * together received the messages they wait for, the time is taken from the first listener that was assigned.
+ */
+public class ListenerDestinationTracker {
+
+    private static final long NOT_COMPLETED = -1;
+
+    private final ListenerAssignment assignment;
+    private final long[] expected;
+    private final AtomicLongArray received;
+    private final AtomicLongArray completedNanos;
+    private final AtomicReferenceArray<LatencyHistogram> latencies;
+    private volatile long startNanos;
+
+    public ListenerDestinationTracker(final Config config) {
+        this(new ListenerAssignment(config.getListenToDestination(), config.getListenerAssignment(), config.getSubscribersToStart()), config
+                .getEachSubscriberWaitFor());
+    }
+
+    public ListenerDestinationTracker(final ListenerAssignment assignment, final int eachListenerWaitFor) {
+        this.assignment = assignment;
+        final int size = assignment.getDestinationCount();
+        this.expected = new long[size];
+        this.received = new AtomicLongArray(size);
+        this.completedNanos = new AtomicLongArray(size);
+        this.latencies = new AtomicReferenceArray<LatencyHistogram>(size);
+        for (int i = 0; i < size; i++) {
+            expected[i] = (long) assignment.getListenerCount(i) * eachListenerWaitFor;
+            completedNanos.set(i, NOT_COMPLETED);
+        }
+    }
+
+    /**
+     * @return true if the listeners subscribe to more than one destination
+     */
+    public boolean isEnabled() {
+        return assignment.getDestinationCount() > 1;
+    }
+
+    public ListenerAssignment getAssignment() {
+        return assignment;
+    }
+
+    /**
+     * @return the notifyable for the listeners of the destination
+     */
+    public MessageNotifyable getNotifyable(final int index) {
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+        return new MessageNotifyable() {
+            public void onMessage(final Message message) {
+                received(index, message);
+            }
+        };
+    }
+
+    public long getReceived(final int index) {
+        return received.get(index);
+    }
+
+    public long getExpected(final int index) {
+        return expected[index];
+    }
+
+    /**
+     * @return the millis from the first assigned listener until the destination was complete, -1 if it is not
+     */
+    public double getCompletedAfterMillis(final int index) {
+        final long completed = completedNanos.get(index);
+        return completed == NOT_COMPLETED ? NOT_COMPLETED : (completed - startNanos) / 1000000d;
+    }
+
+    /**
+     * @return the latency of the destination or null if no message with a send time was received from it
+     */
+    public LatencyHistogram getLatencyHistogram(final int index) {
+        return latencies.get(index);
+    }
+
+    /**
+     * @return the indexes of the incomplete destinations that received less of their expected messages than the
+     *         destinations did on average, the one furthest behind first
+     */
+    public List<Integer> getLagging() {
+        // a snapshot, the counters move on while sorting
+        final double[] progress = new double[expected.length];
+        long allReceived = 0;
+        long allExpected = 0;
+        for (int i = 0; i < expected.length; i++) {
+            final long count = Math.min(received.get(i), expected[i]);
+            progress[i] = expected[i] == 0 ? 1 : (double) count / expected[i];
+            allReceived += count;
+            allExpected += expected[i];
+        }
+        final List<Integer> lagging = new ArrayList<Integer>();
+        if (allExpected == 0) {
+            return lagging;
+        }
+        final double average = (double) allReceived / allExpected;
+        for (int i = 0; i < expected.length; i++) {
+            if (progress[i] < 1 && progress[i] < average) {
+                lagging.add(i);
+            }
+        }
+        Collections.sort(lagging, new Comparator<Integer>() {
+            public int compare(final Integer a, final Integer b) {
+                return Double.compare(progress[a], progress[b]);
+            }
+        });
+        return lagging;
+    }
+
+    private void received(final int index, final Message message) {
+        if (received.incrementAndGet(index) == expected[index]) {
+            completedNanos.set(index, System.nanoTime());
+        }
+        final long latency = LatencyTracker.getLatencyInMicroSeconds(message, System.nanoTime(), System.currentTimeMillis());
+        if (latency != LatencyTracker.UNKNOWN) {
+            LatencyHistogram.getOrCreate(latencies, index).recordValue(latency);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.RateLimitingSenderTrafficCop;
+import de.marcelsauer.jmsloadtester.client.RateProfile;
+import de.marcelsauer.jmsloadtester.client.RateProfileFactory;
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageInterceptor;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.tools.StringUtils;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * owns the traffic cop for rate limited sending and counts sent and received messages as well as the latency per phase
+ * of the rate profile. each message is stamped with the phase it was sent in, so a message received in a later phase
+ * is still accounted to the load that caused it.
+ */
+public class LoadPhaseTracker implements MessageInterceptor, MessageSentAware, MessageNotifyable {
+
+    public static final String PHASE_PROPERTY = "loadPhase";
+
+    private static final double NANOS_PER_SECOND = 1000d * 1000d * 1000d;
+    private static final double MICROS_PER_MILLI = 1000d;
+
+    private final RateProfile rateProfile;
+    private final RateLimitingSenderTrafficCop trafficCop;
+    private final AtomicLongArray messagesSent;
+    private final AtomicLongArray messagesReceived;
+    private final AtomicLongArray latencySum;
+    private final AtomicLongArray latencyCount;
+    private final AtomicLongArray latencyMax;
+    private final AtomicLong lastSentNanos = new AtomicLong();
+
+    public LoadPhaseTracker(final Config config) {
+        this(getRateProfile(config));
+    }
+
+    public LoadPhaseTracker(final RateProfile rateProfile) {
+        this.rateProfile = rateProfile;
+        this.trafficCop = rateProfile == null ? null : new RateLimitingSenderTrafficCop(rateProfile);
+        final int phases = rateProfile == null ? 0 : rateProfile.getPhaseCount();
+        messagesSent = new AtomicLongArray(phases);
+        messagesReceived = new AtomicLongArray(phases);
+        latencySum = new AtomicLongArray(phases);
+        latencyCount = new AtomicLongArray(phases);
+        latencyMax = new AtomicLongArray(phases);
+    }
+
+    private static RateProfile getRateProfile(final Config config) {
+        if (!StringUtils.isEmpty(config.getSenderRateProfile())) {
+            return RateProfileFactory.getRateProfile(config.getSenderRateProfile());
+        }
+        if (config.getSenderRatePerSecond() > 0) {
+            return RateProfileFactory.getConstantRateProfile(config.getSenderRatePerSecond());
+        }
+        return null;
+    }
+
+    /**
+     * @return true if a rate or rate profile is configured
+     */
+    public boolean isEnabled() {
+        return rateProfile != null;
+    }
+
+    /**
+     * @return the traffic cop shared by all senders or null if not enabled
+     */
+    public RateLimitingSenderTrafficCop getTrafficCop() {
+        return trafficCop;
+    }
+
+    @Override
+    public void intercept(final Message message, final ThreadTracker threadTracker, final MessageTracker messageTracker) throws JMSException {
+        message.setIntProperty(PHASE_PROPERTY, getCurrentPhase());
+    }
+
+    @Override
+    public void messageSent(final Message message) {
+        messagesSent.incrementAndGet(getPhase(message));
+        final long elapsed = trafficCop.getElapsedNanos();
+        long last;
+        while ((last = lastSentNanos.get()) < elapsed && !lastSentNanos.compareAndSet(last, elapsed)) {
+            // retry
+        }
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        final int phase = getPhase(message);
+        messagesReceived.incrementAndGet(phase);
+        final long micros = LatencyTracker.getLatencyInMicroSeconds(message, System.nanoTime(), System.currentTimeMillis());
+        if (micros != LatencyTracker.UNKNOWN) {
+            final long latency = Math.max(0, micros);
+            latencySum.addAndGet(phase, latency);
+            latencyCount.incrementAndGet(phase);
+            long max;
+            while ((max = latencyMax.get(phase)) < latency && !latencyMax.compareAndSet(phase, max, latency)) {
+                // retry
+            }
+        }
+    }
+
+    public int getCurrentPhase() {
+        return rateProfile.getPhase(trafficCop.getElapsedNanos());
+    }
+
+    public int getPhaseCount() {
+        return rateProfile == null ? 0 : rateProfile.getPhaseCount();
+    }
+
+    public String getPhaseDescription(final int phase) {
+        return rateProfile.getPhaseDescription(phase);
+    }
+
+    public long getMessagesSent(final int phase) {
+        return messagesSent.get(phase);
+    }
+
+    public long getMessagesReceived(final int phase) {
+        return messagesReceived.get(phase);
+    }
+
+    /**
+     * @return the seconds messages were sent in the phase, only the part of the phase until the last send counts
+     */
+    public double getPhaseDurationInSeconds(final int phase) {
+        final long end = Math.min(rateProfile.getPhaseEndNanos(phase), lastSentNanos.get());
+        return Math.max(0, end - rateProfile.getPhaseStartNanos(phase)) / NANOS_PER_SECOND;
+    }
+
+    public double getSentMessagesPerSecond(final int phase) {
+        return perSecond(getMessagesSent(phase), getPhaseDurationInSeconds(phase));
+    }
+
+    public double getReceivedMessagesPerSecond(final int phase) {
+        return perSecond(getMessagesReceived(phase), getPhaseDurationInSeconds(phase));
+    }
+
+    public double getAverageLatencyInMilliSeconds(final int phase) {
+        final long count = latencyCount.get(phase);
+        return count == 0 ? 0 : latencySum.get(phase) / MICROS_PER_MILLI / count;
+    }
+
+    public double getMaxLatencyInMilliSeconds(final int phase) {
+        return latencyMax.get(phase) / MICROS_PER_MILLI;
+    }
+
+    private double perSecond(final long messages, final double seconds) {
+        return seconds <= 0 ? 0 : messages / seconds;
+    }
+
+    private int getPhase(final Message message) {
+        try {
+            if (message.propertyExists(PHASE_PROPERTY)) {
+                final int phase = message.getIntProperty(PHASE_PROPERTY);
+                if (phase >= 0 && phase < rateProfile.getPhaseCount()) {
+                    return phase;
+                }
+            }
+        } catch (JMSException e) {
+            throw new JmsException("could not read the load phase of message", e);
+        }
+        // sent by someone else, account it to the phase we are in
+        return getCurrentPhase();
+    }
+
+}
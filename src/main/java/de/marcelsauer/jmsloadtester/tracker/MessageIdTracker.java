@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+/**
+ * counts the unique JMSMessageIDs of sent or received messages, called concurrently by all threads
+ */
+public interface MessageIdTracker {
+
+    void add(String messageId);
+
+    long getUniqueCount();
+
+    /**
+     * @return false if the unique count is an estimate
+     */
+    boolean isExact();
+
+    /**
+     * @return false if message ids are not tracked at all
+     */
+    boolean isEnabled();
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+public class MessageIdTrackerFactory {
+
+    public static final String EXACT = "EXACT";
+    public static final String FINGERPRINT = "FINGERPRINT";
+    public static final String HLL = "HLL";
+    public static final String NONE = "NONE";
+
+    // fixed memory, ~0.8% standard error
+    public static final String DEFAULT = HLL + "#16384";
+
+    public static MessageIdTracker getMessageIdTracker(final String type) {
+        MessageIdTracker tracker = null;
+        if (EXACT.equals(type)) {
+            tracker = new ExactMessageIdTracker();
+        } else if (FINGERPRINT.equals(type)) {
+            tracker = new FingerprintMessageIdTracker();
+        } else if (NONE.equals(type)) {
+            tracker = new NoMessageIdTracker();
+        } else if (type != null && type.startsWith(HLL)) {
+            tracker = new HyperLogLogMessageIdTracker(getBytes(type));
+        } else {
+            throw new IllegalArgumentException("the message id strategy does not exist, was: " + type);
+        }
+        return tracker;
+    }
+
+    /**
+     * checks the strategy without creating a tracker
+     *
+     * @throws IllegalArgumentException if the strategy does not exist
+     */
+    public static void validate(final String type) {
+        if (type != null && type.startsWith(HLL)) {
+            getBytes(type);
+        } else if (!EXACT.equals(type) && !FINGERPRINT.equals(type) && !NONE.equals(type)) {
+            throw new IllegalArgumentException("the message id strategy does not exist, was: " + type);
+        }
+    }
+
+    private static int getBytes(final String type) {
+        try {
+            return Integer.valueOf(type.replaceAll(HLL + "#", "").trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("the message id strategy needs the bytes to use, e.g. " + DEFAULT + ", was: " + type, e);
+        }
+    }
+}
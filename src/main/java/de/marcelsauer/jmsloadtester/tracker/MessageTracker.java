@@ -18,8 +18,6 @@ package de.marcelsauer.jmsloadtester.tracker;
 import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
 import de.marcelsauer.jmsloadtester.message.MessageSentAware;
 
-import java.util.Set;
-
 public interface MessageTracker extends MessageNotifyable, MessageSentAware {
 
     void setTotalMessagesToBeSent(int totalMessagesToBeSent);
@@ -34,11 +32,35 @@ public interface MessageTracker extends MessageNotifyable, MessageSentAware {
 
     int getTotalMessagesSent();
 
+    /**
+     * a send failed after it was handed to the provider, e.g. an asynchronous send. it counts towards all messages sent
+     * and the messages to be received are lowered by the share of the failed message
+     */
+    void messageSendFailed();
+
+    int getSendErrors();
+
+    /**
+     * @return the messages to be received, lowered for each failed send
+     */
+    int getTotalMessagesToBeReceived();
+
     boolean isAllReceived();
 
     boolean isAllSent();
 
-    Set<String> getMessagesReceived();
+    /**
+     * waits until all messages are sent and received
+     *
+     * @return false if not everything was sent and received within the given time
+     */
+    boolean awaitAll(long millis) throws InterruptedException;
+
+    void setReceivedMessageIdTracker(MessageIdTracker receivedMessageIdTracker);
+
+    void setSentMessageIdTracker(MessageIdTracker sentMessageIdTracker);
+
+    MessageIdTracker getReceivedMessageIdTracker();
 
-    Set<String> getMessagesSent();
+    MessageIdTracker getSentMessageIdTracker();
 }
@@ -20,146 +20,185 @@ import de.marcelsauer.jmsloadtester.tools.Logger;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * called by all sender and listener threads, so counting a message takes no lock. only changing the totals does, e.g.
+ * when a send fails, which is rare. whatever completes a counter, the last message or a lower total, stops its timer.
+ */
 public class MessageTrackerImpl implements MessageTracker {
 
-    private int totalMessagesReceived;
-    private int totalMessagesSent;
+    private final CompletionCounter messagesReceivedCounter = new CompletionCounter();
+    private final CompletionCounter messagesSentCounter = new CompletionCounter();
 
-    private boolean firstMessageSent;
-    private boolean firstMessageReceived;
+    private final AtomicBoolean firstMessageSent = new AtomicBoolean();
+    private final AtomicBoolean firstMessageReceived = new AtomicBoolean();
 
-    private int totalMessagesToBeSent;
-    private int totalMessagesToBeReceived;
+    // the totals as configured, the counters expect them minus the failed sends
+    private long totalMessagesToBeSent;
+    private long totalMessagesToBeReceived;
+    private volatile int sendErrors;
 
-    private TimeTracker senderTimeTracker;
-    private TimeTracker listenerTimeTracker;
+    private volatile TimeTracker senderTimeTracker;
+    private volatile TimeTracker listenerTimeTracker;
 
-    private Set<String> messagesReceived = new HashSet<String>();
-    private Set<String> messagesSent = new HashSet<String>();
+    private volatile MessageIdTracker receivedMessageIdTracker = MessageIdTrackerFactory.getMessageIdTracker(MessageIdTrackerFactory.DEFAULT);
+    private volatile MessageIdTracker sentMessageIdTracker = MessageIdTrackerFactory.getMessageIdTracker(MessageIdTrackerFactory.DEFAULT);
 
     @Override
-    public synchronized void onMessage(final Message message) {
-        totalMessagesReceived++;
+    public void onMessage(final Message message) {
+        // start before counting, otherwise a single message could stop the timer before it was started
+        if (!firstMessageReceived.get() && firstMessageReceived.compareAndSet(false, true)) {
+            listenerTimeTracker.start();
+        }
         try {
-            messagesReceived.add(message.getJMSMessageID());
+            addMessageId(receivedMessageIdTracker, message);
         } catch (JMSException e) {
             throw new JmsException(e);
         } finally {
-            handleListenerTimers();
+            if (messagesReceivedCounter.increment()) {
+                listenerTimeTracker.stop();
+            }
             printReceivedStats();
         }
     }
 
     @Override
-    public synchronized int getTotalMessagesReceived() {
-        return totalMessagesReceived;
+    public int getTotalMessagesReceived() {
+        return (int) messagesReceivedCounter.getCount();
     }
 
     @Override
-    public synchronized Set<String> getMessagesReceived() {
-        return messagesReceived;
+    public MessageIdTracker getReceivedMessageIdTracker() {
+        return receivedMessageIdTracker;
     }
 
     @Override
-    public synchronized Set<String> getMessagesSent() {
-        return messagesSent;
+    public MessageIdTracker getSentMessageIdTracker() {
+        return sentMessageIdTracker;
     }
 
     @Override
-    public synchronized int getTotalMessagesSent() {
-        return totalMessagesSent;
+    public void setReceivedMessageIdTracker(final MessageIdTracker receivedMessageIdTracker) {
+        this.receivedMessageIdTracker = receivedMessageIdTracker;
     }
 
     @Override
-    public synchronized void messageSent(final Message message) {
-        totalMessagesSent++;
+    public void setSentMessageIdTracker(final MessageIdTracker sentMessageIdTracker) {
+        this.sentMessageIdTracker = sentMessageIdTracker;
+    }
+
+    @Override
+    public int getTotalMessagesSent() {
+        return (int) messagesSentCounter.getCount();
+    }
+
+    @Override
+    public void messageSent(final Message message) {
+        if (!firstMessageSent.get() && firstMessageSent.compareAndSet(false, true)) {
+            senderTimeTracker.start();
+        }
         try {
-            messagesSent.add(message.getJMSMessageID());
+            addMessageId(sentMessageIdTracker, message);
         } catch (JMSException e) {
             throw new JmsException(e);
         } finally {
-            handleSenderTimers();
+            if (messagesSentCounter.increment()) {
+                senderTimeTracker.stop();
+            }
             printSentStats();
         }
     }
 
     @Override
-    public synchronized void setTotalMessagesToBeSent(int totalMessagesToBeSent) {
-        this.totalMessagesToBeSent = totalMessagesToBeSent;
+    public synchronized void messageSendFailed() {
+        sendErrors++;
+        // a timer that never started has nothing to stop
+        if (messagesSentCounter.setTotal(totalMessagesToBeSent - sendErrors) && firstMessageSent.get()) {
+            senderTimeTracker.stop();
+        }
+        if (messagesReceivedCounter.setTotal(getExpectedReceived()) && firstMessageReceived.get()) {
+            listenerTimeTracker.stop();
+        }
     }
 
     @Override
-    public synchronized void setTotalMessagesToBeReceived(int totalMessagesToBeReceived) {
-        this.totalMessagesToBeReceived = totalMessagesToBeReceived;
+    public int getSendErrors() {
+        return sendErrors;
     }
 
     @Override
-    public synchronized void setSenderTimeTracker(final TimeTracker senderTimeTracker) {
-        this.senderTimeTracker = senderTimeTracker;
+    public synchronized int getTotalMessagesToBeReceived() {
+        return (int) getExpectedReceived();
     }
 
     @Override
-    public synchronized void setListenerTimeTracker(final TimeTracker listenerTimeTracker) {
-        this.listenerTimeTracker = listenerTimeTracker;
+    public synchronized void setTotalMessagesToBeSent(int totalMessagesToBeSent) {
+        this.totalMessagesToBeSent = totalMessagesToBeSent;
+        messagesSentCounter.setTotal(totalMessagesToBeSent - sendErrors);
     }
 
     @Override
-    public synchronized boolean isAllReceived() {
-        return getTotalMessagesReceived() >= getTotalMessagesToBeReceived();
+    public synchronized void setTotalMessagesToBeReceived(int totalMessagesToBeReceived) {
+        this.totalMessagesToBeReceived = totalMessagesToBeReceived;
+        messagesReceivedCounter.setTotal(getExpectedReceived());
     }
 
-    @Override
-    public synchronized boolean isAllSent() {
-        return getTotalMessagesSent() >= getTotalMessagesToBeSent();
+    // a topic delivers a message to each listener, a queue to one of them
+    private long getExpectedReceived() {
+        if (sendErrors == 0 || totalMessagesToBeSent <= 0) {
+            return totalMessagesToBeReceived;
+        }
+        final double receivedPerSent = (double) totalMessagesToBeReceived / totalMessagesToBeSent;
+        return Math.max(0, totalMessagesToBeReceived - Math.round(sendErrors * receivedPerSent));
+    }
 
+    @Override
+    public void setSenderTimeTracker(final TimeTracker senderTimeTracker) {
+        this.senderTimeTracker = senderTimeTracker;
     }
 
-    private synchronized void printReceivedStats() {
-        StringBuffer sb = new StringBuffer();
-        sb.append("MessageTracker was informed of incoming message, ");
-        sb.append("total messages received so far " + getTotalMessagesReceived());
-        Logger.debug(sb.toString());
+    @Override
+    public void setListenerTimeTracker(final TimeTracker listenerTimeTracker) {
+        this.listenerTimeTracker = listenerTimeTracker;
     }
 
-    private synchronized void printSentStats() {
-        StringBuffer sb = new StringBuffer();
-        sb.append("MessageTracker was informed of sent message, ");
-        sb.append("total messages sent so far " + getTotalMessagesSent());
-        Logger.debug(sb.toString());
+    @Override
+    public boolean isAllReceived() {
+        return messagesReceivedCounter.isDone();
     }
 
-    private synchronized int getTotalMessagesToBeSent() {
-        return totalMessagesToBeSent;
+    @Override
+    public boolean isAllSent() {
+        return messagesSentCounter.isDone();
     }
 
-    private synchronized int getTotalMessagesToBeReceived() {
-        return totalMessagesToBeReceived;
+    @Override
+    public boolean awaitAll(final long millis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + millis;
+        return messagesSentCounter.await(millis) && messagesReceivedCounter.await(Math.max(0, deadline - System.currentTimeMillis()));
     }
 
-    private synchronized void handleSenderTimers() {
-        // activate the timer
-        if (!firstMessageSent) {
-            senderTimeTracker.start();
-            firstMessageSent = true;
+    private void addMessageId(final MessageIdTracker ids, final Message message) throws JMSException {
+        if (!ids.isEnabled()) {
+            return;
         }
-
-        if (isAllSent()) {
-            senderTimeTracker.stop();
+        final String id = message.getJMSMessageID();
+        // null if the producer disabled message ids
+        if (id != null) {
+            ids.add(id);
         }
     }
 
-    private synchronized void handleListenerTimers() {
-        // activate the timer
-        if (!firstMessageReceived) {
-            listenerTimeTracker.start();
-            firstMessageReceived = true;
+    private void printReceivedStats() {
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("MessageTracker was informed of incoming message, total messages received so far " + getTotalMessagesReceived());
         }
+    }
 
-        if (isAllReceived()) {
-            listenerTimeTracker.stop();
+    private void printSentStats() {
+        if (Logger.isDebugEnabled()) {
+            Logger.debug("MessageTracker was informed of sent message, total messages sent so far " + getTotalMessagesSent());
         }
     }
 
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+import de.marcelsauer.jmsloadtester.tools.StringUtils;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * matches replies to the requests of this jvm by their JMSCorrelationID and records the round trip in microseconds.
+ * the requests in flight are kept in a lock free table indexed by the request number, so a request is only evicted
+ * when more than {@link #TABLE_SIZE} requests are in flight. evicted requests, late replies and replies to requests
+ * of other jvms are counted as unmatched.
+ */
+public class ReplyTracker implements MessageNotifyable {
+
+    // reply to a temporary queue of each sender thread
+    public static final String TEMPORARY = "TEMPORARY";
+    public static final int TABLE_SIZE = 1 << 16;
+
+    private static final int MASK = TABLE_SIZE - 1;
+    private static final String CORRELATION_PREFIX = Constants.JVM_ID + "-";
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long POLL_MILLIS = 10;
+
+    private final String replyTo;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicReferenceArray<Request> inFlight = new AtomicReferenceArray<Request>(TABLE_SIZE);
+    private final LatencyHistogram roundTrip = LatencyHistogram.create();
+    private final LatencyHistogram serviceTime = LatencyHistogram.create();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong repliesSent = new AtomicLong();
+    private final AtomicLong replyFailures = new AtomicLong();
+    private final List<MessageNotifyable> replyNotifyables = new CopyOnWriteArrayList<MessageNotifyable>();
+
+    public ReplyTracker(final Config config) {
+        this(config.getSenderReplyTo());
+    }
+
+    /**
+     * @param replyTo {@link #TEMPORARY}, the name of a destination or null to send without JMSReplyTo
+     */
+    public ReplyTracker(final String replyTo) {
+        this.replyTo = StringUtils.isEmpty(replyTo) ? null : replyTo.trim();
+    }
+
+    public boolean isEnabled() {
+        return replyTo != null;
+    }
+
+    public String getReplyTo() {
+        return replyTo;
+    }
+
+    public long nextRequest() {
+        return requests.getAndIncrement();
+    }
+
+    public String getCorrelationId(final long request) {
+        return CORRELATION_PREFIX + request;
+    }
+
+    /**
+     * starts the round trip, called right before the request is sent
+     */
+    public void requestSent(final long request) {
+        outstanding.incrementAndGet();
+        final Request previous = inFlight.getAndSet((int) (request & MASK), new Request(request, System.nanoTime()));
+        if (previous != null) {
+            evicted.incrementAndGet();
+            outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * ends the round trip of a request that could not be sent, so no reply is waited for
+     */
+    public void requestFailed(final long request) {
+        final int slot = (int) (request & MASK);
+        final Request current = inFlight.get(slot);
+        if (current != null && current.request == request && inFlight.compareAndSet(slot, current, null)) {
+            outstanding.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void onMessage(final Message reply) {
+        final long now = System.nanoTime();
+        final long request = getRequest(reply);
+        final int slot = (int) (request & MASK);
+        final Request current = request < 0 ? null : inFlight.get(slot);
+        if (current == null || current.request != request || !inFlight.compareAndSet(slot, current, null)) {
+            unmatched.incrementAndGet();
+            return;
+        }
+        outstanding.decrementAndGet();
+        roundTrip.recordValue((now - current.sentNanos) / NANOS_PER_MICRO);
+        for (MessageNotifyable notifyable : replyNotifyables) {
+            notifyable.onMessage(reply);
+        }
+    }
+
+    /**
+     * waits until every request got its reply or no reply arrived for the given time
+     *
+     * @return false if requests are still waiting for their reply
+     */
+    public boolean awaitReplies(final long idleMillis) throws InterruptedException {
+        long lastMatched = getMatched();
+        long idleSince = System.currentTimeMillis();
+        while (outstanding.get() > 0) {
+            Thread.sleep(POLL_MILLIS);
+            final long matched = getMatched();
+            if (matched != lastMatched) {
+                lastMatched = matched;
+                idleSince = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - idleSince >= idleMillis) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param serviceNanos the time from receiving the request until its reply was sent
+     */
+    public void replySent(final long serviceNanos) {
+        serviceTime.recordValue(serviceNanos / NANOS_PER_MICRO);
+        repliesSent.incrementAndGet();
+    }
+
+    /**
+     * a listener could not reply to a request
+     */
+    public void replyFailed() {
+        replyFailures.incrementAndGet();
+    }
+
+    /**
+     * @param notifyable called for every reply that matched a request
+     */
+    public void addReplyNotifyable(final MessageNotifyable notifyable) {
+        replyNotifyables.add(notifyable);
+    }
+
+    public LatencyHistogram getRoundTripHistogram() {
+        return roundTrip;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getMatched() {
+        return roundTrip.getTotalCount();
+    }
+
+    public long getUnmatched() {
+        return unmatched.get();
+    }
+
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    public long getOutstanding() {
+        return outstanding.get();
+    }
+
+    public long getRepliesSent() {
+        return repliesSent.get();
+    }
+
+    public long getReplyFailures() {
+        return replyFailures.get();
+    }
+
+    /**
+     * @return the service time of the replies sent by the listeners of this jvm in microseconds
+     */
+    public LatencyHistogram getServiceTimeHistogram() {
+        return serviceTime;
+    }
+
+    // -1 if the reply does not answer a request of this jvm
+    private static long getRequest(final Message reply) {
+        final String correlationId;
+        try {
+            correlationId = reply.getJMSCorrelationID();
+        } catch (JMSException e) {
+            throw new JmsException("could not read the correlation id of reply", e);
+        }
+        if (correlationId == null || !correlationId.startsWith(CORRELATION_PREFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(correlationId.substring(CORRELATION_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Request {
+
+        private final long request;
+        private final long sentNanos;
+
+        Request(final long request, final long sentNanos) {
+            this.request = request;
+            this.sentNanos = sentNanos;
+        }
+    }
+}
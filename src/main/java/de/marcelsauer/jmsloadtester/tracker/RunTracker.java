@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+
+import javax.jms.Message;
+
+/**
+ * the clock of a run. a time bound run sends until its duration is over instead of sending a number of messages, the
+ * listeners then receive what is still on its way until they were idle for a while. the idle timeout also ends a run
+ * that waits for a number of messages, so a lost message does not let it hang forever.
+ */
+public class RunTracker implements MessageNotifyable {
+
+    // how long the listeners must be idle after a time bound run if no idle timeout is set
+    public static final long DEFAULT_DRAIN_IDLE_MILLIS = 2000;
+
+    private static final long NANOS_PER_MILLI = 1000L * 1000L;
+    // all listener threads write the time of the last message, so it is written once a milli second at most
+    private static final long RECEIVE_RESOLUTION_NANOS = NANOS_PER_MILLI;
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final long durationMillis;
+    private final long idleTimeoutMillis;
+    private volatile long startNanos = NOT_STARTED;
+    private volatile long lastReceivedNanos = NOT_STARTED;
+    private volatile boolean stopped;
+    private volatile boolean ended;
+
+    public RunTracker(final Config config) {
+        this(config.getRunDurationSeconds() * Constants.MILLIS_FACTOR, config.getListenerIdleTimeoutSeconds() * Constants.MILLIS_FACTOR);
+    }
+
+    /**
+     * @param durationMillis how long to send, 0 to send a number of messages
+     * @param idleTimeoutMillis how long the listeners may receive nothing before the run ends, 0 to wait forever
+     */
+    public RunTracker(final long durationMillis, final long idleTimeoutMillis) {
+        validate(durationMillis, idleTimeoutMillis);
+        this.durationMillis = durationMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the duration or the idle timeout are negative
+     */
+    public static void validate(final long durationMillis, final long idleTimeoutMillis) {
+        if (durationMillis < 0 || idleTimeoutMillis < 0) {
+            throw new IllegalArgumentException("the run duration and the idle timeout must not be negative, were: " + durationMillis + " and " + idleTimeoutMillis);
+        }
+    }
+
+    public boolean isTimeBound() {
+        return durationMillis > 0;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    /**
+     * starts the clock, the duration and the idle time count from here
+     */
+    public synchronized void start() {
+        if (startNanos == NOT_STARTED) {
+            startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * tells the senders of a time bound run to stop
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * tells the listeners to stop receiving. the run is over, however it ended, while a stopped time bound run still
+     * receives what is on its way
+     */
+    public void end() {
+        ended = true;
+    }
+
+    public boolean isEnded() {
+        return ended;
+    }
+
+    public long getElapsedMillis() {
+        final long start = startNanos;
+        return start == NOT_STARTED ? 0 : (System.nanoTime() - start) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the millis until the duration is over, 0 if it is over or the run is not time bound
+     */
+    public long getRemainingMillis() {
+        return isTimeBound() ? Math.max(0, durationMillis - getElapsedMillis()) : 0;
+    }
+
+    /**
+     * waits until the duration is over
+     *
+     * @return false if the duration was not over within the given time
+     */
+    public boolean awaitEnd(final long millis) throws InterruptedException {
+        final long remaining = getRemainingMillis();
+        if (remaining > 0) {
+            Thread.sleep(Math.min(remaining, millis));
+        }
+        return getRemainingMillis() == 0;
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        final long now = System.nanoTime();
+        final long last = lastReceivedNanos;
+        if (last == NOT_STARTED || now - last >= RECEIVE_RESOLUTION_NANOS) {
+            lastReceivedNanos = now;
+        }
+    }
+
+    /**
+     * @return the millis since the last received message or since the start if none was received
+     */
+    public long getIdleMillis() {
+        final long last = Math.max(lastReceivedNanos, startNanos);
+        return last == NOT_STARTED ? 0 : (System.nanoTime() - last) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return true if the idle timeout is set and the listeners received nothing for that long
+     */
+    public boolean isIdle() {
+        return idleTimeoutMillis > 0 && getIdleMillis() >= idleTimeoutMillis;
+    }
+
+    /**
+     * waits until the listeners received nothing for the given time
+     *
+     * @return false if they were not idle for that long within the given time
+     */
+    public boolean awaitIdle(final long idleMillis, final long millis) throws InterruptedException {
+        final long remaining = idleMillis - getIdleMillis();
+        if (remaining > 0) {
+            Thread.sleep(Math.min(remaining, millis));
+        }
+        return getIdleMillis() >= idleMillis;
+    }
+
+    @Override
+    public String toString() {
+        return (isTimeBound() ? "sending for " + durationMillis / Constants.MILLIS_FACTOR + " seconds" : "sending a number of messages")
+                + (idleTimeoutMillis > 0 ? ", idle timeout " + idleTimeoutMillis / Constants.MILLIS_FACTOR + " seconds" : "");
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * compares the listeners with a message selector to the plain ones. counts the messages sent to each
+ * {@link SelectorGroups} group and records the throughput and the end to end latency in microseconds of both kinds of
+ * listeners. the throughput of a kind is taken from its first to its last received message, so listeners that
+ * start or end at different times do not blur it.
+ */
+public class SelectorTracker implements MessageSentAware {
+
+    private final SelectorGroups groups;
+    private final String selector;
+    private final AtomicLongArray sent;
+    private final AtomicLong sentWithoutGroup = new AtomicLong();
+    private final Listeners selecting = new Listeners();
+    private final Listeners plain = new Listeners();
+
+    public SelectorTracker(final Config config) {
+        this(SelectorGroups.getSelectorGroups(config.getSenderSelectorGroups()), config.getListenerSelector());
+    }
+
+    /**
+     * @param groups the groups of the senders, may be null
+     * @param selector the selector template of the listeners, null for none
+     */
+    public SelectorTracker(final SelectorGroups groups, final String selector) {
+        this.groups = groups;
+        this.selector = selector;
+        this.sent = new AtomicLongArray(groups == null ? 0 : groups.getGroupCount());
+    }
+
+    /**
+     * @return true if the senders stamp groups or the listeners select
+     */
+    public boolean isEnabled() {
+        return groups != null || selector != null;
+    }
+
+    public SelectorGroups getGroups() {
+        return groups;
+    }
+
+    public String getSelector() {
+        return selector;
+    }
+
+    @Override
+    public void messageSent(final Message message) {
+        try {
+            final int group = message.propertyExists(Sender.SELECTOR_GROUP) ? message.getIntProperty(Sender.SELECTOR_GROUP) : -1;
+            if (group < 0 || group >= sent.length()) {
+                sentWithoutGroup.incrementAndGet();
+            } else {
+                sent.incrementAndGet(group);
+            }
+        } catch (JMSException e) {
+            throw new JmsException("could not read the selector group of message", e);
+        }
+    }
+
+    public long getSent(final int group) {
+        return sent.get(group);
+    }
+
+    public long getSentWithoutGroup() {
+        return sentWithoutGroup.get();
+    }
+
+    /**
+     * @param selecting true for a listener with a message selector
+     * @return the notifyable for the listener
+     */
+    public Listeners addListener(final boolean selecting) {
+        final Listeners listeners = getListeners(selecting);
+        listeners.listenerAdded();
+        return listeners;
+    }
+
+    /**
+     * @param selecting true for the listeners with a message selector
+     */
+    public Listeners getListeners(final boolean selecting) {
+        return selecting ? this.selecting : plain;
+    }
+
+    /**
+     * the listeners of one kind
+     */
+    public static final class Listeners implements MessageNotifyable {
+
+        private static final long NONE = Long.MIN_VALUE;
+        private static final double NANOS_PER_SECOND = 1000d * 1000d * 1000d;
+
+        private final LatencyHistogram latency = LatencyHistogram.create();
+        private final AtomicLong received = new AtomicLong();
+        private final AtomicLong firstNanos = new AtomicLong(NONE);
+        private volatile long lastNanos = NONE;
+        private volatile int count;
+
+        @Override
+        public void onMessage(final Message message) {
+            final long now = System.nanoTime();
+            if (firstNanos.get() == NONE) {
+                firstNanos.compareAndSet(NONE, now);
+            }
+            lastNanos = now;
+            received.incrementAndGet();
+            final long micros = LatencyTracker.getLatencyInMicroSeconds(message, now, System.currentTimeMillis());
+            if (micros != LatencyTracker.UNKNOWN) {
+                latency.recordValue(micros);
+            }
+        }
+
+        synchronized void listenerAdded() {
+            count++;
+        }
+
+        public int getListenerCount() {
+            return count;
+        }
+
+        public long getReceived() {
+            return received.get();
+        }
+
+        /**
+         * @return the messages per second from the first to the last received message, 0 before the second one
+         */
+        public double getMessagesPerSecond() {
+            final long first = firstNanos.get();
+            final long last = lastNanos;
+            return first == NONE || last <= first ? 0 : (received.get() - 1) * NANOS_PER_SECOND / (last - first);
+        }
+
+        public LatencyHistogram getLatencyHistogram() {
+            return latency;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * the sequence numbers received from one sender thread, starting with 1. all numbers up to the base were seen, above
+ * the base only the ranges of seen numbers are kept, so memory grows with the number of gaps and not with the number
+ * of messages.
+ */
+class SequenceStream {
+
+    private long base;
+    private long highest;
+    // start -> end (inclusive) of the seen numbers above base + 1
+    private final TreeMap<Long, Long> ranges = new TreeMap<Long, Long>();
+    private long seenAboveBase;
+
+    private long duplicates;
+    private long outOfOrder;
+    private long redelivered;
+
+    public synchronized void add(final long sequence, final boolean isRedelivered) {
+        final boolean seen = contains(sequence);
+        if (isRedelivered) {
+            // the broker told us, so it is no duplicate
+            redelivered++;
+            if (seen) {
+                return;
+            }
+        } else if (seen) {
+            duplicates++;
+            return;
+        }
+        if (sequence < highest) {
+            outOfOrder++;
+        } else {
+            highest = sequence;
+        }
+        insert(sequence);
+    }
+
+    /**
+     * @return the numbers below the highest one received that never arrived
+     */
+    public synchronized long getLost() {
+        return highest - base - seenAboveBase;
+    }
+
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    public synchronized long getOutOfOrder() {
+        return outOfOrder;
+    }
+
+    public synchronized long getRedelivered() {
+        return redelivered;
+    }
+
+    /**
+     * @return the number of missing ranges, each range of seen numbers above the base has one in front of it
+     */
+    public synchronized int getGaps() {
+        return ranges.size();
+    }
+
+    private boolean contains(final long sequence) {
+        if (sequence <= base) {
+            return true;
+        }
+        final Map.Entry<Long, Long> range = ranges.floorEntry(sequence);
+        return range != null && range.getValue() >= sequence;
+    }
+
+    private void insert(final long sequence) {
+        if (sequence == base + 1) {
+            base = sequence;
+            // the gap to the first range may be closed now
+            final Map.Entry<Long, Long> first = ranges.firstEntry();
+            if (first != null && first.getKey() == base + 1) {
+                ranges.remove(first.getKey());
+                seenAboveBase -= first.getValue() - first.getKey() + 1;
+                base = first.getValue();
+            }
+            return;
+        }
+        long start = sequence;
+        long end = sequence;
+        final Map.Entry<Long, Long> lower = ranges.lowerEntry(sequence);
+        if (lower != null && lower.getValue() == sequence - 1) {
+            start = lower.getKey();
+        }
+        final Long higherEnd = ranges.remove(sequence + 1);
+        if (higherEnd != null) {
+            end = higherEnd;
+        }
+        ranges.put(start, end);
+        seenAboveBase++;
+    }
+}
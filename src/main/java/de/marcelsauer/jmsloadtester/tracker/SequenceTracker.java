@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * detects lost, duplicate, out of order and redelivered messages with the sequence number each sender thread stamps on
+ * its messages. a stream is one sender thread in one jvm. with SHARED all listeners see the same streams, which fits
+ * a queue where each message is received once. with PER_LISTENER each listener tracks its own streams, which fits a
+ * topic where each listener receives every message; the counts are summed up over all listeners.
+ */
+public class SequenceTracker {
+
+    public static final String SHARED = "SHARED";
+    public static final String PER_LISTENER = "PER_LISTENER";
+    public static final String OFF = "OFF";
+
+    private final String scope;
+    private final List<Streams> listenerStreams = new CopyOnWriteArrayList<Streams>();
+    private final Streams sharedStreams = new Streams();
+
+    public SequenceTracker(final Config config) {
+        this(config.getSequenceTrackingScope());
+    }
+
+    public SequenceTracker(final String scope) {
+        if (!SHARED.equals(scope) && !PER_LISTENER.equals(scope) && !OFF.equals(scope)) {
+            throw new IllegalArgumentException("the sequence tracking scope does not exist, was: " + scope);
+        }
+        this.scope = scope;
+        if (SHARED.equals(scope)) {
+            listenerStreams.add(sharedStreams);
+        }
+    }
+
+    public boolean isEnabled() {
+        return !OFF.equals(scope);
+    }
+
+    /**
+     * @return the notifyable to add to a new listener, null if not enabled
+     */
+    public MessageNotifyable getListenerNotifyable() {
+        if (SHARED.equals(scope)) {
+            return sharedStreams;
+        }
+        if (PER_LISTENER.equals(scope)) {
+            final Streams streams = new Streams();
+            listenerStreams.add(streams);
+            return streams;
+        }
+        return null;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public long getStreamCount() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            count += streams.streams.size();
+        }
+        return count;
+    }
+
+    public long getLost() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            for (SequenceStream stream : streams.streams.values()) {
+                count += stream.getLost();
+            }
+        }
+        return count;
+    }
+
+    public long getGaps() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            for (SequenceStream stream : streams.streams.values()) {
+                count += stream.getGaps();
+            }
+        }
+        return count;
+    }
+
+    public long getDuplicates() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            for (SequenceStream stream : streams.streams.values()) {
+                count += stream.getDuplicates();
+            }
+        }
+        return count;
+    }
+
+    public long getOutOfOrder() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            for (SequenceStream stream : streams.streams.values()) {
+                count += stream.getOutOfOrder();
+            }
+        }
+        return count;
+    }
+
+    public long getRedelivered() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            for (SequenceStream stream : streams.streams.values()) {
+                count += stream.getRedelivered();
+            }
+        }
+        return count;
+    }
+
+    public long getMessagesWithoutSequence() {
+        long count = 0;
+        for (Streams streams : listenerStreams) {
+            count += streams.withoutSequence.get();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "sequence tracking " + scope;
+    }
+
+    private static class Streams implements MessageNotifyable {
+        private final ConcurrentMap<String, SequenceStream> streams = new ConcurrentHashMap<String, SequenceStream>();
+        private final AtomicLong withoutSequence = new AtomicLong();
+
+        @Override
+        public void onMessage(final Message message) {
+            try {
+                if (!message.propertyExists(Sender.THREAD_MESSAGES_SENT) || !message.propertyExists(Sender.THREAD_NAME)) {
+                    withoutSequence.incrementAndGet();
+                    return;
+                }
+                final long sequence = message.getLongProperty(Sender.THREAD_MESSAGES_SENT);
+                if (sequence <= 0) {
+                    withoutSequence.incrementAndGet();
+                    return;
+                }
+                getStream(message.getStringProperty(Sender.SENDER_JVM_ID) + "/" + message.getStringProperty(Sender.THREAD_NAME)).add(sequence, message.getJMSRedelivered());
+            } catch (JMSException e) {
+                throw new JmsException("could not read the sequence of message", e);
+            }
+        }
+
+        private SequenceStream getStream(final String key) {
+            SequenceStream stream = streams.get(key);
+            if (stream == null) {
+                final SequenceStream created = new SequenceStream();
+                stream = streams.putIfAbsent(key, created);
+                if (stream == null) {
+                    stream = created;
+                }
+            }
+            return stream;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+
+import javax.jms.Message;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * collects the backlogs of the listeners that drop their subscription and subscribe again. after a reconnect every
+ * received message that was sent before the reconnect belongs to the backlog, the backlog is drained with the last of
+ * them. the send time comes from the latency of the message, messages without one are not counted. a listener only
+ * receives while it is subscribed, so each {@link Subscriber} has one writer at a time.
+ */
+public class SubscriptionTracker {
+
+    private static final double NANOS_PER_MILLI = 1000d * 1000d;
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<Subscriber>();
+
+    public Subscriber newSubscriber(final String name) {
+        final Subscriber subscriber = new Subscriber(name);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public List<Subscriber> getSubscribers() {
+        return subscribers;
+    }
+
+    public long getReconnects() {
+        long reconnects = 0;
+        for (Subscriber subscriber : subscribers) {
+            reconnects += subscriber.getReconnects();
+        }
+        return reconnects;
+    }
+
+    public long getBacklogMessages() {
+        long backlog = 0;
+        for (Subscriber subscriber : subscribers) {
+            backlog += subscriber.getBacklogMessages();
+        }
+        return backlog;
+    }
+
+    public long getMaxBacklog() {
+        long max = 0;
+        for (Subscriber subscriber : subscribers) {
+            max = Math.max(max, subscriber.getMaxBacklog());
+        }
+        return max;
+    }
+
+    /**
+     * @return the backlog messages per second a subscriber drains on average
+     */
+    public double getDrainRate() {
+        long backlog = 0;
+        double millis = 0;
+        for (Subscriber subscriber : subscribers) {
+            backlog += subscriber.getBacklogMessages();
+            millis += subscriber.getDrainMillis();
+        }
+        return millis == 0 ? 0 : backlog * 1000d / millis;
+    }
+
+    public static final class Subscriber implements MessageNotifyable {
+
+        private static final long SUBSCRIBED = Long.MIN_VALUE;
+
+        private final String name;
+        // the listener thread and the delivering thread take turns: the consumer is closed before disconnected() and
+        // created after reconnected(). volatile for that hand over and for the results
+        private volatile long reconnectNanos = SUBSCRIBED;
+        private volatile long offlineNanos;
+        private volatile long disconnectNanos;
+        private volatile long reconnects;
+        private volatile long backlog;
+        private volatile long maxBacklog;
+        private volatile long drainNanos;
+        private volatile long currentBacklog;
+        private volatile long currentDrainNanos;
+
+        private Subscriber(final String name) {
+            this.name = name;
+        }
+
+        public void disconnected() {
+            finishDrain();
+            disconnectNanos = System.nanoTime();
+        }
+
+        public void reconnected() {
+            final long now = System.nanoTime();
+            offlineNanos += now - disconnectNanos;
+            reconnectNanos = now;
+            reconnects++;
+        }
+
+        @Override
+        public void onMessage(final Message message) {
+            final long reconnected = reconnectNanos;
+            if (reconnected == SUBSCRIBED) {
+                return;
+            }
+            final long now = System.nanoTime();
+            final long latency = LatencyTracker.getLatencyInMicroSeconds(message, now, System.currentTimeMillis());
+            if (latency != LatencyTracker.UNKNOWN && now - latency * NANOS_PER_MICRO < reconnected) {
+                currentBacklog++;
+                currentDrainNanos = now - reconnected;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getReconnects() {
+            return reconnects;
+        }
+
+        /**
+         * @return the backlog messages of all reconnects, the current one included
+         */
+        public long getBacklogMessages() {
+            return backlog + currentBacklog;
+        }
+
+        public long getMaxBacklog() {
+            return Math.max(maxBacklog, currentBacklog);
+        }
+
+        public double getOfflineMillis() {
+            return offlineNanos / NANOS_PER_MILLI;
+        }
+
+        /**
+         * @return the millis from the reconnects until the last backlog message, the current one included
+         */
+        public double getDrainMillis() {
+            return (drainNanos + currentDrainNanos) / NANOS_PER_MILLI;
+        }
+
+        private void finishDrain() {
+            backlog += currentBacklog;
+            maxBacklog = Math.max(maxBacklog, currentBacklog);
+            drainNanos += currentDrainNanos;
+            currentBacklog = 0;
+            currentDrainNanos = 0;
+            reconnectNanos = SUBSCRIBED;
+        }
+    }
+}
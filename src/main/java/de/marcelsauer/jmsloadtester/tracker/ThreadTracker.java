@@ -23,4 +23,11 @@ public interface ThreadTracker {
     int getListenersStarted();
 
     int getSendersStarted();
+
+    /**
+     * waits until the listener threads are done
+     *
+     * @return false if one of them was not done within the given time
+     */
+    boolean awaitListeners(long millis) throws InterruptedException;
 }
@@ -17,14 +17,26 @@ package de.marcelsauer.jmsloadtester.tracker;
 
 import de.marcelsauer.jmsloadtester.client.BoboSenderTrafficCop;
 import de.marcelsauer.jmsloadtester.client.Listener;
+import de.marcelsauer.jmsloadtester.client.RateLimitingSenderTrafficCop;
+import de.marcelsauer.jmsloadtester.client.ReconnectSchedule;
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
 import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.client.SenderTrafficCop;
 import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.handler.MessageHandler;
+import de.marcelsauer.jmsloadtester.handler.Subscription;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategy;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategyWrapper;
+import de.marcelsauer.jmsloadtester.message.MessageInterceptor;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
 import de.marcelsauer.jmsloadtester.message.MessageParser;
+import de.marcelsauer.jmsloadtester.message.RepeatingMessageContentStrategy;
 import de.marcelsauer.jmsloadtester.message.filter.PlaceHolderContentFilter;
 import de.marcelsauer.jmsloadtester.spring.SpringFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class ThreadTrackerImpl implements ThreadTracker {
 
     private static int subscribersCreated;
@@ -34,15 +46,35 @@ public class ThreadTrackerImpl implements ThreadTracker {
     private Config config;
     private MessageLoadTracker loadTracker;
     private BoboSenderTrafficCop boboTrafficCop;
+    private RateLimitingSenderTrafficCop rateTrafficCop;
+    private LoadPhaseTracker loadPhaseTracker;
+    private LatencyTracker latencyTracker;
+    private SequenceTracker sequenceTracker;
+    private ConsumerTracker consumerTracker;
+    private ReplyTracker replyTracker;
+    private DestinationTracker destinationTracker;
+    private ListenerDestinationTracker listenerDestinationTracker;
+    private SubscriptionTracker subscriptionTracker;
+    private SelectorTracker selectorTracker;
+    private RunTracker runTracker;
+    private WindowTracker windowTracker;
+    private final ReconnectSchedule reconnectSchedule;
+    private boolean loadTrackerWaitsForReplies;
+    private final List<Thread> listenerThreads = new ArrayList<Thread>();
 
     public ThreadTrackerImpl(Config config) {
         this.config = config;
     	loadTracker = new MessageLoadTracker(config.getSendersToStart());
     	boboTrafficCop = new BoboSenderTrafficCop();
+        reconnectSchedule = ReconnectSchedule.getReconnectSchedule(config.getListenerReconnect());
     }
 
     private MessageContentStrategy getMessageContentStrategy() {
         MessageContentStrategy target = config.getMessageContentStrategy();
+        if (runTracker.isTimeBound()) {
+            // the content is sent again until the time is over
+            target = new RepeatingMessageContentStrategy(target);
+        }
         // @todo dodgy, remove this?
         PlaceHolderContentFilter filter = SpringFactory.getBean("placeholderContentFilter");
         // a new one for each thread !
@@ -52,37 +84,121 @@ public class ThreadTrackerImpl implements ThreadTracker {
     @Override
     public void createListenerThread(final String name) {
         final Listener listener = new Listener();
-        listener.setListenToDestination(config.getListenToDestination());
+        final int number = subscribersCreated;
+        final int destination = listenerDestinationTracker.getAssignment().getDestinationIndex(number);
+        final String destinationName = listenerDestinationTracker.getAssignment().getDestination(destination);
+        listener.setListenToDestination(destinationName);
+        listener.addMessageNotifyable(latencyTracker);
+        final MessageNotifyable sequenceNotifyable = sequenceTracker.getListenerNotifyable();
+        if (sequenceNotifyable != null) {
+            listener.addMessageNotifyable(sequenceNotifyable);
+        }
         listener.addMessageNotifyable(messageTracker);
-        if (config.isSenderWaitForResponse()) {
+        if (destinationTracker.isEnabled()) {
+            listener.addMessageNotifyable(destinationTracker);
+        }
+        if (listenerDestinationTracker.isEnabled()) {
+            listener.addMessageNotifyable(listenerDestinationTracker.getNotifyable(destination));
+        }
+        if (reconnectSchedule != null && reconnectSchedule.isReconnecting(number)) {
+            final SubscriptionTracker.Subscriber subscriber = subscriptionTracker.newSubscriber("listener " + number + " on " + destinationName);
+            listener.addMessageNotifyable(subscriber);
+            listener.setReconnectSchedule(reconnectSchedule, subscriber);
+        }
+        if (isSenderWaitForResponse() && !replyTracker.isEnabled()) {
         	listener.addMessageNotifyable(loadTracker);
         }
+        if (rateTrafficCop != null) {
+            listener.addMessageNotifyable(loadPhaseTracker);
+        }
+        if (runTracker.isTimeBound() || runTracker.getIdleTimeoutMillis() > 0) {
+            listener.addMessageNotifyable(runTracker);
+        }
+        if (windowTracker.isEnabled()) {
+            listener.addMessageNotifyable(windowTracker);
+        }
         listener.setMessageOutStrategy(config.getMessageOutputStrategy());
         listener.setMessageParser(messageParser);
-        listener.setExplicitAckMessage(config.isExplicitAcknowledgeMessage());
+        listener.setConsumerMode(config.getListenerConsumerMode());
+        listener.setMessageTracker(messageTracker);
+        listener.setRunTracker(runTracker);
+        listener.setConsumerTracker(consumerTracker);
+        final MessageHandler messageHandler = SpringFactory.getBean("listenerMessageHandler");
+        final Subscription subscription = Subscription.getSubscription(config.getListenerSubscription(), config.getListenerSubscriptionName(), number, destination);
+        messageHandler.setSubscription(subscription);
+        if (subscription.isClientIdNeeded()) {
+            // the durable subscription of a listener is bound to the client id, it must be the same in the next run
+            messageHandler.setClient(number);
+        }
+        if (selectorTracker.isEnabled()) {
+            final boolean selecting = selectorTracker.getSelector() != null && number < config.getListenerSelectorListeners();
+            if (selecting) {
+                messageHandler.setMessageSelector(SelectorGroups.getSelector(selectorTracker.getSelector(), number, selectorTracker.getGroups()));
+            }
+            listener.addMessageNotifyable(selectorTracker.addListener(selecting));
+        }
+        listener.setMessageHandler(messageHandler);
 
         final Thread subscriberThread = new Thread(listener);
         subscriberThread.setName(name + " [" + listener.hashCode() + "]");
         subscriberThread.start();
+        listenerThreads.add(subscriberThread);
         subscribersCreated++;
     }
 
+    @Override
+    public boolean awaitListeners(final long millis) throws InterruptedException {
+        final long end = System.currentTimeMillis() + millis;
+        for (Thread thread : listenerThreads) {
+            thread.join(Math.max(1, end - System.currentTimeMillis()));
+            if (thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void createSenderThread(final String name) {
         final Sender sender = new Sender();
-        if (config.isSenderWaitForResponse()) {
-        	sender.setTrafficCop(loadTracker);
-        } else {
-        	sender.setTrafficCop(boboTrafficCop);
+        sender.setTrafficCop(getSenderTrafficCop());
+        sender.setCommitBeforeWait(isSenderWaitForResponse());
+        sender.setDestination(destinationTracker.getRouter().getDestination(0));
+        sender.setDestinationRouter(destinationTracker.getRouter());
+        if (rateTrafficCop == null) {
+            // the fixed rate replaces the pause between two sends
+            sender.setSleepMilliseconds(config.getPubSleepMillis());
         }
-        sender.setDestination(config.getSendToDestination());
-        sender.setSleepMilliseconds(config.getPubSleepMillis());
         sender.addMessageSentAware(messageTracker);
-        if (config.isSenderWaitForResponse()) {
+        if (destinationTracker.isEnabled()) {
+            sender.addMessageSentAware(destinationTracker);
+        }
+        if (selectorTracker.getGroups() != null) {
+            sender.setSelectorGroups(selectorTracker.getGroups());
+            sender.addMessageSentAware(selectorTracker);
+        }
+        if (runTracker.isTimeBound()) {
+            sender.setRunTracker(runTracker);
+        }
+        if (windowTracker.isEnabled()) {
+            sender.addMessageSentAware(windowTracker);
+        }
+        if (isSenderWaitForResponse()) {
         	sender.addMessageSentAware(loadTracker);
+            if (replyTracker.isEnabled() && !loadTrackerWaitsForReplies) {
+                // the reply and not any received message frees the sender
+                replyTracker.addReplyNotifyable(loadTracker);
+                loadTrackerWaitsForReplies = true;
+            }
         }
         sender.setMessageContentStrategy(getMessageContentStrategy());
-        sender.setMessageInterceptors(config.getMessageInterceptors());
+        final List<MessageInterceptor> interceptors = new ArrayList<MessageInterceptor>(config.getMessageInterceptors());
+        if (rateTrafficCop != null) {
+            sender.addMessageSentAware(loadPhaseTracker);
+            interceptors.add(loadPhaseTracker);
+        }
+        sender.setMessageInterceptors(interceptors);
+        sender.setMessageHandler(SpringFactory.<MessageHandler> getBean("senderMessageHandler"));
 
         final Thread senderThread = new Thread(sender);
         senderThread.setName(name + " [" + sender.hashCode() + "]");
@@ -90,6 +206,21 @@ public class ThreadTrackerImpl implements ThreadTracker {
         publishersCreated++;
     }
 
+    private SenderTrafficCop getSenderTrafficCop() {
+        if (rateTrafficCop != null) {
+            return rateTrafficCop;
+        }
+        if (isSenderWaitForResponse()) {
+            return loadTracker;
+        }
+        return boboTrafficCop;
+    }
+
+    // open loop sending at a fixed rate must not wait for outstanding messages
+    private boolean isSenderWaitForResponse() {
+        return config.isSenderWaitForResponse() && rateTrafficCop == null;
+    }
+
     public synchronized int subscriberCreated() {
         return subscribersCreated++;
     }
@@ -115,4 +246,50 @@ public class ThreadTrackerImpl implements ThreadTracker {
     public void setMessageParser(final MessageParser messageParser) {
         this.messageParser = messageParser;
     }
+
+    public void setLatencyTracker(final LatencyTracker latencyTracker) {
+        this.latencyTracker = latencyTracker;
+    }
+
+    public void setSequenceTracker(final SequenceTracker sequenceTracker) {
+        this.sequenceTracker = sequenceTracker;
+    }
+
+    public void setReplyTracker(final ReplyTracker replyTracker) {
+        this.replyTracker = replyTracker;
+    }
+
+    public void setDestinationTracker(final DestinationTracker destinationTracker) {
+        this.destinationTracker = destinationTracker;
+    }
+
+    public void setListenerDestinationTracker(final ListenerDestinationTracker listenerDestinationTracker) {
+        this.listenerDestinationTracker = listenerDestinationTracker;
+    }
+
+    public void setSubscriptionTracker(final SubscriptionTracker subscriptionTracker) {
+        this.subscriptionTracker = subscriptionTracker;
+    }
+
+    public void setSelectorTracker(final SelectorTracker selectorTracker) {
+        this.selectorTracker = selectorTracker;
+    }
+
+    public void setRunTracker(final RunTracker runTracker) {
+        this.runTracker = runTracker;
+    }
+
+    public void setWindowTracker(final WindowTracker windowTracker) {
+        this.windowTracker = windowTracker;
+    }
+
+    public void setConsumerTracker(final ConsumerTracker consumerTracker) {
+        this.consumerTracker = consumerTracker;
+    }
+
+    public void setLoadPhaseTracker(final LoadPhaseTracker loadPhaseTracker) {
+        this.loadPhaseTracker = loadPhaseTracker;
+        // one for all senders, the rate is a global one
+        this.rateTrafficCop = loadPhaseTracker.getTrafficCop();
+    }
 }
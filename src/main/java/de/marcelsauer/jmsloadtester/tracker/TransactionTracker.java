@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * records how long the send calls and the commits of the senders take in microseconds. in a transacted session the
+ * broker does the expensive part of a send, e.g. the disk sync of a persistent message, once per commit. the messages
+ * a sender thread sent are committed when there are {@link Config#getSenderCommitEveryMessages()} of them or when the
+ * oldest one is {@link Config#getSenderCommitEveryMillis()} old, which is checked on every send.
+ * <p/>
+ * the commits and acknowledgements of the listeners are recorded as well, they batch on their own. so is the time from
+ * an asynchronous send to its completion callback. a listener that pulls completes its open batch itself when it is
+ * done, the batches of the pushing listeners are completed with {@link #closeListenerBatches()} when the run ends.
+ */
+public class TransactionTracker {
+
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long NANOS_PER_MILLI = 1000L * 1000L;
+
+    private final int commitEveryMessages;
+    private final long commitEveryMillis;
+    private final LatencyHistogram sendHistogram = LatencyHistogram.create();
+    private final LatencyHistogram commitHistogram = LatencyHistogram.create();
+    private final AtomicLong messagesCommitted = new AtomicLong();
+    private final LatencyHistogram acknowledgeHistogram = LatencyHistogram.create();
+    private final AtomicLong messagesAcknowledged = new AtomicLong();
+    private final LatencyHistogram completionHistogram = LatencyHistogram.create();
+    private final AtomicLong completionFailures = new AtomicLong();
+    private final AtomicLong listenerMessagesClosed = new AtomicLong();
+    private final Set<ListenerBatch> listenerBatches = new CopyOnWriteArraySet<ListenerBatch>();
+
+    // one open transaction per thread, just like the session
+    private final ThreadLocal<Batch> batch = new ThreadLocal<Batch>() {
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+
+    public TransactionTracker(final Config config) {
+        this(config.getSenderCommitEveryMessages(), config.getSenderCommitEveryMillis());
+    }
+
+    public TransactionTracker(final int commitEveryMessages, final long commitEveryMillis) {
+        if (commitEveryMessages < 1) {
+            throw new IllegalArgumentException("a commit needs at least one message, was: " + commitEveryMessages);
+        }
+        if (commitEveryMillis < 0) {
+            throw new IllegalArgumentException("the commit interval must not be negative, was: " + commitEveryMillis);
+        }
+        this.commitEveryMessages = commitEveryMessages;
+        this.commitEveryMillis = commitEveryMillis;
+    }
+
+    public void sendDone(final long sendNanos) {
+        sendHistogram.recordValue(sendNanos / NANOS_PER_MICRO);
+    }
+
+    /**
+     * counts a message the current thread sent in its transacted session and commits when the batch is complete
+     */
+    public void messageSent(final Session session) {
+        final Batch current = batch.get();
+        final long now = System.nanoTime();
+        if (current.messages++ == 0) {
+            current.firstMessageNanos = now;
+        }
+        if (current.messages >= commitEveryMessages || (commitEveryMillis > 0 && now - current.firstMessageNanos >= commitEveryMillis * NANOS_PER_MILLI)) {
+            commit(session);
+        }
+    }
+
+    /**
+     * commits the messages the current thread sent since its last commit, does nothing if there are none
+     */
+    public void commit(final Session session) {
+        final Batch current = batch.get();
+        if (current.messages == 0) {
+            return;
+        }
+        final long start = System.nanoTime();
+        try {
+            session.commit();
+        } catch (JMSException e) {
+            throw new JmsException("could not commit " + current.messages + " messages", e);
+        }
+        commitHistogram.recordValue((System.nanoTime() - start) / NANOS_PER_MICRO);
+        messagesCommitted.addAndGet(current.messages);
+        current.messages = 0;
+    }
+
+    /**
+     * @param nanos how long a listener took to commit or acknowledge
+     * @param messages the number of received messages that were committed or acknowledged
+     */
+    public void acknowledgeDone(final long nanos, final int messages) {
+        acknowledgeHistogram.recordValue(nanos / NANOS_PER_MICRO);
+        messagesAcknowledged.addAndGet(messages);
+    }
+
+    public void completionDone(final long sendToCompletionNanos) {
+        completionHistogram.recordValue(sendToCompletionNanos / NANOS_PER_MICRO);
+    }
+
+    public void completionFailed() {
+        completionFailures.incrementAndGet();
+    }
+
+    public void addListenerBatch(final ListenerBatch listenerBatch) {
+        listenerBatches.add(listenerBatch);
+    }
+
+    public void removeListenerBatch(final ListenerBatch listenerBatch) {
+        listenerBatches.remove(listenerBatch);
+    }
+
+    /**
+     * @param messages the number of messages a listener committed or acknowledged when its consumer was closed
+     */
+    public void listenerBatchClosed(final int messages) {
+        listenerMessagesClosed.addAndGet(messages);
+    }
+
+    /**
+     * closes the consumers of the listener batches and commits or acknowledges the messages they received since their
+     * last complete batch. the listener threads must be done, the provider delivers no message after the close
+     */
+    public void closeListenerBatches() {
+        for (ListenerBatch listenerBatch : listenerBatches) {
+            try {
+                listenerBatchClosed(listenerBatch.close());
+            } catch (RuntimeException e) {
+                Logger.error("could not close the batch of a listener", e);
+            }
+            listenerBatches.remove(listenerBatch);
+        }
+    }
+
+    /**
+     * @return the number of messages the listeners committed or acknowledged when their consumers were closed
+     */
+    public long getListenerMessagesClosed() {
+        return listenerMessagesClosed.get();
+    }
+
+    public LatencyHistogram getSendHistogram() {
+        return sendHistogram;
+    }
+
+    public LatencyHistogram getCommitHistogram() {
+        return commitHistogram;
+    }
+
+    public long getCommitCount() {
+        return commitHistogram.getTotalCount();
+    }
+
+    public long getMessagesCommitted() {
+        return messagesCommitted.get();
+    }
+
+    public LatencyHistogram getAcknowledgeHistogram() {
+        return acknowledgeHistogram;
+    }
+
+    public long getAcknowledgeCount() {
+        return acknowledgeHistogram.getTotalCount();
+    }
+
+    public long getMessagesAcknowledged() {
+        return messagesAcknowledged.get();
+    }
+
+    public LatencyHistogram getCompletionHistogram() {
+        return completionHistogram;
+    }
+
+    public long getCompletionCount() {
+        return completionHistogram.getTotalCount();
+    }
+
+    public long getCompletionFailures() {
+        return completionFailures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "commit every " + commitEveryMessages + " messages" + (commitEveryMillis > 0 ? " or every " + commitEveryMillis + " ms" : "");
+    }
+
+    private static final class Batch {
+        private int messages;
+        private long firstMessageNanos;
+    }
+
+    /**
+     * the received messages of a listener the provider pushes to that are not committed or acknowledged yet
+     */
+    public interface ListenerBatch {
+
+        /**
+         * closes the consumer and completes the batch
+         *
+         * @return the number of messages committed or acknowledged
+         */
+        int close();
+    }
+}
@@ -0,0 +1,368 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.config.Config;
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import de.marcelsauer.jmsloadtester.tools.LatencyHistogram;
+import de.marcelsauer.jmsloadtester.tools.Logger;
+import de.marcelsauer.jmsloadtester.tools.StripedCounter;
+
+import javax.jms.Message;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * rolling statistics of a run: every window the messages sent and received and the end to end latency of that window
+ * are printed while the run goes on, and exported as a CSV or NDJSON line if an output strategy is given. only the
+ * current window and a few aggregates are kept, so the memory does not grow with the length of a run. the counters
+ * are never reset, a window is the difference to the previous one. a latency recorded while the windows switch may
+ * count in the next window. the last window of a run is usually shorter, the min and max of the windows are taken
+ * from the complete ones.
+ */
+public class WindowTracker implements MessageNotifyable, MessageSentAware {
+
+    public static final String CSV = "CSV";
+    public static final String NDJSON = "NDJSON";
+
+    private static final long NANOS_PER_MILLI = 1000L * 1000L;
+
+    private final long windowMillis;
+    private final OutputStrategy output;
+    private final String format;
+    private final StripedCounter sent = new StripedCounter();
+    private final StripedCounter received = new StripedCounter();
+    private volatile LatencyHistogram latency = LatencyHistogram.create();
+
+    private Thread roller;
+    private long startNanos;
+    private long windowStartNanos;
+    private long lastSent;
+    private long lastReceived;
+    private long lastErrors;
+    private int windowCount;
+    private int completeWindows;
+    private double minReceivedRate = Double.MAX_VALUE;
+    private double maxReceivedRate;
+    private long maxP99;
+
+    public WindowTracker(final Config config) {
+        this(config.getOutputWindowSeconds() * Constants.MILLIS_FACTOR, config.getOutputWindowStrategy(), config.getOutputWindowFormat());
+    }
+
+    public WindowTracker(final long windowMillis) {
+        this(windowMillis, null, CSV);
+    }
+
+    /**
+     * @param windowMillis the length of a window, 0 for no windows
+     * @param output gets each window as a line in the given format, may be null
+     * @param format {@link #CSV} or {@link #NDJSON}
+     */
+    public WindowTracker(final long windowMillis, final OutputStrategy output, final String format) {
+        validate(windowMillis, format);
+        this.windowMillis = windowMillis;
+        this.output = output;
+        this.format = format;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the window is negative or the format does not exist
+     */
+    public static void validate(final long windowMillis, final String format) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("the window must not be negative, was: " + windowMillis);
+        }
+        if (!CSV.equals(format) && !NDJSON.equals(format)) {
+            throw new IllegalArgumentException("the window format must be " + CSV + " or " + NDJSON + ", was: " + format);
+        }
+    }
+
+    public boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * starts the first window and a daemon thread that ends a window every window millis
+     */
+    public synchronized void start() {
+        if (!isEnabled() || roller != null) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        windowStartNanos = startNanos;
+        lastErrors = Logger.getErrorCount();
+        roller = new Thread(new Runnable() {
+            public void run() {
+                // aligned to the start, a slow window does not shift the following ones
+                long end = startNanos + windowMillis * NANOS_PER_MILLI;
+                while (!Thread.currentThread().isInterrupted()) {
+                    final long remaining = end - System.nanoTime();
+                    if (remaining > 0) {
+                        LockSupport.parkNanos(remaining);
+                        continue;
+                    }
+                    roll(end, true);
+                    end += windowMillis * NANOS_PER_MILLI;
+                }
+            }
+        });
+        roller.setName("Window Tracker");
+        roller.setDaemon(true);
+        roller.start();
+    }
+
+    /**
+     * stops the windows and ends the current one if it is not empty
+     */
+    public void stop() {
+        final Thread thread;
+        synchronized (this) {
+            thread = roller;
+        }
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        final long now = System.nanoTime();
+        synchronized (this) {
+            if (now > windowStartNanos && (sent.sum() > lastSent || received.sum() > lastReceived)) {
+                roll(now, false);
+            }
+        }
+    }
+
+    @Override
+    public void messageSent(final Message message) {
+        sent.increment();
+    }
+
+    @Override
+    public void onMessage(final Message message) {
+        received.increment();
+        final long micros = LatencyTracker.getLatencyInMicroSeconds(message, System.nanoTime(), System.currentTimeMillis());
+        if (micros != LatencyTracker.UNKNOWN) {
+            latency.recordValue(micros);
+        }
+    }
+
+    // package private for testcase
+    synchronized Window roll(final long endNanos, final boolean complete) {
+        final LatencyHistogram windowLatency = latency;
+        latency = LatencyHistogram.create();
+        final long sentNow = sent.sum();
+        final long receivedNow = received.sum();
+        final long errorsNow = Logger.getErrorCount();
+        windowCount++;
+        final Window window = new Window(windowCount, complete, toSeconds(endNanos - startNanos), toSeconds(endNanos - windowStartNanos), sentNow - lastSent,
+                receivedNow - lastReceived, sentNow - receivedNow, errorsNow - lastErrors, windowLatency);
+        if (complete) {
+            completeWindows++;
+            minReceivedRate = Math.min(minReceivedRate, window.getReceivedRate());
+            maxReceivedRate = Math.max(maxReceivedRate, window.getReceivedRate());
+            maxP99 = Math.max(maxP99, window.getLatencyP99());
+        }
+        lastSent = sentNow;
+        lastReceived = receivedNow;
+        lastErrors = errorsNow;
+        windowStartNanos = endNanos;
+        Logger.info(window.toString());
+        export(window);
+        return window;
+    }
+
+    private void export(final Window window) {
+        if (output == null || !output.isEnabled()) {
+            return;
+        }
+        if (NDJSON.equals(format)) {
+            output.output(window.toJson());
+        } else {
+            if (window.getNumber() == 1) {
+                output.output(Window.CSV_HEADER);
+            }
+            output.output(window.toCsv());
+        }
+    }
+
+    public synchronized int getWindowCount() {
+        return windowCount;
+    }
+
+    public synchronized int getCompleteWindowCount() {
+        return completeWindows;
+    }
+
+    /**
+     * @return the lowest messages received per second of a complete window, 0 before the first one
+     */
+    public synchronized double getMinReceivedRate() {
+        return completeWindows == 0 ? 0 : minReceivedRate;
+    }
+
+    public synchronized double getMaxReceivedRate() {
+        return maxReceivedRate;
+    }
+
+    /**
+     * @return the highest p99 latency of a complete window in micro seconds
+     */
+    public synchronized long getMaxP99() {
+        return maxP99;
+    }
+
+    private static double toSeconds(final long nanos) {
+        return nanos / (double) (NANOS_PER_MILLI * Constants.MILLIS_FACTOR);
+    }
+
+    private static double toMillis(final long micros) {
+        return micros / (double) Constants.MILLIS_FACTOR;
+    }
+
+    /**
+     * the statistics of one window, the latencies are in micro seconds
+     */
+    public static final class Window {
+
+        public static final String CSV_HEADER = "window,complete,elapsed_sec,duration_sec,sent,sent_per_sec,received,received_per_sec,outstanding,errors,"
+                + "latency_count,latency_p50_ms,latency_p90_ms,latency_p99_ms,latency_p999_ms,latency_max_ms";
+
+        private final int number;
+        private final boolean complete;
+        private final double elapsedSeconds;
+        private final double seconds;
+        private final long sent;
+        private final long received;
+        private final long outstanding;
+        private final long errors;
+        private final long latencyCount;
+        private final long latencyP50;
+        private final long latencyP90;
+        private final long latencyP99;
+        private final long latencyP999;
+        private final long latencyMax;
+
+        Window(final int number, final boolean complete, final double elapsedSeconds, final double seconds, final long sent, final long received,
+                final long outstanding, final long errors, final LatencyHistogram latency) {
+            this.number = number;
+            this.complete = complete;
+            this.elapsedSeconds = elapsedSeconds;
+            this.seconds = seconds;
+            this.sent = sent;
+            this.received = received;
+            this.outstanding = outstanding;
+            this.errors = errors;
+            this.latencyCount = latency.getTotalCount();
+            this.latencyP50 = latency.getValueAtPercentile(50);
+            this.latencyP90 = latency.getValueAtPercentile(90);
+            this.latencyP99 = latency.getValueAtPercentile(99);
+            this.latencyP999 = latency.getValueAtPercentile(99.9);
+            this.latencyMax = latency.getMax();
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * @return false for the last window of a run that was ended before the window was over
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        public double getSentRate() {
+            return seconds > 0 ? sent / seconds : 0;
+        }
+
+        public double getReceivedRate() {
+            return seconds > 0 ? received / seconds : 0;
+        }
+
+        /**
+         * @return all messages sent minus all messages received so far, the messages in flight if each message is
+         *         received once
+         */
+        public long getOutstanding() {
+            return outstanding;
+        }
+
+        /**
+         * @return the errors logged in the window
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getLatencyP99() {
+            return latencyP99;
+        }
+
+        // the exports are read by machines, so they do not use the decimal separator of the locale
+        public String toCsv() {
+            return String.format(Locale.US, "%d,%b,%.3f,%.3f,%d,%.2f,%d,%.2f,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f", number, complete, elapsedSeconds, seconds,
+                    sent, getSentRate(), received, getReceivedRate(), outstanding, errors, latencyCount, toMillis(latencyP50), toMillis(latencyP90),
+                    toMillis(latencyP99), toMillis(latencyP999), toMillis(latencyMax));
+        }
+
+        public String toJson() {
+            return String.format(Locale.US, "{\"window\": %d, \"complete\": %b, \"elapsed_sec\": %.3f, \"duration_sec\": %.3f, \"sent\": %d, "
+                    + "\"sent_per_sec\": %.2f, \"received\": %d, \"received_per_sec\": %.2f, \"outstanding\": %d, \"errors\": %d, "
+                    + "\"latency_count\": %d, \"latency_p50_ms\": %.3f, \"latency_p90_ms\": %.3f, \"latency_p99_ms\": %.3f, "
+                    + "\"latency_p999_ms\": %.3f, \"latency_max_ms\": %.3f}", number, complete, elapsedSeconds, seconds, sent, getSentRate(), received,
+                    getReceivedRate(), outstanding, errors, latencyCount, toMillis(latencyP50), toMillis(latencyP90), toMillis(latencyP99),
+                    toMillis(latencyP999), toMillis(latencyMax));
+        }
+
+        @Override
+        public String toString() {
+            final StringBuffer sb = new StringBuffer("[WINDOW] " + number);
+            sb.append(String.format(Locale.US, " at %.1f s: ", elapsedSeconds));
+            sb.append("sent " + sent);
+            sb.append(String.format(Locale.US, " (%.2f msg/s), ", getSentRate()));
+            sb.append("received " + received);
+            sb.append(String.format(Locale.US, " (%.2f msg/s)", getReceivedRate()));
+            if (latencyCount > 0) {
+                sb.append(String.format(Locale.US, ", latency p50 %.3f ms, p99 %.3f ms, max %.3f ms", toMillis(latencyP50), toMillis(latencyP99), toMillis(latencyMax)));
+            }
+            if (errors > 0) {
+                sb.append(", errors " + errors);
+            }
+            return sb.toString();
+        }
+    }
+}
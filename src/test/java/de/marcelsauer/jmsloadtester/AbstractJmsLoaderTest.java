@@ -15,14 +15,22 @@
  */
 package de.marcelsauer.jmsloadtester;
 
+import de.marcelsauer.jmsloadtester.client.Sender;
+import de.marcelsauer.jmsloadtester.core.Constants;
 import de.marcelsauer.jmsloadtester.output.OutputStrategy;
 import de.marcelsauer.jmsloadtester.tools.Logger;
 import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
 import de.marcelsauer.jmsloadtester.tracker.ThreadTracker;
 import org.easymock.classextension.EasyMock;
 
+import javax.jms.JMSException;
+import javax.jms.Message;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.expect;
 
 public abstract class AbstractJmsLoaderTest {
 
@@ -83,4 +91,37 @@ public abstract class AbstractJmsLoaderTest {
         threadTracker = createMockOfType(ThreadTracker.class);
     }
 
+    /**
+     * the properties of a message sent by this jvm at the given nano time
+     */
+    protected Map<String, Object> createSendProperties(final long sendNanos) {
+        final Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(Sender.SENDER_JVM_ID, Constants.JVM_ID);
+        properties.put(Sender.SEND_NANO_TIME, sendNanos);
+        return properties;
+    }
+
+    /**
+     * a replayed nice mock message carrying the given properties, everything
+     * else answers with the defaults
+     */
+    protected Message createPropertyMessage(final Map<String, Object> properties) throws JMSException {
+        final Message message = EasyMock.createNiceMock(Message.class);
+        for (final Map.Entry<String, Object> property : properties.entrySet()) {
+            final String name = property.getKey();
+            final Object value = property.getValue();
+            expect(message.propertyExists(name)).andReturn(true).anyTimes();
+            expect(message.getObjectProperty(name)).andReturn(value).anyTimes();
+            if (value instanceof Long) {
+                expect(message.getLongProperty(name)).andReturn((Long) value).anyTimes();
+            } else if (value instanceof Integer) {
+                expect(message.getIntProperty(name)).andReturn((Integer) value).anyTimes();
+            } else {
+                expect(message.getStringProperty(name)).andReturn((String) value).anyTimes();
+            }
+        }
+        EasyMock.replay(message);
+        return message;
+    }
+
 }
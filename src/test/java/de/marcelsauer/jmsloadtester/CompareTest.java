@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester;
+
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompareTest extends AbstractJmsLoaderTest {
+
+    private static final String RATE = "Listener messages / sec";
+    private static final String P99 = "Latency p99 milliseconds";
+
+    private final List<String> lines = new ArrayList<String>();
+    private final Compare compare = new Compare(new OutputStrategy() {
+        public void output(final String line) {
+            lines.add(line);
+        }
+
+        public boolean isEnabled() {
+            return true;
+        }
+    });
+
+    @Test
+    public void testExitCodes() throws IOException {
+        final String baseline = write("{\"Listener messages / sec\": 1000, \"Latency p99 milliseconds\": 10}");
+        final String same = write("{\"Listener messages / sec\": 1010, \"Latency p99 milliseconds\": 10.2}");
+        final String slower = write("{\"Listener messages / sec\": 1000, \"Latency p99 milliseconds\": 12}");
+        assertEquals(Compare.EXIT_OK, compare.run(new String[] { "-higher", RATE, "-lower", P99, baseline, same }));
+        assertEquals("no regression", lines.get(lines.size() - 1));
+        assertEquals(Compare.EXIT_REGRESSION, compare.run(new String[] { "-higher", RATE, "-lower", P99, baseline, same, slower }));
+        assertEquals("REGRESSION", lines.get(lines.size() - 1));
+        assertEquals(Compare.EXIT_OK, compare.run(new String[] { "-threshold", "25", "-higher", RATE, "-lower", P99, baseline, slower }));
+        // the default metrics include the sender rate and more percentiles
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { baseline, same }));
+        assertEquals(Compare.EXIT_OK, compare.run(new String[] { "-higher", "Listener messages / sec", baseline, slower }));
+    }
+
+    @Test
+    public void testMissingMetricFails() throws IOException {
+        final String baseline = write("{\"Listener messages / sec\": 1000, \"Latency p99 milliseconds\": \"1,000\"}");
+        final String candidate = write("{\"Listener messages / sec\": 1000, \"Latency p99 milliseconds\": \"90,000\"}");
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { "-lower", "Latency p99 milliseconds", baseline, candidate }));
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { "-higher", "Listener messages / secs", baseline, candidate }));
+        assertEquals(Compare.EXIT_OK, compare.run(new String[] { "-higher", "Listener messages / sec", baseline, candidate }));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        final String baseline = write("{\"Listener messages / sec\": 1000}");
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { baseline }));
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { "-threshold", "x", baseline, baseline }));
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { "-unknown", "1", baseline, baseline }));
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { baseline, baseline + ".missing" }));
+        assertEquals(Compare.EXIT_ERROR, compare.run(new String[] { baseline, write("no json") }));
+        assertTrue(lines.get(lines.size() - 1).contains("line 1"));
+    }
+
+    private String write(final String content) throws IOException {
+        final File file = File.createTempFile("jmsloadtester", ".json");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(content.getBytes("UTF-8"));
+        out.close();
+        return file.getPath();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DestinationRouterTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testDestinations() {
+        assertEquals(Arrays.asList("perf.in"), DestinationRouter.getDestinations(" perf.in "));
+        assertEquals(Arrays.asList("a", "b", "c"), DestinationRouter.getDestinations("a, b,c"));
+        assertEquals(Arrays.asList("q.8.x", "q.9.x", "q.10.x", "other"), DestinationRouter.getDestinations("q.{8..10}.x,other"));
+        assertEquals(Arrays.asList("q.098", "q.099", "q.100"), DestinationRouter.getDestinations("q.{098..100}"));
+        final List<String> many = DestinationRouter.getDestinations("perf.in.{0..499}");
+        assertEquals(500, many.size());
+        assertEquals("perf.in.499", many.get(499));
+    }
+
+    @Test
+    public void testRoundRobin() {
+        final DestinationRouter router = new DestinationRouter("a,b,c", DestinationRouter.ROUND_ROBIN);
+        final DestinationRouter.Cursor first = router.newCursor();
+        final DestinationRouter.Cursor second = router.newCursor();
+        assertEquals(null, first.getDestination());
+        assertEquals("a", first.next());
+        assertEquals("b", first.next());
+        assertEquals("c", first.next());
+        assertEquals("a", first.next());
+        // the second sender starts one further
+        assertEquals("b", second.next());
+        assertEquals(DestinationRouter.NO_KEY, second.getKey());
+    }
+
+    @Test
+    public void testWeighted() {
+        final DestinationRouter router = new DestinationRouter("a,b,c,d", "WEIGHTED#6#0#2");
+        final Map<String, Integer> counts = count(router.newCursor(), 40000);
+        assertEquals(null, counts.get("b"));
+        // 6 : 0 : 2 : 2, d takes the last weight
+        assertEquals(0.6, counts.get("a") / 40000d, 0.02);
+        assertEquals(0.2, counts.get("c") / 40000d, 0.02);
+        assertEquals(0.2, counts.get("d") / 40000d, 0.02);
+    }
+
+    @Test
+    public void testHash() {
+        final DestinationRouter router = new DestinationRouter("q.{0..9}", "HASH#100");
+        final DestinationRouter.Cursor cursor = router.newCursor();
+        final Map<Long, String> destinationOfKey = new HashMap<Long, String>();
+        for (int i = 0; i < 5000; i++) {
+            final String destination = cursor.next();
+            final long key = cursor.getKey();
+            assertTrue(key >= 0 && key < 100);
+            final String previous = destinationOfKey.put(key, destination);
+            assertTrue(previous == null || previous.equals(destination));
+        }
+        // 100 keys spread over 10 destinations
+        assertTrue(count(router.newCursor(), 5000).size() >= 8);
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[][] invalid = { { null, "ROUND_ROBIN" }, { "a,,b", "ROUND_ROBIN" }, { "q.{5..1}", "ROUND_ROBIN" }, { "q.{1-5}", "ROUND_ROBIN" },
+                { "q.{a..b}", "ROUND_ROBIN" }, { "a,b", null }, { "a,b", "RANDOM" }, { "a,b", "WEIGHTED" }, { "a,b", "WEIGHTED#0#0" },
+                { "a,b", "WEIGHTED#1#-1" }, { "a,b", "WEIGHTED#1#x" }, { "a,b", "HASH#0" }, { "a,b", "HASH#x" }, { "a,b", "ROUND_ROBIN#2" } };
+        for (String[] definition : invalid) {
+            try {
+                new DestinationRouter(definition[0], definition[1]);
+                fail("expected IllegalArgumentException for " + Arrays.asList(definition));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                DestinationRouter.validate(definition[0], definition[1]);
+                fail("expected IllegalArgumentException from validate for " + Arrays.asList(definition));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testValidate() {
+        DestinationRouter.validate("a", "ROUND_ROBIN");
+        DestinationRouter.validate("a,q.{000..499}", "HASH#100");
+        // the weights of the destinations are checked without expanding the range
+        DestinationRouter.validate("q.{1..100000000}", "WEIGHTED#0#1");
+        try {
+            DestinationRouter.validate("a,b,c", "WEIGHTED#0#0#-1");
+            fail("expected IllegalArgumentException for a negative weight of the third destination");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private Map<String, Integer> count(final DestinationRouter.Cursor cursor, final int messages) {
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < messages; i++) {
+            final String destination = cursor.next();
+            final Integer count = counts.get(destination);
+            counts.put(destination, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ListenerAssignmentTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testSpread() {
+        final ListenerAssignment assignment = new ListenerAssignment("q.{0..2}", ListenerAssignment.SPREAD, 7);
+        assertEquals(7, assignment.getListenerCount());
+        assertEquals(0, assignment.getDestinationIndex(0));
+        assertEquals(1, assignment.getDestinationIndex(1));
+        assertEquals(0, assignment.getDestinationIndex(6));
+        assertEquals(3, assignment.getListenerCount(0));
+        assertEquals(2, assignment.getListenerCount(1));
+        assertEquals(2, assignment.getListenerCount(2));
+    }
+
+    @Test
+    public void testPerDestination() {
+        final ListenerAssignment assignment = new ListenerAssignment("a, b", ListenerAssignment.PER_DESTINATION + "#3", 1);
+        assertEquals(6, assignment.getListenerCount());
+        assertEquals("a", assignment.getDestination(assignment.getDestinationIndex(2)));
+        assertEquals("b", assignment.getDestination(assignment.getDestinationIndex(3)));
+        assertEquals(3, assignment.getListenerCount(1));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[] invalid = { "UNKNOWN", ListenerAssignment.PER_DESTINATION, ListenerAssignment.PER_DESTINATION + "#0",
+                ListenerAssignment.PER_DESTINATION + "#x", ListenerAssignment.SPREAD + "#2" };
+        for (String assignment : invalid) {
+            try {
+                new ListenerAssignment("q", assignment, 1);
+                fail("expected IllegalArgumentException for " + assignment);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.handler.MessageHandler;
+import de.marcelsauer.jmsloadtester.output.OutputStrategyFactory;
+import de.marcelsauer.jmsloadtester.tracker.ConsumerTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.RunTracker;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ListenerTest extends AbstractJmsLoaderTest {
+
+    private final AtomicInteger receiveCalls = new AtomicInteger();
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger attached = new AtomicInteger();
+    private final RunTracker runTracker = new RunTracker(0, 0);
+    private int endAfterReceiveCalls = Integer.MAX_VALUE;
+
+    @Test
+    public void testConsumerModes() {
+        assertEquals(-1, Listener.getReceiveTimeoutMillis("LISTENER"));
+        assertEquals(0, Listener.getReceiveTimeoutMillis("RECEIVE_NO_WAIT"));
+        assertEquals(1000, Listener.getReceiveTimeoutMillis("RECEIVE"));
+        assertEquals(250, Listener.getReceiveTimeoutMillis(" RECEIVE#250 "));
+    }
+
+    @Test
+    public void testReceiveUntilAllReceived() {
+        final ConsumerTracker consumerTracker = new ConsumerTracker();
+        final Listener listener = createListener("RECEIVE#10", consumerTracker);
+        listener.run();
+        assertEquals(0, attached.get());
+        assertEquals(5, received.get());
+        // every second receive call returns nothing, the fifth message ends the loop
+        assertEquals(9, receiveCalls.get());
+        assertEquals(1, consumerTracker.getConsumerCount());
+        assertEquals(9, consumerTracker.getReceiveCalls());
+        assertEquals(4, consumerTracker.getEmptyReceives());
+        assertEquals(5, consumerTracker.getMaxMessages());
+    }
+
+    @Test
+    public void testReceiveUntilRunEnded() {
+        final ConsumerTracker consumerTracker = new ConsumerTracker();
+        final Listener listener = createListener("RECEIVE_NO_WAIT", consumerTracker);
+        endAfterReceiveCalls = 3;
+        listener.run();
+        // not all messages are received, the end of the run ends the loop
+        assertEquals(2, received.get());
+        assertEquals(3, receiveCalls.get());
+    }
+
+    @Test
+    public void testListenerIsAttached() {
+        final ConsumerTracker consumerTracker = new ConsumerTracker();
+        createListener("LISTENER", consumerTracker).run();
+        assertEquals(1, attached.get());
+        assertEquals(0, receiveCalls.get());
+        assertEquals(0, consumerTracker.getConsumerCount());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[] invalid = { null, "PULL", "RECEIVE#0", "RECEIVE#-5", "RECEIVE#abc", "LISTENER#5", "RECEIVE#1#2" };
+        for (String mode : invalid) {
+            try {
+                Listener.getReceiveTimeoutMillis(mode);
+                fail("expected IllegalArgumentException for " + mode);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private Listener createListener(final String consumerMode, final ConsumerTracker consumerTracker) {
+        final MessageTracker messageTracker = createNiceMockOfType(MessageTracker.class);
+        messageTracker.onMessage((Message) anyObject());
+        expectLastCall().andAnswer(countCall(received)).anyTimes();
+        expect(messageTracker.isAllReceived()).andAnswer(new IAnswer<Boolean>() {
+            public Boolean answer() {
+                return received.get() == 5;
+            }
+        }).anyTimes();
+        final Message message = createNiceMockOfType(Message.class);
+        final MessageHandler messageHandler = createNiceMockOfType(MessageHandler.class);
+        messageHandler.attachMessageListener((String) anyObject(), (MessageListener) anyObject());
+        expectLastCall().andAnswer(countCall(attached)).anyTimes();
+        expect(messageHandler.receiveMessage((String) anyObject(), (MessageListener) anyObject(), anyLong())).andAnswer(new IAnswer<Boolean>() {
+            public Boolean answer() {
+                if (receiveCalls.get() + 1 == endAfterReceiveCalls) {
+                    runTracker.end();
+                }
+                if (receiveCalls.incrementAndGet() % 2 == 0) {
+                    return false;
+                }
+                ((MessageListener) getCurrentArguments()[1]).onMessage(message);
+                return true;
+            }
+        }).anyTimes();
+        replay();
+        final Listener listener = new Listener();
+        listener.setConsumerMode(consumerMode);
+        listener.setMessageHandler(messageHandler);
+        listener.setMessageTracker(messageTracker);
+        listener.setRunTracker(runTracker);
+        listener.setConsumerTracker(consumerTracker);
+        listener.addMessageNotifyable(messageTracker);
+        listener.setMessageOutStrategy(OutputStrategyFactory.getOutputStrategy(OutputStrategyFactory.SILENT));
+        return listener;
+    }
+
+    private IAnswer<Object> countCall(final AtomicInteger counter) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                counter.incrementAndGet();
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimitingSenderTrafficCopTest extends AbstractJmsLoaderTest {
+
+    private static final long NANOS_PER_MILLI = 1000 * 1000;
+
+    @Test
+    public void testRateIsSharedByAllThreads() throws InterruptedException {
+        final SenderTrafficCop cop = new RateLimitingSenderTrafficCop(1000);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 125; j++) {
+                        cop.waitUntilSendable();
+                    }
+                }
+            }));
+        }
+        final long start = System.nanoTime();
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        final long tookMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        // 500 slots at 1000/s, the first one is immediate
+        assertTrue("took " + tookMillis, tookMillis >= 490 && tookMillis < 1500);
+    }
+
+    @Test
+    public void testCatchUpAfterStall() throws InterruptedException {
+        final SenderTrafficCop cop = new RateLimitingSenderTrafficCop(100);
+        cop.waitUntilSendable();
+        Thread.sleep(200);
+        assertTrue(cop.canSend());
+        final long start = System.nanoTime();
+        // ~20 slots are overdue and must be handed out right away
+        for (int i = 0; i < 15; i++) {
+            cop.waitUntilSendable();
+        }
+        final long tookMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        assertTrue("took " + tookMillis, tookMillis < 50);
+    }
+
+    @Test
+    public void testRateFollowsProfile() {
+        // a pause of 100 ms, then 1000/s
+        final SenderTrafficCop cop = new RateLimitingSenderTrafficCop(RateProfileFactory.getRateProfile("CONSTANT#0#100,CONSTANT#1000#1000"));
+        final long start = System.nanoTime();
+        for (int i = 0; i < 101; i++) {
+            cop.waitUntilSendable();
+        }
+        final long tookMillis = (System.nanoTime() - start) / NANOS_PER_MILLI;
+        assertTrue("took " + tookMillis, tookMillis >= 198 && tookMillis < 700);
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new RateLimitingSenderTrafficCop(0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
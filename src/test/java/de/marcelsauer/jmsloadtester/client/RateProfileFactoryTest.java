@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RateProfileFactoryTest extends AbstractJmsLoaderTest {
+
+    private static final long NANOS_PER_MILLI = 1000 * 1000;
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testLinear() {
+        final RateProfile profile = RateProfileFactory.getRateProfile("LINEAR#1000#50000#600000");
+        assertEquals(1, profile.getPhaseCount());
+        assertEquals(1000, profile.getRate(0), DELTA);
+        assertEquals(25500, profile.getRate(300000 * NANOS_PER_MILLI), DELTA);
+        assertEquals(50000, profile.getRate(600000 * NANOS_PER_MILLI), DELTA);
+        // the last rate is kept
+        assertEquals(50000, profile.getRate(900000 * NANOS_PER_MILLI), DELTA);
+    }
+
+    @Test
+    public void testStepIsExpandedToPhases() {
+        final RateProfile profile = RateProfileFactory.getRateProfile("STEP#1000#500#60000#3");
+        assertEquals(3, profile.getPhaseCount());
+        assertEquals(1000, profile.getRate(59999 * NANOS_PER_MILLI), DELTA);
+        assertEquals(1500, profile.getRate(60000 * NANOS_PER_MILLI), DELTA);
+        assertEquals(2000, profile.getRate(170000 * NANOS_PER_MILLI), DELTA);
+        assertEquals(0, profile.getPhase(0));
+        assertEquals(1, profile.getPhase(60000 * NANOS_PER_MILLI));
+        assertEquals(2, profile.getPhase(Long.MAX_VALUE));
+        assertEquals(120000 * NANOS_PER_MILLI, profile.getPhaseStartNanos(2));
+        assertEquals(Long.MAX_VALUE, profile.getPhaseEndNanos(2));
+    }
+
+    @Test
+    public void testSpikeIsExpandedToPhases() {
+        final RateProfile profile = RateProfileFactory.getRateProfile("SPIKE#100#5000#1000#200#2500");
+        // base 800, spike 200, base 800, spike 200, base 500
+        assertEquals(5, profile.getPhaseCount());
+        assertEquals(100, profile.getRate(799 * NANOS_PER_MILLI), DELTA);
+        assertEquals(5000, profile.getRate(800 * NANOS_PER_MILLI), DELTA);
+        assertEquals(100, profile.getRate(1000 * NANOS_PER_MILLI), DELTA);
+        assertEquals(2000 * NANOS_PER_MILLI, profile.getPhaseStartNanos(4));
+    }
+
+    @Test
+    public void testSineAndMultiplePhases() {
+        final RateProfile profile = RateProfileFactory.getRateProfile("CONSTANT#10#1000, SINE#1000#2000#4000#8000");
+        assertEquals(2, profile.getPhaseCount());
+        assertEquals(10, profile.getRate(500 * NANOS_PER_MILLI), DELTA);
+        assertEquals(1000, profile.getRate(1000 * NANOS_PER_MILLI), DELTA);
+        assertEquals(3000, profile.getRate(2000 * NANOS_PER_MILLI), DELTA);
+        // never below zero
+        assertEquals(0, profile.getRate(4000 * NANOS_PER_MILLI), DELTA);
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        assertInvalid(null);
+        assertInvalid("");
+        assertInvalid("FOO#1#2");
+        assertInvalid("LINEAR#1000#2000");
+        assertInvalid("CONSTANT#abc#1000");
+        assertInvalid("CONSTANT#-1#1000");
+        assertInvalid("CONSTANT#100#0");
+        assertInvalid("SPIKE#100#200#1000#1000#5000");
+        // must not end with a pause
+        assertInvalid("CONSTANT#100#1000,CONSTANT#0#1000");
+    }
+
+    private void assertInvalid(final String definition) {
+        try {
+            RateProfileFactory.getRateProfile(definition);
+            fail("expected IllegalArgumentException for " + definition);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
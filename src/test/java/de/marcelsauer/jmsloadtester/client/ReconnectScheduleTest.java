@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReconnectScheduleTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testSchedule() {
+        assertNull(ReconnectSchedule.getReconnectSchedule(ReconnectSchedule.NONE));
+        final ReconnectSchedule schedule = ReconnectSchedule.getReconnectSchedule("1000#200#2");
+        assertEquals(1000, schedule.getOnlineMillis());
+        assertEquals(200, schedule.getOfflineMillis());
+        assertTrue(schedule.isReconnecting(1));
+        assertFalse(schedule.isReconnecting(2));
+        assertTrue(ReconnectSchedule.getReconnectSchedule("1000#200").isReconnecting(100));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        for (String invalid : new String[] { null, "", "1000", "1000#0", "x#200", "1000#200#0", "1#2#3#4" }) {
+            try {
+                ReconnectSchedule.getReconnectSchedule(invalid);
+                fail("expected IllegalArgumentException for " + invalid);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
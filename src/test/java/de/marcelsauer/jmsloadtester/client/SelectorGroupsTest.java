@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.client;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SelectorGroupsTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testEqualGroups() {
+        final SelectorGroups groups = SelectorGroups.getSelectorGroups("4");
+        assertEquals(4, groups.getGroupCount());
+        assertEquals(0.25, groups.getShare(3), 0.0001);
+        assertEquals("4 groups (0: 25.0 %, 1: 25.0 %, 2: 25.0 %, 3: 25.0 %)", groups.toString());
+    }
+
+    @Test
+    public void testWeightedGroups() {
+        final SelectorGroups groups = SelectorGroups.getSelectorGroups("1#9");
+        assertEquals(2, groups.getGroupCount());
+        assertEquals(0.1, groups.getShare(0), 0.0001);
+        assertEquals(0.9, groups.getShare(1), 0.0001);
+        final int[] counts = new int[2];
+        for (int i = 0; i < 10000; i++) {
+            counts[groups.nextGroup()]++;
+        }
+        assertTrue("group 0 got " + counts[0], counts[0] > 800 && counts[0] < 1200);
+    }
+
+    @Test
+    public void testZeroWeightIsNeverPicked() {
+        final SelectorGroups groups = SelectorGroups.getSelectorGroups("0#1");
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(1, groups.nextGroup());
+        }
+    }
+
+    @Test
+    public void testSelector() {
+        final SelectorGroups groups = SelectorGroups.getSelectorGroups("3");
+        assertEquals("selectorGroup = 1", SelectorGroups.getSelector("selectorGroup = {group}", 4, groups));
+        assertEquals("selectorGroup = 4", SelectorGroups.getSelector("selectorGroup = {group}", 4, null));
+        assertEquals("type = 'x'", SelectorGroups.getSelector("type = 'x'", 4, groups));
+    }
+
+    @Test
+    public void testNone() {
+        assertNull(SelectorGroups.getSelectorGroups(SelectorGroups.NONE));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        for (String definition : new String[] { "", "0", "x", "1#-1", "0#0" }) {
+            try {
+                SelectorGroups.getSelectorGroups(definition);
+                fail("expected IllegalArgumentException for " + definition);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
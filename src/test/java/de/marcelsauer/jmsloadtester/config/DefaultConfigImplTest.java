@@ -16,12 +16,25 @@
 package de.marcelsauer.jmsloadtester.config;
 
 import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.client.DestinationRouter;
+import de.marcelsauer.jmsloadtester.client.Listener;
+import de.marcelsauer.jmsloadtester.client.ListenerAssignment;
+import de.marcelsauer.jmsloadtester.client.ReconnectSchedule;
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
+import de.marcelsauer.jmsloadtester.handler.AsyncSendWindow;
+import de.marcelsauer.jmsloadtester.handler.ConnectionPool;
+import de.marcelsauer.jmsloadtester.handler.ProducerCache;
+import de.marcelsauer.jmsloadtester.handler.ReplyDelay;
+import de.marcelsauer.jmsloadtester.handler.ReplyPayload;
+import de.marcelsauer.jmsloadtester.handler.Subscription;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategy;
 import de.marcelsauer.jmsloadtester.message.MessageContentStrategyFactory;
 import de.marcelsauer.jmsloadtester.message.StaticMessageContentStrategy;
 import de.marcelsauer.jmsloadtester.output.FileOutputStrategy;
 import de.marcelsauer.jmsloadtester.output.StderrOutputStrategy;
 import de.marcelsauer.jmsloadtester.output.StdoutOutputStrategy;
+import de.marcelsauer.jmsloadtester.tracker.HyperLogLogMessageIdTracker;
+import de.marcelsauer.jmsloadtester.tracker.WindowTracker;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -73,5 +86,36 @@ public class DefaultConfigImplTest extends AbstractJmsLoaderTest {
         assertTrue(config.getMessageInterceptors().size() == 1);
         assertTrue(config.isExplicitAcknowledgeMessage());
         assertTrue(config.getEachSubscriberWaitFor() == 3);
+
+        // optional values
+        assertTrue(config.getMessageIdTracker() instanceof HyperLogLogMessageIdTracker);
+        assertTrue(ConnectionPool.PER_CLIENT.equals(config.getSenderConnectionPool()));
+        assertTrue(ConnectionPool.PER_CLIENT.equals(config.getListenerConnectionPool()));
+        assertTrue(config.getSenderCommitEveryMessages() == 1);
+        assertTrue(config.getSenderCommitEveryMillis() == 0);
+        assertTrue(config.getListenerAcknowledgeEveryMessages() == 1);
+        assertTrue(config.getListenerAcknowledgeEveryMillis() == 0);
+        assertTrue(Listener.LISTENER.equals(config.getListenerConsumerMode()));
+        assertTrue(AsyncSendWindow.SYNC.equals(config.getSenderSendMode()));
+        assertTrue(config.getSenderReplyTo() == null);
+        assertTrue(!config.isListenerReply());
+        assertTrue(ReplyDelay.NONE.equals(config.getListenerReplyDelay()));
+        assertTrue(ReplyPayload.ECHO.equals(config.getListenerReplyPayload()));
+        assertTrue(config.getListenerReplyWorkers() == 0);
+        assertTrue(ProducerCache.PER_DESTINATION.equals(config.getSenderProducerMode()));
+        assertTrue(DestinationRouter.ROUND_ROBIN.equals(config.getSenderRouting()));
+        assertTrue(ListenerAssignment.SPREAD.equals(config.getListenerAssignment()));
+        assertTrue(Subscription.NONE.equals(config.getListenerSubscription()));
+        assertTrue(Subscription.DEFAULT_NAME.equals(config.getListenerSubscriptionName()));
+        assertTrue("".equals(config.getListenerClientIdPrefix()));
+        assertTrue(ReconnectSchedule.NONE.equals(config.getListenerReconnect()));
+        assertTrue(SelectorGroups.NONE.equals(config.getSenderSelectorGroups()));
+        assertTrue(config.getListenerSelector() == null);
+        assertTrue(0 == config.getRunDurationSeconds());
+        assertTrue(0 == config.getListenerIdleTimeoutSeconds());
+        assertTrue(0 == config.getOutputWindowSeconds());
+        assertTrue(!config.getOutputWindowStrategy().isEnabled());
+        assertTrue(WindowTracker.CSV.equals(config.getOutputWindowFormat()));
+        assertTrue(!config.getResultJsonOutputStrategy().isEnabled());
     }
 }
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.expectLastCall;
+import static org.junit.Assert.assertEquals;
+
+public class AcknowledgingMessageListenerTest extends AbstractJmsLoaderTest {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger commits = new AtomicInteger();
+    private final AtomicInteger acknowledges = new AtomicInteger();
+    private final AtomicInteger closes = new AtomicInteger();
+    private final TransactionTracker transactionTracker = new TransactionTracker(1, 0);
+
+    @Test
+    public void testCommitEveryMessages() throws JMSException {
+        final MessageListener listener = createListener(true, 3, 0, 100);
+        receive(listener, 7);
+        assertEquals(7, received.get());
+        assertEquals(2, commits.get());
+        assertEquals(0, acknowledges.get());
+        assertEquals(6, transactionTracker.getMessagesAcknowledged());
+    }
+
+    @Test
+    public void testAcknowledgeEveryMessages() throws JMSException {
+        final MessageListener listener = createListener(false, 4, 0, 100);
+        receive(listener, 9);
+        assertEquals(0, commits.get());
+        assertEquals(2, acknowledges.get());
+        assertEquals(2, transactionTracker.getAcknowledgeCount());
+    }
+
+    @Test
+    public void testLastMessageCompletesBatch() throws JMSException {
+        final MessageListener listener = createListener(true, 10, 0, 15);
+        receive(listener, 15);
+        assertEquals(2, commits.get());
+        assertEquals(15, transactionTracker.getMessagesAcknowledged());
+    }
+
+    @Test
+    public void testAcknowledgeEveryMillis() throws InterruptedException, JMSException {
+        final MessageListener listener = createListener(false, 1000, 50, 100);
+        receive(listener, 2);
+        assertEquals(0, acknowledges.get());
+        Thread.sleep(60);
+        receive(listener, 1);
+        assertEquals(1, acknowledges.get());
+        assertEquals(3, transactionTracker.getMessagesAcknowledged());
+    }
+
+    @Test
+    public void testFlushIfDue() throws InterruptedException, JMSException {
+        final AcknowledgingMessageListener listener = createListener(false, 1000, 30, 100);
+        receive(listener, 2);
+        Thread.sleep(40);
+        // no other thread touches the session, the batch waits for the consuming thread
+        assertEquals(0, acknowledges.get());
+        listener.flushIfDue();
+        assertEquals(1, acknowledges.get());
+        assertEquals(2, transactionTracker.getMessagesAcknowledged());
+    }
+
+    @Test
+    public void testFlushPartialBatch() throws JMSException {
+        final AcknowledgingMessageListener listener = createListener(true, 10, 0, 100);
+        receive(listener, 14);
+        assertEquals(1, commits.get());
+        assertEquals(4, listener.flush());
+        assertEquals(2, commits.get());
+        assertEquals(14, transactionTracker.getMessagesAcknowledged());
+        // nothing pending
+        assertEquals(0, listener.flush());
+        assertEquals(2, commits.get());
+    }
+
+    @Test
+    public void testCloseListenerBatches() throws JMSException {
+        final AcknowledgingMessageListener listener = createListener(true, 10, 0, 100);
+        transactionTracker.addListenerBatch(listener);
+        receive(listener, 14);
+        transactionTracker.closeListenerBatches();
+        // the consumer is closed and the rest of the batch is committed
+        assertEquals(1, closes.get());
+        assertEquals(2, commits.get());
+        assertEquals(4, transactionTracker.getListenerMessagesClosed());
+        // a closed batch is not closed again
+        transactionTracker.closeListenerBatches();
+        assertEquals(1, closes.get());
+        assertEquals(4, transactionTracker.getListenerMessagesClosed());
+    }
+
+    private AcknowledgingMessageListener createListener(final boolean transacted, final int everyMessages, final long everyMillis, final int lastMessage)
+            throws JMSException {
+        final MessageListener target = new MessageListener() {
+            public void onMessage(final Message message) {
+                received.incrementAndGet();
+            }
+        };
+        final Session session = createNiceMockOfType(Session.class);
+        session.commit();
+        expectLastCall().andAnswer(countCall(commits)).anyTimes();
+        final MessageConsumer consumer = createNiceMockOfType(MessageConsumer.class);
+        consumer.close();
+        expectLastCall().andAnswer(countCall(closes)).anyTimes();
+        replay(session);
+        replay(consumer);
+        return new AcknowledgingMessageListener(target, session, consumer, transacted, everyMessages, everyMillis, lastMessage, transactionTracker);
+    }
+
+    private void receive(final MessageListener listener, final int count) throws JMSException {
+        for (int i = 0; i < count; i++) {
+            final Message message = createNiceMockOfType(Message.class);
+            message.acknowledge();
+            expectLastCall().andAnswer(countCall(acknowledges)).anyTimes();
+            replay(message);
+            listener.onMessage(message);
+        }
+    }
+
+    private IAnswer<Object> countCall(final AtomicInteger counter) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                counter.incrementAndGet();
+                return null;
+            }
+        };
+    }
+}
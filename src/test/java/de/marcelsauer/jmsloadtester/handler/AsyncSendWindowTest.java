@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.message.MessageSentAware;
+import de.marcelsauer.jmsloadtester.tracker.MessageTracker;
+import de.marcelsauer.jmsloadtester.tracker.MessageTrackerImpl;
+import de.marcelsauer.jmsloadtester.tracker.TransactionTracker;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncSendWindowTest extends AbstractJmsLoaderTest {
+
+    private final List<CompletionCallback> inFlight = new CopyOnWriteArrayList<CompletionCallback>();
+    private final AtomicInteger sent = new AtomicInteger();
+    private final TransactionTracker transactionTracker = new TransactionTracker(1, 0);
+    private final MessageTracker messageTracker = new MessageTrackerImpl();
+    private final Message message = createNiceMockOfType(Message.class);
+
+    // the JMS 2.0 completion listener, we compile against JMS 1.1
+    public interface CompletionCallback {
+        void onCompletion(Message message);
+
+        void onException(Message message, Exception exception);
+    }
+
+    public interface AsyncProducer extends MessageProducer {
+        void send(Message message, CompletionCallback callback);
+    }
+
+    @Before
+    public void setUp() {
+        replay(message);
+    }
+
+    @Test
+    public void testSendModes() {
+        assertEquals(0, AsyncSendWindow.getWindowSize("SYNC"));
+        assertEquals(100, AsyncSendWindow.getWindowSize("ASYNC"));
+        assertEquals(5, AsyncSendWindow.getWindowSize(" ASYNC#5 "));
+    }
+
+    @Test
+    public void testJms11ProviderHasNoAsyncSend() {
+        final MessageProducer producer = createNiceMockOfType(MessageProducer.class);
+        replay(producer);
+        assertNull(AsyncSendWindow.getAsyncSend(producer, AsyncSendWindow.COMPLETION_LISTENER));
+        assertNull(AsyncSendWindow.getAsyncSend(producer, CompletionCallback.class.getName()));
+        assertNotNull(AsyncSendWindow.getAsyncSend(createProducer(), CompletionCallback.class.getName()));
+        assertNull(AsyncSendWindow.getAsyncSend(createProducer(), CompletionCallback.class.getName(), true));
+        assertNotNull(AsyncSendWindow.getAsyncSend(createProducer(), CompletionCallback.class.getName(), false));
+    }
+
+    @Test
+    public void testSentOnCompletion() {
+        final AsyncSendWindow window = createWindow(3);
+        window.send(message);
+        window.send(message);
+        assertEquals(2, window.getInFlight());
+        assertEquals(0, sent.get());
+        inFlight.get(0).onCompletion(message);
+        assertEquals(1, window.getInFlight());
+        assertEquals(1, sent.get());
+        assertEquals(1, transactionTracker.getCompletionCount());
+    }
+
+    @Test
+    public void testWindowBlocksSender() throws InterruptedException {
+        final AsyncSendWindow window = createWindow(2);
+        window.send(message);
+        window.send(message);
+        final Thread sender = new Thread(new Runnable() {
+            public void run() {
+                window.send(message);
+            }
+        });
+        sender.start();
+        sender.join(100);
+        assertTrue(sender.isAlive());
+        inFlight.get(0).onCompletion(message);
+        sender.join(1000);
+        assertFalse(sender.isAlive());
+        assertEquals(3, inFlight.size());
+        assertEquals(2, window.getInFlight());
+    }
+
+    @Test
+    public void testAwaitCompletion() throws InterruptedException {
+        final AsyncSendWindow window = createWindow(4);
+        window.send(message);
+        window.send(message);
+        final Thread completer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                inFlight.get(0).onCompletion(message);
+                inFlight.get(1).onException(message, new IllegalStateException("expected by the test"));
+            }
+        });
+        completer.start();
+        window.awaitCompletion();
+        assertEquals(0, window.getInFlight());
+        assertEquals(1, sent.get());
+        assertEquals(1, transactionTracker.getCompletionFailures());
+        assertEquals(1, messageTracker.getSendErrors());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[] invalid = { null, "FAST", "ASYNC#0", "ASYNC#x", "SYNC#5", "ASYNC#1#2" };
+        for (String mode : invalid) {
+            try {
+                AsyncSendWindow.getWindowSize(mode);
+                fail("expected IllegalArgumentException for " + mode);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private AsyncSendWindow createWindow(final int size) {
+        final MessageProducer producer = createProducer();
+        final MessageSentAware sentAware = new MessageSentAware() {
+            public void messageSent(final Message message) {
+                sent.incrementAndGet();
+            }
+        };
+        return new AsyncSendWindow(producer, AsyncSendWindow.getAsyncSend(producer, CompletionCallback.class.getName()), size, sentAware, messageTracker, transactionTracker);
+    }
+
+    private MessageProducer createProducer() {
+        final AsyncProducer producer = createNiceMockOfType(AsyncProducer.class);
+        producer.send((Message) anyObject(), (CompletionCallback) anyObject());
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                inFlight.add((CompletionCallback) getCurrentArguments()[1]);
+                return null;
+            }
+        }).anyTimes();
+        replay(producer);
+        return producer;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConnectionPoolTest extends AbstractJmsLoaderTest {
+
+    private final AtomicInteger connectionsCreated = new AtomicInteger();
+    private final List<String> clientIds = new CopyOnWriteArrayList<String>();
+
+    @Test
+    public void testPerClient() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), ConnectionPool.PER_CLIENT, 3);
+        final Connection[] connections = connectClients(pool, 3);
+        assertNotSame(connections[0], connections[1]);
+        assertNotSame(connections[1], connections[2]);
+        assertEquals(3, pool.getConnectionCount());
+        assertEquals(3, connectionsCreated.get());
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "ROUND_ROBIN#2", 5);
+        final Connection[] connections = connectClients(pool, 5);
+        assertNotSame(connections[0], connections[1]);
+        assertSame(connections[0], connections[2]);
+        assertSame(connections[1], connections[3]);
+        assertSame(connections[0], connections[4]);
+        assertEquals(2, pool.getConnectionCount());
+        assertEquals(5, pool.getClientCount());
+    }
+
+    @Test
+    public void testAffinity() throws Exception {
+        // 5 clients on 2 connections, 3 on the first one
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "AFFINITY#2", 5);
+        final Connection[] connections = connectClients(pool, 5);
+        assertSame(connections[0], connections[1]);
+        assertSame(connections[0], connections[2]);
+        assertNotSame(connections[0], connections[3]);
+        assertSame(connections[3], connections[4]);
+        assertEquals(2, pool.getConnectionCount());
+    }
+
+    @Test
+    public void testSameThreadKeepsItsConnection() throws JMSException {
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "ROUND_ROBIN#4", 1);
+        final Connection connection = pool.getConnection();
+        for (int i = 0; i < 10; i++) {
+            assertSame(connection, pool.getConnection("user", "password"));
+        }
+        assertEquals(1, pool.getClientCount());
+    }
+
+    @Test
+    public void testSessionsPerConnectionLimit() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "ROUND_ROBIN#1#2", 3);
+        connectClients(pool, 2);
+        try {
+            pool.getConnection();
+            fail("expected JmsException");
+        } catch (JmsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testClientIds() throws Exception {
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "ROUND_ROBIN#2", 3);
+        pool.setClientIdPrefix("durable");
+        connectClients(pool, 3);
+        assertEquals(Arrays.asList("durable-0", "durable-1"), clientIds);
+
+        clientIds.clear();
+        final ConnectionPool perClient = new ConnectionPool(createConnectionFactory(), ConnectionPool.PER_CLIENT, 2);
+        perClient.setClientIdPrefix("");
+        connectClients(perClient, 2);
+        assertTrue(clientIds.isEmpty());
+    }
+
+    @Test
+    public void testNumberedClientsKeepTheirClientIds() throws Exception {
+        // the threads come in reverse order, the connections follow the numbers of the clients
+        final ConnectionPool pool = new ConnectionPool(createConnectionFactory(), "AFFINITY#2", 4);
+        pool.setClientIdPrefix("durable");
+        final Connection[] connections = new Connection[4];
+        for (int i = 3; i >= 0; i--) {
+            final int client = i;
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    connections[client] = pool.getConnection(client, null, null);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        assertSame(connections[0], connections[1]);
+        assertSame(connections[2], connections[3]);
+        assertNotSame(connections[0], connections[2]);
+        assertEquals(Arrays.asList("durable-1", "durable-0"), clientIds);
+
+        clientIds.clear();
+        final ConnectionPool perClient = new ConnectionPool(createConnectionFactory(), ConnectionPool.PER_CLIENT, 3);
+        perClient.setClientIdPrefix("durable");
+        final Thread thread = new Thread(new Runnable() {
+            public void run() {
+                perClient.getConnection(2, null, null);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(Arrays.asList("durable-2"), clientIds);
+    }
+
+    @Test
+    public void testExceptionBehaviour() throws JMSException {
+        for (String type : new String[] { null, "", "ROUND_ROBIN", "ROUND_ROBIN#0", "AFFINITY#x", "AFFINITY#2#0", "PER_CLIENT#2", "RANDOM#2" }) {
+            try {
+                new ConnectionPool(createConnectionFactory(), type, 1);
+                fail("expected IllegalArgumentException for " + type);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    // every client is a thread of its own
+    private Connection[] connectClients(final ConnectionPool pool, final int clients) throws InterruptedException {
+        final Connection[] connections = new Connection[clients];
+        for (int i = 0; i < clients; i++) {
+            final int client = i;
+            final Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    connections[client] = pool.getConnection();
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        return connections;
+    }
+
+    private ConnectionFactory createConnectionFactory() throws JMSException {
+        final ConnectionFactory connectionFactory = createNiceMockOfType(ConnectionFactory.class);
+        final IAnswer<Connection> newConnection = new IAnswer<Connection>() {
+            public Connection answer() throws JMSException {
+                connectionsCreated.incrementAndGet();
+                return createConnection();
+            }
+        };
+        expect(connectionFactory.createConnection()).andAnswer(newConnection).anyTimes();
+        expect(connectionFactory.createConnection((String) anyObject(), (String) anyObject())).andAnswer(newConnection).anyTimes();
+        replay(connectionFactory);
+        return connectionFactory;
+    }
+
+    private Connection createConnection() throws JMSException {
+        final Connection connection = createNiceMockOfType(Connection.class);
+        connection.setClientID((String) anyObject());
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                clientIds.add((String) getCurrentArguments()[0]);
+                return null;
+            }
+        }).anyTimes();
+        replay(connection);
+        return connection;
+    }
+}
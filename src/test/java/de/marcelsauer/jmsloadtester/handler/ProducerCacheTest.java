@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProducerCacheTest extends AbstractJmsLoaderTest {
+
+    private final Map<String, Destination> destinations = new HashMap<String, Destination>();
+    private final List<Destination> producerDestinations = new ArrayList<Destination>();
+    // the destination of each send, the one of the producer if the send names none
+    private final List<Destination> sentTo = new ArrayList<Destination>();
+    private int lookups;
+    private final Message message = createNiceMockOfType(Message.class);
+
+    @Test
+    public void testProducerPerDestination() throws JMSException {
+        final ProducerCache cache = createCache(ProducerCache.PER_DESTINATION);
+        send(cache, "a", "b", "a", "c", "b");
+        assertEquals(3, cache.getProducerCount());
+        assertEquals(3, producerDestinations.size());
+        assertEquals(3, lookups);
+        assertEquals(getDestinations("a", "b", "a", "c", "b"), sentTo);
+        assertFalse(cache.getTarget("a").isAsync());
+    }
+
+    @Test
+    public void testAnonymousProducer() throws JMSException {
+        final ProducerCache cache = createCache(ProducerCache.ANONYMOUS);
+        send(cache, "a", "b", "a", "c");
+        assertEquals(1, cache.getProducerCount());
+        assertEquals(1, producerDestinations.size());
+        assertTrue(producerDestinations.get(0) == null);
+        assertEquals(3, lookups);
+        assertEquals(getDestinations("a", "b", "a", "c"), sentTo);
+    }
+
+    @Test
+    public void testTransacted() throws JMSException {
+        assertTrue(createCache(ProducerCache.PER_DESTINATION, true).isTransacted());
+        assertFalse(createCache(ProducerCache.PER_DESTINATION, false).isTransacted());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[] invalid = { null, "", "PER_THREAD", "anonymous" };
+        for (String mode : invalid) {
+            try {
+                ProducerCache.isAnonymous(mode);
+                fail("expected IllegalArgumentException for " + mode);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private void send(final ProducerCache cache, final String... names) throws JMSException {
+        for (String name : names) {
+            cache.getTarget(name).send(message);
+        }
+    }
+
+    private List<Destination> getDestinations(final String... names) {
+        final List<Destination> result = new ArrayList<Destination>();
+        for (String name : names) {
+            result.add(destinations.get(name));
+        }
+        return result;
+    }
+
+    private ProducerCache createCache(final String mode) throws JMSException {
+        return createCache(mode, false);
+    }
+
+    private ProducerCache createCache(final String mode, final boolean transacted) throws JMSException {
+        final Session session = createNiceMockOfType(Session.class);
+        expect(session.getTransacted()).andReturn(transacted).anyTimes();
+        replay(session);
+        return new ProducerCache(session, mode) {
+            @Override
+            protected Destination lookup(final String destination) {
+                lookups++;
+                Destination result = destinations.get(destination);
+                if (result == null) {
+                    result = createNiceMockOfType(Destination.class);
+                    destinations.put(destination, result);
+                }
+                return result;
+            }
+
+            @Override
+            protected MessageProducer createProducer(final Destination destination) throws JMSException {
+                producerDestinations.add(destination);
+                final MessageProducer producer = createNiceMockOfType(MessageProducer.class);
+                producer.send((Message) anyObject());
+                expectLastCall().andAnswer(new IAnswer<Object>() {
+                    public Object answer() {
+                        sentTo.add(destination);
+                        return null;
+                    }
+                }).anyTimes();
+                producer.send((Destination) anyObject(), (Message) anyObject());
+                expectLastCall().andAnswer(new IAnswer<Object>() {
+                    public Object answer() {
+                        sentTo.add((Destination) getCurrentArguments()[0]);
+                        return null;
+                    }
+                }).anyTimes();
+                replay(producer);
+                return producer;
+            }
+
+            @Override
+            protected AsyncSendWindow createAsyncSendWindow(final MessageProducer producer, final boolean anonymous) {
+                return null;
+            }
+        };
+    }
+}
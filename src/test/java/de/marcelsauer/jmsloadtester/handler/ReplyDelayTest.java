@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplyDelayTest extends AbstractJmsLoaderTest {
+
+    private static final long NANOS_PER_MILLI = 1000 * 1000;
+    private static final int SAMPLES = 20000;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testNoneAndConstant() {
+        assertTrue(ReplyDelay.getReplyDelay("NONE").isNone());
+        assertEquals(0, ReplyDelay.getReplyDelay("NONE").nextDelayNanos(random));
+        assertEquals(2500 * 1000, ReplyDelay.getReplyDelay("CONSTANT#2.5").nextDelayNanos(random));
+    }
+
+    @Test
+    public void testDistributions() {
+        final ReplyDelay uniform = ReplyDelay.getReplyDelay("UNIFORM#2#4");
+        for (int i = 0; i < SAMPLES; i++) {
+            final long delay = uniform.nextDelayNanos(random);
+            assertTrue("was " + delay, delay >= 2 * NANOS_PER_MILLI && delay <= 4 * NANOS_PER_MILLI);
+        }
+        assertEquals(3d, getMeanMillis(uniform), 0.05);
+        assertEquals(5d, getMeanMillis(ReplyDelay.getReplyDelay("EXPONENTIAL#5")), 0.2);
+        final ReplyDelay normal = ReplyDelay.getReplyDelay("NORMAL#1#2");
+        for (int i = 0; i < SAMPLES; i++) {
+            assertTrue(normal.nextDelayNanos(random) >= 0);
+        }
+        assertEquals(10d, getMeanMillis(ReplyDelay.getReplyDelay("NORMAL#10#1")), 0.05);
+    }
+
+    @Test
+    public void testAwait() {
+        final long start = System.nanoTime();
+        ReplyDelay.getReplyDelay("CONSTANT#20").await();
+        assertTrue(System.nanoTime() - start >= 20 * NANOS_PER_MILLI);
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        final String[] invalid = { null, " ", "GAUSS#1", "CONSTANT", "CONSTANT#1#2", "UNIFORM#4#2", "EXPONENTIAL#-1", "NORMAL#a#1", "NONE#1" };
+        for (String definition : invalid) {
+            try {
+                ReplyDelay.getReplyDelay(definition);
+                fail("expected IllegalArgumentException for " + definition);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    private double getMeanMillis(final ReplyDelay delay) {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            sum += delay.nextDelayNanos(random);
+        }
+        return sum / SAMPLES / NANOS_PER_MILLI;
+    }
+}
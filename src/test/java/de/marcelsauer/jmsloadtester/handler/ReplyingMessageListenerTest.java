@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.tracker.ReplyTracker;
+import org.easymock.IAnswer;
+import org.easymock.classextension.EasyMock;
+import org.junit.Test;
+
+import javax.jms.DeliveryMode;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.same;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplyingMessageListenerTest extends AbstractJmsLoaderTest {
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final List<TextMessage> replies = new CopyOnWriteArrayList<TextMessage>();
+    private final List<String> replyingThreads = new CopyOnWriteArrayList<String>();
+    private final ReplyTracker replyTracker = new ReplyTracker((String) null);
+    private final Destination replyTo = createNiceMockOfType(Destination.class);
+
+    @Test
+    public void testEcho() throws JMSException {
+        final MessageListener listener = createListener(ReplyDelay.NONE, ReplyPayload.ECHO, null);
+        listener.onMessage(createRequest("hello", "request-1", "id-1", replyTo));
+        listener.onMessage(createRequest("no correlation id", null, "id-2", replyTo));
+        listener.onMessage(createRequest("fire and forget", "request-3", "id-3", null));
+        assertEquals(3, received.get());
+        assertEquals(2, replies.size());
+        assertEquals("hello", replies.get(0).getText());
+        assertEquals("request-1", replies.get(0).getJMSCorrelationID());
+        assertEquals("id-2", replies.get(1).getJMSCorrelationID());
+        assertEquals(2, replyTracker.getRepliesSent());
+        assertEquals(2, replyTracker.getServiceTimeHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testPayload() throws JMSException {
+        createListener(ReplyDelay.NONE, "SIZE#10", null).onMessage(createRequest("hello", "request-1", "id-1", replyTo));
+        createListener(ReplyDelay.NONE, "STATIC#done#ok", null).onMessage(createRequest("hello", "request-2", "id-2", replyTo));
+        assertEquals("xxxxxxxxxx", replies.get(0).getText());
+        assertEquals("done#ok", replies.get(1).getText());
+    }
+
+    @Test
+    public void testWorkersReplyAfterDelay() throws JMSException, InterruptedException {
+        final ReplyWorkers workers = new ReplyWorkers(2, DeliveryMode.NON_PERSISTENT) {
+            @Override
+            protected Session createSession() throws JMSException {
+                return createReplySession();
+            }
+        };
+        final MessageListener listener = createListener("CONSTANT#20", ReplyPayload.ECHO, workers);
+        for (int i = 0; i < 4; i++) {
+            listener.onMessage(createRequest("hello " + i, "request-" + i, "id-" + i, replyTo));
+        }
+        for (int i = 0; i < 100 && replyTracker.getRepliesSent() < 4; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(4, replies.size());
+        // the service time is in microseconds
+        assertTrue(replyTracker.getServiceTimeHistogram().getMin() >= 19 * 1000);
+        for (String thread : replyingThreads) {
+            assertTrue(thread, thread.startsWith("Reply Worker"));
+        }
+    }
+
+    @Test
+    public void testWorkerFailuresAreCounted() throws JMSException, InterruptedException {
+        // no listener handed over its connection
+        final ReplyWorkers workers = new ReplyWorkers(2, DeliveryMode.NON_PERSISTENT);
+        final MessageListener listener = createListener(ReplyDelay.NONE, ReplyPayload.ECHO, workers);
+        for (int i = 0; i < 3; i++) {
+            listener.onMessage(createRequest("hello " + i, "request-" + i, "id-" + i, replyTo));
+        }
+        for (int i = 0; i < 100 && replyTracker.getReplyFailures() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, replyTracker.getReplyFailures());
+        assertEquals(0, replyTracker.getRepliesSent());
+        assertEquals(3, received.get());
+    }
+
+    @Test
+    public void testWorkersAreOptional() {
+        assertFalse(new ReplyWorkers(0, DeliveryMode.NON_PERSISTENT).isEnabled());
+        assertTrue(new ReplyWorkers(1, DeliveryMode.NON_PERSISTENT).isEnabled());
+    }
+
+    private MessageListener createListener(final String delay, final String payload, final ReplyWorkers workers) throws JMSException {
+        final MessageListener target = new MessageListener() {
+            public void onMessage(final Message message) {
+                received.incrementAndGet();
+            }
+        };
+        return new ReplyingMessageListener(target, createReplySession(), DeliveryMode.NON_PERSISTENT, replyTracker, ReplyDelay.getReplyDelay(delay),
+                ReplyPayload.getReplyPayload(payload), workers);
+    }
+
+    private TextMessage createRequest(final String text, final String correlationId, final String messageId, final Destination replyTo)
+            throws JMSException {
+        final TextMessage request = createNiceMockOfType(TextMessage.class);
+        expect(request.getText()).andReturn(text).anyTimes();
+        expect(request.getJMSCorrelationID()).andReturn(correlationId).anyTimes();
+        expect(request.getJMSMessageID()).andReturn(messageId).anyTimes();
+        expect(request.getJMSReplyTo()).andReturn(replyTo).anyTimes();
+        replay(request);
+        return request;
+    }
+
+    // the workers create their sessions and replies on their own threads, these mocks are not kept in the mocks list
+    private Session createReplySession() throws JMSException {
+        final Session session = EasyMock.createNiceMock(Session.class);
+        expect(session.createTextMessage((String) anyObject())).andAnswer(new IAnswer<TextMessage>() {
+            public TextMessage answer() throws JMSException {
+                return createReply((String) getCurrentArguments()[0]);
+            }
+        }).anyTimes();
+        expect(session.createProducer((Destination) anyObject())).andReturn(createProducer()).anyTimes();
+        EasyMock.replay(session);
+        return session;
+    }
+
+    // a reply that returns its text and the correlation id set by the listener
+    private TextMessage createReply(final String text) throws JMSException {
+        final TextMessage reply = EasyMock.createNiceMock(TextMessage.class);
+        final String[] correlationId = new String[1];
+        expect(reply.getText()).andReturn(text).anyTimes();
+        reply.setJMSCorrelationID((String) anyObject());
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                correlationId[0] = (String) getCurrentArguments()[0];
+                return null;
+            }
+        }).anyTimes();
+        expect(reply.getJMSCorrelationID()).andAnswer(new IAnswer<String>() {
+            public String answer() {
+                return correlationId[0];
+            }
+        }).anyTimes();
+        EasyMock.replay(reply);
+        return reply;
+    }
+
+    private MessageProducer createProducer() throws JMSException {
+        final MessageProducer producer = EasyMock.createNiceMock(MessageProducer.class);
+        producer.send(same(replyTo), (Message) anyObject());
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                replyingThreads.add(Thread.currentThread().getName());
+                replies.add((TextMessage) getCurrentArguments()[1]);
+                return null;
+            }
+        }).anyTimes();
+        EasyMock.replay(producer);
+        return producer;
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.handler;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.core.JmsException;
+import org.junit.Test;
+
+import javax.jms.Destination;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.jms.TopicSubscriber;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SubscriptionTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testNames() {
+        assertNull(Subscription.getSubscription(Subscription.NONE, "sub", 3, 1).getName());
+        assertEquals("sub-3", Subscription.getSubscription(Subscription.DURABLE, "sub", 3, 1).getName());
+        assertEquals("sub-1", Subscription.getSubscription(Subscription.SHARED, "sub", 3, 1).getName());
+        assertEquals("sub-1", Subscription.getSubscription(Subscription.SHARED_DURABLE, "sub", 3, 1).getName());
+        assertTrue(Subscription.getSubscription(Subscription.DURABLE).isClientIdNeeded());
+        assertFalse(Subscription.getSubscription(Subscription.SHARED_DURABLE).isClientIdNeeded());
+    }
+
+    @Test
+    public void testCreateConsumer() throws Exception {
+        final Session session = createMockOfType(Session.class);
+        final Queue queue = createNiceMockOfType(Queue.class);
+        final Topic topic = createNiceMockOfType(Topic.class);
+        final MessageConsumer consumer = createNiceMockOfType(MessageConsumer.class);
+        final TopicSubscriber subscriber = createNiceMockOfType(TopicSubscriber.class);
+        expect(session.createConsumer(queue, null)).andReturn(consumer);
+        expect(session.createDurableSubscriber(topic, "sub-2", "selectorGroup = 1", false)).andReturn(subscriber);
+        replay();
+        assertEquals(consumer, Subscription.getSubscription(Subscription.NONE).createConsumer(session, queue, null));
+        assertEquals(subscriber, Subscription.getSubscription(Subscription.DURABLE, "sub", 2, 0).createConsumer(session, topic, "selectorGroup = 1"));
+        verify();
+    }
+
+    @Test
+    public void testExceptionBehaviour() throws Exception {
+        final Session session = createNiceMockOfType(Session.class);
+        // a durable subscription on a queue, a shared one with a JMS 1.1 session
+        final Object[][] invalid = { { Subscription.DURABLE, createNiceMockOfType(Queue.class) }, { Subscription.SHARED, createNiceMockOfType(Topic.class) } };
+        replay();
+        for (Object[] test : invalid) {
+            try {
+                Subscription.getSubscription((String) test[0]).createConsumer(session, (Destination) test[1], null);
+                fail("expected JmsException for " + test[0]);
+            } catch (JmsException e) {
+                // expected
+            }
+        }
+        for (String type : new String[] { null, "UNKNOWN" }) {
+            try {
+                Subscription.getSubscription(type);
+                fail("expected IllegalArgumentException for " + type);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.message;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RepeatingMessageContentStrategyTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testContentIsRepeated() {
+        final RepeatingMessageContentStrategy strategy = getStrategy(3);
+        int amount = 0;
+        for (Payload message : strategy) {
+            assertEquals("aaa", message.asString());
+            if (++amount == 10) {
+                break;
+            }
+        }
+        assertEquals(10, amount);
+        assertEquals(4, strategy.getRounds());
+        assertEquals(3, strategy.getMessageCount());
+        assertTrue(strategy.getDescription().startsWith("repeating [Static"));
+    }
+
+    @Test
+    public void testEmptyContentEnds() {
+        assertFalse(getStrategy(0).hasNext());
+    }
+
+    @Test
+    public void testRoundsReuseThePayloads() {
+        final RepeatingMessageContentStrategy strategy = new RepeatingMessageContentStrategy(new SizeMessageContentStrategy(10, 2) {
+            private int created;
+
+            @Override
+            public Payload next() {
+                return new Payload("payload " + created++);
+            }
+        });
+        final List<Payload> sent = new ArrayList<Payload>();
+        for (int i = 0; i < 6; i++) {
+            assertTrue(strategy.hasNext());
+            sent.add(strategy.next());
+        }
+        assertSame(sent.get(0), sent.get(2));
+        assertSame(sent.get(1), sent.get(5));
+        assertEquals("payload 1", sent.get(3).asString());
+        assertEquals(3, strategy.getRounds());
+    }
+
+    private RepeatingMessageContentStrategy getStrategy(final int messageCount) {
+        return new RepeatingMessageContentStrategy(new StaticMessageContentStrategy("aaa", messageCount));
+    }
+}
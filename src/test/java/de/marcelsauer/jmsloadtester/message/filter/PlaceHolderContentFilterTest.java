@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.message.filter;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.message.Payload;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlaceHolderContentFilterTest extends AbstractJmsLoaderTest {
+
+    private PlaceHolderContentFilter filter;
+
+    @Before
+    public void setUp() throws Exception {
+        final FilterFactoryImpl factory = new FilterFactoryImpl();
+        factory.setDateFilter(new DateFilter());
+        factory.setNanoFilter(new NanoFilter());
+        factory.setRandFilter(new RandomFilter());
+        filter = new PlaceHolderContentFilter(factory);
+    }
+
+    @Test
+    public void testPayloadWithoutPlaceHoldersIsNotCopied() {
+        final Payload payload = new Payload("test 1 1 1 :: :unknown: datetime:");
+        assertSame(payload, filter.filter(payload));
+        assertSame(payload, filter.filter(payload));
+    }
+
+    @Test
+    public void testAllPlaceHoldersAreReplaced() {
+        final Payload payload = new Payload("<a>:nanotime:</a><b>:random:</b>:::datetime:::<c>:nanotime:</c>");
+        final String filtered = filter.filter(payload).asString();
+        assertTrue(filtered, filtered.matches("<a>[0-9]{10,}</a><b>-?[0-9]+</b>::[a-zA-Z]+ [a-zA-Z]+ [0-9]+ [0-9]+:[0-9]+:[0-9]+ [a-zA-Z]+ 20[0-9]+::<c>[0-9]{10,}</c>"));
+        // the template is reused
+        assertTrue(filter.filter(payload).asString().matches("<a>[0-9]{10,}</a>.*"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTemplatesAreDropped() {
+        final Payload kept = new Payload("<a>:random:</a>");
+        filter.filter(kept);
+        for (int i = 0; i < 2000; i++) {
+            filter.filter(new Payload("<b>:random:</b>"));
+            filter.filter(kept);
+        }
+        assertTrue(filter.filter(kept).asString().matches("<a>-?[0-9]+</a>"));
+        assertEquals(1024, filter.getCachedTemplateCount());
+    }
+
+    @Test
+    public void testBufferIsReused() {
+        final Payload big = new Payload(":random:" + new String(new char[1000]).replace('\0', 'x'));
+        final Payload small = new Payload("<a>:random:</a>");
+        final Payload first = filter.filter(big);
+        final Payload second = filter.filter(small);
+        assertSame(first.getBuffer(), second.getBuffer());
+        assertTrue(second.asString().matches("<a>-?[0-9]+</a>"));
+        assertEquals(second.length(), second.asBytes().length);
+    }
+}
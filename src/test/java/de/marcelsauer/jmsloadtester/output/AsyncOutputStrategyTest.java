@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.output;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncOutputStrategyTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testLinesAreWrittenInOrderAndDrainedOnShutdown() {
+        final List<String> lines = new ArrayList<String>();
+        final AsyncOutputStrategy strategy = new AsyncOutputStrategy(new OutputStrategy() {
+            public void output(final String line) {
+                lines.add(line);
+            }
+
+            public boolean isEnabled() {
+                return true;
+            }
+        }, 2048);
+        for (int i = 0; i < 1000; i++) {
+            strategy.output("line " + i);
+        }
+        strategy.shutdown();
+
+        assertEquals(1000, strategy.getLinesWritten());
+        assertEquals(0, strategy.getLinesDropped());
+        assertEquals(1000, lines.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("line " + i, lines.get(i));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.output;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.core.Constants;
+import de.marcelsauer.jmsloadtester.tools.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BufferedFileOutputStrategyTest extends AbstractJmsLoaderTest {
+
+    private final String testfile = System.getProperty("java.io.tmpdir") + Constants.SEP + "buffered-test.tmp";
+
+    @Before
+    public void setUp() throws Exception {
+        new File(testfile).delete();
+    }
+
+    @Test
+    public void testOutputIsWrittenOnShutdown() throws FileNotFoundException {
+        // a buffer of 1 KB is full many times
+        final BufferedFileOutputStrategy strategy = new BufferedFileOutputStrategy(testfile, 60000, 1);
+        final StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < 1000; i++) {
+            strategy.output("line " + i);
+            expected.append("line " + i + Constants.EOL);
+        }
+        strategy.shutdown();
+        assertEquals(expected.toString(), FileUtils.getFileContents(new File(testfile)));
+        assertEquals(1000, strategy.getLinesWritten());
+        assertEquals(0, strategy.getLinesDropped());
+    }
+
+    @Test
+    public void testOutputIsFlushedAfterInterval() throws Exception {
+        final BufferedFileOutputStrategy strategy = new BufferedFileOutputStrategy(testfile, 50, 256);
+        strategy.output("test");
+        Thread.sleep(500);
+        assertEquals("test" + Constants.EOL, FileUtils.getFileContents(new File(testfile)));
+        strategy.shutdown();
+    }
+
+    @Test
+    public void testFactory() {
+        assertTrue(OutputStrategyFactory.getOutputStrategy("BUFFERED_FILE#" + testfile) instanceof BufferedFileOutputStrategy);
+        assertTrue(OutputStrategyFactory.getOutputStrategy("BUFFERED_FILE#" + testfile + "#100#64") instanceof BufferedFileOutputStrategy);
+    }
+}
@@ -29,6 +29,7 @@ public class OutputStrategyFactoryTest extends AbstractJmsLoaderTest {
         assertTrue(OutputStrategyFactory.getOutputStrategy("STDERR") instanceof StderrOutputStrategy);
         assertTrue(OutputStrategyFactory.getOutputStrategy("SILENT") instanceof SilentOutputStrategy);
         assertTrue(OutputStrategyFactory.getOutputStrategy("FILE") instanceof FileOutputStrategy);
+        assertTrue(OutputStrategyFactory.getOutputStrategy("ASYNC#STDOUT") instanceof AsyncOutputStrategy);
 
         try {
             OutputStrategyFactory.getOutputStrategy("NOT THERE");
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.result;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class DefaultResultContainerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testOutputJson() {
+        final ResultContainer container = new DefaultResultContainer();
+        container.addResultKeyValue("total messages sent", 1200);
+        container.addResultKeyValue("Latency p99 milliseconds", "158.719");
+        container.addResultKeyValue("Run ended by", "duration");
+        final List<String> lines = new ArrayList<String>();
+        container.outputJson(new OutputStrategy() {
+            public void output(final String line) {
+                lines.add(line);
+            }
+
+            public boolean isEnabled() {
+                return true;
+            }
+        });
+        assertEquals(1, lines.size());
+        assertEquals("{\"total messages sent\": 1200, \"Latency p99 milliseconds\": 158.719, \"Run ended by\": \"duration\"}", lines.get(0));
+    }
+}
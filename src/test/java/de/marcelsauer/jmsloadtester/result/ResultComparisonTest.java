@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.result;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.result.ResultComparison.Metric;
+import de.marcelsauer.jmsloadtester.result.ResultComparison.MetricComparison;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultComparisonTest extends AbstractJmsLoaderTest {
+
+    private static final String RATE = "Listener messages / sec";
+    private static final String P99 = "Latency p99 milliseconds";
+
+    private final ResultComparison comparison = new ResultComparison(Arrays.asList(new Metric(RATE, true), new Metric(P99, false)), 5, 0.05);
+
+    @Test
+    public void testUnchanged() {
+        final List<MetricComparison> result = comparison.compare(runs(1000, 1010, 990), runs(1020, 1000, 1005));
+        assertEquals(MetricComparison.UNCHANGED, result.get(0).getVerdict());
+        assertEquals(-0.83, result.get(0).getWorsePercent(), 0.01);
+        assertFalse(ResultComparison.hasRegression(result));
+    }
+
+    @Test
+    public void testRegression() {
+        final List<MetricComparison> result = comparison.compare(runs(1000, 1010, 990), runs(800, 810, 790));
+        assertEquals(MetricComparison.REGRESSION, result.get(0).getVerdict());
+        assertEquals(20, result.get(0).getWorsePercent(), 0.01);
+        assertTrue(result.get(0).getPValue() < 0.05);
+        // lower latency is better
+        assertEquals(MetricComparison.IMPROVED, result.get(1).getVerdict());
+        assertEquals(-20, result.get(1).getWorsePercent(), 0.01);
+        assertTrue(ResultComparison.hasRegression(result));
+    }
+
+    @Test
+    public void testNoisyRunsAreNotSignificant() {
+        final List<MetricComparison> result = comparison.compare(runs(1000, 600, 1400), runs(900, 500, 1300));
+        assertEquals(10, result.get(0).getWorsePercent(), 0.01);
+        assertEquals(MetricComparison.NOT_SIGNIFICANT, result.get(0).getVerdict());
+        assertFalse(ResultComparison.hasRegression(result));
+    }
+
+    @Test
+    public void testSingleRunsUseTheThresholdOnly() {
+        final List<MetricComparison> result = comparison.compare(runs(1000), runs(940));
+        assertTrue(Double.isNaN(result.get(0).getPValue()));
+        assertEquals(MetricComparison.REGRESSION, result.get(0).getVerdict());
+    }
+
+    @Test
+    public void testMissingMetric() {
+        final List<Map<String, Object>> candidate = runs(1000);
+        candidate.get(0).put(RATE, "not known");
+        final List<MetricComparison> result = comparison.compare(runs(1000), candidate);
+        assertEquals(MetricComparison.MISSING, result.get(0).getVerdict());
+        assertTrue(ResultComparison.hasMissing(result));
+        assertFalse(ResultComparison.hasMissing(result.subList(1, 2)));
+    }
+
+    @Test
+    public void testMissingInSomeRuns() {
+        // e.g. a latency written with a locale as "1,235" in one run
+        final List<Map<String, Object>> candidate = runs(1000, 1000);
+        candidate.get(1).put(P99, "90,000");
+        final List<MetricComparison> result = comparison.compare(runs(1000, 1000), candidate);
+        assertEquals(MetricComparison.UNCHANGED, result.get(0).getVerdict());
+        assertTrue(result.get(1).isMissing());
+        assertTrue(ResultComparison.hasMissing(result));
+    }
+
+    @Test
+    public void testReadRuns() throws IOException {
+        final File file = File.createTempFile("jmsloadtester", ".json");
+        file.deleteOnExit();
+        final FileOutputStream out = new FileOutputStream(file);
+        out.write(("{\"" + RATE + "\": 1000.5}\n\n{\"" + RATE + "\": 990}\n").getBytes("UTF-8"));
+        out.close();
+        final List<Map<String, Object>> runs = ResultComparison.readRuns(file);
+        assertEquals(2, runs.size());
+        assertEquals(1000.5d, runs.get(0).get(RATE));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new ResultComparison(new ArrayList<Metric>(), 5, 0.05);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new ResultComparison(ResultComparison.DEFAULT_METRICS, -1, 0.05);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new ResultComparison(ResultComparison.DEFAULT_METRICS, 5, 1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    // the latency follows the rate
+    private List<Map<String, Object>> runs(final double... rates) {
+        final List<Map<String, Object>> runs = new ArrayList<Map<String, Object>>();
+        for (double rate : rates) {
+            final Map<String, Object> run = new LinkedHashMap<String, Object>();
+            run.put(RATE, rate);
+            run.put(P99, rate / 10);
+            runs.add(run);
+        }
+        return runs;
+    }
+}
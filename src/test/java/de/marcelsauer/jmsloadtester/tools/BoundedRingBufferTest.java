@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedRingBufferTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testOfferAndPoll() {
+        final BoundedRingBuffer<String> buffer = new BoundedRingBuffer<String>(3);
+        assertEquals(4, buffer.getCapacity());
+        assertNull(buffer.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer("line " + i));
+        }
+        // full
+        assertFalse(buffer.offer("line 4"));
+        assertEquals(4, buffer.size());
+        assertEquals("line 0", buffer.poll());
+        assertTrue(buffer.offer("line 5"));
+        assertEquals("line 1", buffer.poll());
+        assertEquals("line 2", buffer.poll());
+        assertEquals("line 3", buffer.poll());
+        assertEquals("line 5", buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void testManyProducersOneConsumer() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 50000;
+        final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<Integer>(1024);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < perProducer; j++) {
+                        // retry instead of dropping, so every element must arrive
+                        while (!buffer.offer(producer * perProducer + j)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        final int[] lastPerProducer = new int[producers];
+        Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            final Integer value = buffer.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            final int producer = value / perProducer;
+            // the order of each producer is kept
+            assertTrue(value % perProducer > lastPerProducer[producer]);
+            lastPerProducer[producer] = value % perProducer;
+            received++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testQuote() {
+        assertEquals("\"Latency p50 milliseconds\"", Json.quote("Latency p50 milliseconds"));
+        assertEquals("\"a \\\"b\\\" \\\\ c\\n\\u0001\"", Json.quote("a \"b\" \\ c\n\u0001"));
+    }
+
+    @Test
+    public void testValue() {
+        assertEquals("5810", Json.value(5810));
+        assertEquals("7.961389941E9", Json.value(7.961389941E9));
+        assertEquals("77.823", Json.value("77.823"));
+        assertEquals("null", Json.value(Double.NaN));
+        assertEquals("null", Json.value(Double.POSITIVE_INFINITY));
+        assertEquals("null", Json.value(null));
+        assertEquals("true", Json.value(Boolean.TRUE));
+        assertEquals("\"2918 (estimated)\"", Json.value("2918 (estimated)"));
+        assertEquals("null", Json.value("NaN"));
+        // numbers JSON does not know
+        assertEquals("1.0", Json.value("1d"));
+        assertEquals("7.0", Json.value("007"));
+    }
+
+    @Test
+    public void testParseObject() {
+        final Map<String, Object> values = Json.parseObject("{\"total messages sent\": 1200, \"Latency p99 milliseconds\": 158.719, "
+                + "\"a \\\"b\\\"\\n\\u0001\": \"2918 (estimated)\", \"ok\": true, \"rate\": null, \"big\": -7.9E9 }");
+        assertEquals(6, values.size());
+        assertEquals(1200d, values.get("total messages sent"));
+        assertEquals(158.719d, values.get("Latency p99 milliseconds"));
+        assertEquals("2918 (estimated)", values.get("a \"b\"\n\u0001"));
+        assertEquals(Boolean.TRUE, values.get("ok"));
+        assertNull(values.get("rate"));
+        assertEquals(-7.9E9d, values.get("big"));
+        assertEquals("[total messages sent, Latency p99 milliseconds, a \"b\"\n\u0001, ok, rate, big]", values.keySet().toString());
+        assertEquals(0, Json.parseObject(" {} ").size());
+    }
+
+    @Test
+    public void testParseWritten() {
+        final String written = "{" + Json.quote("key \"1\"\t") + ": " + Json.value("77.823") + "}";
+        assertEquals(77.823d, Json.parseObject(written).get("key \"1\"\t"));
+    }
+
+    @Test
+    public void testParseExceptionBehaviour() {
+        final String[] invalid = { null, "", "[1]", "{\"a\": 1", "{\"a\": 1} x", "{\"a\": 007}", "{\"a\": {\"b\": 1}}", "{\"a\" 1}", "{\"a\": \"b}" };
+        for (String text : invalid) {
+            try {
+                Json.parseObject(text);
+                fail("expected IllegalArgumentException for " + text);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram(1000 * 1000);
+        for (int i = 1; i <= 100000; i++) {
+            histogram.recordValue(i);
+        }
+        assertEquals(100000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(50000.5, histogram.getMean(), 0.001);
+        assertWithinOnePercent(50000, histogram.getValueAtPercentile(50));
+        assertWithinOnePercent(90000, histogram.getValueAtPercentile(90));
+        assertWithinOnePercent(99000, histogram.getValueAtPercentile(99));
+        assertWithinOnePercent(99900, histogram.getValueAtPercentile(99.9));
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testGetOrCreate() {
+        final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<LatencyHistogram>(2);
+        final LatencyHistogram histogram = LatencyHistogram.getOrCreate(histograms, 1);
+        assertSame(histogram, LatencyHistogram.getOrCreate(histograms, 1));
+        assertNull(histograms.get(0));
+        histogram.recordValue(LatencyHistogram.HIGHEST_TRACKABLE_MICROS);
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_MICROS, histogram.getMax());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.recordValue(3);
+        histogram.recordValue(7);
+        histogram.recordValue(200);
+        histogram.recordValue(-5);
+        assertEquals(0, histogram.getValueAtPercentile(25));
+        assertEquals(3, histogram.getValueAtPercentile(50));
+        assertEquals(7, histogram.getValueAtPercentile(75));
+        assertEquals(200, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testValuesAboveHighestTrackableValue() {
+        final LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.recordValue(5000);
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(5000, histogram.getMax());
+        assertTrue(histogram.getValueAtPercentile(50) >= 1000);
+    }
+
+    @Test
+    public void testIndexes() {
+        long previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            final int index = LatencyHistogram.getIndex(value);
+            final long highest = LatencyHistogram.getHighestEquivalentValue(index);
+            assertTrue(value <= highest);
+            assertTrue((highest - value) <= value / 128);
+            if (highest != previous) {
+                // buckets are contiguous
+                assertEquals(previous + 1, value);
+                previous = highest;
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram(1000 * 1000);
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.recordValue(j);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(40000, histogram.getTotalCount());
+        assertEquals(9999, histogram.getMax());
+    }
+
+    private void assertWithinOnePercent(final long expected, final long actual) {
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 100);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RandomUtilsTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testCumulativeWeights() {
+        final double[] expected = { 1, 1, 4, 10 };
+        final double[] cumulative = RandomUtils.getCumulativeWeights(new double[] { 1, 0, 3, 6 });
+        assertEquals(expected.length, cumulative.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], cumulative[i], 0);
+        }
+    }
+
+    @Test
+    public void testPickWeighted() {
+        final double[] cumulative = RandomUtils.getCumulativeWeights(new double[] { 1, 0, 3, 6 });
+        final int[] picks = new int[cumulative.length];
+        for (int i = 0; i < 10000; i++) {
+            picks[RandomUtils.pickWeighted(cumulative)]++;
+        }
+        assertEquals(0, picks[1]);
+        // 10 %, 30 % and 60 %
+        assertTrue(picks[0] > 700 && picks[0] < 1300);
+        assertTrue(picks[2] > 2600 && picks[2] < 3400);
+        assertTrue(picks[3] > 5500 && picks[3] < 6500);
+    }
+
+    @Test
+    public void testOneRandomPerThread() {
+        assertSame(RandomUtils.getRandom(), RandomUtils.getRandom());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tools;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StatisticsTest extends AbstractJmsLoaderTest {
+
+    private static final double DELTA = 1e-4;
+
+    @Test
+    public void testMeanAndDeviation() {
+        assertEquals(3, Statistics.mean(new double[] { 1, 2, 3, 4, 5 }), DELTA);
+        assertEquals(2.5, Statistics.variance(new double[] { 1, 2, 3, 4, 5 }), DELTA);
+        assertEquals(Math.sqrt(2.5), Statistics.standardDeviation(new double[] { 1, 2, 3, 4, 5 }), DELTA);
+        assertEquals(0, Statistics.variance(new double[] { 42 }), DELTA);
+    }
+
+    @Test
+    public void testStudentT() {
+        assertEquals(1, Statistics.studentTTwoSided(0, 10), DELTA);
+        // the 97.5 % quantiles of the tables
+        assertEquals(0.05, Statistics.studentTTwoSided(2.228, 10), DELTA);
+        assertEquals(0.05, Statistics.studentTTwoSided(-12.706, 1), DELTA);
+        assertEquals(0.05, Statistics.studentTTwoSided(1.960, 1e6), DELTA);
+        assertEquals(0.01, Statistics.studentTTwoSided(3.169, 10), DELTA);
+    }
+
+    @Test
+    public void testWelchTTest() {
+        // t = -2 with 8 degrees of freedom
+        assertEquals(0.0805, Statistics.welchTTest(new double[] { 1, 2, 3, 4, 5 }, new double[] { 3, 4, 5, 6, 7 }), DELTA);
+        // different variances and sizes, t = -3 with 4 degrees of freedom
+        assertEquals(0.0399, Statistics.welchTTest(new double[] { 10, 10, 10, 10, 10, 10 }, new double[] { 12, 14, 16, 10, 13 }), DELTA);
+        assertEquals(1, Statistics.welchTTest(new double[] { 5, 5 }, new double[] { 5, 5 }), DELTA);
+        assertEquals(0, Statistics.welchTTest(new double[] { 5, 5 }, new double[] { 6, 6 }), DELTA);
+        assertTrue(Double.isNaN(Statistics.welchTTest(new double[] { 5 }, new double[] { 6, 6 })));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            Statistics.mean(new double[0]);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.client.DestinationRouter;
+import de.marcelsauer.jmsloadtester.client.Sender;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DestinationTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testSingleDestinationIsDisabled() {
+        assertFalse(new DestinationTracker(new DestinationRouter("perf.in", DestinationRouter.ROUND_ROBIN)).isEnabled());
+    }
+
+    @Test
+    public void testCountsPerDestination() throws JMSException {
+        final DestinationTracker tracker = new DestinationTracker(new DestinationRouter("q.{0..2}", DestinationRouter.ROUND_ROBIN));
+        assertTrue(tracker.isEnabled());
+        tracker.messageSent(createMessage("q.0"));
+        tracker.messageSent(createMessage("q.2"));
+        tracker.messageSent(createMessage("q.2"));
+        tracker.messageSent(createMessage(null));
+        tracker.onMessage(createMessage("q.2"));
+        tracker.onMessage(createMessage("unknown"));
+        assertEquals(1, tracker.getSent(0));
+        assertEquals(0, tracker.getSent(1));
+        assertEquals(2, tracker.getSent(2));
+        assertEquals(1, tracker.getUnknownSent());
+        assertEquals(1, tracker.getReceived(2));
+        assertEquals(0, tracker.getReceived(0));
+        assertNull(tracker.getLatencyHistogram(0));
+        assertEquals(1, tracker.getLatencyHistogram(2).getTotalCount());
+        assertEquals(1, tracker.getUnknownReceived());
+    }
+
+    private Message createMessage(final String destination) throws JMSException {
+        final Map<String, Object> properties = createSendProperties(System.nanoTime());
+        properties.put(Sender.DESTINATION, destination);
+        return createPropertyMessage(properties);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.client.ListenerAssignment;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ListenerDestinationTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testSingleDestinationIsDisabled() {
+        assertFalse(new ListenerDestinationTracker(new ListenerAssignment("perf.in", ListenerAssignment.SPREAD, 4), 10).isEnabled());
+    }
+
+    @Test
+    public void testCountsAndCompletionPerDestination() throws JMSException {
+        // 2 listeners on q.0, 1 on q.1 and q.2, 2 messages each
+        final ListenerDestinationTracker tracker = new ListenerDestinationTracker(new ListenerAssignment("q.{0..2}", ListenerAssignment.SPREAD, 4), 2);
+        assertTrue(tracker.isEnabled());
+        assertEquals(4, tracker.getExpected(0));
+        assertEquals(2, tracker.getExpected(1));
+        final MessageNotifyable q0 = tracker.getNotifyable(0);
+        final MessageNotifyable q1 = tracker.getNotifyable(1);
+        q0.onMessage(createMessage(true));
+        q1.onMessage(createMessage(true));
+        q1.onMessage(createMessage(false));
+        assertEquals(1, tracker.getReceived(0));
+        assertEquals(2, tracker.getReceived(1));
+        assertEquals(0, tracker.getReceived(2));
+        assertTrue(tracker.getCompletedAfterMillis(1) >= 0);
+        assertTrue(tracker.getCompletedAfterMillis(0) < 0);
+        assertEquals(1, tracker.getLatencyHistogram(1).getTotalCount());
+        assertNull(tracker.getLatencyHistogram(2));
+        // q.2 got nothing, q.0 a quarter, the average is 3 of 8
+        assertEquals(Arrays.asList(2, 0), tracker.getLagging());
+    }
+
+    private Message createMessage(final boolean withSendTime) throws JMSException {
+        if (withSendTime) {
+            return createPropertyMessage(createSendProperties(System.nanoTime()));
+        }
+        return createPropertyMessage(new HashMap<String, Object>());
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MessageIdTrackerTest extends AbstractJmsLoaderTest {
+
+    private static final int IDS = 100000;
+
+    @Test
+    public void testFactory() {
+        assertTrue(MessageIdTrackerFactory.getMessageIdTracker("EXACT") instanceof ExactMessageIdTracker);
+        assertTrue(MessageIdTrackerFactory.getMessageIdTracker("FINGERPRINT") instanceof FingerprintMessageIdTracker);
+        assertTrue(MessageIdTrackerFactory.getMessageIdTracker("NONE") instanceof NoMessageIdTracker);
+        final MessageIdTracker hll = MessageIdTrackerFactory.getMessageIdTracker("HLL#5000");
+        assertTrue(hll instanceof HyperLogLogMessageIdTracker);
+        // rounded down to a power of two
+        assertEquals(4096, ((HyperLogLogMessageIdTracker) hll).getRegisterCount());
+        assertFalse(MessageIdTrackerFactory.getMessageIdTracker("NONE").isEnabled());
+        for (String type : new String[] { "EXACT", "FINGERPRINT", "NONE", MessageIdTrackerFactory.DEFAULT }) {
+            MessageIdTrackerFactory.validate(type);
+        }
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        assertInvalid("FOO");
+        assertInvalid("HLL#abc");
+        assertInvalid(null);
+    }
+
+    @Test
+    public void testExactCountsWithDuplicates() {
+        assertCount(new ExactMessageIdTracker());
+        assertCount(new FingerprintMessageIdTracker());
+    }
+
+    @Test
+    public void testHyperLogLogEstimate() {
+        final HyperLogLogMessageIdTracker tracker = new HyperLogLogMessageIdTracker(16384);
+        assertEquals(0, tracker.getUniqueCount());
+        addIds(tracker);
+        final long count = tracker.getUniqueCount();
+        // 4 standard errors
+        assertTrue("estimated " + count, Math.abs(count - IDS) < IDS * 4 * tracker.getStandardError());
+    }
+
+    @Test
+    public void testHyperLogLogSmallCounts() {
+        final HyperLogLogMessageIdTracker tracker = new HyperLogLogMessageIdTracker(16384);
+        for (int i = 0; i < 100; i++) {
+            tracker.add("ID:small-" + i);
+            tracker.add("ID:small-" + i);
+        }
+        final long count = tracker.getUniqueCount();
+        assertTrue("estimated " + count, count >= 98 && count <= 102);
+    }
+
+    private void assertCount(final MessageIdTracker tracker) {
+        addIds(tracker);
+        assertEquals(IDS, tracker.getUniqueCount());
+        assertTrue(tracker.isExact());
+    }
+
+    private void addIds(final MessageIdTracker tracker) {
+        for (int i = 0; i < IDS; i++) {
+            tracker.add("ID:host-4711-1234567890-1:1:1:1:" + i);
+            // every 10th one twice
+            if (i % 10 == 0) {
+                tracker.add("ID:host-4711-1234567890-1:1:1:1:" + i);
+            }
+        }
+    }
+
+    private void assertInvalid(final String type) {
+        try {
+            MessageIdTrackerFactory.getMessageIdTracker(type);
+            fail("expected IllegalArgumentException for " + type);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            MessageIdTrackerFactory.validate(type);
+            fail("expected IllegalArgumentException from validate for " + type);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MessageTrackerImplTest extends AbstractJmsLoaderTest {
+
+    private static final int THREADS = 8;
+    private static final int MESSAGES_PER_THREAD = 5000;
+
+    private MessageTracker tracker;
+    private TimeTracker senderTimeTracker;
+    private TimeTracker listenerTimeTracker;
+
+    @Before
+    public void setUp() throws Exception {
+        tracker = new MessageTrackerImpl();
+        senderTimeTracker = new TimeTrackerImpl();
+        listenerTimeTracker = new TimeTrackerImpl();
+        tracker.setSenderTimeTracker(senderTimeTracker);
+        tracker.setListenerTimeTracker(listenerTimeTracker);
+        tracker.setSentMessageIdTracker(new ExactMessageIdTracker());
+        tracker.setReceivedMessageIdTracker(new FingerprintMessageIdTracker());
+    }
+
+    @Test
+    public void testConcurrentCounting() throws InterruptedException, JMSException {
+        final int total = THREADS * MESSAGES_PER_THREAD;
+        tracker.setTotalMessagesToBeSent(total);
+        tracker.setTotalMessagesToBeReceived(total);
+        assertFalse(tracker.isAllSent());
+        assertFalse(tracker.isAllReceived());
+        assertFalse(tracker.awaitAll(10));
+
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < THREADS; i++) {
+            final Message[] messages = new Message[MESSAGES_PER_THREAD];
+            for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+                messages[j] = createMessage("ID:" + i + "-" + j);
+            }
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (Message message : messages) {
+                        tracker.messageSent(message);
+                        tracker.onMessage(message);
+                    }
+                }
+            }));
+        }
+        for (Thread t : threads) {
+            t.start();
+        }
+        assertTrue(tracker.awaitAll(10000));
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        assertEquals(total, tracker.getTotalMessagesSent());
+        assertEquals(total, tracker.getTotalMessagesReceived());
+        assertEquals(total, tracker.getSentMessageIdTracker().getUniqueCount());
+        assertEquals(total, tracker.getReceivedMessageIdTracker().getUniqueCount());
+        assertTrue(tracker.isAllSent());
+        assertTrue(tracker.isAllReceived());
+
+        // the timers were stopped by the last message
+        final double senderDuration = senderTimeTracker.getDurationInNanoSeconds();
+        Thread.sleep(20);
+        assertEquals(senderDuration, senderTimeTracker.getDurationInNanoSeconds(), 0);
+        assertTrue(listenerTimeTracker.getDurationInNanoSeconds() > 0);
+    }
+
+    @Test
+    public void testNothingExpected() throws InterruptedException {
+        tracker.setTotalMessagesToBeSent(0);
+        tracker.setTotalMessagesToBeReceived(0);
+        assertTrue(tracker.isAllSent());
+        assertTrue(tracker.isAllReceived());
+        assertTrue(tracker.awaitAll(0));
+    }
+
+    @Test
+    public void testFailedSendsCompleteTheRun() throws InterruptedException, JMSException {
+        // a topic with two listeners, each sent message is received twice
+        tracker.setTotalMessagesToBeSent(3);
+        tracker.setTotalMessagesToBeReceived(6);
+        final Message message = createMessage("ID:1");
+        tracker.messageSent(message);
+        tracker.onMessage(message);
+        tracker.onMessage(message);
+        tracker.messageSendFailed();
+        assertFalse(tracker.isAllSent());
+        assertEquals(4, tracker.getTotalMessagesToBeReceived());
+        tracker.messageSendFailed();
+        assertTrue(tracker.isAllSent());
+        assertTrue(tracker.isAllReceived());
+        assertTrue(tracker.awaitAll(0));
+        // the lower totals stopped the timers
+        final double senderDuration = senderTimeTracker.getDurationInNanoSeconds();
+        final double listenerDuration = listenerTimeTracker.getDurationInNanoSeconds();
+        Thread.sleep(20);
+        assertEquals(senderDuration, senderTimeTracker.getDurationInNanoSeconds(), 0);
+        assertEquals(listenerDuration, listenerTimeTracker.getDurationInNanoSeconds(), 0);
+        assertEquals(2, tracker.getSendErrors());
+        assertEquals(1, tracker.getTotalMessagesSent());
+        assertEquals(2, tracker.getTotalMessagesToBeReceived());
+    }
+
+    @Test
+    public void testMessagesWithoutId() throws JMSException {
+        tracker.setTotalMessagesToBeReceived(2);
+        tracker.onMessage(createMessage(null));
+        assertFalse(tracker.isAllReceived());
+        tracker.onMessage(createMessage(null));
+        assertTrue(tracker.isAllReceived());
+        assertEquals(2, tracker.getTotalMessagesReceived());
+        assertEquals(0, tracker.getReceivedMessageIdTracker().getUniqueCount());
+    }
+
+    private Message createMessage(final String id) throws JMSException {
+        final Message message = createNiceMockOfType(Message.class);
+        expect(message.getJMSMessageID()).andReturn(id).anyTimes();
+        replay(message);
+        return message;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.message.MessageNotifyable;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplyTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new ReplyTracker((String) null).isEnabled());
+        assertFalse(new ReplyTracker(" ").isEnabled());
+        assertTrue(new ReplyTracker(ReplyTracker.TEMPORARY).isEnabled());
+    }
+
+    @Test
+    public void testRepliesAreMatched() throws JMSException {
+        final ReplyTracker tracker = new ReplyTracker(ReplyTracker.TEMPORARY);
+        final AtomicInteger notified = new AtomicInteger();
+        tracker.addReplyNotifyable(new MessageNotifyable() {
+            public void onMessage(final Message message) {
+                notified.incrementAndGet();
+            }
+        });
+        final List<String> correlationIds = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            final long request = tracker.nextRequest();
+            correlationIds.add(tracker.getCorrelationId(request));
+            tracker.requestSent(request);
+        }
+        assertEquals(3, tracker.getOutstanding());
+        // out of order
+        tracker.onMessage(createReply(correlationIds.get(2)));
+        tracker.onMessage(createReply(correlationIds.get(0)));
+        // a duplicate, a reply of another jvm and one without correlation id
+        tracker.onMessage(createReply(correlationIds.get(0)));
+        tracker.onMessage(createReply("someone-else-1"));
+        tracker.onMessage(createReply(null));
+        assertEquals(2, tracker.getMatched());
+        assertEquals(3, tracker.getUnmatched());
+        assertEquals(1, tracker.getOutstanding());
+        assertEquals(2, notified.get());
+        assertEquals(2, tracker.getRoundTripHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testEvictedWhenTableIsFull() throws JMSException {
+        final ReplyTracker tracker = new ReplyTracker(ReplyTracker.TEMPORARY);
+        final long first = tracker.nextRequest();
+        tracker.requestSent(first);
+        for (int i = 1; i <= ReplyTracker.TABLE_SIZE; i++) {
+            tracker.requestSent(tracker.nextRequest());
+        }
+        assertEquals(1, tracker.getEvicted());
+        assertEquals(ReplyTracker.TABLE_SIZE, tracker.getOutstanding());
+        // too late, its slot belongs to a newer request
+        tracker.onMessage(createReply(tracker.getCorrelationId(first)));
+        assertEquals(1, tracker.getUnmatched());
+        assertEquals(0, tracker.getMatched());
+    }
+
+    @Test
+    public void testFailedRequestIsNotWaitedFor() throws InterruptedException, JMSException {
+        final ReplyTracker tracker = new ReplyTracker(ReplyTracker.TEMPORARY);
+        final long request = tracker.nextRequest();
+        tracker.requestSent(request);
+        tracker.requestFailed(request);
+        assertEquals(0, tracker.getOutstanding());
+        assertTrue(tracker.awaitReplies(10));
+        // removed once only
+        tracker.requestFailed(request);
+        assertEquals(0, tracker.getOutstanding());
+        tracker.onMessage(createReply(tracker.getCorrelationId(request)));
+        assertEquals(1, tracker.getUnmatched());
+    }
+
+    @Test
+    public void testAwaitReplies() throws InterruptedException, JMSException {
+        final ReplyTracker tracker = new ReplyTracker(ReplyTracker.TEMPORARY);
+        assertTrue(tracker.awaitReplies(10));
+        final long request = tracker.nextRequest();
+        tracker.requestSent(request);
+        assertFalse(tracker.awaitReplies(50));
+        tracker.onMessage(createReply(tracker.getCorrelationId(request)));
+        assertTrue(tracker.awaitReplies(50));
+    }
+
+    private Message createReply(final String correlationId) throws JMSException {
+        final Message reply = createNiceMockOfType(Message.class);
+        expect(reply.getJMSCorrelationID()).andReturn(correlationId).anyTimes();
+        replay(reply);
+        return reply;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RunTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testDuration() throws InterruptedException {
+        final RunTracker tracker = new RunTracker(100, 0);
+        assertTrue(tracker.isTimeBound());
+        tracker.start();
+        assertFalse(tracker.awaitEnd(10));
+        assertTrue(tracker.getRemainingMillis() > 0);
+        while (!tracker.awaitEnd(50)) {
+            // wait
+        }
+        assertEquals(0, tracker.getRemainingMillis());
+        assertTrue(tracker.getElapsedMillis() >= 100);
+        assertFalse(tracker.isStopped());
+        tracker.stop();
+        assertTrue(tracker.isStopped());
+        // the listeners still receive until the run is over
+        assertFalse(tracker.isEnded());
+        tracker.end();
+        assertTrue(tracker.isEnded());
+    }
+
+    @Test
+    public void testIdleTimeout() throws InterruptedException {
+        final RunTracker tracker = new RunTracker(0, 50);
+        assertFalse(tracker.isTimeBound());
+        tracker.start();
+        Thread.sleep(60);
+        assertTrue(tracker.isIdle());
+        // a message resets the idle time
+        tracker.onMessage(null);
+        assertFalse(tracker.isIdle());
+        assertTrue(tracker.awaitIdle(20, 1000));
+    }
+
+    @Test
+    public void testNoIdleTimeout() throws InterruptedException {
+        final RunTracker tracker = new RunTracker(0, 0);
+        tracker.start();
+        Thread.sleep(5);
+        assertFalse(tracker.isIdle());
+        assertEquals("sending a number of messages", tracker.toString());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new RunTracker(-1, 0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
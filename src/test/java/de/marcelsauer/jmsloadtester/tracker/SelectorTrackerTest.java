@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.client.SelectorGroups;
+import de.marcelsauer.jmsloadtester.client.Sender;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SelectorTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testSentPerGroup() throws JMSException {
+        final SelectorTracker tracker = new SelectorTracker(SelectorGroups.getSelectorGroups("2"), null);
+        assertTrue(tracker.isEnabled());
+        tracker.messageSent(createMessage(0));
+        tracker.messageSent(createMessage(1));
+        tracker.messageSent(createMessage(1));
+        tracker.messageSent(createMessage(5));
+        tracker.messageSent(createMessage(null));
+        assertEquals(1, tracker.getSent(0));
+        assertEquals(2, tracker.getSent(1));
+        assertEquals(2, tracker.getSentWithoutGroup());
+    }
+
+    @Test
+    public void testListenersAreComparedByKind() throws InterruptedException, JMSException {
+        final SelectorTracker tracker = new SelectorTracker(null, "selectorGroup = {group}");
+        final SelectorTracker.Listeners selecting = tracker.addListener(true);
+        final SelectorTracker.Listeners plain = tracker.addListener(false);
+        tracker.addListener(false);
+        assertEquals(1, tracker.getListeners(true).getListenerCount());
+        assertEquals(2, tracker.getListeners(false).getListenerCount());
+
+        selecting.onMessage(createMessage(0));
+        assertEquals(0, selecting.getMessagesPerSecond(), 0);
+        Thread.sleep(5);
+        selecting.onMessage(createMessage(0));
+        plain.onMessage(createMessage(0));
+        assertEquals(2, selecting.getReceived());
+        assertEquals(1, plain.getReceived());
+        assertTrue(selecting.getMessagesPerSecond() > 0);
+        assertNotNull(selecting.getLatencyHistogram());
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new SelectorTracker(null, null).isEnabled());
+    }
+
+    private Message createMessage(final Integer group) throws JMSException {
+        final Map<String, Object> properties = createSendProperties(System.nanoTime());
+        if (group != null) {
+            properties.put(Sender.SELECTOR_GROUP, group);
+        }
+        return createPropertyMessage(properties);
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SequenceStreamTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testInOrder() {
+        final SequenceStream stream = new SequenceStream();
+        for (int i = 1; i <= 100000; i++) {
+            stream.add(i, false);
+        }
+        assertCounts(stream, 0, 0, 0, 0);
+        assertEquals(0, stream.getGaps());
+    }
+
+    @Test
+    public void testLostMessages() {
+        final SequenceStream stream = new SequenceStream();
+        add(stream, 1, 2, 3, 6, 7, 10);
+        // 4, 5, 8, 9
+        assertCounts(stream, 4, 0, 0, 0);
+        assertEquals(2, stream.getGaps());
+    }
+
+    @Test
+    public void testOutOfOrderClosesGaps() {
+        final SequenceStream stream = new SequenceStream();
+        add(stream, 1, 3, 5, 4, 2);
+        assertCounts(stream, 0, 0, 2, 0);
+        assertEquals(0, stream.getGaps());
+        add(stream, 6);
+        assertCounts(stream, 0, 0, 2, 0);
+    }
+
+    @Test
+    public void testDuplicatesAndRedelivery() {
+        final SequenceStream stream = new SequenceStream();
+        add(stream, 1, 2, 4, 2, 4);
+        assertCounts(stream, 1, 2, 0, 0);
+        stream.add(4, true);
+        stream.add(1, true);
+        assertCounts(stream, 1, 2, 0, 2);
+        // redelivered but never seen before, e.g. the first delivery was not acknowledged in time
+        stream.add(3, true);
+        assertCounts(stream, 0, 2, 1, 3);
+    }
+
+    @Test
+    public void testMemoryGrowsWithGapsOnly() {
+        final SequenceStream stream = new SequenceStream();
+        for (int i = 1; i <= 100000; i++) {
+            // every 1000th message is lost
+            if (i % 1000 != 0) {
+                stream.add(i, false);
+            }
+        }
+        assertEquals(99, stream.getLost());
+        assertEquals(99, stream.getGaps());
+    }
+
+    private void add(final SequenceStream stream, final long... sequences) {
+        for (long sequence : sequences) {
+            stream.add(sequence, false);
+        }
+    }
+
+    private void assertCounts(final SequenceStream stream, final long lost, final long duplicates, final long outOfOrder, final long redelivered) {
+        assertEquals("lost", lost, stream.getLost());
+        assertEquals("duplicates", duplicates, stream.getDuplicates());
+        assertEquals("out of order", outOfOrder, stream.getOutOfOrder());
+        assertEquals("redelivered", redelivered, stream.getRedelivered());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new SequenceTracker("FOO");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
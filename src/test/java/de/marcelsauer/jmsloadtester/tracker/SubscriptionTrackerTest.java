@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SubscriptionTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testBacklogIsDrainedAfterReconnect() throws InterruptedException, JMSException {
+        final SubscriptionTracker tracker = new SubscriptionTracker();
+        final SubscriptionTracker.Subscriber subscriber = tracker.newSubscriber("listener 0");
+        // received before the first reconnect, no backlog
+        subscriber.onMessage(createMessage(System.nanoTime()));
+        subscriber.disconnected();
+        final long sentWhileOffline = System.nanoTime();
+        Thread.sleep(5);
+        subscriber.reconnected();
+        Thread.sleep(5);
+        subscriber.onMessage(createMessage(sentWhileOffline));
+        subscriber.onMessage(createMessage(sentWhileOffline));
+        // sent after the reconnect
+        subscriber.onMessage(createMessage(System.nanoTime()));
+        assertEquals(1, tracker.getReconnects());
+        assertEquals(2, subscriber.getBacklogMessages());
+        assertEquals(2, tracker.getMaxBacklog());
+        assertTrue(subscriber.getOfflineMillis() >= 5);
+        assertTrue(subscriber.getDrainMillis() >= 5);
+        assertTrue(tracker.getDrainRate() > 0);
+
+        // the backlog of the next reconnect adds up
+        subscriber.disconnected();
+        final long sentWhileOfflineAgain = System.nanoTime();
+        Thread.sleep(1);
+        subscriber.reconnected();
+        subscriber.onMessage(createMessage(sentWhileOfflineAgain));
+        assertEquals(3, tracker.getBacklogMessages());
+        assertEquals(2, tracker.getMaxBacklog());
+    }
+
+    private Message createMessage(final long sendNanos) throws JMSException {
+        return createPropertyMessage(createSendProperties(sendNanos));
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import org.easymock.IAnswer;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.expectLastCall;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class TransactionTrackerTest extends AbstractJmsLoaderTest {
+
+    private final AtomicInteger commits = new AtomicInteger();
+
+    @Test
+    public void testCommitEveryMessages() throws JMSException {
+        final TransactionTracker tracker = new TransactionTracker(3, 0);
+        final Session session = createSession();
+        for (int i = 0; i < 7; i++) {
+            tracker.messageSent(session);
+        }
+        assertEquals(2, commits.get());
+        assertEquals(6, tracker.getMessagesCommitted());
+        // the rest is committed at the end
+        tracker.commit(session);
+        assertEquals(3, commits.get());
+        assertEquals(7, tracker.getMessagesCommitted());
+        assertEquals(3, tracker.getCommitCount());
+    }
+
+    @Test
+    public void testCommitEveryMillis() throws InterruptedException, JMSException {
+        final TransactionTracker tracker = new TransactionTracker(1000, 50);
+        final Session session = createSession();
+        tracker.messageSent(session);
+        tracker.messageSent(session);
+        assertEquals(0, commits.get());
+        Thread.sleep(60);
+        tracker.messageSent(session);
+        assertEquals(1, commits.get());
+        assertEquals(3, tracker.getMessagesCommitted());
+    }
+
+    @Test
+    public void testNothingToCommit() throws JMSException {
+        final TransactionTracker tracker = new TransactionTracker(1, 0);
+        tracker.commit(createSession());
+        assertEquals(0, commits.get());
+        assertEquals(0, tracker.getCommitCount());
+    }
+
+    @Test
+    public void testBatchPerThread() throws InterruptedException, JMSException {
+        final TransactionTracker tracker = new TransactionTracker(2, 0);
+        final Session session = createSession();
+        tracker.messageSent(session);
+        final Thread other = new Thread(new Runnable() {
+            public void run() {
+                tracker.messageSent(session);
+            }
+        });
+        other.start();
+        other.join();
+        assertEquals(0, commits.get());
+        tracker.messageSent(session);
+        assertEquals(1, commits.get());
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new TransactionTracker(0, 0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            new TransactionTracker(1, -1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private Session createSession() throws JMSException {
+        final Session session = createNiceMockOfType(Session.class);
+        session.commit();
+        expectLastCall().andAnswer(new IAnswer<Object>() {
+            public Object answer() {
+                commits.incrementAndGet();
+                return null;
+            }
+        }).anyTimes();
+        replay(session);
+        return session;
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2009-2010 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.marcelsauer.jmsloadtester.tracker;
+
+import de.marcelsauer.jmsloadtester.AbstractJmsLoaderTest;
+import de.marcelsauer.jmsloadtester.output.OutputStrategy;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WindowTrackerTest extends AbstractJmsLoaderTest {
+
+    @Test
+    public void testWindowsCountTheDifference() throws InterruptedException, JMSException {
+        // long enough that only the test rolls the windows
+        final WindowTracker tracker = new WindowTracker(60 * 60 * 1000);
+        tracker.start();
+        tracker.messageSent(null);
+        tracker.messageSent(null);
+        tracker.onMessage(createMessage(System.nanoTime() - 2 * 1000 * 1000));
+        Thread.sleep(10);
+        final String first = tracker.roll(System.nanoTime(), true).toString();
+        assertTrue(first, first.startsWith("[WINDOW] 1 at "));
+        assertTrue(first, first.contains("sent 2 ("));
+        assertTrue(first, first.contains("received 1 ("));
+        assertTrue(first, first.contains("latency p50"));
+        assertTrue(tracker.getMaxP99() >= 2000);
+
+        tracker.onMessage(createMessage(System.nanoTime()));
+        Thread.sleep(10);
+        final String second = tracker.roll(System.nanoTime(), true).toString();
+        assertTrue(second, second.contains("sent 0 ("));
+        assertTrue(second, second.contains("received 1 ("));
+        assertEquals(2, tracker.getWindowCount());
+        assertTrue(tracker.getMinReceivedRate() > 0);
+        assertTrue(tracker.getMaxReceivedRate() >= tracker.getMinReceivedRate());
+
+        // the last window is printed but does not count for the min and max
+        final double minReceivedRate = tracker.getMinReceivedRate();
+        tracker.onMessage(createMessage(System.nanoTime()));
+        tracker.stop();
+        assertEquals(3, tracker.getWindowCount());
+        assertEquals(2, tracker.getCompleteWindowCount());
+        assertEquals(minReceivedRate, tracker.getMinReceivedRate(), 0);
+    }
+
+    @Test
+    public void testWindowsAreRolledInTheBackground() throws InterruptedException {
+        final WindowTracker tracker = new WindowTracker(20);
+        tracker.start();
+        Thread.sleep(110);
+        tracker.stop();
+        final int windows = tracker.getWindowCount();
+        assertTrue("windows " + windows, windows >= 3 && windows <= 6);
+        Thread.sleep(50);
+        assertEquals(windows, tracker.getWindowCount());
+    }
+
+    @Test
+    public void testExport() {
+        final List<String> csv = new ArrayList<String>();
+        final WindowTracker csvTracker = new WindowTracker(60 * 60 * 1000, createOutput(csv), WindowTracker.CSV);
+        csvTracker.start();
+        csvTracker.messageSent(null);
+        csvTracker.roll(System.nanoTime(), true);
+        csvTracker.roll(System.nanoTime(), true);
+        csvTracker.stop();
+        assertEquals(3, csv.size());
+        assertEquals(WindowTracker.Window.CSV_HEADER, csv.get(0));
+        assertTrue(csv.get(1), csv.get(1).matches("1,true,[0-9.]+,[0-9.]+,1,[0-9.]+,0,0.00,1,0,0,0.000,0.000,0.000,0.000,0.000"));
+        assertEquals(WindowTracker.Window.CSV_HEADER.split(",").length, csv.get(2).split(",").length);
+
+        final List<String> json = new ArrayList<String>();
+        final WindowTracker jsonTracker = new WindowTracker(60 * 60 * 1000, createOutput(json), WindowTracker.NDJSON);
+        jsonTracker.start();
+        jsonTracker.roll(System.nanoTime(), false);
+        jsonTracker.stop();
+        assertEquals(1, json.size());
+        assertTrue(json.get(0), json.get(0).startsWith("{\"window\": 1, \"complete\": false, \"elapsed_sec\": "));
+        assertTrue(json.get(0), json.get(0).endsWith("\"latency_max_ms\": 0.000}"));
+    }
+
+    @Test
+    public void testExceptionBehaviour() {
+        try {
+            new WindowTracker(1000, null, "XML");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        final WindowTracker tracker = new WindowTracker(0);
+        assertFalse(tracker.isEnabled());
+        tracker.start();
+        tracker.stop();
+        assertEquals(0, tracker.getWindowCount());
+    }
+
+    private OutputStrategy createOutput(final List<String> lines) {
+        return new OutputStrategy() {
+            public void output(final String line) {
+                lines.add(line);
+            }
+
+            public boolean isEnabled() {
+                return true;
+            }
+        };
+    }
+
+    private Message createMessage(final long sendNanos) throws JMSException {
+        return createPropertyMessage(createSendProperties(sendNanos));
+    }
+}